@@ -4,8 +4,10 @@ import no.jobbscraper.jobpostapi.jobpost.JobPostDtoMapper;
 import no.jobbscraper.jobpostapi.response.ResponseUtil;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableScheduling
 public class ApplicationConfig {
 
     @Bean
@@ -1,17 +1,33 @@
 package no.jobbscraper.jobpostapi.deserializer;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
 
 import java.io.IOException;
 import java.util.*;
 
+/**
+ * Deserializes job definitions of the form {@code {"Sted": ["Oslo", "Bergen"], "Sektor": ["Privat"]}} into one
+ * {@link JobDefinition} per value. Tokens are read straight from the parser instead of through a {@code JsonNode}
+ * tree. Keys come canonicalized from the parser's symbol table, and short values are looked up in a small cache
+ * straight from the parser's character buffer, so the handful of values that repeat across every job post of a
+ * payload are neither allocated nor retained once per post. Null, blank and non-string values are skipped, as are
+ * keys that do not map to an array.
+ */
 public class CustomJobDefinitionDeserializer extends StdDeserializer<Set<JobDefinition>> {
 
+    private static final int MAX_CACHED_LENGTH = 64;
+    private static final int CACHE_SIZE = 4096;
+
+    /*
+     * Direct mapped: a colliding value replaces the cached one. Slots only ever hold immutable strings, so racing
+     * writers can at worst evict each other's entries.
+     */
+    private static final String[] VALUE_CACHE = new String[CACHE_SIZE];
+
     public CustomJobDefinitionDeserializer() {
         this(null);
     }
@@ -22,21 +38,81 @@ public class CustomJobDefinitionDeserializer extends StdDeserializer<Set<JobDefi
 
     @Override
     public Set<JobDefinition> deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
-        ObjectMapper mapper = (ObjectMapper) jsonParser.getCodec();
-        JsonNode root = mapper.readTree(jsonParser);
-
         Set<JobDefinition> jobDefinitions = new HashSet<>();
+        if (!jsonParser.isExpectedStartObjectToken()) {
+            jsonParser.skipChildren();
+            return jobDefinitions;
+        }
+
+        for (String key = jsonParser.nextFieldName(); key != null; key = jsonParser.nextFieldName()) {
+            if (jsonParser.nextToken() != JsonToken.START_ARRAY || key.isBlank()) {
+                jsonParser.skipChildren();
+                continue;
+            }
 
-        root.fields().forEachRemaining(entry -> {
-            String key = entry.getKey();
-            JsonNode valueNode = entry.getValue();
+            for (JsonToken token = jsonParser.nextToken(); token != JsonToken.END_ARRAY; token = jsonParser.nextToken()) {
+                if (token != JsonToken.VALUE_STRING) {
+                    jsonParser.skipChildren();
+                    continue;
+                }
 
-            if (valueNode.isArray()) {
-                for (JsonNode node : valueNode) {
-                    jobDefinitions.add(new JobDefinition(key, node.textValue()));
+                String value = readValue(jsonParser);
+                if (value != null) {
+                    jobDefinitions.add(new JobDefinition(key, value));
                 }
             }
-        });
+        }
         return jobDefinitions;
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads the current string value, or {@code null} if it is blank. Short values are served from the cache when
+     * they were seen before.
+     */
+    private static String readValue(JsonParser jsonParser) throws IOException {
+        char[] chars = jsonParser.getTextCharacters();
+        int offset = jsonParser.getTextOffset();
+        int length = jsonParser.getTextLength();
+        if (isBlank(chars, offset, length)) {
+            return null;
+        }
+        if (length > MAX_CACHED_LENGTH) {
+            return new String(chars, offset, length);
+        }
+
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+
+        String cached = VALUE_CACHE[slot];
+        if (cached != null && contentEquals(cached, chars, offset, length)) {
+            return cached;
+        }
+        String value = new String(chars, offset, length);
+        VALUE_CACHE[slot] = value;
+        return value;
+    }
+
+    private static boolean isBlank(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (!Character.isWhitespace(chars[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contentEquals(String value, char[] chars, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,8 @@
+package no.jobbscraper.jobpostapi.exception;
+
+public class EmptySourceSyncException extends RuntimeException {
+
+    public EmptySourceSyncException(String source) {
+        super("Sync of source " + source + " contains no urls, refusing to expire all of its job posts");
+    }
+}
@@ -3,6 +3,8 @@ package no.jobbscraper.jobpostapi.exception;
 import no.jobbscraper.jobpostapi.response.Response;
 import no.jobbscraper.jobpostapi.response.ResponseErrorDto;
 import no.jobbscraper.jobpostapi.response.ResponseUtil;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -37,6 +39,107 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(response);
     }
 
+    @ExceptionHandler(value = InvalidCursorException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleInvalidCursorException(
+            InvalidCursorException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(value = InvalidTotalModeException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleInvalidTotalModeException(
+            InvalidTotalModeException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(value = InvalidSortModeException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleInvalidSortModeException(
+            InvalidSortModeException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(value = UnknownRegionException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleUnknownRegionException(
+            UnknownRegionException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(value = UnknownPlaceException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleUnknownPlaceException(
+            UnknownPlaceException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(value = InvalidRadiusException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleInvalidRadiusException(
+            InvalidRadiusException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(value = MalformedBulkLoadException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleMalformedBulkLoadException(
+            MalformedBulkLoadException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(value = EmptySourceSyncException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleEmptySourceSyncException(
+            EmptySourceSyncException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(value = IngestBatchNotFoundException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleIngestBatchNotFoundException(
+            IngestBatchNotFoundException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(value = IngestBatchTooLargeException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleIngestBatchTooLargeException(
+            IngestBatchTooLargeException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception, HttpStatus.PAYLOAD_TOO_LARGE);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+    }
+
+    @ExceptionHandler(value = IngestQueueFullException.class)
+    public ResponseEntity<Response<ResponseErrorDto>> handleIngestQueueFullException(
+            IngestQueueFullException exception
+    ) {
+        ResponseErrorDto errorDTO = responseUtil.createAPIErrorDTO(exception, HttpStatus.SERVICE_UNAVAILABLE);
+        Response<ResponseErrorDto> response = responseUtil.createAPIResponse(errorDTO);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(exception.getRetryAfter().toSeconds()))
+                .body(response);
+    }
+
     @ExceptionHandler(value = BindException.class)
     public ResponseEntity<Response<ResponseErrorDto>> handleBindException(
             BindException exception
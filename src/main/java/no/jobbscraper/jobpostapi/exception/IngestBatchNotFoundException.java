@@ -0,0 +1,10 @@
+package no.jobbscraper.jobpostapi.exception;
+
+import java.util.UUID;
+
+public class IngestBatchNotFoundException extends RuntimeException {
+
+    public IngestBatchNotFoundException(UUID batchId) {
+        super("Ingest batch with id " + batchId + " was not found");
+    }
+}
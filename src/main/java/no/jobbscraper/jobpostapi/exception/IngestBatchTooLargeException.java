@@ -0,0 +1,9 @@
+package no.jobbscraper.jobpostapi.exception;
+
+public class IngestBatchTooLargeException extends RuntimeException {
+
+    public IngestBatchTooLargeException(int size, int capacity) {
+        super("Batch of " + size + " job posts exceeds the ingest queue capacity of " + capacity
+                + ", use api/v1/jobposts/bulk instead");
+    }
+}
@@ -0,0 +1,17 @@
+package no.jobbscraper.jobpostapi.exception;
+
+import java.time.Duration;
+
+public class IngestQueueFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public IngestQueueFullException(int pending, int capacity, Duration retryAfter) {
+        super("Ingest queue is full (" + pending + " of " + capacity + " job posts pending), retry later");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,8 @@
+package no.jobbscraper.jobpostapi.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Cursor " + cursor + " is not valid");
+    }
+}
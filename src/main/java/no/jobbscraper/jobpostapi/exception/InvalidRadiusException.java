@@ -0,0 +1,8 @@
+package no.jobbscraper.jobpostapi.exception;
+
+public class InvalidRadiusException extends RuntimeException {
+
+    public InvalidRadiusException(int radiusKm, int maxRadiusKm) {
+        super("Radius " + radiusKm + " km is not between 0 and " + maxRadiusKm + " km");
+    }
+}
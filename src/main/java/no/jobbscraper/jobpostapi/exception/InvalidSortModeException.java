@@ -0,0 +1,8 @@
+package no.jobbscraper.jobpostapi.exception;
+
+public class InvalidSortModeException extends RuntimeException {
+
+    public InvalidSortModeException(String sort) {
+        super("Sort " + sort + " is not one of deadline or relevance");
+    }
+}
@@ -0,0 +1,8 @@
+package no.jobbscraper.jobpostapi.exception;
+
+public class InvalidTotalModeException extends RuntimeException {
+
+    public InvalidTotalModeException(String total) {
+        super("Total " + total + " is not one of exact, estimated or none");
+    }
+}
@@ -0,0 +1,8 @@
+package no.jobbscraper.jobpostapi.exception;
+
+public class MalformedBulkLoadException extends RuntimeException {
+
+    public MalformedBulkLoadException(long lineNo, String message) {
+        super("Line " + lineNo + " is not a valid job post: " + message);
+    }
+}
@@ -0,0 +1,8 @@
+package no.jobbscraper.jobpostapi.exception;
+
+public class UnknownPlaceException extends RuntimeException {
+
+    public UnknownPlaceException(String place) {
+        super("Place " + place + " is not in the gazetteer");
+    }
+}
@@ -0,0 +1,10 @@
+package no.jobbscraper.jobpostapi.exception;
+
+import java.util.Collection;
+
+public class UnknownRegionException extends RuntimeException {
+
+    public UnknownRegionException(String region, Collection<String> regions) {
+        super("Region " + region + " is not one of " + String.join(", ", regions));
+    }
+}
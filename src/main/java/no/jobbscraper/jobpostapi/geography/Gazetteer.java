@@ -0,0 +1,301 @@
+package no.jobbscraper.jobpostapi.geography;
+
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import no.jobbscraper.jobpostapi.exception.InvalidRadiusException;
+import no.jobbscraper.jobpostapi.exception.UnknownPlaceException;
+import no.jobbscraper.jobpostapi.exception.UnknownRegionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The regions and municipalities of the bundled gazetteer, {@code geography.gazetteer}. Every line holds a region,
+ * one of its municipalities, the coordinates of its main town and the other places job boards name the municipality
+ * by.
+ * <p>
+ * The "Sted" job definitions of a job post are {@link #resolve(Collection) resolved} to municipality ids once, when
+ * it is ingested, so that a region search is an indexed lookup of the {@link #municipalityIdsOf(String) ids of its
+ * municipalities}. A place matches a "Sted" value when its words appear in the value as whole words, ignoring case,
+ * so {@code "0150 Oslo"} is Oslo while {@code "Skien"} is not Ski. A radius search is likewise a lookup of the
+ * {@link #municipalityIdsNear(String, Integer) ids of the municipalities near a place}, which measures the distance
+ * between main towns.
+ * <p>
+ * The gazetteer is also stored in {@code regions} and {@code municipalities} on startup. Job posts resolved before
+ * a place was added are not resolved again, unless their {@code municipality_ids} are cleared for the backfill of
+ * {@link no.jobbscraper.jobpostapi.jobpost.JobPostMunicipalityResolver} to pick up.
+ */
+@Component
+public class Gazetteer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Gazetteer.class);
+
+    private static final String UPSERT_REGIONS = """
+            INSERT INTO regions (id, key, name)
+            SELECT * FROM unnest(CAST(? AS integer[]), CAST(? AS text[]), CAST(? AS text[]))
+            ON CONFLICT (id) DO UPDATE SET key = EXCLUDED.key, name = EXCLUDED.name
+            """;
+
+    private static final String UPSERT_MUNICIPALITIES = """
+            INSERT INTO municipalities (id, name, latitude, longitude, region_id)
+            SELECT * FROM unnest(CAST(? AS integer[]), CAST(? AS text[]), CAST(? AS float8[]), CAST(? AS float8[]),
+                                 CAST(? AS integer[]))
+            ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, latitude = EXCLUDED.latitude,
+                                           longitude = EXCLUDED.longitude, region_id = EXCLUDED.region_id
+            """;
+
+    private static final int FIELDS = 8;
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Region> regionsByKey = new TreeMap<>();
+    private final Map<String, TreeSet<Integer>> municipalityIdsByRegionKey = new HashMap<>();
+    private final List<Municipality> municipalities = new ArrayList<>();
+    private final Map<Integer, Municipality> municipalitiesById = new HashMap<>();
+    private final Map<String, List<Place>> placesByFirstWord = new HashMap<>();
+
+    @Value("${geography.near.default-radius-km}")
+    private int defaultRadiusKm;
+
+    @Value("${geography.near.max-radius-km}")
+    private int maxRadiusKm;
+
+    public Gazetteer(JdbcTemplate jdbcTemplate, @Value("${geography.gazetteer}") Resource gazetteer) {
+        this.jdbcTemplate = jdbcTemplate;
+        load(gazetteer);
+    }
+
+    /**
+     * Stores the regions and municipalities, updating the names and coordinates of those already stored.
+     */
+    @PostConstruct
+    void store() {
+        Collection<Region> regions = regionsByKey.values();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_REGIONS);
+            preparedStatement.setArray(1, connection.createArrayOf("integer",
+                    regions.stream().map(Region::getId).toArray()));
+            preparedStatement.setArray(2, connection.createArrayOf("text",
+                    regions.stream().map(Region::getKey).toArray()));
+            preparedStatement.setArray(3, connection.createArrayOf("text",
+                    regions.stream().map(Region::getName).toArray()));
+            return preparedStatement;
+        });
+        jdbcTemplate.update(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_MUNICIPALITIES);
+            preparedStatement.setArray(1, connection.createArrayOf("integer",
+                    municipalities.stream().map(Municipality::getId).toArray()));
+            preparedStatement.setArray(2, connection.createArrayOf("text",
+                    municipalities.stream().map(Municipality::getName).toArray()));
+            preparedStatement.setArray(3, connection.createArrayOf("float8",
+                    municipalities.stream().map(Municipality::getLatitude).toArray()));
+            preparedStatement.setArray(4, connection.createArrayOf("float8",
+                    municipalities.stream().map(Municipality::getLongitude).toArray()));
+            preparedStatement.setArray(5, connection.createArrayOf("integer",
+                    municipalities.stream().map(municipality -> municipality.getRegion().getId()).toArray()));
+            return preparedStatement;
+        });
+        LOGGER.info("Stored gazetteer of {} regions and {} municipalities", regions.size(), municipalities.size());
+    }
+
+    /**
+     * Resolves places, such as the values of "Sted" job definitions, to the municipalities they name.
+     *
+     * @param places    The places to resolve.
+     * @return          The sorted, distinct ids of the named municipalities, empty if none is known.
+     */
+    public Integer[] resolve(Collection<String> places) {
+        TreeSet<Integer> municipalityIds = new TreeSet<>();
+        for (String place : places) {
+            List<String> words = words(place);
+            for (int i = 0; i < words.size(); i++) {
+                for (Place candidate : placesByFirstWord.getOrDefault(words.get(i), List.of())) {
+                    int end = i + candidate.words().size();
+                    if (end <= words.size() && words.subList(i, end).equals(candidate.words())) {
+                        municipalityIds.add(candidate.municipalityId());
+                    }
+                }
+            }
+        }
+        return municipalityIds.toArray(Integer[]::new);
+    }
+
+    /**
+     * @return  The keys of the regions, sorted, see {@link #municipalityIdsOf(String)}.
+     */
+    public Set<String> regionKeys() {
+        return Collections.unmodifiableSet(regionsByKey.keySet());
+    }
+
+    /**
+     * Finds the municipalities of the given regions. Region keys are matched ignoring case and spaces, so
+     * {@code "Møre og Romsdal"} is {@code møreogromsdal}.
+     *
+     * @param regions                   Comma separated region keys.
+     * @return                          The sorted ids of the municipalities of the regions, or null if regions is
+     *                                  null or blank.
+     * @throws UnknownRegionException   if a region is not in the gazetteer.
+     */
+    public Integer[] municipalityIdsOf(@Nullable String regions) {
+        if (regions == null || regions.isBlank()) {
+            return null;
+        }
+
+        TreeSet<Integer> municipalityIds = new TreeSet<>();
+        for (String region : regions.toLowerCase(Locale.ROOT).replaceAll(" ", "").split(",")) {
+            TreeSet<Integer> regionMunicipalityIds = municipalityIdsByRegionKey.get(region);
+            if (regionMunicipalityIds == null) {
+                throw new UnknownRegionException(region, regionsByKey.keySet());
+            }
+            municipalityIds.addAll(regionMunicipalityIds);
+        }
+        return municipalityIds.toArray(Integer[]::new);
+    }
+
+    /**
+     * Finds the municipalities within a radius of a place, nearest first. The place is {@link #resolve(Collection)
+     * resolved} like a "Sted" value, and distances are great-circle distances between main towns; a place naming
+     * several municipalities is near whatever is near any of them.
+     * <p>
+     * The gazetteer is small enough for every municipality to be measured on each search, which takes microseconds,
+     * so no spatial index is kept. The job posts are found by their municipality ids.
+     *
+     * @param place                     The place to search around.
+     * @param radiusKm                  The radius in kilometres, or null for {@code geography.near.default-radius-km}.
+     * @return                          The ids of the municipalities within the radius, ordered by distance and then
+     *                                  id, or null if place is null or blank.
+     * @throws UnknownPlaceException    if the place names no municipality of the gazetteer.
+     * @throws InvalidRadiusException   if the radius is negative or above {@code geography.near.max-radius-km}.
+     */
+    public Integer[] municipalityIdsNear(@Nullable String place, @Nullable Integer radiusKm) {
+        if (place == null || place.isBlank()) {
+            return null;
+        }
+
+        int radius = radiusKm == null ? defaultRadiusKm : radiusKm;
+        if (radius < 0 || radius > maxRadiusKm) {
+            throw new InvalidRadiusException(radius, maxRadiusKm);
+        }
+
+        List<Municipality> centers = Arrays.stream(resolve(List.of(place)))
+                .map(municipalitiesById::get)
+                .toList();
+        if (centers.isEmpty()) {
+            throw new UnknownPlaceException(place);
+        }
+
+        Map<Integer, Double> distanceById = new HashMap<>();
+        for (Municipality municipality : municipalities) {
+            double distance = centers.stream()
+                    .mapToDouble(center -> distanceKm(center, municipality))
+                    .min()
+                    .orElseThrow();
+            if (distance <= radius) {
+                distanceById.put(municipality.getId(), distance);
+            }
+        }
+        return distanceById.keySet().stream()
+                .sorted(Comparator.<Integer, Double>comparing(distanceById::get).thenComparing(Comparator.naturalOrder()))
+                .toArray(Integer[]::new);
+    }
+
+    /**
+     * The haversine distance between the main towns of two municipalities.
+     */
+    private static double distanceKm(Municipality from, Municipality to) {
+        double latitudeDelta = Math.toRadians(to.getLatitude() - from.getLatitude());
+        double longitudeDelta = Math.toRadians(to.getLongitude() - from.getLongitude());
+        double a = Math.pow(Math.sin(latitudeDelta / 2), 2)
+                + Math.cos(Math.toRadians(from.getLatitude())) * Math.cos(Math.toRadians(to.getLatitude()))
+                * Math.pow(Math.sin(longitudeDelta / 2), 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+
+    private void load(Resource gazetteer) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(gazetteer.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split(";", -1);
+                if (fields.length != FIELDS) {
+                    throw new IllegalStateException("Line " + lineNo + " of " + gazetteer.getDescription()
+                            + " has " + fields.length + " fields, expected " + FIELDS);
+                }
+                add(fields);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void add(String[] fields) {
+        Region region = regionsByKey.computeIfAbsent(fields[1],
+                key -> new Region(Integer.valueOf(fields[0]), key, fields[2]));
+        Municipality municipality = new Municipality(Integer.valueOf(fields[3]), fields[4],
+                Double.valueOf(fields[5]), Double.valueOf(fields[6]), region);
+        municipalities.add(municipality);
+        municipalitiesById.put(municipality.getId(), municipality);
+        municipalityIdsByRegionKey.computeIfAbsent(region.getKey(), key -> new TreeSet<>()).add(municipality.getId());
+
+        addPlace(municipality.getName(), municipality.getId());
+        if (!fields[7].isBlank()) {
+            Arrays.stream(fields[7].split("\\|")).forEach(place -> addPlace(place, municipality.getId()));
+        }
+    }
+
+    private void addPlace(String name, Integer municipalityId) {
+        List<String> words = words(name);
+        placesByFirstWord.computeIfAbsent(words.get(0), word -> new ArrayList<>())
+                .add(new Place(words, municipalityId));
+    }
+
+    /**
+     * Splits a name into its lowercase words, dropping everything that is not a letter.
+     */
+    private static List<String> words(String name) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= name.length(); i++) {
+            boolean letter = i < name.length() && Character.isLetter(name.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(name.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private record Place(List<String> words, Integer municipalityId) {
+    }
+}
@@ -0,0 +1,68 @@
+package no.jobbscraper.jobpostapi.geography;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+/**
+ * A municipality that the "Sted" job definitions of job posts are resolved to, loaded from the gazetteer by
+ * {@link Gazetteer}.
+ */
+@Entity
+@Table(name = "municipalities")
+public class Municipality {
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private String name;
+
+    // Of the main town, in decimal degrees.
+    private Double latitude;
+
+    private Double longitude;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "region_id")
+    private Region region;
+
+    public Municipality(){}
+
+    public Municipality(Integer id, String name, Double latitude, Double longitude, Region region) {
+        this.id = id;
+        this.name = name;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.region = region;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public Region getRegion() {
+        return region;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Municipality{id=%s, name=%s}", id, name);
+    }
+}
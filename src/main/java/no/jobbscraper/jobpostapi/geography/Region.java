@@ -0,0 +1,49 @@
+package no.jobbscraper.jobpostapi.geography;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A region of {@link Municipality}s, loaded from the gazetteer by {@link Gazetteer}.
+ */
+@Entity
+@Table(name = "regions")
+public class Region {
+
+    @Id
+    private Integer id;
+
+    // The name as searched, lowercase and without spaces.
+    @Column(unique = true, nullable = false)
+    private String key;
+
+    @Column(nullable = false)
+    private String name;
+
+    public Region(){}
+
+    public Region(Integer id, String key, String name) {
+        this.id = id;
+        this.key = key;
+        this.name = name;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Region{id=%s, key=%s, name=%s}", id, key, name);
+    }
+}
@@ -0,0 +1,76 @@
+package no.jobbscraper.jobpostapi.jobdefinition;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+@Repository
+public class JobDefinitionJdbcRepositoryImpl implements JobDefinitionRepositoryCustom {
+
+    /*
+     * Definitions are matched case-insensitively, like JobDefinitionRepository#findByKeyAndValue.
+     * See JobTagJdbcRepositoryImpl for how concurrent inserts of the same definition are handled.
+     */
+    private static final String UPSERT_DEFINITIONS = """
+            WITH input AS (
+                SELECT DISTINCT ON (lower(key), lower(value)) key, value
+                FROM unnest(CAST(? AS text[]), CAST(? AS text[])) AS d(key, value)
+            ),
+            existing AS (
+                SELECT j.id, j.key, j.value
+                FROM job_definitions j
+                JOIN input i ON lower(j.key) = lower(i.key) AND lower(j.value) = lower(i.value)
+            ),
+            inserted AS (
+                INSERT INTO job_definitions (key, value)
+                SELECT i.key, i.value
+                FROM input i
+                WHERE NOT EXISTS (SELECT 1
+                                  FROM existing e
+                                  WHERE lower(e.key) = lower(i.key) AND lower(e.value) = lower(i.value))
+                ON CONFLICT (key, value) DO UPDATE SET key = EXCLUDED.key
+                RETURNING id, key, value
+            )
+            SELECT id, key, value FROM existing
+            UNION ALL
+            SELECT id, key, value FROM inserted
+            """;
+
+    private static final RowMapper<JobDefinition> JOB_DEFINITION_ROW_MAPPER = (resultSet, rowNum) ->
+            new JobDefinition(resultSet.getLong("id"), resultSet.getString("key"), resultSet.getString("value"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobDefinitionJdbcRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the definitions that do not exist yet and returns every given definition with its id,
+     * in a single round trip.
+     *
+     * @param jobDefinitions    The key and value pairs to resolve. Ids on the given objects are ignored.
+     * @return                  The stored {@link JobDefinition}s matching the given pairs.
+     */
+    @Override
+    public List<JobDefinition> upsertAll(Collection<JobDefinition> jobDefinitions) {
+        if (jobDefinitions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Object[] keys = jobDefinitions.stream().map(JobDefinition::getKey).toArray();
+        Object[] values = jobDefinitions.stream().map(JobDefinition::getValue).toArray();
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_DEFINITIONS);
+            preparedStatement.setArray(1, connection.createArrayOf("text", keys));
+            preparedStatement.setArray(2, connection.createArrayOf("text", values));
+            return preparedStatement;
+        }, JOB_DEFINITION_ROW_MAPPER);
+    }
+}
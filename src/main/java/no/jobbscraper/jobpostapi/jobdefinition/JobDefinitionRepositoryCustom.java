@@ -0,0 +1,9 @@
+package no.jobbscraper.jobpostapi.jobdefinition;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface JobDefinitionRepositoryCustom {
+
+    List<JobDefinition> upsertAll(Collection<JobDefinition> jobDefinitions);
+}
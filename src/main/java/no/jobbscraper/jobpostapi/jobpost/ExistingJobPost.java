@@ -0,0 +1,8 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+/**
+ * The id and content hash of a stored job post, looked up by url during ingest.
+ */
+public record ExistingJobPost(Long id, String url, String contentHash) {
+
+}
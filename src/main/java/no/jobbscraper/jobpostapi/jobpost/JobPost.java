@@ -6,17 +6,24 @@ import jakarta.persistence.Table;
 import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
 import no.jobbscraper.jobpostapi.jobtag.JobTag;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.format.annotation.DateTimeFormat;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
 
 @Entity
-@Table(name = "jobposts")
+@DynamicUpdate
+@Table(
+        name = "jobposts",
+        uniqueConstraints={@UniqueConstraint(name = "uk_jobposts_url", columnNames={"url"})}
+)
 public class JobPost {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "jobposts_seq")
+    @SequenceGenerator(name = "jobposts_seq", sequenceName = "jobposts_seq", allocationSize = 50)
     @Column(name = "jobpost_id")
     private Long id;
 
@@ -41,6 +48,26 @@ public class JobPost {
     @DateTimeFormat(pattern = "dd-MM-yyyy")
     private LocalDate deadline;
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "url_hash", length = 64)
+    private String urlHash;
+
+    @Column(name = "source")
+    private String source;
+
+    @Column(name = "expired_at")
+    private Instant expiredAt;
+
+    // The ids of jobDefinitions, sorted, so that filters on them are one array overlap on this table.
+    @Column(name = "job_definition_ids", columnDefinition = "bigint[] not null default '{}'")
+    private Long[] jobDefinitionIds = new Long[0];
+
+    // The municipalities its "Sted" job definitions name, see Gazetteer. Null until resolved.
+    @Column(name = "municipality_ids", columnDefinition = "integer[]")
+    private Integer[] municipalityIds;
+
     @Column(name = "tsv_document",
             columnDefinition = "tsvector",
             insertable = false,
@@ -169,6 +196,53 @@ public class JobPost {
         this.deadline = deadline;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getUrlHash() {
+        return urlHash;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Instant getExpiredAt() {
+        return expiredAt;
+    }
+
+    public void setExpiredAt(Instant expiredAt) {
+        this.expiredAt = expiredAt;
+    }
+
+    public Long[] getJobDefinitionIds() {
+        return jobDefinitionIds;
+    }
+
+    public void setJobDefinitionIds(Long[] jobDefinitionIds) {
+        this.jobDefinitionIds = jobDefinitionIds;
+    }
+
+    public Integer[] getMunicipalityIds() {
+        return municipalityIds;
+    }
+
+    public void setMunicipalityIds(Integer[] municipalityIds) {
+        this.municipalityIds = municipalityIds;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateUrlColumns() {
+        urlHash = url == null ? null : JobPostContentHash.sha256Hex(url);
+        source = JobPostSource.of(url);
+    }
+
     public Set<JobTag> getTags() {
         return jobTags;
     }
@@ -0,0 +1,868 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import jakarta.annotation.Nullable;
+import no.jobbscraper.jobpostapi.geography.Gazetteer;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of the live job posts for the structured searches, those without a query or a place to search
+ * near. Each position and sector job definition, municipality and tag has a compressed bitmap of the job posts that
+ * have it, so a filter is a union and intersection of bitmaps instead of subqueries, see {@link JobPostPredicates}.
+ * The job posts are also kept sorted by deadline and by creation date in primitive arrays of packed sort keys, so a
+ * page is a scan of one of them from the start, the offset or the cursor. PostgreSQL only reads the job posts of the
+ * page by id. The facets of a search are counted from the same bitmaps, see {@link #facets}.
+ * <p>
+ * The bitmaps are over ordinals handed out by the index rather than job post ids. A changed job post gets a new
+ * ordinal and its old one is left out of {@code live}, which every filter is intersected with, so the old ordinal
+ * never has to be taken out of the bitmaps it was in. The index is built from {@code jobposts} right after startup
+ * and rebuilt every {@code search.bitmap-index.rebuild-interval}, which also drops the old ordinals. Job posts
+ * changed by the ingest paths of this instance are applied as their transaction commits, see
+ * {@link JobPostsChangedEvent}, and merged into the sorted arrays without sorting them again; job posts changed by
+ * another instance or by hand are not known until the next rebuild. Until the first build completes, or when
+ * {@code search.bitmap-index.enabled} is false, every search runs in PostgreSQL.
+ */
+@Component
+public class JobPostBitmapIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostBitmapIndex.class);
+
+    // Sort keys pack the day of a date above the job post id, so they sort like (date, id) in PostgreSQL. Both are
+    // offset to be positive.
+    private static final int ID_BITS = 40;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final long ID_OFFSET = 1L << (ID_BITS - 1);
+    private static final int DAY_OFFSET = 1 << 20;
+    // The day of a missing deadline, after every date like dateOrInfinity.
+    private static final int NO_DEADLINE = (1 << 23) - 1;
+
+    // The keys of the job definitions JobPostGetRequest filters on, lowercase.
+    private static final String POSITION = "stilling";
+    private static final String SECTOR = "sektor";
+
+    // HashMap entry, boxed Long key and Integer value.
+    private static final int ORDINAL_ENTRY_BYTES = 64;
+
+    private static final String LIVE_JOB_POSTS = """
+            SELECT j.jobpost_id, j.created_at, j.deadline, j.job_definition_ids, j.municipality_ids,
+                   array(SELECT l.jobtag_id FROM j_jobpost_tags l WHERE l.jobpost_id = j.jobpost_id) AS job_tag_ids
+            FROM jobposts j
+            WHERE j.url IS NOT NULL AND j.expired_at IS NULL
+            """;
+
+    private static final String SCAN_LIVE_JOB_POSTS = LIVE_JOB_POSTS + """
+              AND j.jobpost_id > ?
+            ORDER BY j.jobpost_id
+            LIMIT ?
+            """;
+
+    private static final String FIND_LIVE_JOB_POSTS = LIVE_JOB_POSTS + """
+              AND j.jobpost_id = ANY (?)
+            """;
+
+    private static final String FILTER_JOB_DEFINITIONS = """
+            SELECT id, lower(key) AS key, value
+            FROM job_definitions
+            WHERE lower(key) IN ('stilling', 'sektor')
+            """;
+
+    private static final String FIND_FILTER_JOB_DEFINITIONS = FILTER_JOB_DEFINITIONS + """
+              AND id = ANY (?)
+            """;
+
+    private static final String JOB_TAGS = "SELECT id, tag FROM job_tags";
+
+    private static final String FIND_JOB_TAGS = JOB_TAGS + " WHERE id = ANY (?)";
+
+    private static final RowMapper<IndexedJobPost> INDEXED_JOB_POST_MAPPER = (resultSet, rowNum) ->
+            new IndexedJobPost(
+                    resultSet.getLong("jobpost_id"),
+                    toLocalDate(resultSet.getDate("created_at")),
+                    toLocalDate(resultSet.getDate("deadline")),
+                    resultSet.getArray("job_definition_ids"),
+                    resultSet.getArray("municipality_ids"),
+                    resultSet.getArray("job_tag_ids"));
+
+    private static final RowMapper<FilterJobDefinition> FILTER_JOB_DEFINITION_MAPPER = (resultSet, rowNum) ->
+            new FilterJobDefinition(resultSet.getLong("id"), resultSet.getString("key"), resultSet.getString("value"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Gazetteer gazetteer;
+    private final Map<String, Integer[]> municipalityIdsByRegion;
+    private final Timer rebuildTimer;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile Snapshot current;
+    private Snapshot building;
+    // The job posts changed while building, read again before it is swapped in. Guarded by lock, like building.
+    private Set<Long> changedWhileBuilding;
+    private volatile long sizeInBytes;
+    private volatile long liveJobPosts;
+
+    @Value("${search.bitmap-index.enabled}")
+    private boolean enabled;
+
+    @Value("${search.bitmap-index.batch-size}")
+    private int batchSize;
+
+    public JobPostBitmapIndex(JdbcTemplate jdbcTemplate, Gazetteer gazetteer, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gazetteer = gazetteer;
+        this.municipalityIdsByRegion = gazetteer.regionKeys().stream()
+                .collect(Collectors.toMap(Function.identity(), gazetteer::municipalityIdsOf));
+
+        Gauge.builder("jobpost.bitmap.index.size", this, bitmapIndex -> bitmapIndex.sizeInBytes)
+                .description("Memory used by the bitmaps, sort keys and ordinals of the index")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+        Gauge.builder("jobpost.bitmap.index.documents", this, bitmapIndex -> bitmapIndex.liveJobPosts)
+                .description("Live job posts in the index")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("jobpost.bitmap.index.rebuild")
+                .description("Time taken to rebuild the index from the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param jobPostIds    The ids of the job posts of the page, in the order of the search.
+     * @param total         The number of job posts matching the search.
+     */
+    public record Hits(List<Long> jobPostIds, long total) {
+
+    }
+
+    /**
+     * Finds a page of a search by offset.
+     *
+     * @param jobPostGetRequest The search.
+     * @param offset            The number of matching job posts to skip.
+     * @param limit             The number of job posts to find at most.
+     * @return                  The job posts of the page, or null if the index can not serve the search.
+     */
+    @Nullable
+    public Hits find(JobPostGetRequest jobPostGetRequest, long offset, int limit) {
+        return find(jobPostGetRequest, null, offset, limit);
+    }
+
+    /**
+     * Finds the page of a search after a cursor.
+     *
+     * @param jobPostGetRequest The search.
+     * @param cursor            The cursor of the previous page, or null for the first page.
+     * @param limit             The number of job posts to find at most.
+     * @return                  The job posts of the page, or null if the index can not serve the search.
+     */
+    @Nullable
+    public Hits findAfter(JobPostGetRequest jobPostGetRequest, @Nullable JobPostCursor cursor, int limit) {
+        return find(jobPostGetRequest, cursor, 0, limit);
+    }
+
+    /**
+     * Counts the facets of a search, see {@link JobPostFacets}.
+     *
+     * @param jobPostGetRequest The filters of the search.
+     * @param maxValues         The number of values to count at most per facet, the most common ones.
+     * @return                  The facets of the search, or null if the index can not serve the search.
+     */
+    @Nullable
+    public JobPostFacets facets(JobPostGetRequest jobPostGetRequest, int maxValues) {
+        if (!canServe(jobPostGetRequest)) {
+            return null;
+        }
+        Integer[] municipalityIds = gazetteer.municipalityIdsOf(jobPostGetRequest.municipality());
+
+        lock.readLock().lock();
+        try {
+            Search search = Search.of(jobPostGetRequest.deadline(), dayOf(LocalDate.now()));
+            return current.facets(jobPostGetRequest, search, municipalityIds, municipalityIdsByRegion, maxValues);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a new index from the live job posts, read in batches of {@code search.bitmap-index.batch-size}, and
+     * swaps it in. Job posts changed while it is built are applied to both indexes, and read again before the swap,
+     * since a batch may have read them before they changed and been added after the change was applied.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${search.bitmap-index.rebuild-interval}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Snapshot next = new Snapshot();
+        List<FilterJobDefinition> filterJobDefinitions = jdbcTemplate.query(FILTER_JOB_DEFINITIONS,
+                FILTER_JOB_DEFINITION_MAPPER);
+        Map<Long, String> jobTags = findJobTags(JOB_TAGS);
+        lock.writeLock().lock();
+        try {
+            next.addJobDefinitions(filterJobDefinitions);
+            next.jobTags.putAll(jobTags);
+            building = next;
+            changedWhileBuilding = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            long lastJobPostId = Long.MIN_VALUE;
+            List<IndexedJobPost> batch;
+            do {
+                batch = jdbcTemplate.query(SCAN_LIVE_JOB_POSTS, INDEXED_JOB_POST_MAPPER, lastJobPostId, batchSize);
+                lock.writeLock().lock();
+                try {
+                    batch.forEach(next::add);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (!batch.isEmpty()) {
+                    lastJobPostId = batch.get(batch.size() - 1).id();
+                }
+            } while (batch.size() == batchSize);
+
+            swapIn(next);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                building = null;
+                changedWhileBuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        rebuildTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        LOGGER.info("Indexed {} job posts in {} bitmaps of {} KiB in {} ms", liveJobPosts, next.bitmaps(),
+                sizeInBytes / 1024, elapsedNanos / 1_000_000);
+    }
+
+    /**
+     * Applies the changed job posts once their transaction has committed, or right away if there is none. Job posts
+     * that are no longer live are left out. Runs before {@link JobPostFacetCache} drops the facets counted from the
+     * index.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onJobPostsChanged(JobPostsChangedEvent jobPostsChangedEvent) {
+        if (!enabled) {
+            return;
+        }
+
+        List<Long> jobPostIds = jobPostsChangedEvent.jobPostIds();
+        for (int from = 0; from < jobPostIds.size(); from += batchSize) {
+            Changes changes = findChanges(jobPostIds.subList(from, Math.min(from + batchSize, jobPostIds.size())));
+
+            lock.writeLock().lock();
+            try {
+                if (building != null) {
+                    building.apply(changes);
+                    changedWhileBuilding.addAll(Arrays.asList(changes.jobPostIds()));
+                }
+                if (current != null) {
+                    current.apply(changes);
+                    current.merge();
+                    record(current);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads the job posts changed while the index was built again, until none have changed since they were read,
+     * and then sorts the index and swaps it in while still holding the lock.
+     */
+    private void swapIn(Snapshot next) {
+        List<Changes> changes = List.of();
+        while (true) {
+            List<Long> changed;
+            lock.writeLock().lock();
+            try {
+                changes.forEach(next::apply);
+                if (changedWhileBuilding.isEmpty()) {
+                    next.sort();
+                    current = next;
+                    record(next);
+                    return;
+                }
+                changed = new ArrayList<>(changedWhileBuilding);
+                changedWhileBuilding.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            changes = new ArrayList<>();
+            for (int from = 0; from < changed.size(); from += batchSize) {
+                changes.add(findChanges(changed.subList(from, Math.min(from + batchSize, changed.size()))));
+            }
+        }
+    }
+
+    private Changes findChanges(List<Long> changedJobPostIds) {
+        Long[] jobPostIds = changedJobPostIds.toArray(Long[]::new);
+        List<IndexedJobPost> liveJobPosts = jdbcTemplate.query(FIND_LIVE_JOB_POSTS, INDEXED_JOB_POST_MAPPER,
+                (Object) jobPostIds);
+        Long[] jobDefinitionIds = liveJobPosts.stream()
+                .flatMap(indexedJobPost -> Arrays.stream(indexedJobPost.jobDefinitionIds()))
+                .distinct()
+                .toArray(Long[]::new);
+        List<FilterJobDefinition> filterJobDefinitions = jdbcTemplate.query(FIND_FILTER_JOB_DEFINITIONS,
+                FILTER_JOB_DEFINITION_MAPPER, (Object) jobDefinitionIds);
+        Map<Long, String> jobTags = findJobTags(FIND_JOB_TAGS, (Object) liveJobPosts.stream()
+                .flatMap(indexedJobPost -> Arrays.stream(indexedJobPost.jobTagIds()))
+                .distinct()
+                .toArray(Long[]::new));
+        return new Changes(jobPostIds, liveJobPosts, filterJobDefinitions, jobTags);
+    }
+
+    @Nullable
+    private Hits find(JobPostGetRequest jobPostGetRequest, @Nullable JobPostCursor cursor, long offset, int limit) {
+        JobPostSortMode.of(jobPostGetRequest.sort());
+        if (!canServe(jobPostGetRequest)) {
+            return null;
+        }
+        Integer[] municipalityIds = gazetteer.municipalityIdsOf(jobPostGetRequest.municipality());
+
+        lock.readLock().lock();
+        try {
+            Snapshot snapshot = current;
+            RoaringBitmap filter = snapshot.filter(jobPostGetRequest, municipalityIds);
+            Search search = Search.of(jobPostGetRequest.deadline(), dayOf(LocalDate.now()));
+            return snapshot.find(search, filter, cursor, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean canServe(JobPostGetRequest jobPostGetRequest) {
+        return enabled && current != null && isBlank(jobPostGetRequest.query()) && isBlank(jobPostGetRequest.near());
+    }
+
+    private Map<Long, String> findJobTags(String sql, Object... args) {
+        Map<Long, String> jobTags = new HashMap<>();
+        jdbcTemplate.query(sql, resultSet -> {
+            jobTags.put(resultSet.getLong("id"), resultSet.getString("tag"));
+        }, args);
+        return jobTags;
+    }
+
+    private void record(Snapshot snapshot) {
+        sizeInBytes = snapshot.sizeInBytes();
+        liveJobPosts = snapshot.live.getLongCardinality();
+    }
+
+    private static boolean isBlank(@Nullable String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static int dayOf(LocalDate date) {
+        return (int) Math.max(0, Math.min(NO_DEADLINE - 1, date.toEpochDay() + DAY_OFFSET));
+    }
+
+    // Missing dates sort last, like dateOrInfinity, and first in descending order, like nulls in PostgreSQL.
+    private static int lastDayIfNull(@Nullable LocalDate date) {
+        return date == null ? NO_DEADLINE : dayOf(date);
+    }
+
+    private static long sortKey(int day, long jobPostId) {
+        if (jobPostId < -ID_OFFSET || jobPostId >= ID_OFFSET) {
+            throw new IllegalArgumentException("Job post id " + jobPostId + " does not fit in a sort key");
+        }
+        return ((long) day << ID_BITS) | (jobPostId + ID_OFFSET);
+    }
+
+    private static long jobPostIdOf(long sortKey) {
+        return (sortKey & ID_MASK) - ID_OFFSET;
+    }
+
+    // The position of the first key not below the given one.
+    private static int lowerBound(long[] sortKeys, long sortKey) {
+        int position = Arrays.binarySearch(sortKeys, sortKey);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    // The position of the first key above the given one.
+    private static int upperBound(long[] sortKeys, long sortKey) {
+        int position = Arrays.binarySearch(sortKeys, sortKey);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    @Nullable
+    private static LocalDate toLocalDate(@Nullable Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+
+    private static Object[] elements(@Nullable Array array) throws SQLException {
+        return array == null ? new Object[0] : (Object[]) array.getArray();
+    }
+
+    /**
+     * The order and deadlines of a search, the same as {@link JobPostPredicates#hasDeadlineNotPassed()},
+     * {@link JobPostPredicates#hasSpecificDeadline(String)} and the orders of
+     * {@link JobPostPredicates#orderBySpecificDeadline(String)} and
+     * {@link JobPostPredicates#orderByClosestDeadline()}, with ties broken by id.
+     *
+     * @param byDeadline        Whether it is ordered by deadline, or else by creation date.
+     * @param ascending         Whether the order is ascending.
+     * @param fromDeadlineDay   The day of the earliest deadline.
+     * @param toDeadlineDay     The day of the latest deadline, {@link #NO_DEADLINE} for job posts without one.
+     */
+    private record Search(boolean byDeadline, boolean ascending, int fromDeadlineDay, int toDeadlineDay) {
+
+        static Search of(@Nullable String deadline, int today) {
+            if (deadline == null) {
+                return new Search(true, true, today, NO_DEADLINE);
+            }
+            if (deadline.isBlank()) {
+                return new Search(false, false, today, NO_DEADLINE);
+            }
+            return switch (deadline.toLowerCase()) {
+                case "nærmest" -> new Search(true, true, today, NO_DEADLINE - 1);
+                case "lengst unna" -> new Search(true, false, today, NO_DEADLINE - 1);
+                default -> new Search(false, false, NO_DEADLINE, NO_DEADLINE);
+            };
+        }
+    }
+
+    private record IndexedJobPost(long id, @Nullable LocalDate createdAt, @Nullable LocalDate deadline,
+                                  Long[] jobDefinitionIds, Integer[] municipalityIds, Long[] jobTagIds) {
+
+        IndexedJobPost(long id, LocalDate createdAt, LocalDate deadline, Array jobDefinitionIds,
+                       Array municipalityIds, Array jobTagIds) throws SQLException {
+            this(id, createdAt, deadline,
+                    Arrays.stream(elements(jobDefinitionIds)).map(Long.class::cast).toArray(Long[]::new),
+                    Arrays.stream(elements(municipalityIds)).map(Integer.class::cast).toArray(Integer[]::new),
+                    Arrays.stream(elements(jobTagIds)).map(Long.class::cast).toArray(Long[]::new));
+        }
+    }
+
+    private record FilterJobDefinition(long id, String key, String value) {
+
+    }
+
+    /**
+     * Changed job posts as read from the database, the ones that are not among the live job posts are no longer
+     * live.
+     */
+    private record Changes(Long[] jobPostIds, List<IndexedJobPost> liveJobPosts,
+                           List<FilterJobDefinition> filterJobDefinitions, Map<Long, String> jobTags) {
+
+    }
+
+    /**
+     * One build of the index with the changes applied to it since. Guarded by {@link #lock}.
+     */
+    private static final class Snapshot {
+
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final RoaringBitmap live = new RoaringBitmap();
+        // The ordinals taken out of live since the sorted arrays were last sorted or merged.
+        private final RoaringBitmap dropped = new RoaringBitmap();
+        private final Map<Long, RoaringBitmap> byJobDefinition = new HashMap<>();
+        private final Map<Integer, RoaringBitmap> byMunicipality = new HashMap<>();
+        private final Map<Long, RoaringBitmap> byJobTag = new HashMap<>();
+        // The values of the position and sector job definitions by id, by lowercase key.
+        private final Map<String, Map<Long, String>> jobDefinitionValues = new HashMap<>();
+        private final Map<Long, String> jobTags = new HashMap<>();
+
+        // By ordinal.
+        private long[] jobPostIds = new long[1024];
+        private int[] createdDays = new int[1024];
+        private int[] deadlineDays = new int[1024];
+        private int size;
+
+        // The sort keys of the live job posts, and their ordinals at the same positions.
+        private long[] byDeadline = new long[0];
+        private int[] byDeadlineOrdinals = new int[0];
+        private long[] byCreated = new long[0];
+        private int[] byCreatedOrdinals = new int[0];
+        // The ordinals from here on were added since the sorted arrays were last sorted or merged.
+        private int sorted;
+
+        void addJobDefinitions(List<FilterJobDefinition> filterJobDefinitions) {
+            for (FilterJobDefinition filterJobDefinition : filterJobDefinitions) {
+                jobDefinitionValues.computeIfAbsent(filterJobDefinition.key(), key -> new HashMap<>())
+                        .put(filterJobDefinition.id(), filterJobDefinition.value());
+            }
+        }
+
+        void add(IndexedJobPost indexedJobPost) {
+            if (size == jobPostIds.length) {
+                jobPostIds = Arrays.copyOf(jobPostIds, size * 2);
+                createdDays = Arrays.copyOf(createdDays, size * 2);
+                deadlineDays = Arrays.copyOf(deadlineDays, size * 2);
+            }
+            int ordinal = size++;
+            jobPostIds[ordinal] = indexedJobPost.id();
+            createdDays[ordinal] = lastDayIfNull(indexedJobPost.createdAt());
+            deadlineDays[ordinal] = lastDayIfNull(indexedJobPost.deadline());
+
+            Integer replaced = ordinals.put(indexedJobPost.id(), ordinal);
+            if (replaced != null) {
+                live.remove(replaced);
+                dropped.add(replaced);
+            }
+            live.add(ordinal);
+
+            for (Long jobDefinitionId : indexedJobPost.jobDefinitionIds()) {
+                if (isFilterJobDefinition(jobDefinitionId)) {
+                    byJobDefinition.computeIfAbsent(jobDefinitionId, id -> new RoaringBitmap()).add(ordinal);
+                }
+            }
+            for (Integer municipalityId : indexedJobPost.municipalityIds()) {
+                byMunicipality.computeIfAbsent(municipalityId, id -> new RoaringBitmap()).add(ordinal);
+            }
+            for (Long jobTagId : indexedJobPost.jobTagIds()) {
+                byJobTag.computeIfAbsent(jobTagId, id -> new RoaringBitmap()).add(ordinal);
+            }
+        }
+
+        void apply(Changes changes) {
+            addJobDefinitions(changes.filterJobDefinitions());
+            jobTags.putAll(changes.jobTags());
+            Set<Long> removedJobPostIds = new HashSet<>(Arrays.asList(changes.jobPostIds()));
+            for (IndexedJobPost indexedJobPost : changes.liveJobPosts()) {
+                add(indexedJobPost);
+                removedJobPostIds.remove(indexedJobPost.id());
+            }
+            for (Long removedJobPostId : removedJobPostIds) {
+                Integer removed = ordinals.remove(removedJobPostId);
+                if (removed != null) {
+                    live.remove(removed);
+                    dropped.add(removed);
+                }
+            }
+        }
+
+        void sort() {
+            int liveCount = live.getCardinality();
+            long[] deadlineKeys = new long[liveCount];
+            long[] createdKeys = new long[liveCount];
+            int i = 0;
+            for (int ordinal : live) {
+                deadlineKeys[i] = sortKey(deadlineDays[ordinal], jobPostIds[ordinal]);
+                createdKeys[i] = sortKey(createdDays[ordinal], jobPostIds[ordinal]);
+                i++;
+            }
+            Arrays.sort(deadlineKeys);
+            Arrays.sort(createdKeys);
+
+            byDeadline = deadlineKeys;
+            byDeadlineOrdinals = ordinalsOf(deadlineKeys);
+            byCreated = createdKeys;
+            byCreatedOrdinals = ordinalsOf(createdKeys);
+            sorted = size;
+            dropped.clear();
+        }
+
+        /**
+         * Brings the sorted arrays up to date with the job posts added and dropped since they were last sorted or
+         * merged. Only the added job posts are sorted, and then merged with the rest in one pass.
+         */
+        void merge() {
+            int added = 0;
+            long[] addedDeadlineKeys = new long[size - sorted];
+            long[] addedCreatedKeys = new long[size - sorted];
+            for (int ordinal = sorted; ordinal < size; ordinal++) {
+                if (live.contains(ordinal)) {
+                    addedDeadlineKeys[added] = sortKey(deadlineDays[ordinal], jobPostIds[ordinal]);
+                    addedCreatedKeys[added] = sortKey(createdDays[ordinal], jobPostIds[ordinal]);
+                    added++;
+                }
+            }
+            addedDeadlineKeys = Arrays.copyOf(addedDeadlineKeys, added);
+            addedCreatedKeys = Arrays.copyOf(addedCreatedKeys, added);
+            Arrays.sort(addedDeadlineKeys);
+            Arrays.sort(addedCreatedKeys);
+
+            int liveCount = live.getCardinality();
+            SortedKeys deadlineKeys = merge(byDeadline, byDeadlineOrdinals, addedDeadlineKeys, liveCount);
+            SortedKeys createdKeys = merge(byCreated, byCreatedOrdinals, addedCreatedKeys, liveCount);
+            byDeadline = deadlineKeys.sortKeys();
+            byDeadlineOrdinals = deadlineKeys.ordinals();
+            byCreated = createdKeys.sortKeys();
+            byCreatedOrdinals = createdKeys.ordinals();
+            sorted = size;
+            dropped.clear();
+        }
+
+        /**
+         * @return  The live job posts matching the filters of the search other than the deadline, or null if it has
+         *          none.
+         */
+        @Nullable
+        RoaringBitmap filter(JobPostGetRequest jobPostGetRequest, @Nullable Integer[] municipalityIds) {
+            RoaringBitmap withPosition = withJobDefinition(POSITION, jobPostGetRequest.position());
+            RoaringBitmap withSector = withJobDefinition(SECTOR, jobPostGetRequest.sector());
+            RoaringBitmap inMunicipality = inMunicipality(municipalityIds);
+            if (withPosition == null && withSector == null && inMunicipality == null) {
+                return null;
+            }
+            return and(live, withPosition, withSector, inMunicipality);
+        }
+
+        Hits find(Search search, @Nullable RoaringBitmap filter, @Nullable JobPostCursor cursor, long offset,
+                  int limit) {
+            int from = fromPosition(search);
+            int to = toPosition(search);
+            long total = count(filter, search, from, to);
+
+            List<Long> jobPostIds = new ArrayList<>(limit);
+            if (search.byDeadline()) {
+                IntPredicate matches = ordinal -> filter == null || filter.contains(ordinal);
+                if (search.ascending()) {
+                    int start = cursor == null ? from : Math.max(from, upperBound(byDeadline, cursorKey(cursor)));
+                    collect(byDeadlineOrdinals, start, to, 1, matches, offset, limit, jobPostIds);
+                } else {
+                    int start = cursor == null ? to - 1 : Math.min(to, lowerBound(byDeadline, cursorKey(cursor))) - 1;
+                    collect(byDeadlineOrdinals, start, from - 1, -1, matches, offset, limit, jobPostIds);
+                }
+            } else {
+                IntPredicate matches = ordinal -> deadlineDays[ordinal] >= search.fromDeadlineDay()
+                        && deadlineDays[ordinal] <= search.toDeadlineDay()
+                        && (filter == null || filter.contains(ordinal));
+                int start = cursor == null ? byCreated.length - 1 : lowerBound(byCreated, cursorKey(cursor)) - 1;
+                collect(byCreatedOrdinals, start, -1, -1, matches, offset, limit, jobPostIds);
+            }
+            return new Hits(jobPostIds, total);
+        }
+
+        // Each facet is counted with the filters of the others, in the deadline range of the search.
+        JobPostFacets facets(JobPostGetRequest jobPostGetRequest, Search search, @Nullable Integer[] municipalityIds,
+                             Map<String, Integer[]> municipalityIdsByRegion, int maxValues) {
+            RoaringBitmap inDeadlineRange = new RoaringBitmap();
+            int from = fromPosition(search);
+            inDeadlineRange.addN(byDeadlineOrdinals, from, toPosition(search) - from);
+            RoaringBitmap withPosition = withJobDefinition(POSITION, jobPostGetRequest.position());
+            RoaringBitmap withSector = withJobDefinition(SECTOR, jobPostGetRequest.sector());
+            RoaringBitmap inMunicipality = inMunicipality(municipalityIds);
+
+            Map<String, RoaringBitmap> byRegion = new HashMap<>();
+            municipalityIdsByRegion.forEach((region, regionMunicipalityIds) ->
+                    byRegion.put(region, inMunicipality(regionMunicipalityIds)));
+            Map<String, RoaringBitmap> byJobTagName = new HashMap<>();
+            byJobTag.forEach((jobTagId, bitmap) -> {
+                String jobTag = jobTags.get(jobTagId);
+                if (jobTag != null) {
+                    byJobTagName.merge(jobTag, bitmap, (union, other) -> RoaringBitmap.or(union, other));
+                }
+            });
+
+            return new JobPostFacets(
+                    count(byJobDefinitionValue(SECTOR), and(inDeadlineRange, withPosition, inMunicipality), maxValues),
+                    count(byJobDefinitionValue(POSITION), and(inDeadlineRange, withSector, inMunicipality), maxValues),
+                    count(byRegion, and(inDeadlineRange, withSector, withPosition), maxValues),
+                    count(byJobTagName, and(inDeadlineRange, withSector, withPosition, inMunicipality), maxValues));
+        }
+
+        int bitmaps() {
+            return 1 + byJobDefinition.size() + byMunicipality.size() + byJobTag.size();
+        }
+
+        long sizeInBytes() {
+            long bytes = live.getLongSizeInBytes();
+            for (Map<?, RoaringBitmap> bitmaps : List.of(byJobDefinition, byMunicipality, byJobTag)) {
+                for (RoaringBitmap bitmap : bitmaps.values()) {
+                    bytes += bitmap.getLongSizeInBytes();
+                }
+            }
+            bytes += (long) jobPostIds.length * (Long.BYTES + Integer.BYTES + Integer.BYTES);
+            bytes += (long) byDeadline.length * 2 * (Long.BYTES + Integer.BYTES);
+            bytes += (long) ordinals.size() * ORDINAL_ENTRY_BYTES;
+            return bytes;
+        }
+
+        private boolean isFilterJobDefinition(Long jobDefinitionId) {
+            return jobDefinitionValues.values().stream()
+                    .anyMatch(values -> values.containsKey(jobDefinitionId));
+        }
+
+        private int fromPosition(Search search) {
+            return lowerBound(byDeadline, sortKey(search.fromDeadlineDay(), -ID_OFFSET));
+        }
+
+        private int toPosition(Search search) {
+            return search.toDeadlineDay() == NO_DEADLINE
+                    ? byDeadline.length
+                    : lowerBound(byDeadline, sortKey(search.toDeadlineDay() + 1, -ID_OFFSET));
+        }
+
+        // The same job definitions as JobPostPredicates.hasJobDefinition: the key equal and the value containing.
+        @Nullable
+        private RoaringBitmap withJobDefinition(String key, @Nullable String value) {
+            if (isBlank(value)) {
+                return null;
+            }
+            String lowerValue = value.toLowerCase(Locale.ROOT);
+            RoaringBitmap withJobDefinition = new RoaringBitmap();
+            jobDefinitionValues.getOrDefault(key, Map.of()).forEach((jobDefinitionId, jobDefinitionValue) -> {
+                RoaringBitmap bitmap = byJobDefinition.get(jobDefinitionId);
+                if (bitmap != null && jobDefinitionValue.toLowerCase(Locale.ROOT).contains(lowerValue)) {
+                    withJobDefinition.or(bitmap);
+                }
+            });
+            return withJobDefinition;
+        }
+
+        @Nullable
+        private RoaringBitmap inMunicipality(@Nullable Integer[] municipalityIds) {
+            if (municipalityIds == null) {
+                return null;
+            }
+            RoaringBitmap inMunicipality = new RoaringBitmap();
+            for (Integer municipalityId : municipalityIds) {
+                RoaringBitmap bitmap = byMunicipality.get(municipalityId);
+                if (bitmap != null) {
+                    inMunicipality.or(bitmap);
+                }
+            }
+            return inMunicipality;
+        }
+
+        // The job posts with each value of the job definitions of the key, whichever case the key has.
+        private Map<String, RoaringBitmap> byJobDefinitionValue(String key) {
+            Map<String, RoaringBitmap> byJobDefinitionValue = new HashMap<>();
+            jobDefinitionValues.getOrDefault(key, Map.of()).forEach((jobDefinitionId, jobDefinitionValue) -> {
+                RoaringBitmap bitmap = byJobDefinition.get(jobDefinitionId);
+                if (bitmap != null) {
+                    byJobDefinitionValue.merge(jobDefinitionValue, bitmap,
+                            (union, other) -> RoaringBitmap.or(union, other));
+                }
+            });
+            return byJobDefinitionValue;
+        }
+
+        private static List<JobPostFacetCount> count(Map<String, RoaringBitmap> byValue, RoaringBitmap filter,
+                                                     int maxValues) {
+            Map<String, Long> counts = new HashMap<>();
+            byValue.forEach((value, bitmap) -> counts.put(value, (long) RoaringBitmap.andCardinality(bitmap, filter)));
+            return JobPostFacetCount.mostCommon(counts, maxValues);
+        }
+
+        // The first bitmap intersected with those of the others that are not null.
+        private static RoaringBitmap and(RoaringBitmap first, RoaringBitmap... others) {
+            RoaringBitmap and = first.clone();
+            for (RoaringBitmap other : others) {
+                if (other != null) {
+                    and.and(other);
+                }
+            }
+            return and;
+        }
+
+        // Counts by whichever is smaller, the deadline range or the filter.
+        private long count(@Nullable RoaringBitmap filter, Search search, int from, int to) {
+            if (filter == null) {
+                return to - from;
+            }
+            long total = 0;
+            if (filter.getLongCardinality() < to - from) {
+                for (int ordinal : filter) {
+                    if (deadlineDays[ordinal] >= search.fromDeadlineDay()
+                            && deadlineDays[ordinal] <= search.toDeadlineDay()) {
+                        total++;
+                    }
+                }
+            } else {
+                for (int position = from; position < to; position++) {
+                    if (filter.contains(byDeadlineOrdinals[position])) {
+                        total++;
+                    }
+                }
+            }
+            return total;
+        }
+
+        // Visits the positions from start towards end, not including end, until the page is full.
+        private void collect(int[] sortedOrdinals, int start, int end, int step, IntPredicate matches, long offset,
+                             int limit, List<Long> jobPostIds) {
+            long skipped = 0;
+            for (int position = start; position != end && jobPostIds.size() < limit; position += step) {
+                int ordinal = sortedOrdinals[position];
+                if (!matches.test(ordinal)) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    jobPostIds.add(this.jobPostIds[ordinal]);
+                }
+            }
+        }
+
+        // The sorted keys without the dropped ordinals, merged with the sorted keys of the added ones.
+        private SortedKeys merge(long[] sortKeys, int[] sortedOrdinals, long[] addedKeys, int liveCount) {
+            int[] addedOrdinals = ordinalsOf(addedKeys);
+            long[] mergedKeys = new long[liveCount];
+            int[] mergedOrdinals = new int[liveCount];
+            boolean anyDropped = !dropped.isEmpty();
+            int position = 0;
+            int added = 0;
+            int merged = 0;
+            while (position < sortKeys.length || added < addedKeys.length) {
+                if (position < sortKeys.length && anyDropped && dropped.contains(sortedOrdinals[position])) {
+                    position++;
+                } else if (added == addedKeys.length
+                        || position < sortKeys.length && sortKeys[position] < addedKeys[added]) {
+                    mergedKeys[merged] = sortKeys[position];
+                    mergedOrdinals[merged++] = sortedOrdinals[position++];
+                } else {
+                    mergedKeys[merged] = addedKeys[added];
+                    mergedOrdinals[merged++] = addedOrdinals[added++];
+                }
+            }
+            return new SortedKeys(mergedKeys, mergedOrdinals);
+        }
+
+        private int[] ordinalsOf(long[] sortKeys) {
+            int[] sortedOrdinals = new int[sortKeys.length];
+            for (int i = 0; i < sortKeys.length; i++) {
+                sortedOrdinals[i] = ordinals.get(jobPostIdOf(sortKeys[i]));
+            }
+            return sortedOrdinals;
+        }
+
+        private static long cursorKey(JobPostCursor cursor) {
+            return sortKey(lastDayIfNull(cursor.key()), cursor.id());
+        }
+    }
+
+    private record SortedKeys(long[] sortKeys, int[] ordinals) {
+
+    }
+}
@@ -0,0 +1,27 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record JobPostBulkLoadResult(
+        @JsonProperty("received")
+        long received,
+
+        @JsonProperty("created")
+        long created,
+
+        @JsonProperty("updated")
+        long updated,
+
+        @JsonProperty("unchanged")
+        long unchanged,
+
+        @JsonProperty("skipped_duplicate")
+        long skippedDuplicate,
+
+        @JsonProperty("invalid")
+        long invalid,
+
+        @JsonProperty("elapsed_ms")
+        long elapsedMs) {
+
+}
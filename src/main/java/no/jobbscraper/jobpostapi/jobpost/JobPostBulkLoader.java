@@ -0,0 +1,470 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import no.jobbscraper.jobpostapi.exception.MalformedBulkLoadException;
+import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
+import no.jobbscraper.jobpostapi.jobtag.JobTag;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Repository
+public class JobPostBulkLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostBulkLoader.class);
+
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final int CHANGED_BATCH_SIZE = 10_000;
+
+    // Must match the allocationSize of the jobposts_seq generator on JobPost, see ASSIGN_JOB_POST_IDS.
+    private static final int JOB_POST_ID_BLOCK_SIZE = 50;
+
+    private static final String CREATE_STAGING_TABLE = """
+            CREATE TEMP TABLE jobposts_staging (
+                line_no bigint PRIMARY KEY,
+                jobpost_id bigint,
+                url text,
+                company_name text,
+                company_image_url text,
+                image_url text,
+                title text,
+                description text,
+                deadline date,
+                job_tags jsonb,
+                job_definitions jsonb,
+                content_hash text,
+                url_hash text,
+                source text,
+                existing boolean NOT NULL DEFAULT false
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_STAGING = """
+            COPY jobposts_staging (line_no, url, company_name, company_image_url, image_url, title, description,
+                                   deadline, job_tags, job_definitions, content_hash, url_hash, source)
+            FROM STDIN (FORMAT csv)
+            """;
+
+    private static final String INDEX_STAGING = "CREATE INDEX ON jobposts_staging (url); ANALYZE jobposts_staging";
+
+    private static final String DELETE_REPEATED = """
+            DELETE FROM jobposts_staging s
+            USING jobposts_staging d
+            WHERE d.url = s.url AND d.line_no < s.line_no
+            """;
+
+    private static final String DELETE_UNCHANGED = """
+            DELETE FROM jobposts_staging s
+            USING jobposts j
+            WHERE j.url = s.url AND j.content_hash = s.content_hash
+            """;
+
+    private static final String MARK_EXISTING = """
+            UPDATE jobposts_staging s
+            SET jobpost_id = j.jobpost_id, existing = true
+            FROM jobposts j
+            WHERE j.url = s.url
+            """;
+
+    /*
+     * The tsv_document trigger only fires when title or description actually change, see V7__add_content_hash.sql.
+     * Municipalities are resolved again by JobPostMunicipalityResolver, like those of inserted posts. A job post
+     * that JobPostDeadlineSweeper expired is live again with a new deadline that has not passed.
+     */
+    private static final String UPDATE_JOB_POSTS = """
+            UPDATE jobposts j
+            SET company_name = s.company_name,
+                company_image_url = s.company_image_url,
+                image_url = s.image_url,
+                title = s.title,
+                description = s.description,
+                deadline = s.deadline,
+                content_hash = s.content_hash,
+                municipality_ids = NULL,
+                expired_at = CASE WHEN s.deadline IS DISTINCT FROM j.deadline
+                                   AND coalesce(s.deadline, cast('infinity' AS date)) >= current_date
+                                  THEN NULL ELSE j.expired_at END
+            FROM jobposts_staging s
+            WHERE s.existing AND j.jobpost_id = s.jobpost_id
+            """;
+
+    private static final String DELETE_STALE_JOB_TAG_LINKS = """
+            DELETE FROM j_jobpost_tags l
+            USING jobposts_staging s, job_tags t
+            WHERE s.existing AND l.jobpost_id = s.jobpost_id AND t.id = l.jobtag_id
+              AND NOT EXISTS (SELECT 1
+                              FROM jsonb_array_elements_text(s.job_tags) AS n(tag)
+                              WHERE lower(n.tag) = lower(t.tag))
+            """;
+
+    private static final String DELETE_STALE_JOB_DEFINITION_LINKS = """
+            DELETE FROM j_jobpost_descriptions l
+            USING jobposts_staging s, job_definitions d
+            WHERE s.existing AND l.jobpost_id = s.jobpost_id AND d.id = l.jobdescription_id
+              AND NOT EXISTS (SELECT 1
+                              FROM jsonb_to_recordset(s.job_definitions) AS n(key text, value text)
+                              WHERE lower(n.key) = lower(d.key) AND lower(n.value) = lower(d.value))
+            """;
+
+    /*
+     * Hands out ids the way Hibernate's pooled optimizer does: every nextval reserves the block of
+     * JOB_POST_ID_BLOCK_SIZE ids ending at the returned value, so bulk loaded posts neither collide with
+     * posts created through JobPostService nor burn a whole block per row. Relies on the sequence being
+     * positioned past the first block, which V6__add_jobposts_sequence.sql takes care of.
+     */
+    private static final String ASSIGN_JOB_POST_IDS = """
+            WITH numbered AS (
+                SELECT line_no, row_number() OVER (ORDER BY line_no) - 1 AS n
+                FROM jobposts_staging
+                WHERE NOT existing
+            ),
+            blocks AS (
+                SELECT b, nextval('jobposts_seq') AS hi
+                FROM generate_series(0, (SELECT (count(*) + %1$d - 1) / %1$d - 1
+                                          FROM jobposts_staging
+                                          WHERE NOT existing)) AS b
+            )
+            UPDATE jobposts_staging s
+            SET jobpost_id = blocks.hi - %1$d + 1 + numbered.n %% %1$d
+            FROM numbered
+            JOIN blocks ON blocks.b = numbered.n / %1$d
+            WHERE s.line_no = numbered.line_no
+            """.formatted(JOB_POST_ID_BLOCK_SIZE);
+
+    private static final String INSERT_JOB_POSTS = """
+            INSERT INTO jobposts (jobpost_id, created_at, url, company_name, company_image_url, image_url, title,
+                                  description, deadline, content_hash, url_hash, source)
+            SELECT jobpost_id, current_date, url, company_name, company_image_url, image_url, title,
+                   description, deadline, content_hash, url_hash, source
+            FROM jobposts_staging
+            WHERE NOT existing
+            ORDER BY line_no
+            ON CONFLICT (url) DO NOTHING
+            """;
+
+    // Drops the rows that lost the race against a concurrent ingest of the same url.
+    private static final String DELETE_NOT_INSERTED = """
+            DELETE FROM jobposts_staging s
+            WHERE NOT EXISTS (SELECT 1 FROM jobposts j WHERE j.jobpost_id = s.jobpost_id)
+            """;
+
+    // Matches tags case-insensitively like JobTagJdbcRepositoryImpl, linking to the oldest tag of a case group.
+    private static final String INSERT_JOB_TAGS = """
+            INSERT INTO job_tags (tag)
+            SELECT DISTINCT ON (lower(t.tag)) t.tag
+            FROM jobposts_staging s, jsonb_array_elements_text(s.job_tags) AS t(tag)
+            WHERE NOT EXISTS (SELECT 1 FROM job_tags j WHERE lower(j.tag) = lower(t.tag))
+            ON CONFLICT (tag) DO NOTHING
+            """;
+
+    private static final String INSERT_JOB_TAG_LINKS = """
+            WITH tags AS (
+                SELECT DISTINCT ON (lower(j.tag)) j.id, lower(j.tag) AS tag
+                FROM job_tags j
+                WHERE lower(j.tag) IN (SELECT lower(t.tag)
+                                       FROM jobposts_staging s, jsonb_array_elements_text(s.job_tags) AS t(tag))
+                ORDER BY lower(j.tag), j.id
+            )
+            INSERT INTO j_jobpost_tags (jobpost_id, jobtag_id)
+            SELECT DISTINCT s.jobpost_id, tags.id
+            FROM jobposts_staging s, jsonb_array_elements_text(s.job_tags) AS t(tag)
+            JOIN tags ON tags.tag = lower(t.tag)
+            ON CONFLICT DO NOTHING
+            """;
+
+    // Matches definitions case-insensitively like JobDefinitionJdbcRepositoryImpl.
+    private static final String INSERT_JOB_DEFINITIONS = """
+            INSERT INTO job_definitions (key, value)
+            SELECT DISTINCT ON (lower(d.key), lower(d.value)) d.key, d.value
+            FROM jobposts_staging s, jsonb_to_recordset(s.job_definitions) AS d(key text, value text)
+            WHERE NOT EXISTS (SELECT 1
+                              FROM job_definitions j
+                              WHERE lower(j.key) = lower(d.key) AND lower(j.value) = lower(d.value))
+            ON CONFLICT (key, value) DO NOTHING
+            """;
+
+    private static final String INSERT_JOB_DEFINITION_LINKS = """
+            WITH input AS (
+                SELECT DISTINCT lower(d.key) AS key, lower(d.value) AS value
+                FROM jobposts_staging s, jsonb_to_recordset(s.job_definitions) AS d(key text, value text)
+            ),
+            definitions AS (
+                SELECT DISTINCT ON (lower(j.key), lower(j.value)) j.id, lower(j.key) AS key, lower(j.value) AS value
+                FROM job_definitions j
+                JOIN input i ON lower(j.key) = i.key AND lower(j.value) = i.value
+                ORDER BY lower(j.key), lower(j.value), j.id
+            )
+            INSERT INTO j_jobpost_descriptions (jobpost_id, jobdescription_id)
+            SELECT DISTINCT s.jobpost_id, definitions.id
+            FROM jobposts_staging s, jsonb_to_recordset(s.job_definitions) AS d(key text, value text)
+            JOIN definitions ON definitions.key = lower(d.key) AND definitions.value = lower(d.value)
+            ON CONFLICT DO NOTHING
+            """;
+
+    // Keeps the sorted job definition ids on JobPost in step with the links, like JobPostIngester does.
+    private static final String UPDATE_JOB_DEFINITION_IDS = """
+            UPDATE jobposts j
+            SET job_definition_ids = coalesce((SELECT array_agg(l.jobdescription_id ORDER BY l.jobdescription_id)
+                                               FROM j_jobpost_descriptions l
+                                               WHERE l.jobpost_id = j.jobpost_id), '{}')
+            FROM jobposts_staging s
+            WHERE j.jobpost_id = s.jobpost_id
+            """;
+
+    // What is left in the staging table once the rows that were not written are deleted.
+    private static final String FIND_CHANGED_JOB_POSTS = "SELECT jobpost_id FROM jobposts_staging ORDER BY jobpost_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader jobPostCreateDtoReader;
+    private final Validator validator;
+    private final JobPostUrlFilter jobPostUrlFilter;
+    private final JobPostMunicipalityResolver jobPostMunicipalityResolver;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    public JobPostBulkLoader(JdbcTemplate jdbcTemplate,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             JobPostUrlFilter jobPostUrlFilter,
+                             JobPostMunicipalityResolver jobPostMunicipalityResolver,
+                             ApplicationEventPublisher applicationEventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.jobPostCreateDtoReader = objectMapper.readerFor(JobPostCreateDto.class);
+        this.validator = validator;
+        this.jobPostUrlFilter = jobPostUrlFilter;
+        this.jobPostMunicipalityResolver = jobPostMunicipalityResolver;
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    /**
+     * Loads newline delimited {@link JobPostCreateDto} JSON into the database. Lines are parsed one at a time and
+     * streamed through {@code COPY} into a temporary staging table, which is then merged into {@code jobposts}, the
+     * dictionaries and the join tables with a fixed number of set-based statements. Memory use does therefore not
+     * depend on the size of the upload, apart from the ids of the changed job posts.
+     * <p>
+     * Like {@link JobPostIngester}, known urls are updated when their {@link JobPostContentHash} differs and left
+     * untouched otherwise. The created and updated job posts are read back from the staging table through a cursor
+     * and published in a {@link JobPostsChangedEvent} per batch of {@value #CHANGED_BATCH_SIZE}, which listeners
+     * receive once the transaction commits.
+     * <p>
+     * Must run inside a transaction, since the staging table lives until the transaction commits.
+     *
+     * @param inputStream                   The NDJSON stream, one job post per line.
+     * @return                              The number of received, invalid, skipped, unchanged, updated and
+     *                                      created job posts.
+     * @throws MalformedBulkLoadException   if a line is not valid JSON.
+     */
+    public JobPostBulkLoadResult load(InputStream inputStream) {
+        long start = System.nanoTime();
+
+        return jdbcTemplate.execute((ConnectionCallback<JobPostBulkLoadResult>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_TABLE);
+
+                StagingCounts stagingCounts = copyToStaging(connection, inputStream);
+                statement.execute(INDEX_STAGING);
+                LOGGER.info("Staged {} job posts, {} invalid", stagingCounts.staged(), stagingCounts.invalid());
+
+                int repeated = statement.executeUpdate(DELETE_REPEATED);
+                int unchanged = statement.executeUpdate(DELETE_UNCHANGED);
+                statement.executeUpdate(MARK_EXISTING);
+                int updated = statement.executeUpdate(UPDATE_JOB_POSTS);
+                statement.executeUpdate(ASSIGN_JOB_POST_IDS);
+                int created = statement.executeUpdate(INSERT_JOB_POSTS);
+                statement.executeUpdate(DELETE_NOT_INSERTED);
+                long skippedDuplicate = stagingCounts.staged() - created - updated - unchanged;
+                LOGGER.info("Inserted {} job posts, updated {}, {} unchanged, skipped {} duplicates",
+                        created, updated, unchanged, skippedDuplicate);
+
+                statement.executeUpdate(INSERT_JOB_TAGS);
+                statement.executeUpdate(DELETE_STALE_JOB_TAG_LINKS);
+                int jobTagLinks = statement.executeUpdate(INSERT_JOB_TAG_LINKS);
+                statement.executeUpdate(INSERT_JOB_DEFINITIONS);
+                statement.executeUpdate(DELETE_STALE_JOB_DEFINITION_LINKS);
+                int jobDefinitionLinks = statement.executeUpdate(INSERT_JOB_DEFINITION_LINKS);
+                statement.executeUpdate(UPDATE_JOB_DEFINITION_IDS);
+                jobPostMunicipalityResolver.resolveUnresolved();
+                LOGGER.info("Linked {} tags and {} job definitions", jobTagLinks, jobDefinitionLinks);
+                publishChanged(connection);
+
+                JobPostBulkLoadResult result = new JobPostBulkLoadResult(
+                        stagingCounts.staged() + stagingCounts.invalid(),
+                        created,
+                        updated,
+                        unchanged,
+                        skippedDuplicate,
+                        stagingCounts.invalid(),
+                        (System.nanoTime() - start) / 1_000_000);
+                LOGGER.info("Bulk load finished: {} (repeated in upload {})", result, repeated);
+                return result;
+            }
+        });
+    }
+
+    private void publishChanged(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // Fetched through a cursor, since the load runs in a transaction.
+            statement.setFetchSize(CHANGED_BATCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery(FIND_CHANGED_JOB_POSTS)) {
+                List<Long> jobPostIds = new ArrayList<>(CHANGED_BATCH_SIZE);
+                while (resultSet.next()) {
+                    jobPostIds.add(resultSet.getLong(1));
+                    if (jobPostIds.size() == CHANGED_BATCH_SIZE) {
+                        applicationEventPublisher.publishEvent(new JobPostsChangedEvent(jobPostIds));
+                        jobPostIds = new ArrayList<>(CHANGED_BATCH_SIZE);
+                    }
+                }
+                if (!jobPostIds.isEmpty()) {
+                    applicationEventPublisher.publishEvent(new JobPostsChangedEvent(jobPostIds));
+                }
+            }
+        }
+    }
+
+    private StagingCounts copyToStaging(Connection connection, InputStream inputStream) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long lineNo = 0;
+        long staged = 0;
+        long invalid = 0;
+
+        try (MappingIterator<JobPostCreateDto> iterator = jobPostCreateDtoReader.readValues(inputStream);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     new PGCopyOutputStream(pgConnection, COPY_STAGING, COPY_BUFFER_SIZE), StandardCharsets.UTF_8))) {
+            JobPostCreateDto jobPostCreateDto;
+            while ((jobPostCreateDto = nextValue(iterator, lineNo + 1)) != null) {
+                lineNo++;
+
+                Set<ConstraintViolation<JobPostCreateDto>> violations = validator.validate(jobPostCreateDto);
+                if (!violations.isEmpty()) {
+                    invalid++;
+                    LOGGER.warn("Skipping line {}: {}", lineNo, violations.stream()
+                            .map(ConstraintViolation::getMessage)
+                            .collect(Collectors.joining(", ")));
+                    continue;
+                }
+
+                writeRow(writer, lineNo, jobPostCreateDto);
+                jobPostUrlFilter.add(jobPostCreateDto.url());
+                staged++;
+
+                if (lineNo % PROGRESS_INTERVAL == 0) {
+                    LOGGER.info("Read {} lines, staged {} job posts", lineNo, staged);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new StagingCounts(staged, invalid);
+    }
+
+    private JobPostCreateDto nextValue(MappingIterator<JobPostCreateDto> iterator, long lineNo) throws IOException {
+        try {
+            return iterator.hasNextValue() ? iterator.nextValue() : null;
+        } catch (JsonProcessingException e) {
+            throw new MalformedBulkLoadException(lineNo, e.getOriginalMessage());
+        }
+    }
+
+    private void writeRow(Writer writer, long lineNo, JobPostCreateDto jobPostCreateDto) throws IOException {
+        writer.write(Long.toString(lineNo));
+        writeField(writer, jobPostCreateDto.url());
+        writeField(writer, jobPostCreateDto.companyName());
+        writeField(writer, jobPostCreateDto.companyImageUrl());
+        writeField(writer, jobPostCreateDto.imageUrl());
+        writeField(writer, jobPostCreateDto.title());
+        writeField(writer, jobPostCreateDto.description());
+        writeField(writer, jobPostCreateDto.deadline() == null ? null : jobPostCreateDto.deadline().toString());
+        writeField(writer, objectMapper.writeValueAsString(jobTags(jobPostCreateDto.jobTags())));
+        writeField(writer, objectMapper.writeValueAsString(jobDefinitions(jobPostCreateDto.jobDefinitions())));
+        writeField(writer, JobPostContentHash.of(jobPostCreateDto));
+        writeField(writer, JobPostContentHash.sha256Hex(jobPostCreateDto.url()));
+        writeField(writer, JobPostSource.of(jobPostCreateDto.url()));
+        writer.write('\n');
+    }
+
+    /**
+     * Writes a CSV field. {@code null} is written unquoted, which {@code COPY} reads as NULL, everything else is
+     * quoted so that empty strings, delimiters and line breaks survive.
+     */
+    private void writeField(Writer writer, String value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static Collection<String> jobTags(Set<JobTag> jobTags) {
+        if (jobTags == null) {
+            return Set.of();
+        }
+
+        return jobTags.stream()
+                .map(JobTag::getTag)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    private static Collection<Map<String, String>> jobDefinitions(Set<JobDefinition> jobDefinitions) {
+        if (jobDefinitions == null) {
+            return Set.of();
+        }
+
+        return jobDefinitions.stream()
+                .filter(jobDefinition -> jobDefinition.getKey() != null && jobDefinition.getValue() != null)
+                .map(jobDefinition -> {
+                    Map<String, String> entry = new LinkedHashMap<>();
+                    entry.put("key", jobDefinition.getKey());
+                    entry.put("value", jobDefinition.getValue());
+                    return entry;
+                })
+                .toList();
+    }
+
+    private record StagingCounts(long staged, long invalid) {
+    }
+}
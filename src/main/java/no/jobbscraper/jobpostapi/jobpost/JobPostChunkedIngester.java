@@ -0,0 +1,90 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Creates job posts in chunks of {@code ingest.chunk-size}, each committed in its own transaction by
+ * {@link JobPostIngester}. When a chunk fails, its job posts are retried one at a time, so a single bad job post
+ * only fails itself instead of rolling back everything else. Their urls are added to the {@link JobPostUrlFilter}
+ * first, so that the retry looks them all up, in case the chunk failed on a url the filter did not know about.
+ */
+@Component
+public class JobPostChunkedIngester {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostChunkedIngester.class);
+
+    private final JobPostIngester jobPostIngester;
+    private final JobPostUrlFilter jobPostUrlFilter;
+
+    @Value("${ingest.chunk-size}")
+    private int chunkSize;
+
+    public JobPostChunkedIngester(JobPostIngester jobPostIngester, JobPostUrlFilter jobPostUrlFilter) {
+        this.jobPostIngester = jobPostIngester;
+        this.jobPostUrlFilter = jobPostUrlFilter;
+    }
+
+    /**
+     * Creates the given job posts chunk by chunk.
+     *
+     * @param jobPostCreateDtos The job posts to create.
+     * @return                  The outcome for every given job post, in the given order.
+     */
+    public List<JobPostCreateResult> ingest(List<JobPostCreateDto> jobPostCreateDtos) {
+        List<JobPostCreateResult> results = new ArrayList<>(jobPostCreateDtos.size());
+        ingest(jobPostCreateDtos, results::addAll);
+        return results;
+    }
+
+    /**
+     * Creates the given job posts chunk by chunk, handing the outcome of every committed chunk to the given consumer.
+     *
+     * @param jobPostCreateDtos The job posts to create.
+     * @param chunkConsumer     Receives the outcome of each chunk, in the given order, as soon as it is committed.
+     */
+    public void ingest(List<JobPostCreateDto> jobPostCreateDtos, Consumer<List<JobPostCreateResult>> chunkConsumer) {
+        for (int from = 0; from < jobPostCreateDtos.size(); from += chunkSize) {
+            List<JobPostCreateDto> chunk =
+                    jobPostCreateDtos.subList(from, Math.min(from + chunkSize, jobPostCreateDtos.size()));
+            chunkConsumer.accept(ingestChunk(chunk));
+        }
+    }
+
+    private List<JobPostCreateResult> ingestChunk(List<JobPostCreateDto> chunk) {
+        try {
+            return jobPostIngester.ingest(chunk);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Chunk of {} job posts failed, retrying them one at a time: {}", chunk.size(),
+                    NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+
+        chunk.forEach(jobPostCreateDto -> jobPostUrlFilter.add(jobPostCreateDto.url()));
+        List<JobPostCreateResult> results = new ArrayList<>(chunk.size());
+        for (JobPostCreateDto jobPostCreateDto : chunk) {
+            results.add(ingestAlone(jobPostCreateDto));
+        }
+        return results;
+    }
+
+    /**
+     * A job post that lost a race against a concurrent ingest of the same url is reported as a duplicate here,
+     * since the other transaction has committed by the time the job post is retried.
+     */
+    private JobPostCreateResult ingestAlone(JobPostCreateDto jobPostCreateDto) {
+        try {
+            return jobPostIngester.ingest(List.of(jobPostCreateDto)).getFirst();
+        } catch (RuntimeException e) {
+            String reason = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            LOGGER.warn("Failed to create job post {}: {}", jobPostCreateDto.url(), reason);
+            return JobPostCreateResult.failed(jobPostCreateDto.url(), reason);
+        }
+    }
+}
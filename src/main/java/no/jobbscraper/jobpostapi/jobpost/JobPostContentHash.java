@@ -0,0 +1,92 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
+import no.jobbscraper.jobpostapi.jobtag.JobTag;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * SHA-256 over the scraped content of a job post: company, images, title, description, deadline, tags and job
+ * definitions. Tags and definitions are hashed as the sorted, distinct {@link JobPostDictionary} keys, so their order
+ * and case, which do not change what a post is linked to, do not change the hash either.
+ */
+final class JobPostContentHash {
+
+    private static final char FIELD_SEPARATOR = '\u001F';
+    private static final char ITEM_SEPARATOR = '\u001E';
+    private static final char NULL = '\u0000';
+
+    private JobPostContentHash() {
+        throw new AssertionError("Cannot initialize this class");
+    }
+
+    static String of(JobPostCreateDto jobPostCreateDto) {
+        StringBuilder content = new StringBuilder();
+        appendField(content, jobPostCreateDto.companyName());
+        appendField(content, jobPostCreateDto.companyImageUrl());
+        appendField(content, jobPostCreateDto.imageUrl());
+        appendField(content, jobPostCreateDto.title());
+        appendField(content, jobPostCreateDto.description());
+        appendField(content, toString(jobPostCreateDto.deadline()));
+        appendItems(content, tagKeys(jobPostCreateDto.jobTags()));
+        appendItems(content, definitionKeys(jobPostCreateDto.jobDefinitions()));
+
+        return sha256Hex(content.toString());
+    }
+
+    /**
+     * @param value The value to hash.
+     * @return      The lowercase hex SHA-256 of the UTF-8 bytes of the value.
+     */
+    static String sha256Hex(String value) {
+        return HexFormat.of().formatHex(sha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void appendField(StringBuilder content, String value) {
+        content.append(value == null ? String.valueOf(NULL) : value).append(FIELD_SEPARATOR);
+    }
+
+    private static void appendItems(StringBuilder content, Stream<String> items) {
+        items.distinct()
+                .sorted()
+                .forEach(item -> content.append(item).append(ITEM_SEPARATOR));
+        content.append(FIELD_SEPARATOR);
+    }
+
+    private static Stream<String> tagKeys(Set<JobTag> jobTags) {
+        return stream(jobTags)
+                .map(JobTag::getTag)
+                .filter(Objects::nonNull)
+                .map(JobPostDictionary::tagKey);
+    }
+
+    private static Stream<String> definitionKeys(Set<JobDefinition> jobDefinitions) {
+        return stream(jobDefinitions)
+                .filter(jobDefinition -> jobDefinition.getKey() != null && jobDefinition.getValue() != null)
+                .map(jobDefinition -> JobPostDictionary.definitionKey(jobDefinition.getKey(), jobDefinition.getValue()));
+    }
+
+    private static <T> Stream<T> stream(Collection<T> collection) {
+        return collection == null ? Stream.empty() : collection.stream();
+    }
+
+    private static String toString(LocalDate date) {
+        return date == null ? null : date.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
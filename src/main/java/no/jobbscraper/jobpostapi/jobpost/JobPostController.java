@@ -5,15 +5,25 @@ import no.jobbscraper.jobpostapi.response.Response;
 import no.jobbscraper.jobpostapi.response.ResponseUtil;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("api/v1/jobposts")
 public class JobPostController {
 
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     private final JobPostService jobPostService;
     private final ResponseUtil responseUtil;
 
@@ -43,6 +53,74 @@ public class JobPostController {
         return ResponseEntity.ok(responseUtil.buildSuccessResponse(jobPosts));
     }
 
+    /**
+     * Retrieves a paginated list of job posts based on the provided criteria, like {@link #getAllJobPosts}, but
+     * with a total only as exact as needed: {@code exact} counts it with every page, {@code estimated} counts it
+     * at most every few minutes for the same criteria, and {@code none} only tells whether there is a next page.
+     *
+     * @param jobPostGetRequest The criteria for filtering job posts.
+     * @param total             How to find the total: exact, estimated or none.
+     * @param pageable          Pageable object
+     * @return                  A ResponseEntity containing a Response object with the page of job posts.
+     */
+    @GetMapping(params = {"total", "!cursor"})
+    public ResponseEntity<Response<JobPostSearchPage>> getJobPosts(
+            @ModelAttribute JobPostGetRequest jobPostGetRequest,
+            @RequestParam("total") String total,
+            Pageable pageable
+    ) {
+        JobPostSearchPage jobPosts = jobPostService.getJobPosts(jobPostGetRequest, pageable, total);
+
+        if (jobPosts.content().isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        return ResponseEntity.ok(responseUtil.buildSuccessResponse(jobPosts));
+    }
+
+    /**
+     * Retrieves a list of job posts based on the provided criteria, paginated by cursor instead of page number.
+     * Pass an empty cursor for the first page and the {@code next_cursor} of a page for the page after it; the
+     * last page has none. Takes the same criteria as {@link #getAllJobPosts}, which must not change between pages.
+     *
+     * @param jobPostGetRequest The criteria for filtering job posts.
+     * @param cursor            The cursor of the page, empty for the first page.
+     * @param pageable          Pageable object, of which only the page size is used.
+     * @return                  A ResponseEntity containing a Response object with the page of job posts.
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<Response<JobPostCursorPage>> getJobPostsAfter(
+            @ModelAttribute JobPostGetRequest jobPostGetRequest,
+            @RequestParam("cursor") String cursor,
+            Pageable pageable
+    ) {
+        JobPostCursorPage jobPosts = jobPostService.getJobPostsAfter(jobPostGetRequest, cursor,
+                pageable.getPageSize());
+
+        if (jobPosts.content().isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        return ResponseEntity.ok(responseUtil.buildSuccessResponse(jobPosts));
+    }
+
+    /**
+     * Counts the job posts matching the provided criteria by each value of a facet: sector, position, municipality
+     * region and tag. Each facet is counted without its own filter, so that its other values can be offered
+     * alongside the selected one. Takes the same criteria as {@link #getAllJobPosts}.
+     *
+     * @param jobPostGetRequest The criteria for filtering job posts.
+     * @return                  A ResponseEntity containing a Response object with the facets.
+     */
+    @GetMapping("facets")
+    public ResponseEntity<Response<JobPostFacets>> getJobPostFacets(
+            @ModelAttribute JobPostGetRequest jobPostGetRequest
+    ) {
+        JobPostFacets jobPostFacets = jobPostService.getJobPostFacets(jobPostGetRequest);
+
+        return ResponseEntity.ok(responseUtil.buildSuccessResponse(jobPostFacets));
+    }
+
     /**
      * Retrieves a single job post by its ID.
      *
@@ -61,15 +139,119 @@ public class JobPostController {
      * Creates new job posts based on the provided request.
      *
      * @param createRequest The request containing the details of the job posts to create.
-     * @return              A ResponseEntity containing a Response object with the IDs of the created job posts.
+     * @return              A ResponseEntity containing a Response object with the outcome for every job post.
      */
     @PostMapping
-    public ResponseEntity<Response<List<Long>>> createJobPosts(
+    public ResponseEntity<Response<List<JobPostCreateResult>>> createJobPosts(
+            @Valid @RequestBody JobPostCreateRequest createRequest,
+            @RequestParam("secretkey") String secretKey
+    ) {
+        List<JobPostCreateResult> results = jobPostService.createJobPosts(createRequest, secretKey);
+
+        return ResponseEntity.ok(responseUtil.buildSuccessResponse(results));
+    }
+
+    /**
+     * Queues the job posts of the provided request for asynchronous creation and returns immediately.
+     *
+     * @param createRequest The request containing the details of the job posts to create.
+     * @return              A 202 ResponseEntity containing a Response object with the status of the queued batch,
+     *                      and the location of its status endpoint.
+     */
+    @PostMapping("async")
+    public ResponseEntity<Response<JobPostIngestBatchStatus>> enqueueJobPosts(
             @Valid @RequestBody JobPostCreateRequest createRequest,
             @RequestParam("secretkey") String secretKey
     ) {
-        List<Long> jobPostIds = jobPostService.createJobPosts(createRequest, secretKey);
+        JobPostIngestBatchStatus batchStatus = jobPostService.enqueueJobPosts(createRequest, secretKey);
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/v1/jobposts/batches/{batchId}")
+                .buildAndExpand(batchStatus.batchId())
+                .toUri();
+
+        return ResponseEntity.accepted()
+                .location(location)
+                .body(responseUtil.buildSuccessResponse(batchStatus));
+    }
+
+    /**
+     * Retrieves the progress of a batch queued through {@code api/v1/jobposts/async}.
+     *
+     * @param batchId   The id of the batch.
+     * @return          A ResponseEntity containing a Response object with the status of the batch.
+     */
+    @GetMapping("batches/{batchId}")
+    public ResponseEntity<Response<JobPostIngestBatchStatus>> getIngestBatch(
+            @PathVariable("batchId") UUID batchId,
+            @RequestParam("secretkey") String secretKey
+    ) {
+        JobPostIngestBatchStatus batchStatus = jobPostService.getIngestBatch(batchId, secretKey);
+
+        return ResponseEntity.ok(responseUtil.buildSuccessResponse(batchStatus));
+    }
+
+    /**
+     * Creates job posts from a newline delimited JSON stream, one job post per line. The body is read incrementally,
+     * so it can be of any size, and may be gzip compressed by sending {@code Content-Encoding: gzip}.
+     *
+     * @param body              The NDJSON request body.
+     * @param contentEncoding   The content encoding of the body, if any.
+     * @return                  A ResponseEntity containing a Response object with the number of created job posts.
+     * @throws IOException      if the gzip header of the body can not be read.
+     */
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Response<JobPostBulkLoadResult>> bulkLoadJobPosts(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            @RequestParam("secretkey") String secretKey
+    ) throws IOException {
+        InputStream inputStream = "gzip".equalsIgnoreCase(contentEncoding)
+                ? new GZIPInputStream(body, GZIP_BUFFER_SIZE)
+                : body;
+        JobPostBulkLoadResult result = jobPostService.bulkLoadJobPosts(inputStream, secretKey);
+
+        return ResponseEntity.ok(responseUtil.buildSuccessResponse(result));
+    }
+
+    /**
+     * Syncs the job posts of a source with the urls currently live on its job board, one url per line. Stored job
+     * posts of the source whose url is not in the body are expired and no longer show up in searches. The body is
+     * read incrementally and may be gzip compressed by sending {@code Content-Encoding: gzip}.
+     *
+     * @param source            The lowercase host of the job board's urls, e.g. {@code www.finn.no}.
+     * @param body              The live urls, one per line.
+     * @param contentEncoding   The content encoding of the body, if any.
+     * @return                  A ResponseEntity containing a Response object with the number of expired job posts.
+     * @throws IOException      if the gzip header of the body can not be read.
+     */
+    @PostMapping(value = "sources/{source}/sync", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<Response<JobPostSourceSyncResult>> syncSource(
+            @PathVariable("source") String source,
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            @RequestParam("secretkey") String secretKey
+    ) throws IOException {
+        InputStream inputStream = "gzip".equalsIgnoreCase(contentEncoding)
+                ? new GZIPInputStream(body, GZIP_BUFFER_SIZE)
+                : body;
+        JobPostSourceSyncResult result = jobPostService.syncSource(source, inputStream, secretKey);
+
+        return ResponseEntity.ok(responseUtil.buildSuccessResponse(result));
+    }
+
+    /**
+     * Finds which of the given urls, or SHA-256 hashes of urls, are not stored yet.
+     *
+     * @param newUrlsRequest    The urls and/or url hashes to check.
+     * @return                  A ResponseEntity containing a Response object with the new urls and url hashes.
+     */
+    @PostMapping("new-urls")
+    public ResponseEntity<Response<JobPostNewUrlsResult>> findNewUrls(
+            @Valid @RequestBody JobPostNewUrlsRequest newUrlsRequest,
+            @RequestParam("secretkey") String secretKey
+    ) {
+        JobPostNewUrlsResult result = jobPostService.findNewUrls(newUrlsRequest, secretKey);
 
-        return ResponseEntity.ok(responseUtil.buildSuccessResponse(jobPostIds));
+        return ResponseEntity.ok(responseUtil.buildSuccessResponse(result));
     }
 }
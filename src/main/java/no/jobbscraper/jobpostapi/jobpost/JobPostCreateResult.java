@@ -0,0 +1,39 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JobPostCreateResult(
+        @JsonProperty("url")
+        String url,
+
+        @JsonProperty("id")
+        Long id,
+
+        @JsonProperty("status")
+        JobPostCreateStatus status,
+
+        @JsonProperty("reason")
+        String reason) {
+
+    public static JobPostCreateResult created(String url, Long id) {
+        return new JobPostCreateResult(url, id, JobPostCreateStatus.CREATED, null);
+    }
+
+    public static JobPostCreateResult updated(String url, Long id) {
+        return new JobPostCreateResult(url, id, JobPostCreateStatus.UPDATED, null);
+    }
+
+    public static JobPostCreateResult unchanged(String url, Long id) {
+        return new JobPostCreateResult(url, id, JobPostCreateStatus.UNCHANGED, null);
+    }
+
+    public static JobPostCreateResult skippedDuplicate(String url) {
+        return new JobPostCreateResult(url, null, JobPostCreateStatus.SKIPPED_DUPLICATE, null);
+    }
+
+    public static JobPostCreateResult failed(String url, String reason) {
+        return new JobPostCreateResult(url, null, JobPostCreateStatus.FAILED, reason);
+    }
+}
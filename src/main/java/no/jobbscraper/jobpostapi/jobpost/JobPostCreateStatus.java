@@ -0,0 +1,9 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+public enum JobPostCreateStatus {
+    CREATED,
+    UPDATED,
+    UNCHANGED,
+    SKIPPED_DUPLICATE,
+    FAILED,
+}
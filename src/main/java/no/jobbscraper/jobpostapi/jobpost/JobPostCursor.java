@@ -0,0 +1,77 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import jakarta.annotation.Nullable;
+import no.jobbscraper.jobpostapi.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * The position of a keyset paginated search: the sort keys and id of the last job post of a page. Clients get it
+ * as an opaque string, see {@link #encode()}, and pass it back unchanged to get the next page.
+ *
+ * @param key   The deadline or creation date the search is ordered by, or null for a job post without a deadline.
+ * @param id    The id of the job post.
+ * @param rank  The nearness rank of the job post in a radius search, see {@link JobPostPredicates#nearness}, or null
+ *              for any other search.
+ * @param relevance The relevance of the job post in a search by relevance, see {@link JobPostPredicates#relevance},
+ *                  or null for any other search.
+ */
+public record JobPostCursor(@Nullable LocalDate key, long id, @Nullable Integer rank, @Nullable Float relevance) {
+
+    private static final char SEPARATOR = ':';
+
+    private static final char RANK_SEPARATOR = '@';
+
+    private static final char RELEVANCE_SEPARATOR = '~';
+
+    public JobPostCursor(@Nullable LocalDate key, long id) {
+        this(key, id, null, null);
+    }
+
+    public JobPostCursor(@Nullable LocalDate key, long id, @Nullable Integer rank) {
+        this(key, id, rank, null);
+    }
+
+    public String encode() {
+        String cursor = id + (key == null ? "" : SEPARATOR + key.toString())
+                + (rank == null ? "" : RANK_SEPARATOR + rank.toString())
+                + (relevance == null ? "" : RELEVANCE_SEPARATOR + relevance.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor                    A cursor from {@link #encode()}.
+     * @return                          The decoded cursor.
+     * @throws InvalidCursorException   if the cursor was not made by {@link #encode()}.
+     */
+    public static JobPostCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            Float relevance = null;
+            int relevanceSeparator = decoded.indexOf(RELEVANCE_SEPARATOR);
+            if (relevanceSeparator >= 0) {
+                relevance = Float.valueOf(decoded.substring(relevanceSeparator + 1));
+                decoded = decoded.substring(0, relevanceSeparator);
+            }
+
+            Integer rank = null;
+            int rankSeparator = decoded.indexOf(RANK_SEPARATOR);
+            if (rankSeparator >= 0) {
+                rank = Integer.valueOf(decoded.substring(rankSeparator + 1));
+                decoded = decoded.substring(0, rankSeparator);
+            }
+
+            int separator = decoded.indexOf(SEPARATOR);
+            if (separator < 0) {
+                return new JobPostCursor(null, Long.parseLong(decoded), rank, relevance);
+            }
+            return new JobPostCursor(LocalDate.parse(decoded.substring(separator + 1)),
+                    Long.parseLong(decoded.substring(0, separator)), rank, relevance);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record JobPostCursorPage(
+        @JsonProperty("content")
+        List<JobPostDto> content,
+
+        @JsonProperty("size")
+        int size,
+
+        @JsonProperty("number_of_elements")
+        int numberOfElements,
+
+        @JsonProperty("next_cursor")
+        String nextCursor) {
+
+}
@@ -0,0 +1,134 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires the job posts whose deadline has passed, the same way {@link JobPostSourceSyncer} expires the job posts
+ * gone from their job board. The indexes the search runs on only cover job posts that have not expired, so they
+ * shrink to the live job posts instead of growing with every deadline that passes.
+ * <p>
+ * Runs {@code ingest.deadline-sweep.initial-delay} after startup and then on {@code ingest.deadline-sweep.cron}, on
+ * the scheduler rather than the startup thread. Only one instance sweeps at a time, the others skip the sweep while a
+ * PostgreSQL advisory lock is held. Until a deadline is swept, the search still leaves the job post out by
+ * {@link JobPostPredicates#hasDeadlineNotPassed()}. A job post is live again when it is ingested with a new deadline
+ * that has not passed.
+ */
+@Repository
+public class JobPostDeadlineSweeper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostDeadlineSweeper.class);
+
+    // Found through idx_jobposts_deadline, which only holds job posts that have not expired.
+    private static final String EXPIRE_JOB_POSTS = """
+            UPDATE jobposts
+            SET expired_at = now()
+            WHERE jobpost_id IN (SELECT jobpost_id
+                                 FROM jobposts
+                                 WHERE deadline < ? AND expired_at IS NULL
+                                 ORDER BY deadline, jobpost_id
+                                 LIMIT ?)
+            RETURNING jobpost_id
+            """;
+
+    // Any key no other advisory lock of the application uses.
+    static final long SWEEP_LOCK = 0x6a6f627377656570L;
+
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_lock(?)";
+
+    private static final String UNLOCK = "SELECT pg_advisory_unlock(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final Counter expiredCounter;
+    private final Timer sweepTimer;
+
+    @Value("${ingest.deadline-sweep.batch-size}")
+    private int batchSize;
+
+    public JobPostDeadlineSweeper(JdbcTemplate jdbcTemplate, ApplicationEventPublisher applicationEventPublisher,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.expiredCounter = Counter.builder("jobpost.deadline.sweep.expired")
+                .description("Job posts expired because their deadline passed")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("jobpost.deadline.sweep")
+                .description("Time taken to expire the job posts whose deadline passed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Expires the job posts whose deadline is before today in batches of {@code ingest.deadline-sweep.batch-size}.
+     * Joins the caller's transaction if there is one, and otherwise commits every batch on its own. Every batch is
+     * published in a {@link JobPostsChangedEvent}. Does nothing while another instance is sweeping.
+     *
+     * @return  The number of expired job posts.
+     */
+    @Scheduled(initialDelayString = "${ingest.deadline-sweep.initial-delay}")
+    @Scheduled(cron = "${ingest.deadline-sweep.cron}")
+    public long sweep() {
+        // The advisory lock belongs to the session, so it is taken and released on the same connection.
+        Long expired = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            if (!advisoryLock(connection, TRY_LOCK)) {
+                LOGGER.info("Skipped the deadline sweep, another instance is sweeping");
+                return 0L;
+            }
+            try {
+                return expireJobPosts();
+            } finally {
+                advisoryLock(connection, UNLOCK);
+            }
+        });
+        return expired == null ? 0 : expired;
+    }
+
+    private long expireJobPosts() {
+        long start = System.nanoTime();
+        Date today = Date.valueOf(LocalDate.now());
+        long expired = 0;
+        List<Long> batch;
+        do {
+            batch = jdbcTemplate.queryForList(EXPIRE_JOB_POSTS, Long.class, today, batchSize);
+            expired += batch.size();
+            expiredCounter.increment(batch.size());
+            if (!batch.isEmpty()) {
+                applicationEventPublisher.publishEvent(new JobPostsChangedEvent(batch));
+            }
+        } while (batch.size() == batchSize);
+
+        long elapsedNanos = System.nanoTime() - start;
+        sweepTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (expired > 0) {
+            LOGGER.info("Expired {} job posts whose deadline passed in {} ms", expired, elapsedNanos / 1_000_000);
+        }
+        return expired;
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, SWEEP_LOCK);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+}
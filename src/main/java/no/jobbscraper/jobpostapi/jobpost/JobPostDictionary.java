@@ -0,0 +1,52 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
+import no.jobbscraper.jobpostapi.jobtag.JobTag;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The ids of the {@link JobTag}s and {@link JobDefinition}s referenced by a batch of job posts, looked up
+ * case-insensitively.
+ *
+ * @see JobPostDictionaryResolver
+ */
+public class JobPostDictionary {
+
+    private final Map<String, Long> jobTagIds;
+    private final Map<String, Long> jobDefinitionIds;
+
+    /**
+     * @param jobTagIds         Job tag ids by {@link #tagKey(String)}.
+     * @param jobDefinitionIds  Job definition ids by {@link #definitionKey(String, String)}.
+     */
+    public JobPostDictionary(Map<String, Long> jobTagIds, Map<String, Long> jobDefinitionIds) {
+        this.jobTagIds = jobTagIds;
+        this.jobDefinitionIds = jobDefinitionIds;
+    }
+
+    public static String tagKey(String tag) {
+        return tag.toLowerCase(Locale.ROOT);
+    }
+
+    public static String definitionKey(String key, String value) {
+        return key.toLowerCase(Locale.ROOT) + '\u0000' + value.toLowerCase(Locale.ROOT);
+    }
+
+    public long getJobTagId(String tag) {
+        Long jobTagId = jobTagIds.get(tagKey(tag));
+        if (jobTagId == null) {
+            throw new IllegalStateException("Job tag " + tag + " was not resolved");
+        }
+        return jobTagId;
+    }
+
+    public long getJobDefinitionId(String key, String value) {
+        Long jobDefinitionId = jobDefinitionIds.get(definitionKey(key, value));
+        if (jobDefinitionId == null) {
+            throw new IllegalStateException("Job definition " + key + "=" + value + " was not resolved");
+        }
+        return jobDefinitionId;
+    }
+}
@@ -0,0 +1,66 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
+import no.jobbscraper.jobpostapi.jobdefinition.JobDefinitionRepositoryCustom;
+import no.jobbscraper.jobpostapi.jobtag.JobTag;
+import no.jobbscraper.jobpostapi.jobtag.JobTagRepositoryCustom;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Component
+public class JobPostDictionaryResolver {
+
+    private final JobTagRepositoryCustom jobTagRepositoryCustom;
+    private final JobDefinitionRepositoryCustom jobDefinitionRepositoryCustom;
+
+    public JobPostDictionaryResolver(JobTagRepositoryCustom jobTagRepositoryCustom,
+                                     JobDefinitionRepositoryCustom jobDefinitionRepositoryCustom) {
+        this.jobTagRepositoryCustom = jobTagRepositoryCustom;
+        this.jobDefinitionRepositoryCustom = jobDefinitionRepositoryCustom;
+    }
+
+    /**
+     * Collects the distinct tags and job definitions of the given job posts, creates the missing ones and
+     * returns the ids of all of them. This costs one statement per dictionary, regardless of how many
+     * tags and definitions the job posts have.
+     *
+     * @param jobPostCreateDtos The job posts to resolve tags and job definitions for.
+     * @return                  A {@link JobPostDictionary} holding the id of every tag and job definition.
+     */
+    public JobPostDictionary resolve(Collection<JobPostCreateDto> jobPostCreateDtos) {
+        List<String> tags = jobPostCreateDtos.stream()
+                .map(JobPostCreateDto::jobTags)
+                .filter(Objects::nonNull)
+                .flatMap(Collection::stream)
+                .map(JobTag::getTag)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        List<JobDefinition> jobDefinitions = jobPostCreateDtos.stream()
+                .map(JobPostCreateDto::jobDefinitions)
+                .filter(Objects::nonNull)
+                .flatMap(Collection::stream)
+                .filter(jobDefinition -> jobDefinition.getKey() != null && jobDefinition.getValue() != null)
+                .toList();
+
+        Map<String, Long> jobTagIds = new HashMap<>();
+        for (JobTag jobTag : jobTagRepositoryCustom.upsertAll(tags)) {
+            jobTagIds.putIfAbsent(JobPostDictionary.tagKey(jobTag.getTag()), jobTag.getId());
+        }
+
+        Map<String, Long> jobDefinitionIds = new HashMap<>();
+        for (JobDefinition jobDefinition : jobDefinitionRepositoryCustom.upsertAll(jobDefinitions)) {
+            jobDefinitionIds.putIfAbsent(
+                    JobPostDictionary.definitionKey(jobDefinition.getKey(), jobDefinition.getValue()),
+                    jobDefinition.getId());
+        }
+
+        return new JobPostDictionary(jobTagIds, jobDefinitionIds);
+    }
+}
@@ -0,0 +1,119 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import jakarta.annotation.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * The facets of recent searches by their filters. Unlike {@link JobPostTotalCache} the facets are kept
+ * until job posts change, and all of them are dropped when the ingest paths or the deadline sweeper of this instance
+ * commit a change, see {@link JobPostsChangedEvent}, after {@link JobPostBitmapIndex} has applied it, when
+ * {@link JobPostLuceneIndex} makes changes searchable, or when the day changes. At most
+ * {@code search.facets.cache-max-entries} are kept; when full, all of them are dropped.
+ */
+@Component
+public class JobPostFacetCache {
+
+    private final Map<Key, JobPostFacets> facets = new ConcurrentHashMap<>();
+    // Counts the changes, so that facets counted before a change are not put after it has dropped the others.
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${search.facets.cache-max-entries}")
+    private int maxEntries;
+
+    /**
+     * @param jobPostGetRequest The filters of the search.
+     * @return                  The facets counted for the filters since the last change, or empty if there are none.
+     */
+    public Optional<JobPostFacets> get(JobPostGetRequest jobPostGetRequest) {
+        return Optional.ofNullable(facets.get(Key.of(jobPostGetRequest)));
+    }
+
+    /**
+     * @return  The generation to pass to {@link #put}, taken before the facets are counted.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(JobPostGetRequest jobPostGetRequest, long countedInGeneration, JobPostFacets jobPostFacets) {
+        if (facets.size() >= maxEntries) {
+            facets.clear();
+        }
+        Key key = Key.of(jobPostGetRequest);
+        facets.put(key, jobPostFacets);
+        if (generation.get() != countedInGeneration) {
+            facets.remove(key, jobPostFacets);
+        }
+    }
+
+    /**
+     * Drops the facets once the indexes have applied the change, since facets counted from an index that has not
+     * applied it yet would otherwise be put after the change.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onJobPostsChanged(JobPostsChangedEvent jobPostsChangedEvent) {
+        invalidate();
+    }
+
+    /**
+     * Drops the facets, and those being counted, when the job posts they are counted from change.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        facets.clear();
+    }
+
+    /**
+     * The filters of a search, without its sort, as the predicates read them, so that equal keys find the same job
+     * posts. Every filter treats blank as absent; other values are kept as they are, except the regions, which are
+     * read in any order. Facets depend on the day too, since the deadline filters do.
+     */
+    private record Key(@Nullable String query, @Nullable String position, @Nullable String sector,
+                       @Nullable String municipality, @Nullable String deadline, @Nullable String near,
+                       @Nullable Integer radiusKm, LocalDate today) {
+
+        static Key of(JobPostGetRequest jobPostGetRequest) {
+            String near = blankToNull(jobPostGetRequest.near());
+            return new Key(
+                    blankToNull(jobPostGetRequest.query()),
+                    blankToNull(jobPostGetRequest.position()),
+                    blankToNull(jobPostGetRequest.sector()),
+                    regions(jobPostGetRequest.municipality()),
+                    blankToNull(jobPostGetRequest.deadline()),
+                    near,
+                    near == null ? null : jobPostGetRequest.radiusKm(),
+                    LocalDate.now());
+        }
+
+        @Nullable
+        private static String blankToNull(@Nullable String value) {
+            return value == null || value.isBlank() ? null : value;
+        }
+
+        // The same regions in any order, see Gazetteer#municipalityIdsOf.
+        @Nullable
+        private static String regions(@Nullable String regions) {
+            if (regions == null || regions.isBlank()) {
+                return null;
+            }
+            return Arrays.stream(regions.toLowerCase(Locale.ROOT).replaceAll(" ", "").split(","))
+                    .sorted()
+                    .distinct()
+                    .collect(Collectors.joining(","));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The number of job posts with a value of a facet.
+ */
+public record JobPostFacetCount(
+        @JsonProperty("value")
+        String value,
+
+        @JsonProperty("count")
+        long count) {
+
+    private static final Comparator<JobPostFacetCount> MOST_FIRST =
+            Comparator.comparingLong(JobPostFacetCount::count).reversed()
+                    .thenComparing(JobPostFacetCount::value);
+
+    /**
+     * @param counts    The number of job posts by value.
+     * @param maxValues The number of values to keep at most.
+     * @return          The values with any job posts, the most common first and ties by value.
+     */
+    public static List<JobPostFacetCount> mostCommon(Map<String, Long> counts, int maxValues) {
+        return counts.entrySet().stream()
+                .filter(count -> count.getValue() > 0)
+                .map(count -> new JobPostFacetCount(count.getKey(), count.getValue()))
+                .sorted(MOST_FIRST)
+                .limit(maxValues)
+                .toList();
+    }
+}
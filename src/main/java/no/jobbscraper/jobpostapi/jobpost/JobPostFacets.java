@@ -0,0 +1,25 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * The number of job posts with each value of the filters of {@link JobPostGetRequest}, and of their tags. Each
+ * facet is counted with every filter but its own, so that it tells how many job posts another value of it would
+ * find alongside the other filters. The municipality facet is by region, the values the municipality filter takes.
+ */
+public record JobPostFacets(
+        @JsonProperty("sector")
+        List<JobPostFacetCount> sector,
+
+        @JsonProperty("position")
+        List<JobPostFacetCount> position,
+
+        @JsonProperty("municipality")
+        List<JobPostFacetCount> municipality,
+
+        @JsonProperty("tags")
+        List<JobPostFacetCount> tags) {
+
+}
@@ -13,5 +13,11 @@ public record JobPostGetRequest(
         @Nullable
         String municipality,
         @Nullable
-        String deadline){
+        String deadline,
+        @Nullable
+        String near,
+        @Nullable
+        Integer radiusKm,
+        @Nullable
+        String sort){
 }
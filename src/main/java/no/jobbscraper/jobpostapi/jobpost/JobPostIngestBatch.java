@@ -0,0 +1,107 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A batch of job posts waiting in, or processed by, the {@link JobPostIngestQueue}. Progress is written by a single
+ * worker and read by status requests.
+ */
+final class JobPostIngestBatch {
+
+    private final UUID id = UUID.randomUUID();
+    private final int total;
+    private final Instant enqueuedAt = Instant.now();
+
+    private volatile List<JobPostCreateDto> jobPosts;
+    private volatile JobPostIngestBatchState state = JobPostIngestBatchState.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private volatile int processed;
+    private volatile int created;
+    private volatile int updated;
+    private volatile int unchanged;
+    private volatile int skippedDuplicate;
+    private final List<JobPostCreateResult> failures = new CopyOnWriteArrayList<>();
+
+    JobPostIngestBatch(List<JobPostCreateDto> jobPosts) {
+        this.jobPosts = new ArrayList<>(jobPosts);
+        this.total = jobPosts.size();
+    }
+
+    UUID getId() {
+        return id;
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    Instant getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    int getProcessed() {
+        return processed;
+    }
+
+    Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    List<JobPostCreateDto> getJobPosts() {
+        return jobPosts;
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        state = JobPostIngestBatchState.RUNNING;
+    }
+
+    void recordResults(List<JobPostCreateResult> results) {
+        List<JobPostCreateResult> chunkFailures = new ArrayList<>();
+        for (JobPostCreateResult result : results) {
+            switch (result.status()) {
+                case CREATED -> created++;
+                case UPDATED -> updated++;
+                case UNCHANGED -> unchanged++;
+                case SKIPPED_DUPLICATE -> skippedDuplicate++;
+                case FAILED -> chunkFailures.add(result);
+            }
+        }
+        failures.addAll(chunkFailures);
+        processed += results.size();
+    }
+
+    /**
+     * Marks the batch as completed and drops its job posts, only the counts are kept from here on.
+     */
+    void finish() {
+        finish(JobPostIngestBatchState.COMPLETED);
+    }
+
+    /**
+     * Marks the batch as failed after it was aborted, the job posts that were not processed are not retried.
+     *
+     * @param error Why the batch was aborted.
+     */
+    void fail(String error) {
+        this.error = error;
+        finish(JobPostIngestBatchState.FAILED);
+    }
+
+    private void finish(JobPostIngestBatchState finalState) {
+        jobPosts = null;
+        finishedAt = Instant.now();
+        state = finalState;
+    }
+
+    JobPostIngestBatchStatus toStatus() {
+        return new JobPostIngestBatchStatus(id, state, total, processed, created, updated, unchanged,
+                skippedDuplicate, failures.size(), List.copyOf(failures), enqueuedAt, startedAt, finishedAt, error);
+    }
+}
@@ -0,0 +1,8 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+public enum JobPostIngestBatchState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,54 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JobPostIngestBatchStatus(
+        @JsonProperty("batch_id")
+        UUID batchId,
+
+        @JsonProperty("state")
+        JobPostIngestBatchState state,
+
+        @JsonProperty("total")
+        int total,
+
+        @JsonProperty("processed")
+        int processed,
+
+        @JsonProperty("created")
+        int created,
+
+        @JsonProperty("updated")
+        int updated,
+
+        @JsonProperty("unchanged")
+        int unchanged,
+
+        @JsonProperty("skipped_duplicate")
+        int skippedDuplicate,
+
+        @JsonProperty("failed")
+        int failed,
+
+        @JsonProperty("failures")
+        List<JobPostCreateResult> failures,
+
+        @JsonProperty("enqueued_at")
+        Instant enqueuedAt,
+
+        @JsonProperty("started_at")
+        Instant startedAt,
+
+        @JsonProperty("finished_at")
+        Instant finishedAt,
+
+        @JsonProperty("error")
+        String error) {
+
+}
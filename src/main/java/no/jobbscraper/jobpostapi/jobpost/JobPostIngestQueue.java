@@ -0,0 +1,176 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import no.jobbscraper.jobpostapi.exception.IngestBatchTooLargeException;
+import no.jobbscraper.jobpostapi.exception.IngestQueueFullException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process queue for asynchronous job post creation. A fixed number of workers take batches off the queue and
+ * create their job posts through {@link JobPostChunkedIngester}, one transaction per chunk of
+ * {@code ingest.chunk-size} job posts, so no transaction or connection is held for the duration of a whole batch.
+ * <p>
+ * The queue is bounded by the number of pending job posts. Batches that do not fit are rejected with
+ * {@link IngestQueueFullException} instead of being buffered. Queued batches are not persisted and are lost on
+ * shutdown.
+ */
+@Component
+public class JobPostIngestQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostIngestQueue.class);
+
+    private final JobPostChunkedIngester jobPostChunkedIngester;
+    private final MeterRegistry meterRegistry;
+    private final Map<UUID, JobPostIngestBatch> batches = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingJobPosts = new AtomicInteger();
+
+    private ThreadPoolExecutor executor;
+
+    @Value("${ingest.queue.workers}")
+    private int workers;
+
+    @Value("${ingest.queue.capacity}")
+    private int capacity;
+
+    @Value("${ingest.queue.retry-after}")
+    private Duration retryAfter;
+
+    @Value("${ingest.queue.retention}")
+    private Duration retention;
+
+    public JobPostIngestQueue(JobPostChunkedIngester jobPostChunkedIngester, MeterRegistry meterRegistry) {
+        this.jobPostChunkedIngester = jobPostChunkedIngester;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name("jobpost-ingest-", 0).factory());
+
+        Gauge.builder("jobpost.ingest.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Batches waiting for an ingest worker")
+                .register(meterRegistry);
+        Gauge.builder("jobpost.ingest.queue.pending", pendingJobPosts, AtomicInteger::get)
+                .description("Job posts queued or being ingested")
+                .register(meterRegistry);
+        TimeGauge.builder("jobpost.ingest.queue.lag", this, TimeUnit.MILLISECONDS, JobPostIngestQueue::lagMillis)
+                .description("Time the oldest waiting batch has been queued")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            LOGGER.warn("Ingest workers did not finish in time, {} job posts were not ingested", pendingJobPosts.get());
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues the job posts as a new batch.
+     *
+     * @param jobPostCreateDtos                 The job posts to create.
+     * @return                                  The status of the queued batch.
+     * @throws IngestQueueFullException         if the pending job posts would exceed the capacity of the queue.
+     * @throws IngestBatchTooLargeException     if the batch alone exceeds the capacity of the queue.
+     */
+    public JobPostIngestBatchStatus enqueue(List<JobPostCreateDto> jobPostCreateDtos) {
+        if (jobPostCreateDtos.size() > capacity) {
+            throw new IngestBatchTooLargeException(jobPostCreateDtos.size(), capacity);
+        }
+        JobPostIngestBatch batch = new JobPostIngestBatch(jobPostCreateDtos);
+        reserve(batch.getTotal());
+        evictFinishedBatches();
+
+        batches.put(batch.getId(), batch);
+        executor.execute(new IngestTask(batch));
+        return batch.toStatus();
+    }
+
+    /**
+     * Retrieves the status of a batch. Finished batches are kept for {@code ingest.queue.retention}.
+     *
+     * @param batchId   The id of the batch.
+     * @return          The status of the batch, or empty if it is unknown.
+     */
+    public Optional<JobPostIngestBatchStatus> getStatus(UUID batchId) {
+        return Optional.ofNullable(batches.get(batchId))
+                .map(JobPostIngestBatch::toStatus);
+    }
+
+    private void reserve(int size) {
+        int pending;
+        do {
+            pending = pendingJobPosts.get();
+            if (pending + size > capacity) {
+                throw new IngestQueueFullException(pending, capacity, retryAfter);
+            }
+        } while (!pendingJobPosts.compareAndSet(pending, pending + size));
+    }
+
+    private void evictFinishedBatches() {
+        Instant finishedBefore = Instant.now().minus(retention);
+        batches.values().removeIf(batch -> batch.getFinishedAt() != null
+                && batch.getFinishedAt().isBefore(finishedBefore));
+    }
+
+    private double lagMillis() {
+        return executor.getQueue().stream()
+                .findFirst()
+                .map(task -> Duration.between(((IngestTask) task).batch.getEnqueuedAt(), Instant.now()).toMillis())
+                .orElse(0L);
+    }
+
+    private void ingest(JobPostIngestBatch batch) {
+        batch.start();
+        try {
+            jobPostChunkedIngester.ingest(batch.getJobPosts(), results -> {
+                batch.recordResults(results);
+                pendingJobPosts.addAndGet(-results.size());
+            });
+            batch.finish();
+        } catch (RuntimeException e) {
+            LOGGER.error("Ingest of batch {} was aborted", batch.getId(), e);
+            batch.fail(NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        } finally {
+            pendingJobPosts.addAndGet(-(batch.getTotal() - batch.getProcessed()));
+        }
+        LOGGER.info("Ingested batch {}: {}", batch.getId(), batch.toStatus());
+    }
+
+    private final class IngestTask implements Runnable {
+
+        private final JobPostIngestBatch batch;
+
+        private IngestTask(JobPostIngestBatch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            ingest(batch);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import jakarta.transaction.Transactional;
+import no.jobbscraper.jobpostapi.geography.Gazetteer;
+import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
+import no.jobbscraper.jobpostapi.jobtag.JobTag;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+@Transactional(rollbackOn = Exception.class)
+public class JobPostIngester {
+
+    private final JobPostRepository jobPostRepository;
+    private final JobPostDictionaryResolver jobPostDictionaryResolver;
+    private final JobPostLinkWriter jobPostLinkWriter;
+    private final JobPostUrlFilter jobPostUrlFilter;
+    private final Gazetteer gazetteer;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    public JobPostIngester(JobPostRepository jobPostRepository,
+                           JobPostDictionaryResolver jobPostDictionaryResolver,
+                           JobPostLinkWriter jobPostLinkWriter,
+                           JobPostUrlFilter jobPostUrlFilter,
+                           Gazetteer gazetteer,
+                           ApplicationEventPublisher applicationEventPublisher) {
+        this.jobPostRepository = jobPostRepository;
+        this.jobPostDictionaryResolver = jobPostDictionaryResolver;
+        this.jobPostLinkWriter = jobPostLinkWriter;
+        this.jobPostUrlFilter = jobPostUrlFilter;
+        this.gazetteer = gazetteer;
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    /**
+     * Creates or updates {@link JobPost} from the given {@link JobPostCreateDto} in one transaction, joining the
+     * caller's transaction if there is one. Job posts are matched by url:
+     * <ul>
+     *     <li>Unknown urls are created.</li>
+     *     <li>Known urls with the same {@link JobPostContentHash} are left untouched.</li>
+     *     <li>Known urls with a different content hash are updated. Only the columns and join table rows that
+     *     differ are written.</li>
+     *     <li>Urls appearing earlier in the list are skipped.</li>
+     * </ul>
+     * The created and updated job posts are published in a {@link JobPostsChangedEvent}.
+     *
+     * @param jobPostCreateDtos The job posts to create or update.
+     * @return                  The outcome for every given job post, in the given order.
+     * @see JobPostCreateResult
+     */
+    public List<JobPostCreateResult> ingest(List<JobPostCreateDto> jobPostCreateDtos) {
+        Map<String, ExistingJobPost> existingJobPosts = findExistingJobPosts(jobPostCreateDtos);
+        Set<String> seenUrls = new HashSet<>();
+
+        Map<String, JobPostCreateResult> results = new HashMap<>();
+        Map<String, String> contentHashes = new HashMap<>();
+        List<JobPostCreateDto> newJobPostCreateDtos = new ArrayList<>();
+        List<JobPostCreateDto> changedJobPostCreateDtos = new ArrayList<>();
+        for (JobPostCreateDto jobPostCreateDto : jobPostCreateDtos) {
+            String url = jobPostCreateDto.url();
+            if (!seenUrls.add(url)) {
+                continue;
+            }
+
+            String contentHash = JobPostContentHash.of(jobPostCreateDto);
+            ExistingJobPost existingJobPost = existingJobPosts.get(url);
+            if (existingJobPost == null) {
+                newJobPostCreateDtos.add(jobPostCreateDto);
+            } else if (contentHash.equals(existingJobPost.contentHash())) {
+                results.put(url, JobPostCreateResult.unchanged(url, existingJobPost.id()));
+            } else {
+                changedJobPostCreateDtos.add(jobPostCreateDto);
+            }
+            contentHashes.put(url, contentHash);
+        }
+
+        List<JobPostCreateDto> resolvedJobPostCreateDtos = new ArrayList<>(newJobPostCreateDtos);
+        resolvedJobPostCreateDtos.addAll(changedJobPostCreateDtos);
+        JobPostDictionary jobPostDictionary = jobPostDictionaryResolver.resolve(resolvedJobPostCreateDtos);
+
+        List<JobPostLink> jobTagLinks = new ArrayList<>();
+        List<JobPostLink> jobDefinitionLinks = new ArrayList<>();
+        createJobPosts(newJobPostCreateDtos, contentHashes, jobPostDictionary, results, jobTagLinks, jobDefinitionLinks);
+        updateJobPosts(changedJobPostCreateDtos, existingJobPosts, contentHashes, jobPostDictionary, results,
+                jobTagLinks, jobDefinitionLinks);
+        jobPostLinkWriter.insertLinks(jobTagLinks, jobDefinitionLinks);
+
+        List<JobPostCreateResult> orderedResults = new ArrayList<>(jobPostCreateDtos.size());
+        for (JobPostCreateDto jobPostCreateDto : jobPostCreateDtos) {
+            String url = jobPostCreateDto.url();
+            JobPostCreateResult result = results.remove(url);
+            orderedResults.add(result != null ? result : JobPostCreateResult.skippedDuplicate(url));
+        }
+
+        List<Long> changedJobPostIds = orderedResults.stream()
+                .filter(result -> result.status() == JobPostCreateStatus.CREATED
+                        || result.status() == JobPostCreateStatus.UPDATED)
+                .map(JobPostCreateResult::id)
+                .toList();
+        if (!changedJobPostIds.isEmpty()) {
+            applicationEventPublisher.publishEvent(new JobPostsChangedEvent(changedJobPostIds));
+        }
+        return orderedResults;
+    }
+
+    private void createJobPosts(List<JobPostCreateDto> jobPostCreateDtos,
+                                Map<String, String> contentHashes,
+                                JobPostDictionary jobPostDictionary,
+                                Map<String, JobPostCreateResult> results,
+                                List<JobPostLink> jobTagLinks,
+                                List<JobPostLink> jobDefinitionLinks) {
+        List<JobPost> jobPosts = jobPostCreateDtos.stream()
+                .map(jobPostCreateDto -> buildJobPostFromDto(jobPostCreateDto, contentHashes.get(jobPostCreateDto.url()),
+                        jobPostDictionary))
+                .toList();
+        jobPostRepository.saveAll(jobPosts);
+        jobPostCreateDtos.forEach(jobPostCreateDto -> jobPostUrlFilter.add(jobPostCreateDto.url()));
+
+        for (int i = 0; i < jobPosts.size(); i++) {
+            JobPostCreateDto jobPostCreateDto = jobPostCreateDtos.get(i);
+            Long jobPostId = jobPosts.get(i).getId();
+
+            results.put(jobPostCreateDto.url(), JobPostCreateResult.created(jobPostCreateDto.url(), jobPostId));
+            jobTagIds(jobPostCreateDto, jobPostDictionary)
+                    .forEach(jobTagId -> jobTagLinks.add(new JobPostLink(jobPostId, jobTagId)));
+            jobDefinitionIds(jobPostCreateDto, jobPostDictionary)
+                    .forEach(jobDefinitionId -> jobDefinitionLinks.add(new JobPostLink(jobPostId, jobDefinitionId)));
+        }
+    }
+
+    /**
+     * Applies changed content to stored job posts. The entities are dirty checked and {@link JobPost} uses dynamic
+     * updates, so only the changed columns end up in the UPDATE. Join table rows are diffed against the stored ones;
+     * the rows to delete are deleted here, the rows to insert are added to the given lists.
+     */
+    private void updateJobPosts(List<JobPostCreateDto> jobPostCreateDtos,
+                                Map<String, ExistingJobPost> existingJobPosts,
+                                Map<String, String> contentHashes,
+                                JobPostDictionary jobPostDictionary,
+                                Map<String, JobPostCreateResult> results,
+                                List<JobPostLink> jobTagLinks,
+                                List<JobPostLink> jobDefinitionLinks) {
+        if (jobPostCreateDtos.isEmpty()) {
+            return;
+        }
+
+        List<Long> jobPostIds = jobPostCreateDtos.stream()
+                .map(jobPostCreateDto -> existingJobPosts.get(jobPostCreateDto.url()).id())
+                .toList();
+        Map<Long, JobPost> jobPosts = new HashMap<>();
+        jobPostRepository.findAllById(jobPostIds).forEach(jobPost -> jobPosts.put(jobPost.getId(), jobPost));
+        Map<Long, Set<Long>> storedJobTagIds = groupByJobPost(jobPostLinkWriter.findJobTagLinks(jobPostIds));
+        Map<Long, Set<Long>> storedJobDefinitionIds =
+                groupByJobPost(jobPostLinkWriter.findJobDefinitionLinks(jobPostIds));
+
+        List<JobPostLink> staleJobTagLinks = new ArrayList<>();
+        List<JobPostLink> staleJobDefinitionLinks = new ArrayList<>();
+        for (JobPostCreateDto jobPostCreateDto : jobPostCreateDtos) {
+            Long jobPostId = existingJobPosts.get(jobPostCreateDto.url()).id();
+            JobPost jobPost = jobPosts.get(jobPostId);
+            if (jobPost == null) {
+                continue;
+            }
+
+            applyChanges(jobPost, jobPostCreateDto, contentHashes.get(jobPostCreateDto.url()), jobPostDictionary);
+            diffLinks(jobPostId, jobTagIds(jobPostCreateDto, jobPostDictionary),
+                    storedJobTagIds.getOrDefault(jobPostId, Set.of()), jobTagLinks, staleJobTagLinks);
+            diffLinks(jobPostId, jobDefinitionIds(jobPostCreateDto, jobPostDictionary),
+                    storedJobDefinitionIds.getOrDefault(jobPostId, Set.of()), jobDefinitionLinks,
+                    staleJobDefinitionLinks);
+            results.put(jobPostCreateDto.url(), JobPostCreateResult.updated(jobPostCreateDto.url(), jobPostId));
+        }
+        jobPostLinkWriter.deleteLinks(staleJobTagLinks, staleJobDefinitionLinks);
+    }
+
+    /**
+     * Builds a new {@link JobPost} entity based on the provided {@link JobPostCreateDto}.
+     * Tags and job definitions are linked separately by {@link JobPostLinkWriter}, the ids of the job definitions
+     * and the municipalities they name are also kept on the job post for filtering.
+     *
+     * @param jobPostCreateDTO  The DTO containing the details of the job post to create.
+     * @param contentHash       The {@link JobPostContentHash} of the DTO.
+     * @param jobPostDictionary The ids of the DTO's tags and job definitions.
+     * @return                  The constructed JobPost entity.
+     * @see JobPost
+     * @see JobPostCreateDto
+     */
+    private JobPost buildJobPostFromDto(JobPostCreateDto jobPostCreateDTO,
+                                       String contentHash,
+                                       JobPostDictionary jobPostDictionary) {
+        JobPost jobPost = new JobPost.Builder(jobPostCreateDTO.url(), jobPostCreateDTO.imageUrl(), jobPostCreateDTO.title())
+                .setCompanyImageUrl(jobPostCreateDTO.companyImageUrl())
+                .setCompanyName(jobPostCreateDTO.companyName())
+                .setDescription(jobPostCreateDTO.description())
+                .setDeadline(jobPostCreateDTO.deadline())
+                .build();
+        jobPost.setContentHash(contentHash);
+        jobPost.setJobDefinitionIds(sorted(jobDefinitionIds(jobPostCreateDTO, jobPostDictionary)));
+        jobPost.setMunicipalityIds(gazetteer.resolve(places(jobPostCreateDTO)));
+        return jobPost;
+    }
+
+    private void applyChanges(JobPost jobPost,
+                              JobPostCreateDto jobPostCreateDTO,
+                              String contentHash,
+                              JobPostDictionary jobPostDictionary) {
+        // A job post that JobPostDeadlineSweeper expired is live again with a new deadline that has not passed.
+        if (!Objects.equals(jobPost.getDeadline(), jobPostCreateDTO.deadline())
+                && (jobPostCreateDTO.deadline() == null || !jobPostCreateDTO.deadline().isBefore(LocalDate.now()))) {
+            jobPost.setExpiredAt(null);
+        }
+        jobPost.setCompanyName(jobPostCreateDTO.companyName());
+        jobPost.setCompanyImageUrl(jobPostCreateDTO.companyImageUrl());
+        jobPost.setImageUrl(jobPostCreateDTO.imageUrl());
+        jobPost.setTitle(jobPostCreateDTO.title());
+        jobPost.setDescription(jobPostCreateDTO.description());
+        jobPost.setDeadline(jobPostCreateDTO.deadline());
+        jobPost.setContentHash(contentHash);
+        jobPost.setJobDefinitionIds(sorted(jobDefinitionIds(jobPostCreateDTO, jobPostDictionary)));
+        jobPost.setMunicipalityIds(gazetteer.resolve(places(jobPostCreateDTO)));
+    }
+
+    // Sorted, so that an unchanged set of ids is not dirty.
+    private static Long[] sorted(Set<Long> ids) {
+        return ids.stream()
+                .sorted()
+                .toArray(Long[]::new);
+    }
+
+    private static void diffLinks(Long jobPostId,
+                                  Set<Long> linkedIds,
+                                  Set<Long> storedLinkedIds,
+                                  List<JobPostLink> linksToInsert,
+                                  List<JobPostLink> linksToDelete) {
+        linkedIds.stream()
+                .filter(linkedId -> !storedLinkedIds.contains(linkedId))
+                .forEach(linkedId -> linksToInsert.add(new JobPostLink(jobPostId, linkedId)));
+        storedLinkedIds.stream()
+                .filter(storedLinkedId -> !linkedIds.contains(storedLinkedId))
+                .forEach(storedLinkedId -> linksToDelete.add(new JobPostLink(jobPostId, storedLinkedId)));
+    }
+
+    private static Map<Long, Set<Long>> groupByJobPost(List<JobPostLink> jobPostLinks) {
+        return jobPostLinks.stream()
+                .collect(Collectors.groupingBy(JobPostLink::jobPostId,
+                        Collectors.mapping(JobPostLink::linkedId, Collectors.toSet())));
+    }
+
+    /**
+     * Resolves the ids of the tags a job post should be linked to.
+     *
+     * @param jobPostCreateDTO      The DTO of the job post.
+     * @param jobPostDictionary     The resolved tags and job definitions.
+     * @return                      The distinct job tag ids, in the order of the DTO.
+     */
+    private static Set<Long> jobTagIds(JobPostCreateDto jobPostCreateDTO, JobPostDictionary jobPostDictionary) {
+        if (jobPostCreateDTO.jobTags() == null) {
+            return Set.of();
+        }
+
+        return jobPostCreateDTO.jobTags().stream()
+                .map(JobTag::getTag)
+                .filter(Objects::nonNull)
+                .map(jobPostDictionary::getJobTagId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Resolves the ids of the job definitions a job post should be linked to.
+     *
+     * @param jobPostCreateDTO      The DTO of the job post.
+     * @param jobPostDictionary     The resolved tags and job definitions.
+     * @return                      The distinct job definition ids, in the order of the DTO.
+     */
+    private static Set<Long> jobDefinitionIds(JobPostCreateDto jobPostCreateDTO, JobPostDictionary jobPostDictionary) {
+        if (jobPostCreateDTO.jobDefinitions() == null) {
+            return Set.of();
+        }
+
+        return jobPostCreateDTO.jobDefinitions().stream()
+                .filter(jobDefinition -> jobDefinition.getKey() != null && jobDefinition.getValue() != null)
+                .map(jobDefinition -> jobPostDictionary.getJobDefinitionId(jobDefinition.getKey(), jobDefinition.getValue()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static List<String> places(JobPostCreateDto jobPostCreateDTO) {
+        if (jobPostCreateDTO.jobDefinitions() == null) {
+            return List.of();
+        }
+
+        return jobPostCreateDTO.jobDefinitions().stream()
+                .filter(jobDefinition -> "sted".equalsIgnoreCase(jobDefinition.getKey()) && jobDefinition.getValue() != null)
+                .map(JobDefinition::getValue)
+                .toList();
+    }
+
+    /**
+     * Looks up which of the given job posts' URLs are already stored, using a single query. URLs that the
+     * {@link JobPostUrlFilter} rules out are not looked up.
+     *
+     * @param jobPostCreateDtos The job posts to check.
+     * @return                  The stored job posts by url.
+     */
+    private Map<String, ExistingJobPost> findExistingJobPosts(List<JobPostCreateDto> jobPostCreateDtos) {
+        if (jobPostCreateDtos.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Set<String> urls = jobPostCreateDtos.stream()
+                .map(JobPostCreateDto::url)
+                .collect(Collectors.toSet());
+        List<String> maybeStoredUrls = urls.stream()
+                .filter(jobPostUrlFilter::mightContain)
+                .toList();
+        if (maybeStoredUrls.isEmpty()) {
+            jobPostUrlFilter.recordLookup(urls.size(), 0, 0);
+            return Collections.emptyMap();
+        }
+
+        List<ExistingJobPost> existingJobPosts = jobPostRepository.findExistingJobPosts(maybeStoredUrls);
+        jobPostUrlFilter.recordLookup(urls.size(), maybeStoredUrls.size(), existingJobPosts.size());
+        return existingJobPosts.stream()
+                .collect(Collectors.toMap(ExistingJobPost::url, Function.identity()));
+    }
+}
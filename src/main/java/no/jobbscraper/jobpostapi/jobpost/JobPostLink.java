@@ -0,0 +1,7 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+/**
+ * A row in one of the job post join tables, linking a job post to a job tag or job definition.
+ */
+public record JobPostLink(long jobPostId, long linkedId) {
+}
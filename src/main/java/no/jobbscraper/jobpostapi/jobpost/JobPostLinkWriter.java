@@ -0,0 +1,114 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+@Repository
+public class JobPostLinkWriter {
+
+    private static final String INSERT_JOB_TAG_LINK =
+            "INSERT INTO j_jobpost_tags (jobpost_id, jobtag_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String INSERT_JOB_DEFINITION_LINK =
+            "INSERT INTO j_jobpost_descriptions (jobpost_id, jobdescription_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String DELETE_JOB_TAG_LINK =
+            "DELETE FROM j_jobpost_tags WHERE jobpost_id = ? AND jobtag_id = ?";
+
+    private static final String DELETE_JOB_DEFINITION_LINK =
+            "DELETE FROM j_jobpost_descriptions WHERE jobpost_id = ? AND jobdescription_id = ?";
+
+    private static final String SELECT_JOB_TAG_LINKS =
+            "SELECT jobpost_id, jobtag_id FROM j_jobpost_tags WHERE jobpost_id = ANY(?)";
+
+    private static final String SELECT_JOB_DEFINITION_LINKS =
+            "SELECT jobpost_id, jobdescription_id FROM j_jobpost_descriptions WHERE jobpost_id = ANY(?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${ingest.batch-size}")
+    private int batchSize;
+
+    public JobPostLinkWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Writes the join table rows of newly created job posts as JDBC batches.
+     * Pending job post inserts are flushed first, since the rows reference them.
+     *
+     * @param jobTagLinks           Rows for {@code j_jobpost_tags}.
+     * @param jobDefinitionLinks    Rows for {@code j_jobpost_descriptions}.
+     */
+    public void insertLinks(Collection<JobPostLink> jobTagLinks, Collection<JobPostLink> jobDefinitionLinks) {
+        entityManager.flush();
+
+        batchUpdate(INSERT_JOB_TAG_LINK, jobTagLinks);
+        batchUpdate(INSERT_JOB_DEFINITION_LINK, jobDefinitionLinks);
+    }
+
+    private void batchUpdate(String sql, Collection<JobPostLink> jobPostLinks) {
+        if (jobPostLinks.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(sql, jobPostLinks, batchSize, (preparedStatement, jobPostLink) -> {
+            preparedStatement.setLong(1, jobPostLink.jobPostId());
+            preparedStatement.setLong(2, jobPostLink.linkedId());
+        });
+    }
+
+    /**
+     * Deletes join table rows of job posts whose tags or job definitions changed, as JDBC batches.
+     *
+     * @param jobTagLinks           Rows to delete from {@code j_jobpost_tags}.
+     * @param jobDefinitionLinks    Rows to delete from {@code j_jobpost_descriptions}.
+     */
+    public void deleteLinks(Collection<JobPostLink> jobTagLinks, Collection<JobPostLink> jobDefinitionLinks) {
+        batchUpdate(DELETE_JOB_TAG_LINK, jobTagLinks);
+        batchUpdate(DELETE_JOB_DEFINITION_LINK, jobDefinitionLinks);
+    }
+
+    /**
+     * Finds the tags currently linked to the given job posts, using a single query.
+     *
+     * @param jobPostIds    The ids of the job posts.
+     * @return              The rows of {@code j_jobpost_tags} referencing the given job posts.
+     */
+    public List<JobPostLink> findJobTagLinks(Collection<Long> jobPostIds) {
+        return findLinks(SELECT_JOB_TAG_LINKS, jobPostIds);
+    }
+
+    /**
+     * Finds the job definitions currently linked to the given job posts, using a single query.
+     *
+     * @param jobPostIds    The ids of the job posts.
+     * @return              The rows of {@code j_jobpost_descriptions} referencing the given job posts.
+     */
+    public List<JobPostLink> findJobDefinitionLinks(Collection<Long> jobPostIds) {
+        return findLinks(SELECT_JOB_DEFINITION_LINKS, jobPostIds);
+    }
+
+    private List<JobPostLink> findLinks(String sql, Collection<Long> jobPostIds) {
+        if (jobPostIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setArray(1, connection.createArrayOf("bigint", jobPostIds.toArray()));
+            return preparedStatement;
+        }, (resultSet, rowNum) -> new JobPostLink(resultSet.getLong(1), resultSet.getLong(2)));
+    }
+}
@@ -0,0 +1,416 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.no.NorwegianAnalyzer;
+import org.apache.lucene.analysis.snowball.SnowballFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.MMapDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.tartarus.snowball.ext.NorwegianStemmer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * In-process Lucene index of the live job posts, the {@code lucene} {@code search.backend}. Matches queries with
+ * BM25 over the title, description, company name, tags and job definition values, analyzed like the
+ * {@code norwegian_unaccent} text search configuration: Norwegian stop words and stemming, with æ, ø and å folded.
+ * On top of the web search syntax of {@link PostgresJobPostTextSearch}, words ending in {@code *} match as prefixes
+ * and words ending in {@code ~} match with typos.
+ * <p>
+ * A search takes the {@code search.lucene.max-hits} best matches from the index, and hands their ids and scores to
+ * the rest of the search in PostgreSQL, which filters, orders and pages them and reads the job posts by id. Its pages
+ * and totals end with those matches.
+ * <p>
+ * The index lives in {@code search.lucene.directory}, memory mapped, and is rebuilt from {@code jobposts} by the
+ * scheduler right after startup, without holding up readiness; the index of the previous run is searched until the
+ * rebuild is done. Job posts changed by the ingest paths are reindexed as their transaction commits, see
+ * {@link JobPostsChangedEvent}, and become searchable at the next refresh, every
+ * {@code search.lucene.refresh-interval}, which drops the facets counted before it from {@link JobPostFacetCache}.
+ * Job posts changed without going through this instance, by another instance or by hand, are not known until the
+ * next rebuild.
+ */
+@Component
+@ConditionalOnProperty(name = "search.backend", havingValue = "lucene")
+public class JobPostLuceneIndex implements JobPostTextSearch {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostLuceneIndex.class);
+
+    private static final String ID = "id";
+    private static final String TITLE = "title";
+    private static final String DESCRIPTION = "description";
+    private static final String COMPANY = "company";
+    private static final String TAGS = "tags";
+    private static final String DEFINITIONS = "definitions";
+
+    // A match in the title counts the most, like weight A of update_tsv_document().
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(
+            TITLE, 3f,
+            COMPANY, 2f,
+            TAGS, 1.5f,
+            DEFINITIONS, 1f,
+            DESCRIPTION, 1f);
+
+    // The or of web search syntax, which the simple query syntax writes as |.
+    private static final Pattern OR = Pattern.compile("\\s+or\\s+", Pattern.CASE_INSENSITIVE);
+
+    private static final String LIVE_JOB_POSTS = """
+            SELECT j.jobpost_id, j.title, j.description, j.company_name,
+                   array(SELECT t.tag
+                         FROM j_jobpost_tags l JOIN job_tags t ON t.id = l.jobtag_id
+                         WHERE l.jobpost_id = j.jobpost_id) AS tags,
+                   array(SELECT d.value
+                         FROM j_jobpost_descriptions l JOIN job_definitions d ON d.id = l.jobdescription_id
+                         WHERE l.jobpost_id = j.jobpost_id) AS definitions
+            FROM jobposts j
+            WHERE j.url IS NOT NULL AND j.expired_at IS NULL
+            """;
+
+    private static final String SCAN_LIVE_JOB_POSTS = LIVE_JOB_POSTS + """
+              AND j.jobpost_id > ?
+            ORDER BY j.jobpost_id
+            LIMIT ?
+            """;
+
+    private static final String FIND_LIVE_JOB_POSTS = LIVE_JOB_POSTS + """
+              AND j.jobpost_id = ANY (?)
+            """;
+
+    private static final RowMapper<IndexedJobPost> INDEXED_JOB_POST_MAPPER = (resultSet, rowNum) ->
+            new IndexedJobPost(
+                    resultSet.getLong("jobpost_id"),
+                    resultSet.getString("title"),
+                    resultSet.getString("description"),
+                    resultSet.getString("company_name"),
+                    strings(resultSet.getArray("tags")),
+                    strings(resultSet.getArray("definitions")));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JobPostFacetCache jobPostFacetCache;
+    private final MeterRegistry meterRegistry;
+    private final Analyzer analyzer = norwegianAnalyzer();
+    private final Timer rebuildTimer;
+    private final Timer searchTimer;
+
+    private MMapDirectory directory;
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+    private volatile boolean rebuilding;
+    private volatile Set<Long> changedWhileRebuilding;
+
+    @Value("${search.lucene.directory}")
+    private Path path;
+
+    @Value("${search.lucene.max-hits}")
+    private int maxHits;
+
+    @Value("${search.lucene.batch-size}")
+    private int batchSize;
+
+    public JobPostLuceneIndex(JdbcTemplate jdbcTemplate, JobPostFacetCache jobPostFacetCache,
+                              MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobPostFacetCache = jobPostFacetCache;
+        this.meterRegistry = meterRegistry;
+        this.rebuildTimer = Timer.builder("jobpost.lucene.rebuild")
+                .description("Time taken to rebuild the Lucene index from the database")
+                .register(meterRegistry);
+        this.searchTimer = Timer.builder("jobpost.lucene.search")
+                .description("Time taken to match a query against the Lucene index")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        directory = new MMapDirectory(path);
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(indexWriter, null);
+        // Facets counted before a refresh miss the job posts it makes searchable.
+        searcherManager.addListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                if (didRefresh) {
+                    jobPostFacetCache.invalidate();
+                }
+            }
+        });
+
+        Gauge.builder("jobpost.lucene.documents", indexWriter, writer -> writer.getDocStats().numDocs)
+                .description("Job posts in the Lucene index, including the ones not yet searchable")
+                .register(meterRegistry);
+        LOGGER.info("Opened Lucene index in {}", path);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    /**
+     * Matches the query against the index, and returns the {@code search.lucene.max-hits} best matches by id, see
+     * {@link JobPostPredicates#isAnyOf(Long[])}, ranked by their BM25 score, see
+     * {@link JobPostPredicates#relevance(Long[], Float[])}. A query without any words matches no job posts.
+     */
+    @Override
+    public Match match(@Nullable String query) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_WEIGHTS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query luceneQuery = parser.parse(OR.matcher(query.strip()).replaceAll(" | "));
+
+        Long[] jobPostIds;
+        Float[] scores;
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = luceneQuery == null
+                        ? new TopDocs(null, new ScoreDoc[0])
+                        : searcher.search(luceneQuery, maxHits);
+                jobPostIds = jobPostIds(searcher, topDocs.scoreDocs);
+                scores = Arrays.stream(topDocs.scoreDocs)
+                        .map(scoreDoc -> scoreDoc.score)
+                        .toArray(Float[]::new);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        return new Match(JobPostPredicates.isAnyOf(jobPostIds), JobPostPredicates.relevance(jobPostIds, scores), true,
+                null);
+    }
+
+    /**
+     * Replaces the index with the live job posts in {@code jobposts}, read in batches of
+     * {@code search.lucene.batch-size}. Searches keep seeing the previous index until it is done. Job posts are
+     * indexed by id, so one that changes meanwhile is not indexed twice, and it is reindexed at the end in case a
+     * batch read it before the change.
+     *
+     * @return  The number of indexed job posts.
+     */
+    @Scheduled(initialDelay = 0)
+    public synchronized long rebuild() throws IOException {
+        long start = System.nanoTime();
+        rebuilding = true;
+        changedWhileRebuilding = ConcurrentHashMap.newKeySet();
+        long indexed = 0;
+        try {
+            indexWriter.deleteAll();
+            long lastJobPostId = Long.MIN_VALUE;
+            List<IndexedJobPost> batch;
+            do {
+                batch = jdbcTemplate.query(SCAN_LIVE_JOB_POSTS, INDEXED_JOB_POST_MAPPER, lastJobPostId, batchSize);
+                for (IndexedJobPost indexedJobPost : batch) {
+                    indexWriter.updateDocument(idTerm(indexedJobPost.id()), indexedJobPost.toDocument());
+                    lastJobPostId = indexedJobPost.id();
+                }
+                indexed += batch.size();
+            } while (batch.size() == batchSize);
+            Set<Long> changed = changedWhileRebuilding;
+            changedWhileRebuilding = null;
+            reindex(new ArrayList<>(changed));
+            indexWriter.commit();
+        } finally {
+            changedWhileRebuilding = null;
+            rebuilding = false;
+        }
+        searcherManager.maybeRefreshBlocking();
+
+        long elapsedNanos = System.nanoTime() - start;
+        rebuildTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        LOGGER.info("Indexed {} job posts in {} ms", indexed, elapsedNanos / 1_000_000);
+        return indexed;
+    }
+
+    /**
+     * Reindexes the changed job posts once their transaction has committed, or right away if there is none. Job
+     * posts that are no longer live are removed from the index.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onJobPostsChanged(JobPostsChangedEvent jobPostsChangedEvent) throws IOException {
+        List<Long> jobPostIds = jobPostsChangedEvent.jobPostIds();
+        Set<Long> changed = changedWhileRebuilding;
+        if (changed != null) {
+            changed.addAll(jobPostIds);
+        }
+        reindex(jobPostIds);
+        LOGGER.debug("Reindexed {} changed job posts", jobPostIds.size());
+    }
+
+    private void reindex(List<Long> jobPostIds) throws IOException {
+        for (int from = 0; from < jobPostIds.size(); from += batchSize) {
+            List<Long> batch = jobPostIds.subList(from, Math.min(from + batchSize, jobPostIds.size()));
+            List<IndexedJobPost> liveJobPosts = jdbcTemplate.query(FIND_LIVE_JOB_POSTS, INDEXED_JOB_POST_MAPPER,
+                    (Object) batch.toArray(Long[]::new));
+
+            Set<Long> removedJobPostIds = new HashSet<>(batch);
+            for (IndexedJobPost indexedJobPost : liveJobPosts) {
+                indexWriter.updateDocument(idTerm(indexedJobPost.id()), indexedJobPost.toDocument());
+                removedJobPostIds.remove(indexedJobPost.id());
+            }
+            for (Long removedJobPostId : removedJobPostIds) {
+                indexWriter.deleteDocuments(idTerm(removedJobPostId));
+            }
+        }
+    }
+
+    /**
+     * Makes the job posts indexed since the last refresh searchable, unless a rebuild is halfway.
+     */
+    @Scheduled(fixedDelayString = "${search.lucene.refresh-interval}")
+    public void refresh() throws IOException {
+        if (!rebuilding) {
+            searcherManager.maybeRefreshBlocking();
+        }
+    }
+
+    /**
+     * Reads the job post ids of the hits from the doc values, in the order of the documents, since doc values are
+     * read forward only.
+     */
+    private static Long[] jobPostIds(IndexSearcher searcher, ScoreDoc[] scoreDocs) throws IOException {
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        Long[] jobPostIds = new Long[scoreDocs.length];
+        int[] byDoc = IntStream.range(0, scoreDocs.length)
+                .boxed()
+                .sorted(Comparator.comparingInt(i -> scoreDocs[i].doc))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        int leaf = -1;
+        NumericDocValues ids = null;
+        for (int i : byDoc) {
+            int doc = scoreDocs[i].doc;
+            int docLeaf = ReaderUtil.subIndex(doc, leaves);
+            if (docLeaf != leaf) {
+                leaf = docLeaf;
+                ids = DocValues.getNumeric(leaves.get(leaf).reader(), ID);
+            }
+            if (!ids.advanceExact(doc - leaves.get(leaf).docBase)) {
+                throw new IllegalStateException("Indexed job post without an id: " + doc);
+            }
+            jobPostIds[i] = ids.longValue();
+        }
+        return jobPostIds;
+    }
+
+    private static Term idTerm(long jobPostId) {
+        return new Term(ID, Long.toString(jobPostId));
+    }
+
+    private static List<String> strings(Array array) throws SQLException {
+        return array == null ? List.of() : Arrays.asList((String[]) array.getArray());
+    }
+
+    /**
+     * The norwegian_unaccent text search configuration in Lucene, see V18__add_norwegian_text_search_config.sql:
+     * stop words are dropped before æ, ø and å are folded, and words are stemmed after. Prefixes and words with
+     * typos are only lowercased and folded, since they are not whole words to stem.
+     */
+    static Analyzer norwegianAnalyzer() {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer source = new StandardTokenizer();
+                TokenStream result = new LowerCaseFilter(source);
+                result = new StopFilter(result, NorwegianAnalyzer.getDefaultStopSet());
+                result = new ASCIIFoldingFilter(result);
+                result = new SnowballFilter(result, new NorwegianStemmer());
+                return new TokenStreamComponents(source, result);
+            }
+
+            @Override
+            protected TokenStream normalize(String fieldName, TokenStream in) {
+                return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+            }
+        };
+    }
+
+    private record IndexedJobPost(long id, String title, String description, String companyName, List<String> tags,
+                                  List<String> definitions) {
+
+        Document toDocument() {
+            Document document = new Document();
+            document.add(new StringField(ID, Long.toString(id), Field.Store.NO));
+            document.add(new NumericDocValuesField(ID, id));
+            addText(document, TITLE, title);
+            addText(document, DESCRIPTION, description);
+            addText(document, COMPANY, companyName);
+            tags.forEach(tag -> addText(document, TAGS, tag));
+            definitions.forEach(definition -> addText(document, DEFINITIONS, definition));
+            return document;
+        }
+
+        private static void addText(Document document, String field, String text) {
+            if (text != null) {
+                document.add(new TextField(field, text, Field.Store.NO));
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.geography.Gazetteer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the "Sted" job definitions of job posts whose {@code municipality_ids} are not set to municipalities of
+ * the {@link Gazetteer}. {@link JobPostIngester} resolves the posts it writes itself; this covers the posts written
+ * by {@link JobPostBulkLoader}, and the posts stored before the column existed or whose ids were cleared. The
+ * resolved posts are published as a {@link JobPostsChangedEvent}, for the indexes that filter on municipalities.
+ */
+@Repository
+public class JobPostMunicipalityResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostMunicipalityResolver.class);
+
+    // Every selected post gets a value, an empty array if it has no known place, so the next batch moves on.
+    private static final String FIND_UNRESOLVED_PLACES = """
+            SELECT j.jobpost_id, d.value
+            FROM (SELECT jobpost_id
+                  FROM jobposts
+                  WHERE municipality_ids IS NULL
+                  ORDER BY jobpost_id
+                  LIMIT ?) j
+            LEFT JOIN (j_jobpost_descriptions l
+                       JOIN job_definitions d ON d.id = l.jobdescription_id AND lower(d.key) = 'sted')
+                ON l.jobpost_id = j.jobpost_id
+            """;
+
+    // Arrays of arrays can not be unnested into rows, so each post's ids are passed as an array literal.
+    private static final String UPDATE_MUNICIPALITY_IDS = """
+            UPDATE jobposts j
+            SET municipality_ids = CAST(r.municipality_ids AS integer[])
+            FROM unnest(CAST(? AS bigint[]), CAST(? AS text[])) AS r(jobpost_id, municipality_ids)
+            WHERE j.jobpost_id = r.jobpost_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Gazetteer gazetteer;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @Value("${geography.backfill-batch-size}")
+    private int batchSize;
+
+    public JobPostMunicipalityResolver(JdbcTemplate jdbcTemplate, Gazetteer gazetteer,
+                                       ApplicationEventPublisher applicationEventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gazetteer = gazetteer;
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    /**
+     * Resolves unresolved job posts in batches of {@code geography.backfill-batch-size} until none are left. Joins
+     * the caller's transaction if there is one, and otherwise commits every batch on its own.
+     *
+     * @return  The number of resolved job posts.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${geography.backfill-interval}")
+    public long resolveUnresolved() {
+        long resolved = 0;
+        int batch;
+        do {
+            batch = resolveBatch();
+            resolved += batch;
+        } while (batch == batchSize);
+
+        if (resolved > 0) {
+            LOGGER.info("Resolved the municipalities of {} job posts", resolved);
+        }
+        return resolved;
+    }
+
+    private int resolveBatch() {
+        Map<Long, List<String>> placesByJobPostId = new LinkedHashMap<>();
+        jdbcTemplate.query(FIND_UNRESOLVED_PLACES, resultSet -> {
+            List<String> places = placesByJobPostId.computeIfAbsent(resultSet.getLong("jobpost_id"),
+                    jobPostId -> new ArrayList<>());
+            String place = resultSet.getString("value");
+            if (place != null) {
+                places.add(place);
+            }
+        }, batchSize);
+        if (placesByJobPostId.isEmpty()) {
+            return 0;
+        }
+
+        Object[] jobPostIds = placesByJobPostId.keySet().toArray();
+        Object[] municipalityIds = placesByJobPostId.values().stream()
+                .map(places -> Arrays.stream(gazetteer.resolve(places))
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(",", "{", "}")))
+                .toArray();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_MUNICIPALITY_IDS);
+            preparedStatement.setArray(1, connection.createArrayOf("bigint", jobPostIds));
+            preparedStatement.setArray(2, connection.createArrayOf("text", municipalityIds));
+            return preparedStatement;
+        });
+        applicationEventPublisher.publishEvent(new JobPostsChangedEvent(List.copyOf(placesByJobPostId.keySet())));
+        return placesByJobPostId.size();
+    }
+}
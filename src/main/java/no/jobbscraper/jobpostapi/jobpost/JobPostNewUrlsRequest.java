@@ -0,0 +1,22 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record JobPostNewUrlsRequest(
+        @JsonProperty("urls")
+        @Size(max = 50_000, message = "urls cannot contain more than 50000 urls")
+        @Nullable
+        List<String> urls,
+
+        @JsonProperty("url_hashes")
+        @Size(max = 50_000, message = "url_hashes cannot contain more than 50000 hashes")
+        @Nullable
+        List<@Pattern(regexp = "[0-9a-fA-F]{64}", message = "url_hashes must be hex encoded SHA-256 hashes") String> urlHashes
+) {
+
+}
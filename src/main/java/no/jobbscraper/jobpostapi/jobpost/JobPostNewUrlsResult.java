@@ -0,0 +1,16 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JobPostNewUrlsResult(
+        @JsonProperty("urls")
+        List<String> urls,
+
+        @JsonProperty("url_hashes")
+        List<String> urlHashes) {
+
+}
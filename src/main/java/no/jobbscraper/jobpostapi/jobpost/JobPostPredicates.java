@@ -1,19 +1,20 @@
 package no.jobbscraper.jobpostapi.jobpost;
 
+import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.DateExpression;
 import com.querydsl.core.types.dsl.Expressions;
-import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.JPAExpressions;
 import jakarta.annotation.Nullable;
-import jakarta.persistence.EntityManager;
+import no.jobbscraper.jobpostapi.exception.InvalidCursorException;
+import no.jobbscraper.jobpostapi.geography.Gazetteer;
 import no.jobbscraper.jobpostapi.jobdefinition.QJobDefinition;
 import no.jobbscraper.jobpostapi.sql.QueryDslFullTextUtils;
-import no.jobbscraper.jobpostapi.util.GeoUtil;
 
 import java.time.LocalDate;
-import java.util.Arrays;
-import java.util.List;
 
 public class JobPostPredicates {
 
@@ -29,15 +30,26 @@ public class JobPostPredicates {
     }
 
     /**
-     * Constructs a BooleanExpression to filter job posts where the deadline has not passed.
+     * Constructs a BooleanExpression to filter out job posts that a source sync found gone from their job board.
      *
-     * @return BooleanExpression to filter job posts where the deadline has not passed.
+     * @return BooleanExpression to filter job posts that have not expired.
+     * @see JobPostSourceSyncer
      */
-    public static BooleanExpression hasDeadlineNotPassed() {
+    public static BooleanExpression isNotExpired() {
         var jobPostTable = QJobPost.jobPost;
 
-        return jobPostTable.deadline.isNull().or(jobPostTable.deadline.isNotNull()
-                .and(jobPostTable.deadline.goe(LocalDate.now())));
+        return jobPostTable.expiredAt.isNull();
+    }
+
+    /**
+     * Constructs a BooleanExpression to filter job posts where the deadline has not passed. Compares the same
+     * expression as {@link #orderByClosestDeadline()}, so that the default search starts its index scan at today
+     * instead of filtering out every job post whose deadline has passed.
+     *
+     * @return BooleanExpression to filter job posts where the deadline has not passed.
+     */
+    public static BooleanExpression hasDeadlineNotPassed() {
+        return deadlineOrInfinity().goe(LocalDate.now());
     }
 
     /**
@@ -68,18 +80,12 @@ public class JobPostPredicates {
 
     /**
      * Constructs an OrderSpecifier for ordering job posts by closest deadline.
-     * Orders job posts by deadline in ascending order. If deadline is null, orders by createdAt.
+     * Orders job posts by deadline in ascending order, with the job posts without a deadline last.
      *
      * @return OrderSpecifier for ordering job posts by closest deadline.
      */
     public static OrderSpecifier<LocalDate> orderByClosestDeadline() {
-        var jobPostTable = QJobPost.jobPost;
-
-        return new CaseBuilder()
-                .when(jobPostTable.deadline.isNotNull())
-                .then(jobPostTable.deadline)
-                .otherwise(LocalDate.now().plusYears(10)) // hack?
-                .asc();
+        return deadlineOrInfinity().asc();
     }
 
     /**
@@ -105,10 +111,109 @@ public class JobPostPredicates {
     }
 
     /**
-     * Constructs a BooleanExpression to filter job posts based on a query in title or description.
+     * Constructs an OrderSpecifier on the job post id in the same direction as the given order, to break ties
+     * between job posts with the same sort key.
+     *
+     * @param order The order to break ties of.
+     * @return OrderSpecifier for ordering job posts by id.
+     */
+    public static OrderSpecifier<Long> orderByIdAlong(OrderSpecifier<?> order) {
+        var jobPostTable = QJobPost.jobPost;
+
+        return order.isAscending() ? jobPostTable.id.asc() : jobPostTable.id.desc();
+    }
+
+    /**
+     * Constructs a BooleanExpression to filter job posts that come after the cursor in the given order, with ties
+     * broken by {@link #orderByIdAlong(OrderSpecifier)}. The sort key and id are compared as one row value, so that
+     * the matching composite index is entered right at the cursor instead of scanned from the start.
+     * Returns null if cursor is null.
+     *
+     * @param order  The order of the search, one of the orders constructed by this class.
+     * @param cursor The sort key and id of the last job post of the previous page. A null key is after every date.
+     * @return BooleanExpression to filter job posts after the cursor, or null if cursor is null.
+     */
+    public static BooleanExpression isAfterCursor(OrderSpecifier<LocalDate> order, @Nullable JobPostCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+
+        var jobPostTable = QJobPost.jobPost;
+
+        Expression<LocalDate> key = cursor.key() == null
+                ? Expressions.dateTemplate(LocalDate.class, "dateOrInfinity({0})",
+                        Expressions.nullExpression(LocalDate.class))
+                : Expressions.constant(cursor.key());
+
+        return Expressions.booleanTemplate(
+                order.isAscending() ? "rowAfter({0}, {1}, {2}, {3})" : "rowBefore({0}, {1}, {2}, {3})",
+                order.getTarget(), jobPostTable.id, key, cursor.id());
+    }
+
+    /**
+     * Constructs a BooleanExpression to filter job posts that come after the cursor in a radius search, ordered by
+     * nearness first, and in a search by relevance, ordered by relevance next, and then by the given order. Falls
+     * back to {@link #isAfterCursor(OrderSpecifier, JobPostCursor)} if both nearness and relevance are null.
+     * Returns null if cursor is null.
+     *
+     * @param nearness  The nearness of the search, see {@link #nearness(Integer[])}, or null if it is no radius search.
+     * @param relevance The relevance of the search, see {@link #relevance(String)}, or null if it is not by relevance.
+     * @param order     The order of the search, one of the orders constructed by this class.
+     * @param cursor    The nearness rank, relevance, sort key and id of the last job post of the previous page.
+     * @return BooleanExpression to filter job posts after the cursor, or null if cursor is null.
+     * @throws InvalidCursorException if the cursor of a radius search has no rank, or the cursor of a search by
+     *                                relevance has no relevance.
+     */
+    public static BooleanExpression isAfterCursor(@Nullable NumberExpression<Integer> nearness,
+                                                  @Nullable NumberExpression<Float> relevance,
+                                                  OrderSpecifier<LocalDate> order,
+                                                  @Nullable JobPostCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        if ((nearness != null && cursor.rank() == null) || (relevance != null && cursor.relevance() == null)) {
+            throw new InvalidCursorException(cursor.encode());
+        }
+
+        BooleanExpression isAfter = isAfterCursor(order, cursor);
+        if (relevance != null) {
+            isAfter = relevance.lt(cursor.relevance())
+                    .or(relevance.eq(cursor.relevance()).and(isAfter));
+        }
+        if (nearness != null) {
+            isAfter = nearness.gt(cursor.rank())
+                    .or(nearness.eq(cursor.rank()).and(isAfter));
+        }
+        return isAfter;
+    }
+
+    /**
+     * Constructs a NumberExpression for the nearness rank of a job post in a radius search: the position of its
+     * nearest municipality among the given ones, 1 for the nearest. Only defined for job posts in any of them, see
+     * {@link #isInMunicipality(Integer[])}. Returns null if municipalityIds is null.
+     *
+     * @param municipalityIds The ids of the municipalities, nearest first, see
+     *                        {@link Gazetteer#municipalityIdsNear(String, Integer)}.
+     * @return NumberExpression for the nearness rank of job posts, or null if municipalityIds is null.
+     */
+    public static NumberExpression<Integer> nearness(@Nullable Integer[] municipalityIds) {
+        if (municipalityIds == null) {
+            return null;
+        }
+
+        var jobPostTable = QJobPost.jobPost;
+
+        return Expressions.numberTemplate(Integer.class, "firstPositionOf({0}, {1})", jobPostTable.municipalityIds,
+                Expressions.constant(municipalityIds));
+    }
+
+    /**
+     * Constructs a BooleanExpression to filter job posts based on a query in title or description, with Norwegian
+     * stemming and æ, ø and å folded, see {@link QueryDslFullTextUtils#TEXT_SEARCH_CONFIG}.
      * Returns null if the query is null.
      *
-     * @param query The query string to search for in title or description (case-insensitive).
+     * @param query The query string to search for in title or description (case-insensitive), in web search syntax:
+     *              words, quoted phrases, {@code or} and {@code -} for not.
      * @return BooleanExpression to filter job posts, or null if query is null.
      */
     public static BooleanExpression isQueryInTitleOrDescription(@Nullable String query) {
@@ -122,55 +227,143 @@ public class JobPostPredicates {
     }
 
     /**
-     * Constructs a BooleanExpression to filter job posts based on the position.
-     * Returns null if either key or value is null.
+     * Constructs a BooleanExpression to filter job posts based on a query in the title alone, like
+     * {@link #isQueryInTitleOrDescription(String)}. Served by the same full-text index.
+     * Returns null if the query is null.
      *
-     * @param entityManager The EntityManager instance used for querying.
-     * @param municipality The position/city value to filter by.
-     * @return BooleanExpression to filter job posts, or null if key or value is null.
+     * @param query The query string to search for in title (case-insensitive), in web search syntax.
+     * @return BooleanExpression to filter job posts, or null if query is null.
      */
-    public static BooleanExpression hasPosition(EntityManager entityManager, String municipality) {
-        if (municipality == null || municipality.isBlank()) {
+    public static BooleanExpression isQueryInTitle(@Nullable String query) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+
+        QJobPost jobPostTable = QJobPost.jobPost;
+
+        return QueryDslFullTextUtils.fullTextTitleMatch(jobPostTable.tsvDocument, query);
+    }
+
+    /**
+     * Constructs a NumberExpression for how well the title and description of a job post match a query, higher for
+     * a better match and for a match in the title, see {@code ftsRank} in {@code PostgresFunctionContributor}. Only
+     * defined for job posts that match it, see {@link #isQueryInTitleOrDescription(String)}.
+     * Returns null if the query is null.
+     *
+     * @param query The query string to rank the job posts by.
+     * @return NumberExpression for the relevance of job posts, or null if query is null.
+     */
+    public static NumberExpression<Float> relevance(@Nullable String query) {
+        if (query == null || query.isBlank()) {
             return null;
         }
 
-        var jobDefinition = QJobDefinition.jobDefinition;
         var jobPostTable = QJobPost.jobPost;
 
-        var municipalities = Arrays.stream(municipality.toLowerCase().replaceAll(" ", "").split(","))
-                .flatMap(word -> GeoUtil.municipalityCityMap.get(word).stream())
-                .toList();
+        return QueryDslFullTextUtils.fullTextRank(jobPostTable.tsvDocument, query);
+    }
 
-        List<BooleanExpression> likeConditions = municipalities.stream()
-                .map(jobDefinition.value::containsIgnoreCase)
-                .toList();
+    /**
+     * Constructs a BooleanExpression to filter job posts with any of the given ids, bound as one array however many
+     * there are.
+     *
+     * @param jobPostIds The ids of the job posts, see {@link JobPostLuceneIndex}.
+     * @return BooleanExpression to filter job posts.
+     */
+    public static BooleanExpression isAnyOf(Long[] jobPostIds) {
+        var jobPostTable = QJobPost.jobPost;
 
-        BooleanExpression combinedCondition = likeConditions.stream()
-                .reduce(BooleanExpression::or)
-                .orElse(Expressions.FALSE);
+        return Expressions.booleanTemplate("isAnyOf({0}, {1})", jobPostTable.id, Expressions.constant(jobPostIds));
+    }
 
-        return jobPostTable.id.in(
-                new JPAQueryFactory(entityManager)
-                        .select(jobPostTable.id)
+    /**
+     * Constructs a NumberExpression for the relevance of a job post scored outside the database: the score at the
+     * position of its id. Only defined for job posts with any of the ids, see {@link #isAnyOf(Long[])}.
+     *
+     * @param jobPostIds The ids of the job posts.
+     * @param scores     The score of each job post, at the position of its id, higher for a better match.
+     * @return NumberExpression for the relevance of job posts.
+     */
+    public static NumberExpression<Float> relevance(Long[] jobPostIds, Float[] scores) {
+        var jobPostTable = QJobPost.jobPost;
+
+        return Expressions.numberTemplate(Float.class, "scoreOf({0}, {1}, {2})", jobPostTable.id,
+                Expressions.constant(jobPostIds), Expressions.constant(scores));
+    }
+
+    /**
+     * Constructs a BooleanExpression to filter the job posts matching a condition down to the first of them, those
+     * that also match the preferred condition first, each in the given order, with ties broken by
+     * {@link #orderByIdAlong(OrderSpecifier)}. Caps a search by relevance, which has to rank every job post it
+     * returns, to a bounded number of candidates, with the matches in the title as the likely most relevant ones.
+     *
+     * @param condition     The condition on {@link QJobPost#jobPost}.
+     * @param preferred     The condition of the job posts to take first, see {@link #isQueryInTitle(String)}.
+     * @param order         The order to take the first job posts in, one of the orders constructed by this class.
+     * @param maxCandidates The number of job posts to keep.
+     * @return BooleanExpression to filter job posts.
+     */
+    public static BooleanExpression isAmongFirst(Predicate condition, BooleanExpression preferred,
+                                                 OrderSpecifier<LocalDate> order, int maxCandidates) {
+        var jobPostTable = QJobPost.jobPost;
+
+        return Expressions.booleanTemplate("inFirstOfEither({0}, {1}, {2}, {3})", jobPostTable.id,
+                JPAExpressions.select(jobPostTable.id)
                         .from(jobPostTable)
-                        .join(jobPostTable.jobDefinitions, jobDefinition)
-                        .where(
-                                jobDefinition.key.equalsIgnoreCase("sted")
-                                        .and(combinedCondition)
-                        )
-        );
+                        .where(condition, preferred)
+                        .orderBy(order, orderByIdAlong(order)),
+                JPAExpressions.select(jobPostTable.id)
+                        .from(jobPostTable)
+                        .where(condition, preferred.not())
+                        .orderBy(order, orderByIdAlong(order)),
+                maxCandidates);
+    }
+
+    /**
+     * Constructs a BooleanExpression to filter job posts in any of the given municipalities, as resolved from their
+     * "Sted" job definitions at ingest. Served by the GIN index on {@code municipality_ids}.
+     * Returns null if municipalityIds is null.
+     *
+     * @param municipalityIds The ids of the municipalities, see {@link Gazetteer#municipalityIdsOf(String)} and
+     *                        {@link Gazetteer#municipalityIdsNear(String, Integer)}.
+     * @return BooleanExpression to filter job posts, or null if municipalityIds is null.
+     */
+    public static BooleanExpression isInMunicipality(@Nullable Integer[] municipalityIds) {
+        if (municipalityIds == null) {
+            return null;
+        }
+
+        var jobPostTable = QJobPost.jobPost;
+
+        return Expressions.booleanTemplate("overlaps({0}, {1})", jobPostTable.municipalityIds,
+                Expressions.constant(municipalityIds));
+    }
+
+    /**
+     * Constructs a BooleanExpression to filter job posts in the municipality of an expression, such as the id of a
+     * municipality joined to count job posts by region.
+     *
+     * @param municipalityId NumberExpression for the id of the municipality.
+     * @return BooleanExpression to filter job posts.
+     */
+    public static BooleanExpression isInMunicipality(NumberExpression<Integer> municipalityId) {
+        var jobPostTable = QJobPost.jobPost;
+
+        return Expressions.booleanTemplate("isAnyOf({0}, {1})", municipalityId, jobPostTable.municipalityIds);
     }
 
     /**
      * Constructs a BooleanExpression to filter job posts based on a job definition key and value.
-     * Returns null if either key or value is null.
+     * Returns null if either key or value is null. The key is matched with {@code lower(key) = ...} and the value
+     * with {@code lower(value) like '%value%'}, which the btree on {@code (lower(key), lower(value))} and the
+     * trigram index on {@code lower(value)} can serve. Must stay in that form for the indexes to be used.
      *
-     * @param entityManager The EntityManager instance used for querying.
      * @param key The job definition key to filter by.
      * @param value The job definition value to filter by (partial match).
      * @return BooleanExpression to filter job posts, or null if key or value is null.
+     * @see #hasJobDefinitionIn(BooleanExpression)
      */
-    public static BooleanExpression hasJobDefinition(EntityManager entityManager, String key, String value) {
+    public static BooleanExpression hasJobDefinition(String key, String value) {
         if (key == null ||
             value == null ||
             key.isBlank() ||
@@ -178,18 +371,36 @@ public class JobPostPredicates {
             return null;
         }
 
+        var jobDefinition = QJobDefinition.jobDefinition;
+
+        return hasJobDefinitionIn(jobDefinition.key.equalsIgnoreCase(key)
+                .and(jobDefinition.value.containsIgnoreCase(value)));
+    }
+
+    /**
+     * Constructs a BooleanExpression to filter job posts linked to any of the job definitions matching a condition.
+     * The matching ids are collected first, then compared with {@code job_definition_ids && array(...)}, which the
+     * GIN index on {@code job_definition_ids} serves without touching the join table.
+     *
+     * @param condition The condition on {@link QJobDefinition#jobDefinition}.
+     * @return BooleanExpression to filter job posts.
+     */
+    private static BooleanExpression hasJobDefinitionIn(BooleanExpression condition) {
         var jobDefinition = QJobDefinition.jobDefinition;
         var jobPostTable = QJobPost.jobPost;
 
-        return jobPostTable.id.in(
-                new JPAQueryFactory(entityManager)
-                        .select(jobPostTable.id)
-                        .from(jobPostTable)
-                        .join(jobPostTable.jobDefinitions, jobDefinition)
-                        .where(
-                                jobDefinition.key.equalsIgnoreCase(key)
-                                        .and(jobDefinition.value.containsIgnoreCase(value))
-                        )
-        );
+        return Expressions.booleanTemplate("overlapsAny({0}, {1})", jobPostTable.jobDefinitionIds,
+                JPAExpressions.select(jobDefinition.id)
+                        .from(jobDefinition)
+                        .where(condition));
+    }
+
+    /**
+     * The deadline with missing deadlines as infinity, the expression idx_jobposts_closest_deadline is on.
+     */
+    private static DateExpression<LocalDate> deadlineOrInfinity() {
+        var jobPostTable = QJobPost.jobPost;
+
+        return Expressions.dateTemplate(LocalDate.class, "dateOrInfinity({0})", jobPostTable.deadline);
     }
 }
@@ -1,61 +1,465 @@
 package no.jobbscraper.jobpostapi.jobpost;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.StringTemplate;
+import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.JPQLQuery;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import no.jobbscraper.jobpostapi.geography.Gazetteer;
+import no.jobbscraper.jobpostapi.geography.QMunicipality;
+import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
+import no.jobbscraper.jobpostapi.jobdefinition.QJobDefinition;
+import no.jobbscraper.jobpostapi.jobtag.JobTag;
+import no.jobbscraper.jobpostapi.jobtag.QJobTag;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
-import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Searches job posts with a single statement per page. The tags and job definitions of each job post are aggregated
+ * into JSON arrays by correlated subqueries, see {@code PostgresFunctionContributor}, and the rows are mapped straight
+ * to {@link JobPostDto} without loading any entities.
+ * <p>
+ * The subqueries also run for the rows skipped by an offset, so deep offset pages cost more than the first ones;
+ * clients paging deep should use the cursor.
+ * <p>
+ * A radius search is ordered by the nearness of the job posts first, see {@link JobPostPredicates#nearness}, and then
+ * like any other search.
+ * <p>
+ * The query is matched by the {@link JobPostTextSearch} of {@code search.backend}, once per page.
+ * <p>
+ * A search by relevance ranks only the first {@code search.relevance.max-candidates} matching job posts: those
+ * matching the query in their title first, and then the others, each in the order of the deadline, see
+ * {@link JobPostPredicates#isAmongFirst}. The candidates are found through the full-text index, and
+ * {@code ts_rank_cd} runs on them alone instead of on every match. Its pages end with the candidates, while its
+ * total counts every match. With the Lucene backend, the matches are already the most relevant ones, see
+ * {@link JobPostLuceneIndex}.
+ * <p>
+ * A search without a query or a place to search near is served by {@link JobPostBitmapIndex} when it is enabled and
+ * built. It finds the ids of the page and the total, and the page is read by id.
+ * <p>
+ * The facets of a search are counted by the index too when it can serve the search, and otherwise by one grouped
+ * aggregation for the job definition facets, one for the regions and one for the tags. Either way they are cached in
+ * {@link JobPostFacetCache} until job posts change.
+ */
 @Repository
 public class JobPostQueryDSLRepositoryImpl extends QuerydslRepositorySupport implements JobPostRepositoryCustom {
 
-    @PersistenceContext
-    private EntityManager entityManager;
+    private static final StringTemplate JOB_TAGS =
+            Expressions.stringTemplate("jobTagsJson({0})", QJobPost.jobPost.id);
 
-    private final JobPostDtoMapper jobPostDtoMapper;
+    private static final StringTemplate JOB_DEFINITIONS =
+            Expressions.stringTemplate("jobDefinitionsJson({0})", QJobPost.jobPost.id);
 
-    public JobPostQueryDSLRepositoryImpl() {
+    private final JobPostTotalCache jobPostTotalCache;
+    private final JobPostFacetCache jobPostFacetCache;
+    private final JobPostTextSearch jobPostTextSearch;
+    private final JobPostBitmapIndex jobPostBitmapIndex;
+    private final Gazetteer gazetteer;
+    private final ObjectReader jobTagsReader;
+    private final ObjectReader jobDefinitionsReader;
+
+    @Value("${search.relevance.max-candidates}")
+    private int maxCandidates;
+
+    @Value("${search.facets.max-values}")
+    private int maxFacetValues;
+
+    public JobPostQueryDSLRepositoryImpl(JobPostTotalCache jobPostTotalCache,
+                                         JobPostFacetCache jobPostFacetCache,
+                                         JobPostTextSearch jobPostTextSearch,
+                                         JobPostBitmapIndex jobPostBitmapIndex,
+                                         Gazetteer gazetteer,
+                                         ObjectMapper objectMapper) {
         super(JobPost.class);
-        this.jobPostDtoMapper = new JobPostDtoMapper();
+        this.jobPostTotalCache = jobPostTotalCache;
+        this.jobPostFacetCache = jobPostFacetCache;
+        this.jobPostTextSearch = jobPostTextSearch;
+        this.jobPostBitmapIndex = jobPostBitmapIndex;
+        this.gazetteer = gazetteer;
+        this.jobTagsReader = objectMapper.readerForListOf(JobTag.class);
+        this.jobDefinitionsReader = objectMapper.readerForListOf(JobDefinition.class);
     }
 
+    /**
+     * Finds a page of job posts, and the total number of matching job posts through an uncorrelated subquery of the
+     * same statement. PostgreSQL counts it once, and unlike {@code count(*) over ()} it does not have to keep every
+     * matching row, description and all, to sort out the page. The total is also cached for estimated totals.
+     */
     @Override
     public Page<JobPostDto> findAll(JobPostGetRequest jobPostGetRequest, Pageable pageable) {
+        CountedPage countedPage = findCountedPage(jobPostGetRequest, pageable);
+        if (countedPage.jobPostDtos().isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return new PageImpl<>(countedPage.jobPostDtos(), pageable, countedPage.total());
+    }
+
+    /**
+     * Finds a page of job posts with a total as exact as asked for. Unless it is exact, the page is fetched with one
+     * row more than its size to tell whether there is a next one, and no total is counted with it. An estimated
+     * total is taken from {@link JobPostTotalCache}, and counted by a separate statement when it is not there.
+     * Either way, a page that is not full is the last one, and gives the exact total for free, unless the pages end
+     * with the candidates of a search by relevance.
+     */
+    @Override
+    public JobPostSearchPage findAll(JobPostGetRequest jobPostGetRequest, Pageable pageable,
+                                     JobPostTotalMode totalMode) {
+        if (totalMode == JobPostTotalMode.EXACT) {
+            CountedPage countedPage = findCountedPage(jobPostGetRequest, pageable);
+            return new JobPostSearchPage(countedPage.jobPostDtos(), pageable.getPageNumber(), pageable.getPageSize(),
+                    countedPage.jobPostDtos().size(), countedPage.hasNext(), countedPage.total(),
+                    JobPostTotalMode.EXACT);
+        }
+
+        // The index counts the total anyway.
+        var hits = jobPostBitmapIndex.find(jobPostGetRequest, pageable.getOffset(), pageable.getPageSize());
+        if (hits != null) {
+            var jobPostDtos = findAllById(hits.jobPostIds());
+            boolean hasNext = pageable.getOffset() + hits.jobPostIds().size() < hits.total();
+            return totalMode == JobPostTotalMode.NONE
+                    ? new JobPostSearchPage(jobPostDtos, pageable.getPageNumber(), pageable.getPageSize(),
+                            jobPostDtos.size(), hasNext, null, JobPostTotalMode.NONE)
+                    : new JobPostSearchPage(jobPostDtos, pageable.getPageNumber(), pageable.getPageSize(),
+                            jobPostDtos.size(), hasNext, hits.total(), JobPostTotalMode.EXACT);
+        }
+
+        var order = orderPredicate(jobPostGetRequest.deadline());
+        var match = jobPostTextSearch.match(jobPostGetRequest.query());
+
+        List<Tuple> rows = searchQuery(order, nearness(jobPostGetRequest), relevance(jobPostGetRequest, match))
+            .where(searchPredicate(jobPostGetRequest, order, match))
+            .limit(pageable.getPageSize() + 1L)
+            .offset(pageable.getOffset())
+            .fetch();
+
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        var jobPostDtos = (hasNext ? rows.subList(0, pageable.getPageSize()) : rows).stream()
+                .map(this::toJobPostDto)
+                .toList();
+
+        if (totalMode == JobPostTotalMode.NONE) {
+            return new JobPostSearchPage(jobPostDtos, pageable.getPageNumber(), pageable.getPageSize(),
+                    jobPostDtos.size(), hasNext, null, JobPostTotalMode.NONE);
+        }
+
+        // The candidates of a search by relevance may end before the matches do.
+        if (!hasNext && (!rows.isEmpty() || pageable.getOffset() == 0) && !isCapped(jobPostGetRequest, match)) {
+            return new JobPostSearchPage(jobPostDtos, pageable.getPageNumber(), pageable.getPageSize(),
+                    jobPostDtos.size(), false, pageable.getOffset() + rows.size(), JobPostTotalMode.EXACT);
+        }
+
+        // A stale total may be lower than the job posts already seen.
+        long totalElements = Math.max(estimatedTotal(jobPostGetRequest, match),
+                pageable.getOffset() + rows.size());
+        return new JobPostSearchPage(jobPostDtos, pageable.getPageNumber(), pageable.getPageSize(),
+                jobPostDtos.size(), hasNext, totalElements, JobPostTotalMode.ESTIMATED);
+    }
+
+    // See findAll(JobPostGetRequest, Pageable). The pages of a search by relevance end with its candidates.
+    private CountedPage findCountedPage(JobPostGetRequest jobPostGetRequest, Pageable pageable) {
+        var hits = jobPostBitmapIndex.find(jobPostGetRequest, pageable.getOffset(), pageable.getPageSize());
+        if (hits != null) {
+            return new CountedPage(findAllById(hits.jobPostIds()), hits.total(),
+                    pageable.getOffset() + hits.jobPostIds().size() < hits.total());
+        }
+
         var jobPostTable = QJobPost.jobPost;
+        var order = orderPredicate(jobPostGetRequest.deadline());
+        var match = jobPostTextSearch.match(jobPostGetRequest.query());
+        JPQLQuery<Long> total = JPAExpressions.select(jobPostTable.count())
+            .from(jobPostTable)
+            .where(filterPredicate(jobPostGetRequest, match));
 
-        List<Long> jobPostIds = from(jobPostTable)
-            .select(jobPostTable.id)
-            .where(filterPredicate(jobPostGetRequest))
-            .orderBy(orderPredicate(jobPostGetRequest.deadline()), jobPostTable.id.asc())
+        List<Tuple> rows = searchQuery(order, nearness(jobPostGetRequest), relevance(jobPostGetRequest, match), total)
+            .where(searchPredicate(jobPostGetRequest, order, match))
             .limit(pageable.getPageSize())
             .offset(pageable.getOffset())
             .fetch();
 
-        if (jobPostIds.isEmpty()) {
-            return Page.empty(pageable);
+        if (rows.isEmpty()) {
+            return new CountedPage(List.of(), 0, false);
         }
 
-        List<JobPost> jobPosts = from(jobPostTable)
-            .leftJoin(jobPostTable.jobTags).fetchJoin()
-            .leftJoin(jobPostTable.jobDefinitions).fetchJoin()
-            .where(jobPostTable.id.in(jobPostIds))
-            .orderBy(orderPredicate(jobPostGetRequest.deadline()), jobPostTable.id.asc())
+        var jobPostDtos = rows.stream()
+                .map(this::toJobPostDto)
+                .toList();
+
+        Long totalElements = rows.get(0).get(total);
+        jobPostTotalCache.put(jobPostGetRequest, totalElements);
+
+        long reachable = isCapped(jobPostGetRequest, match) ? Math.min(totalElements, maxCandidates) : totalElements;
+        return new CountedPage(jobPostDtos, totalElements, pageable.getOffset() + rows.size() < reachable);
+    }
+
+    /**
+     * Finds the page of job posts after the cursor, or the first page if there is none. Unlike offset paging, the
+     * database seeks straight to the cursor, so every page costs the same however deep it is. No total is counted.
+     */
+    @Override
+    public JobPostCursorPage findAll(JobPostGetRequest jobPostGetRequest, JobPostCursor cursor, int size) {
+        var order = orderPredicate(jobPostGetRequest.deadline());
+        var hits = jobPostBitmapIndex.findAfter(jobPostGetRequest, cursor, size + 1);
+        if (hits != null) {
+            boolean hasNext = hits.jobPostIds().size() > size;
+            var jobPostDtos = findAllById(hasNext ? hits.jobPostIds().subList(0, size) : hits.jobPostIds());
+            String nextCursor = hasNext && !jobPostDtos.isEmpty()
+                    ? cursorOf(order, jobPostDtos.get(jobPostDtos.size() - 1), null, null).encode()
+                    : null;
+            return new JobPostCursorPage(jobPostDtos, size, jobPostDtos.size(), nextCursor);
+        }
+
+        var match = jobPostTextSearch.match(jobPostGetRequest.query());
+        var nearness = nearness(jobPostGetRequest);
+        var relevance = relevance(jobPostGetRequest, match);
+        Expression<?>[] sortKeys = Stream.of(nearness, relevance)
+                .filter(Objects::nonNull)
+                .toArray(Expression<?>[]::new);
+
+        List<Tuple> rows = searchQuery(order, nearness, relevance, sortKeys)
+            .where(searchPredicate(jobPostGetRequest, order, match),
+                    JobPostPredicates.isAfterCursor(nearness, relevance, order, cursor))
+            .limit(size + 1L)
             .fetch();
 
-        var jobPostDtos = jobPosts.stream()
-                .map(jobPostDtoMapper)
+        if (rows.isEmpty()) {
+            return new JobPostCursorPage(List.of(), size, 0, null);
+        }
+
+        boolean hasNext = rows.size() > size;
+        var jobPostDtos = (hasNext ? rows.subList(0, size) : rows).stream()
+                .map(this::toJobPostDto)
+                .toList();
+        Tuple lastRow = rows.get(jobPostDtos.size() - 1);
+        Integer rank = nearness == null ? null : lastRow.get(nearness);
+        Float lastRelevance = relevance == null ? null : lastRow.get(relevance);
+        String nextCursor = hasNext
+                ? cursorOf(order, jobPostDtos.get(jobPostDtos.size() - 1), rank, lastRelevance).encode()
+                : null;
+
+        return new JobPostCursorPage(jobPostDtos, size, jobPostDtos.size(), nextCursor);
+    }
+
+    /**
+     * Counts the facets of a search, see {@link JobPostFacets}, at most {@code search.facets.max-values} values per
+     * facet.
+     */
+    @Override
+    public JobPostFacets findFacets(JobPostGetRequest jobPostGetRequest) {
+        Optional<JobPostFacets> cachedFacets = jobPostFacetCache.get(jobPostGetRequest);
+        if (cachedFacets.isPresent()) {
+            return cachedFacets.get();
+        }
+
+        long generation = jobPostFacetCache.generation();
+        JobPostFacets jobPostFacets = jobPostBitmapIndex.facets(jobPostGetRequest, maxFacetValues);
+        if (jobPostFacets == null) {
+            jobPostFacets = countFacets(jobPostGetRequest);
+        }
+        jobPostFacetCache.put(jobPostGetRequest, generation, jobPostFacets);
+        return jobPostFacets;
+    }
+
+    // Each facet is counted with every filter but its own, see filterPredicate.
+    private JobPostFacets countFacets(JobPostGetRequest jobPostGetRequest) {
+        var jobPostTable = QJobPost.jobPost;
+        var match = jobPostTextSearch.match(jobPostGetRequest.query());
+        Predicate unfaceted = JobPostPredicates.hasUrl()
+                .and(JobPostPredicates.isNotExpired())
+                .and(JobPostPredicates.hasDeadlineNotPassed())
+                .and(JobPostPredicates.hasSpecificDeadline(jobPostGetRequest.deadline()))
+                .and(match == null ? null : match.filter())
+                .and(JobPostPredicates.isInMunicipality(
+                        gazetteer.municipalityIdsNear(jobPostGetRequest.near(), jobPostGetRequest.radiusKm())));
+        var withPosition = JobPostPredicates.hasJobDefinition("Stilling", jobPostGetRequest.position());
+        var withSector = JobPostPredicates.hasJobDefinition("Sektor", jobPostGetRequest.sector());
+        var inMunicipality = JobPostPredicates.isInMunicipality(
+                gazetteer.municipalityIdsOf(jobPostGetRequest.municipality()));
+        var count = jobPostTable.id.countDistinct();
+
+        // Not the alias of the job definitions in the subqueries of hasJobDefinition.
+        var jobDefinition = new QJobDefinition("facetJobDefinition");
+        var jobDefinitionKey = jobDefinition.key.lower();
+        Map<String, Map<String, Long>> byJobDefinition = Map.of("sektor", new HashMap<>(), "stilling", new HashMap<>());
+        from(jobPostTable)
+            .join(jobPostTable.jobDefinitions, jobDefinition)
+            .select(jobDefinitionKey, jobDefinition.value, count)
+            .where(unfaceted, new BooleanBuilder(jobDefinitionKey.eq("sektor")).and(withPosition).and(inMunicipality)
+                    .or(new BooleanBuilder(jobDefinitionKey.eq("stilling")).and(withSector).and(inMunicipality)))
+            .groupBy(jobDefinitionKey, jobDefinition.value)
+            .fetch()
+            .forEach(row -> byJobDefinition.get(row.get(jobDefinitionKey))
+                    .put(row.get(jobDefinition.value), row.get(count)));
+
+        var municipality = QMunicipality.municipality;
+        var regionKey = municipality.region.key;
+        Map<String, Long> byRegion = new HashMap<>();
+        from(jobPostTable, municipality)
+            .select(regionKey, count)
+            .where(unfaceted, withSector, withPosition, JobPostPredicates.isInMunicipality(municipality.id))
+            .groupBy(regionKey)
+            .fetch()
+            .forEach(row -> byRegion.put(row.get(regionKey), row.get(count)));
+
+        var jobTag = QJobTag.jobTag;
+        Map<String, Long> byJobTag = new HashMap<>();
+        from(jobPostTable)
+            .join(jobPostTable.jobTags, jobTag)
+            .select(jobTag.tag, count)
+            .where(unfaceted, withSector, withPosition, inMunicipality)
+            .groupBy(jobTag.tag)
+            .fetch()
+            .forEach(row -> byJobTag.put(row.get(jobTag.tag), row.get(count)));
+
+        return new JobPostFacets(
+                JobPostFacetCount.mostCommon(byJobDefinition.get("sektor"), maxFacetValues),
+                JobPostFacetCount.mostCommon(byJobDefinition.get("stilling"), maxFacetValues),
+                JobPostFacetCount.mostCommon(byRegion, maxFacetValues),
+                JobPostFacetCount.mostCommon(byJobTag, maxFacetValues));
+    }
+
+    private long estimatedTotal(JobPostGetRequest jobPostGetRequest, JobPostTextSearch.Match match) {
+        OptionalLong cachedTotal = jobPostTotalCache.get(jobPostGetRequest);
+        if (cachedTotal.isPresent()) {
+            return cachedTotal.getAsLong();
+        }
+
+        var jobPostTable = QJobPost.jobPost;
+        Long total = from(jobPostTable)
+            .select(jobPostTable.count())
+            .where(filterPredicate(jobPostGetRequest, match))
+            .fetchOne();
+        long totalElements = total == null ? 0 : total;
+        jobPostTotalCache.put(jobPostGetRequest, totalElements);
+        return totalElements;
+    }
+
+    // The job posts with the ids, in the order of the ids. Those deleted since the ids were found are left out.
+    private List<JobPostDto> findAllById(List<Long> jobPostIds) {
+        if (jobPostIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, JobPostDto> jobPostDtosById = searchQuery(JobPostPredicates.orderByClosestDeadline(), null, null)
+            .where(JobPostPredicates.isAnyOf(jobPostIds.toArray(Long[]::new)))
+            .fetch()
+            .stream()
+            .map(this::toJobPostDto)
+            .collect(Collectors.toMap(JobPostDto::id, Function.identity()));
+        return jobPostIds.stream()
+                .map(jobPostDtosById::get)
+                .filter(Objects::nonNull)
                 .toList();
+    }
+
+    private JPQLQuery<Tuple> searchQuery(OrderSpecifier<LocalDate> order,
+                                         NumberExpression<Integer> nearness,
+                                         NumberExpression<Float> relevance,
+                                         Expression<?>... extraColumns) {
+        var jobPostTable = QJobPost.jobPost;
+
+        List<Expression<?>> columns = new ArrayList<>(List.of(
+                jobPostTable.id,
+                jobPostTable.createdAt,
+                jobPostTable.url,
+                jobPostTable.companyName,
+                jobPostTable.companyImageUrl,
+                jobPostTable.imageUrl,
+                jobPostTable.title,
+                jobPostTable.description,
+                jobPostTable.deadline,
+                JOB_TAGS,
+                JOB_DEFINITIONS));
+        columns.addAll(List.of(extraColumns));
+
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        if (nearness != null) {
+            orders.add(nearness.asc());
+        }
+        if (relevance != null) {
+            orders.add(relevance.desc());
+        }
+        orders.addAll(List.of(order, JobPostPredicates.orderByIdAlong(order)));
+
+        return from(jobPostTable)
+            .select(columns.toArray(Expression<?>[]::new))
+            .orderBy(orders.toArray(OrderSpecifier<?>[]::new));
+    }
+
+    private JobPostDto toJobPostDto(Tuple row) {
+        var jobPostTable = QJobPost.jobPost;
+
+        return new JobPostDto(
+                row.get(jobPostTable.id),
+                row.get(jobPostTable.createdAt),
+                row.get(jobPostTable.url),
+                row.get(jobPostTable.companyName),
+                row.get(jobPostTable.companyImageUrl),
+                row.get(jobPostTable.imageUrl),
+                row.get(jobPostTable.title),
+                row.get(jobPostTable.description),
+                row.get(jobPostTable.deadline),
+                readSet(jobTagsReader, row.get(JOB_TAGS)),
+                readSet(jobDefinitionsReader, row.get(JOB_DEFINITIONS)));
+    }
+
+    private static <T> Set<T> readSet(ObjectReader reader, String json) {
+        if (json == null) {
+            return new LinkedHashSet<>();
+        }
+
+        try {
+            return new LinkedHashSet<>(reader.<List<T>>readValue(json));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Every order is on the deadline except the one on the creation date, see JobPostPredicates.
+    private JobPostCursor cursorOf(OrderSpecifier<LocalDate> order, JobPostDto lastJobPost, Integer rank,
+                                   Float relevance) {
+        LocalDate key = order.getTarget().equals(QJobPost.jobPost.createdAt)
+                ? lastJobPost.createdAt()
+                : lastJobPost.deadline();
+        return new JobPostCursor(key, lastJobPost.id(), rank, relevance);
+    }
 
-        return PageableExecutionUtils
-            .getPage(jobPostDtos, pageable, () -> countQuery(jobPostGetRequest).fetchOne());
+    private NumberExpression<Integer> nearness(JobPostGetRequest jobPostGetRequest) {
+        return JobPostPredicates.nearness(
+                gazetteer.municipalityIdsNear(jobPostGetRequest.near(), jobPostGetRequest.radiusKm()));
+    }
+
+    private NumberExpression<Float> relevance(JobPostGetRequest jobPostGetRequest, JobPostTextSearch.Match match) {
+        if (JobPostSortMode.of(jobPostGetRequest.sort()) != JobPostSortMode.RELEVANCE || match == null) {
+            return null;
+        }
+        return match.relevance();
     }
 
     private OrderSpecifier<LocalDate> orderPredicate(String deadline) {
@@ -65,20 +469,34 @@ public class JobPostQueryDSLRepositoryImpl extends QuerydslRepositorySupport imp
         return JobPostPredicates.orderByClosestDeadline();
     }
 
-    private JPQLQuery<Long> countQuery(JobPostGetRequest jobPostGetRequest) {
-        var jobPostTable = QJobPost.jobPost;
-        return from(jobPostTable)
-            .select(jobPostTable.count())
-            .where(filterPredicate(jobPostGetRequest));
+    // The filter, capped to the candidates of a search by relevance unless the text search has ranked them already.
+    private Predicate searchPredicate(JobPostGetRequest jobPostGetRequest, OrderSpecifier<LocalDate> order,
+                                      JobPostTextSearch.Match match) {
+        if (!isCapped(jobPostGetRequest, match)) {
+            return filterPredicate(jobPostGetRequest, match);
+        }
+        return JobPostPredicates.isAmongFirst(filterPredicate(jobPostGetRequest, match), match.inTitle(), order,
+                maxCandidates);
+    }
+
+    private boolean isCapped(JobPostGetRequest jobPostGetRequest, JobPostTextSearch.Match match) {
+        return relevance(jobPostGetRequest, match) != null && !match.ranked();
     }
 
-    private Predicate filterPredicate(JobPostGetRequest jobPostGetRequest) {
+    private Predicate filterPredicate(JobPostGetRequest jobPostGetRequest, JobPostTextSearch.Match match) {
         return  JobPostPredicates.hasUrl()
+                .and(JobPostPredicates.isNotExpired())
                 .and(JobPostPredicates.hasDeadlineNotPassed())
                 .and(JobPostPredicates.hasSpecificDeadline(jobPostGetRequest.deadline()))
-                .and(JobPostPredicates.isQueryInTitleOrDescription(jobPostGetRequest.query()))
-                .and(JobPostPredicates.hasPosition(entityManager, jobPostGetRequest.municipality()))
-                .and(JobPostPredicates.hasJobDefinition(entityManager, "Stilling", jobPostGetRequest.position()))
-                .and(JobPostPredicates.hasJobDefinition(entityManager, "Sektor", jobPostGetRequest.sector()));
+                .and(match == null ? null : match.filter())
+                .and(JobPostPredicates.isInMunicipality(gazetteer.municipalityIdsOf(jobPostGetRequest.municipality())))
+                .and(JobPostPredicates.isInMunicipality(
+                        gazetteer.municipalityIdsNear(jobPostGetRequest.near(), jobPostGetRequest.radiusKm())))
+                .and(JobPostPredicates.hasJobDefinition("Stilling", jobPostGetRequest.position()))
+                .and(JobPostPredicates.hasJobDefinition("Sektor", jobPostGetRequest.sector()));
+    }
+
+    private record CountedPage(List<JobPostDto> jobPostDtos, long total, boolean hasNext) {
+
     }
-}
\ No newline at end of file
+}
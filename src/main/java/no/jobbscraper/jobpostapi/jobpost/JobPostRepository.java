@@ -1,10 +1,14 @@
 package no.jobbscraper.jobpostapi.jobpost;
 
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.lang.NonNull;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface JobPostRepository extends CrudRepository<JobPost, Long> {
 
@@ -12,5 +16,10 @@ public interface JobPostRepository extends CrudRepository<JobPost, Long> {
     @EntityGraph(attributePaths = {"jobTags", "jobDefinitions"})
     Optional<JobPost> findById(@NonNull Long id);
 
-    boolean existsByUrl(String url);
+    @Query("select j.url from JobPost j where j.url in ?1")
+    Set<String> findExistingUrls(Collection<String> urls);
+
+    @Query("select new no.jobbscraper.jobpostapi.jobpost.ExistingJobPost(j.id, j.url, j.contentHash) "
+            + "from JobPost j where j.url in ?1")
+    List<ExistingJobPost> findExistingJobPosts(Collection<String> urls);
 }
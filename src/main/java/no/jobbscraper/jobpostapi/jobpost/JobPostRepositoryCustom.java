@@ -6,4 +6,10 @@ import org.springframework.data.domain.Pageable;
 public interface JobPostRepositoryCustom {
 
     Page<JobPostDto> findAll(JobPostGetRequest jobPostGetRequest, Pageable pageable);
+
+    JobPostSearchPage findAll(JobPostGetRequest jobPostGetRequest, Pageable pageable, JobPostTotalMode totalMode);
+
+    JobPostCursorPage findAll(JobPostGetRequest jobPostGetRequest, JobPostCursor cursor, int size);
+
+    JobPostFacets findFacets(JobPostGetRequest jobPostGetRequest);
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * A page of job posts, with a total as exact as the search asked for. {@code total_mode} tells how the total was
+ * found, which can be more exact than asked for: on the last page the total is known without counting.
+ */
+public record JobPostSearchPage(
+        @JsonProperty("content")
+        List<JobPostDto> content,
+
+        @JsonProperty("number")
+        int number,
+
+        @JsonProperty("size")
+        int size,
+
+        @JsonProperty("number_of_elements")
+        int numberOfElements,
+
+        @JsonProperty("has_next")
+        boolean hasNext,
+
+        @JsonProperty("total_elements")
+        Long totalElements,
+
+        @JsonProperty("total_mode")
+        JobPostTotalMode totalMode) {
+
+}
@@ -2,19 +2,27 @@ package no.jobbscraper.jobpostapi.jobpost;
 
 import jakarta.transaction.Transactional;
 import no.jobbscraper.jobpostapi.exception.BadSecretKeyException;
+import no.jobbscraper.jobpostapi.exception.EmptySourceSyncException;
+import no.jobbscraper.jobpostapi.exception.IngestBatchNotFoundException;
+import no.jobbscraper.jobpostapi.exception.IngestQueueFullException;
+import no.jobbscraper.jobpostapi.exception.InvalidCursorException;
+import no.jobbscraper.jobpostapi.exception.InvalidRadiusException;
+import no.jobbscraper.jobpostapi.exception.InvalidSortModeException;
+import no.jobbscraper.jobpostapi.exception.InvalidTotalModeException;
 import no.jobbscraper.jobpostapi.exception.JobPostNotFoundException;
-import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
-import no.jobbscraper.jobpostapi.jobdefinition.JobDefinitionRepository;
-import no.jobbscraper.jobpostapi.jobtag.JobTag;
-import no.jobbscraper.jobpostapi.jobtag.JobTagRepository;
+import no.jobbscraper.jobpostapi.exception.UnknownPlaceException;
+import no.jobbscraper.jobpostapi.exception.UnknownRegionException;
+import no.jobbscraper.jobpostapi.geography.Gazetteer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.Locale;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,8 +31,11 @@ public class JobPostService {
 
     private final JobPostRepository jobPostRepository;
     private final JobPostRepositoryCustom jobPostRepositoryCustom;
-    private final JobTagRepository jobTagRepository;
-    private final JobDefinitionRepository jobDefinitionRepository;
+    private final JobPostChunkedIngester jobPostChunkedIngester;
+    private final JobPostIngestQueue jobPostIngestQueue;
+    private final JobPostBulkLoader jobPostBulkLoader;
+    private final JobPostSourceSyncer jobPostSourceSyncer;
+    private final JobPostUrlRepository jobPostUrlRepository;
     private final JobPostDtoMapper jobPostDTOMapper;
 
     @Value("${secret_key}")
@@ -32,22 +43,32 @@ public class JobPostService {
 
     public JobPostService(JobPostRepository jobPostRepository,
                           JobPostRepositoryCustom jobPostRepositoryCustom,
-                          JobTagRepository jobTagRepository,
-                          JobDefinitionRepository jobDefinitionRepository,
+                          JobPostChunkedIngester jobPostChunkedIngester,
+                          JobPostIngestQueue jobPostIngestQueue,
+                          JobPostBulkLoader jobPostBulkLoader,
+                          JobPostSourceSyncer jobPostSourceSyncer,
+                          JobPostUrlRepository jobPostUrlRepository,
                           JobPostDtoMapper jobPostDTOMapper) {
         this.jobPostRepository = jobPostRepository;
         this.jobPostRepositoryCustom = jobPostRepositoryCustom;
-        this.jobTagRepository = jobTagRepository;
-        this.jobDefinitionRepository = jobDefinitionRepository;
+        this.jobPostChunkedIngester = jobPostChunkedIngester;
+        this.jobPostIngestQueue = jobPostIngestQueue;
+        this.jobPostBulkLoader = jobPostBulkLoader;
+        this.jobPostSourceSyncer = jobPostSourceSyncer;
+        this.jobPostUrlRepository = jobPostUrlRepository;
         this.jobPostDTOMapper = jobPostDTOMapper;
     }
 
     /**
      * Retrieves a page of job posts based on the given criteria.
      *
-     * @param jobPostGetRequest The request containing the search criteria.
-     * @param pageable          Pageable object
-     * @return                  A page of job posts.
+     * @param jobPostGetRequest         The request containing the search criteria.
+     * @param pageable                  Pageable object
+     * @return                          A page of job posts.
+     * @throws UnknownRegionException   if the municipality is not a region of the {@link Gazetteer}.
+     * @throws UnknownPlaceException    if near is not a place of the {@link Gazetteer}.
+     * @throws InvalidRadiusException   if the radius is out of range.
+     * @throws InvalidSortModeException if the sort is not one of {@link JobPostSortMode}.
      * @see Page
      * @see JobPostDto
      */
@@ -56,6 +77,62 @@ public class JobPostService {
         return jobPostRepositoryCustom.findAll(jobPostGetRequest, pageable);
     }
 
+    /**
+     * Retrieves a page of job posts based on the given criteria, with a total only as exact as asked for.
+     *
+     * @param jobPostGetRequest             The request containing the search criteria.
+     * @param pageable                      Pageable object
+     * @param total                         How to find the total, one of {@link JobPostTotalMode} in any case.
+     * @return                              A page of job posts, with how its total was found.
+     * @throws InvalidTotalModeException    if the total is not one of {@link JobPostTotalMode}.
+     * @throws UnknownRegionException       if the municipality is not a region of the {@link Gazetteer}.
+     * @throws UnknownPlaceException        if near is not a place of the {@link Gazetteer}.
+     * @throws InvalidRadiusException       if the radius is out of range.
+     * @throws InvalidSortModeException     if the sort is not one of {@link JobPostSortMode}.
+     * @see JobPostSearchPage
+     */
+    @Transactional
+    public JobPostSearchPage getJobPosts(JobPostGetRequest jobPostGetRequest, Pageable pageable, String total) {
+        return jobPostRepositoryCustom.findAll(jobPostGetRequest, pageable, JobPostTotalMode.of(total));
+    }
+
+    /**
+     * Counts the job posts matching the given criteria by each value of the sector, position and municipality
+     * filters, and by tag, each with the criteria other than its own filter.
+     *
+     * @param jobPostGetRequest         The request containing the search criteria, of which the sort is ignored.
+     * @return                          The facets of the search.
+     * @throws UnknownRegionException   if the municipality is not a region of the {@link Gazetteer}.
+     * @throws UnknownPlaceException    if near is not a place of the {@link Gazetteer}.
+     * @throws InvalidRadiusException   if the radius is out of range.
+     * @see JobPostFacets
+     */
+    @Transactional
+    public JobPostFacets getJobPostFacets(JobPostGetRequest jobPostGetRequest) {
+        return jobPostRepositoryCustom.findFacets(jobPostGetRequest);
+    }
+
+    /**
+     * Retrieves the page of job posts after the given cursor, based on the given criteria.
+     *
+     * @param jobPostGetRequest         The request containing the search criteria.
+     * @param cursor                    The next cursor of the previous page, or null or blank for the first page.
+     * @param size                      The number of job posts per page.
+     * @return                          A page of job posts with the cursor of the next page.
+     * @throws InvalidCursorException   if the cursor is not one returned by this method.
+     * @throws UnknownRegionException   if the municipality is not a region of the {@link Gazetteer}.
+     * @throws UnknownPlaceException    if near is not a place of the {@link Gazetteer}.
+     * @throws InvalidRadiusException   if the radius is out of range.
+     * @throws InvalidSortModeException if the sort is not one of {@link JobPostSortMode}.
+     * @see JobPostCursorPage
+     */
+    @Transactional
+    public JobPostCursorPage getJobPostsAfter(JobPostGetRequest jobPostGetRequest, String cursor, int size) {
+        JobPostCursor jobPostCursor = cursor == null || cursor.isBlank() ? null : JobPostCursor.decode(cursor);
+
+        return jobPostRepositoryCustom.findAll(jobPostGetRequest, jobPostCursor, size);
+    }
+
     /**
      * Retrieves a job post by its ID.
      *
@@ -75,96 +152,127 @@ public class JobPostService {
 
     /**
      * Creates {@link JobPost} based on the provided {@link JobPostCreateRequest}.
+     * Job posts whose url already exists, or appears earlier in the same request, are skipped.
+     * The job posts are committed in chunks, see {@link JobPostChunkedIngester}, so job posts that fail
+     * do not roll back the rest of the request.
      *
      * @param createRequest     The request containing the job post data.
      * @param givenSecretKey    Secret key required for creating the job data.
-     * @return                  A list of IDs of the created job posts.
+     * @return                  The outcome for every job post in the request, in request order.
      * @see JobPost
      * @see JobPostCreateRequest
+     * @see JobPostCreateResult
      */
-    @Transactional
-    public List<Long> createJobPosts(JobPostCreateRequest createRequest, String givenSecretKey) {
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public List<JobPostCreateResult> createJobPosts(JobPostCreateRequest createRequest, String givenSecretKey) {
         if (givenSecretKey == null || !givenSecretKey.equalsIgnoreCase(secretKey)){
             throw new BadSecretKeyException();
         }
 
-        return createRequest.jobPosts().stream()
-                .filter(jobPostCreateDto -> doesJobPostNotExistByUrl(jobPostCreateDto.url()))
-                .map(this::buildJobPostFromDto)
-                .map(jobPostRepository::save)
-                .map(JobPost::getId)
-                .toList();
+        return jobPostChunkedIngester.ingest(createRequest.jobPosts());
     }
 
     /**
-     * Builds a new {@link JobPost} entity based on the provided {@link JobPostCreateDto}.
+     * Validates the secret key and queues the job posts of the provided {@link JobPostCreateRequest} for
+     * asynchronous creation, see {@link JobPostIngestQueue}.
      *
-     * @param jobPostCreateDTO  The DTO containing the details of the job post to create.
-     * @return                  The constructed JobPost entity.
-     * @see JobPost
-     * @see JobPostCreateDto
+     * @param createRequest             The request containing the job post data.
+     * @param givenSecretKey            Secret key required for creating the job data.
+     * @return                          The status of the queued batch.
+     * @throws IngestQueueFullException if the queue can not take the job posts right now.
+     * @see JobPostIngestBatchStatus
      */
-    private JobPost buildJobPostFromDto(JobPostCreateDto jobPostCreateDTO) {
-        JobPost.Builder jobPostBuilder = new JobPost.Builder(jobPostCreateDTO.url(), jobPostCreateDTO.imageUrl(), jobPostCreateDTO.title())
-                .setCompanyImageUrl(jobPostCreateDTO.companyImageUrl())
-                .setCompanyName(jobPostCreateDTO.companyName())
-                .setDescription(jobPostCreateDTO.description())
-                .setDeadline(jobPostCreateDTO.deadline());
-
-        if (jobPostCreateDTO.jobTags() != null) {
-            Set<JobTag> jobTagSet = jobPostCreateDTO.jobTags().stream()
-                    .map(this::getOrCreateJobTag)
-                    .collect(Collectors.toSet());
-            jobPostBuilder.setTags(jobTagSet);
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public JobPostIngestBatchStatus enqueueJobPosts(JobPostCreateRequest createRequest, String givenSecretKey) {
+        if (givenSecretKey == null || !givenSecretKey.equalsIgnoreCase(secretKey)){
+            throw new BadSecretKeyException();
         }
 
-        if (jobPostCreateDTO.jobDefinitions() != null) {
-            Set<JobDefinition> jobDefinitions = jobPostCreateDTO.jobDefinitions().stream()
-                    .map(this::getOrCreateJobDefinition)
-                    .collect(Collectors.toSet());
-            jobPostBuilder.setJobDefinitions(jobDefinitions);
+        return jobPostIngestQueue.enqueue(createRequest.jobPosts());
+    }
+
+    /**
+     * Retrieves the progress of a batch queued by {@link #enqueueJobPosts}.
+     *
+     * @param batchId                       The id of the batch.
+     * @param givenSecretKey                Secret key required for creating the job data.
+     * @return                              The status of the batch.
+     * @throws IngestBatchNotFoundException if the batch is unknown or finished too long ago.
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public JobPostIngestBatchStatus getIngestBatch(UUID batchId, String givenSecretKey) {
+        if (givenSecretKey == null || !givenSecretKey.equalsIgnoreCase(secretKey)){
+            throw new BadSecretKeyException();
         }
 
-        return jobPostBuilder.build();
+        return jobPostIngestQueue.getStatus(batchId)
+                .orElseThrow(() -> new IngestBatchNotFoundException(batchId));
     }
 
     /**
-     * Checks if a job post with the given URL already exists.
+     * Creates {@link JobPost} from a newline delimited JSON stream of {@link JobPostCreateDto}, see
+     * {@link JobPostBulkLoader}. Job posts whose url already exists are updated when their content differs and
+     * counted as unchanged otherwise. Urls that appear earlier in the stream are skipped, and lines that fail
+     * validation are counted as invalid.
      *
-     * @param url   The URL to check.
-     * @return      True if a job post with the URL does not exist, false otherwise.
+     * @param inputStream       The NDJSON stream, one job post per line.
+     * @param givenSecretKey    Secret key required for creating the job data.
+     * @return                  The number of received, created, updated, unchanged, skipped and invalid job posts.
+     * @see JobPostBulkLoadResult
      */
-    private boolean doesJobPostNotExistByUrl(String url) {
-        return !jobPostRepository.existsByUrl(url);
+    @Transactional
+    public JobPostBulkLoadResult bulkLoadJobPosts(InputStream inputStream, String givenSecretKey) {
+        if (givenSecretKey == null || !givenSecretKey.equalsIgnoreCase(secretKey)){
+            throw new BadSecretKeyException();
+        }
+
+        return jobPostBulkLoader.load(inputStream);
     }
 
     /**
-     * Retrieves an existing JobTag from the repository by its tag.
-     * If the JobTag does not exist, a new JobTag with the specified tag is created and returned.
+     * Expires the job posts of a source that are no longer on its job board, see {@link JobPostSourceSyncer}.
+     * Expired job posts are left out of searches.
      *
-     * @param jobTag    the JobTag to retrieve or create
-     * @return          the existing or newly created JobTag
+     * @param source                    The lowercase host of the job board's urls, e.g. {@code www.finn.no}.
+     * @param inputStream               The urls currently live on the job board, one per line.
+     * @param givenSecretKey            Secret key required for creating the job data.
+     * @return                          The number of received urls, and of expired and revived job posts.
+     * @throws EmptySourceSyncException if the stream contains no urls.
+     * @see JobPostSourceSyncResult
      */
-    private JobTag getOrCreateJobTag(JobTag jobTag) {
-        String tag = jobTag.getTag();
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public JobPostSourceSyncResult syncSource(String source, InputStream inputStream, String givenSecretKey) {
+        if (givenSecretKey == null || !givenSecretKey.equalsIgnoreCase(secretKey)){
+            throw new BadSecretKeyException();
+        }
 
-        Optional<JobTag> optionalJobTag = jobTagRepository.findByTag(tag);
-        return optionalJobTag.orElseGet(() -> new JobTag(tag));
+        return jobPostSourceSyncer.sync(source.strip().toLowerCase(Locale.ROOT), inputStream);
     }
 
     /**
-     * Retrieves an existing JobDefinition from the repository by its key and value.
-     * If the JobDefinition does not exist, the provided JobDefinition object is returned.
+     * Finds which of the given urls, or url hashes, no job post has yet, so that scrapers can skip fetching and
+     * posting pages that are already stored. Urls and hashes are checked with one query each. The
+     * {@link JobPostUrlFilter} is not consulted, since it misses urls stored by other instances until its next rebuild.
      *
-     * @param jobDefinition     the JobDefinition to retrieve or create
-     * @return                  the existing JobDefinition if found, otherwise the provided JobDefinition
+     * @param newUrlsRequest    The urls and/or lowercase hex SHA-256 hashes of urls to check.
+     * @param givenSecretKey    Secret key required for creating the job data.
+     * @return                  The new urls and url hashes, distinct and in request order.
+     * @see JobPostNewUrlsResult
      */
-    private JobDefinition getOrCreateJobDefinition(JobDefinition jobDefinition) {
-        String key = jobDefinition.getKey();
-        String value = jobDefinition.getValue();
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public JobPostNewUrlsResult findNewUrls(JobPostNewUrlsRequest newUrlsRequest, String givenSecretKey) {
+        if (givenSecretKey == null || !givenSecretKey.equalsIgnoreCase(secretKey)){
+            throw new BadSecretKeyException();
+        }
 
-        Optional<JobDefinition> jobDefinitionOptional = jobDefinitionRepository.findByKeyAndValue(key, value);
-        return jobDefinitionOptional.orElseGet(() -> new JobDefinition(key, value));
+        List<String> newUrls = newUrlsRequest.urls() == null
+                ? null
+                : jobPostUrlRepository.findNewUrls(new LinkedHashSet<>(newUrlsRequest.urls()));
+        List<String> newUrlHashes = newUrlsRequest.urlHashes() == null
+                ? null
+                : jobPostUrlRepository.findNewUrlHashes(newUrlsRequest.urlHashes().stream()
+                        .map(urlHash -> urlHash.toLowerCase(Locale.ROOT))
+                        .collect(Collectors.toCollection(LinkedHashSet::new)));
+        return new JobPostNewUrlsResult(newUrls, newUrlHashes);
     }
-
 }
@@ -0,0 +1,39 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import jakarta.annotation.Nullable;
+import no.jobbscraper.jobpostapi.exception.InvalidSortModeException;
+
+import java.util.Locale;
+
+/**
+ * What a search orders the job posts by first.
+ */
+public enum JobPostSortMode {
+    /**
+     * By deadline, or by creation date, as asked for by {@code deadline}, see {@link JobPostPredicates}.
+     */
+    DEADLINE,
+    /**
+     * By how well they match the query, best first, see {@link JobPostPredicates#relevance(String)}, and then by
+     * deadline. Only the first {@code search.relevance.max-candidates} matches are ranked, those matching in the
+     * title first. Without a query, the same as {@link #DEADLINE}.
+     */
+    RELEVANCE;
+
+    /**
+     * @param sort                      The name of the mode, in any case, or null or blank for {@link #DEADLINE}.
+     * @return                          The mode.
+     * @throws InvalidSortModeException if there is no mode by that name.
+     */
+    public static JobPostSortMode of(@Nullable String sort) {
+        if (sort == null || sort.isBlank()) {
+            return DEADLINE;
+        }
+
+        try {
+            return valueOf(sort.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSortModeException(sort);
+        }
+    }
+}
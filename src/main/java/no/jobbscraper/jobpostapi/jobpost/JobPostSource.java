@@ -0,0 +1,32 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The source of a job post is the lowercase host of its url, e.g. {@code www.finn.no}. Job boards are synced one
+ * source at a time, see {@link JobPostSourceSyncer}. The pattern must match the one V9__add_source_and_expired_at.sql
+ * backfills with.
+ */
+final class JobPostSource {
+
+    private static final Pattern HOST = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*://(?:[^/?#@]*@)?([^/?#:]+)");
+
+    private JobPostSource() {
+        throw new AssertionError("Cannot initialize this class");
+    }
+
+    /**
+     * @param url   The url of the job post.
+     * @return      The lowercase host of the url, or {@code null} if the url has none.
+     */
+    static String of(String url) {
+        if (url == null) {
+            return null;
+        }
+
+        Matcher matcher = HOST.matcher(url);
+        return matcher.find() ? matcher.group(1).toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,21 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record JobPostSourceSyncResult(
+        @JsonProperty("source")
+        String source,
+
+        @JsonProperty("received")
+        long received,
+
+        @JsonProperty("expired")
+        long expired,
+
+        @JsonProperty("revived")
+        long revived,
+
+        @JsonProperty("elapsed_ms")
+        long elapsedMs) {
+
+}
@@ -0,0 +1,209 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.exception.EmptySourceSyncException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository
+public class JobPostSourceSyncer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostSourceSyncer.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    // Kept for the whole session rather than the transaction, since the expiry batches are committed one by one.
+    private static final String CREATE_SYNC_TABLE = "CREATE TEMP TABLE jobposts_sync (url text)";
+
+    private static final String DROP_SYNC_TABLE = "DROP TABLE IF EXISTS jobposts_sync";
+
+    private static final String COPY_SYNC = "COPY jobposts_sync (url) FROM STDIN (FORMAT csv)";
+
+    private static final String INDEX_SYNC = "CREATE INDEX ON jobposts_sync (url); ANALYZE jobposts_sync";
+
+    // Not the job posts whose deadline has passed, which JobPostDeadlineSweeper would only expire again.
+    private static final String REVIVE_JOB_POSTS = """
+            UPDATE jobposts j
+            SET expired_at = NULL
+            FROM jobposts_sync s
+            WHERE j.url = s.url AND j.source = ? AND j.expired_at IS NOT NULL
+              AND coalesce(j.deadline, cast('infinity' AS date)) >= current_date
+            RETURNING j.jobpost_id
+            """;
+
+    private static final String FIND_EXPIRED_JOB_POSTS = """
+            SELECT j.jobpost_id
+            FROM jobposts j
+            WHERE j.source = ? AND j.expired_at IS NULL
+              AND NOT EXISTS (SELECT 1 FROM jobposts_sync s WHERE s.url = j.url)
+            ORDER BY j.jobpost_id
+            """;
+
+    private static final String EXPIRE_JOB_POSTS = """
+            UPDATE jobposts
+            SET expired_at = now()
+            WHERE jobpost_id = ANY (?) AND expired_at IS NULL
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @Value("${ingest.source-sync.expire-batch-size}")
+    private int expireBatchSize;
+
+    public JobPostSourceSyncer(JdbcTemplate jdbcTemplate, ApplicationEventPublisher applicationEventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    /**
+     * Syncs the job posts of a source with the urls that are currently live on its job board. The urls are streamed
+     * through {@code COPY} into a temporary table, and the live posts of the source missing from it are found with a
+     * single anti-join. Those are marked expired in batches of {@code ingest.source-sync.expire-batch-size}, each
+     * committed on its own so that a large sync neither holds row locks for long nor builds one huge transaction.
+     * Expired posts whose url is live again are revived, so a sync of a partial scrape is undone by the next full
+     * one, unless their deadline has passed. The expired and revived job posts are published in a
+     * {@link JobPostsChangedEvent}.
+     * <p>
+     * Must run outside a transaction, since every statement is committed as it runs.
+     *
+     * @param source                    The source, see {@link JobPostSource}.
+     * @param inputStream               The live urls, one per line.
+     * @return                          The number of received urls, and of expired and revived job posts.
+     * @throws EmptySourceSyncException if the stream contains no urls.
+     */
+    public JobPostSourceSyncResult sync(String source, InputStream inputStream) {
+        long start = System.nanoTime();
+
+        return jdbcTemplate.execute((ConnectionCallback<JobPostSourceSyncResult>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_SYNC_TABLE);
+                try {
+                    long received = copyToSyncTable(connection, inputStream);
+                    if (received == 0) {
+                        throw new EmptySourceSyncException(source);
+                    }
+                    statement.execute(INDEX_SYNC);
+                    LOGGER.info("Received {} live urls of {}", received, source);
+
+                    List<Long> revivedJobPostIds = revive(connection, source);
+                    List<Long> expiredJobPostIds = findExpired(connection, source);
+                    long expired = expire(connection, expiredJobPostIds);
+                    publishChanged(revivedJobPostIds, expiredJobPostIds);
+
+                    JobPostSourceSyncResult result = new JobPostSourceSyncResult(source, received, expired,
+                            revivedJobPostIds.size(),
+                            (System.nanoTime() - start) / 1_000_000);
+                    LOGGER.info("Source sync finished: {}", result);
+                    return result;
+                } finally {
+                    statement.execute(DROP_SYNC_TABLE);
+                }
+            }
+        });
+    }
+
+    private long copyToSyncTable(Connection connection, InputStream inputStream) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long received = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     new PGCopyOutputStream(pgConnection, COPY_SYNC, COPY_BUFFER_SIZE), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String url = line.strip();
+                if (url.isEmpty()) {
+                    continue;
+                }
+
+                writeUrl(writer, url);
+                received++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return received;
+    }
+
+    /**
+     * Writes a url as a quoted CSV row, so that quotes and commas in it survive.
+     */
+    private void writeUrl(Writer writer, String url) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write("\"\n");
+    }
+
+    private List<Long> revive(Connection connection, String source) throws SQLException {
+        return findJobPostIds(connection, REVIVE_JOB_POSTS, source);
+    }
+
+    private List<Long> findExpired(Connection connection, String source) throws SQLException {
+        return findJobPostIds(connection, FIND_EXPIRED_JOB_POSTS, source);
+    }
+
+    private List<Long> findJobPostIds(Connection connection, String sql, String source) throws SQLException {
+        List<Long> jobPostIds = new ArrayList<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, source);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    jobPostIds.add(resultSet.getLong(1));
+                }
+            }
+        }
+        return jobPostIds;
+    }
+
+    private void publishChanged(List<Long> revivedJobPostIds, List<Long> expiredJobPostIds) {
+        List<Long> jobPostIds = new ArrayList<>(revivedJobPostIds);
+        jobPostIds.addAll(expiredJobPostIds);
+        if (!jobPostIds.isEmpty()) {
+            applicationEventPublisher.publishEvent(new JobPostsChangedEvent(jobPostIds));
+        }
+    }
+
+    private long expire(Connection connection, List<Long> jobPostIds) throws SQLException {
+        long expired = 0;
+        try (PreparedStatement preparedStatement = connection.prepareStatement(EXPIRE_JOB_POSTS)) {
+            for (int from = 0; from < jobPostIds.size(); from += expireBatchSize) {
+                List<Long> batch = jobPostIds.subList(from, Math.min(from + expireBatchSize, jobPostIds.size()));
+                preparedStatement.setArray(1, connection.createArrayOf("bigint", batch.toArray()));
+                expired += preparedStatement.executeUpdate();
+                LOGGER.debug("Expired {} of {} job posts", expired, jobPostIds.size());
+            }
+        }
+        return expired;
+    }
+}
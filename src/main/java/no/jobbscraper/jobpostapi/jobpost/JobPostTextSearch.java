@@ -0,0 +1,35 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberExpression;
+import jakarta.annotation.Nullable;
+
+/**
+ * The full-text part of a search, selected by {@code search.backend}: {@code postgres} matches the query against
+ * {@code tsv_document}, see {@link PostgresJobPostTextSearch}, and {@code lucene} against an in-process index, see
+ * {@link JobPostLuceneIndex}. Either way the rest of the search, its filters, order and page, runs in PostgreSQL.
+ */
+public interface JobPostTextSearch {
+
+    /**
+     * @param query The query string of the search, in web search syntax: words, quoted phrases, {@code or} and
+     *              {@code -} for not.
+     * @return      The job posts matching the query and how relevant they are, or null if the query is null.
+     */
+    @Nullable
+    Match match(@Nullable String query);
+
+    /**
+     * @param filter    BooleanExpression to filter the job posts matching the query.
+     * @param relevance NumberExpression for how well a matching job post matches the query, higher for a better
+     *                  match, see {@link JobPostPredicates#relevance(String)}.
+     * @param ranked    Whether the filter is already capped to the most relevant job posts, so that a search by
+     *                  relevance needs no cap of its own, see {@link JobPostPredicates#isAmongFirst}.
+     * @param inTitle   BooleanExpression to filter the job posts matching the query in their title, which a search
+     *                  by relevance takes as candidates before the others, or null if the filter is ranked.
+     */
+    record Match(BooleanExpression filter, NumberExpression<Float> relevance, boolean ranked,
+                 @Nullable BooleanExpression inTitle) {
+
+    }
+}
@@ -0,0 +1,58 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The totals of recent searches by their criteria, for searches that settle for an estimated total. A total is used
+ * for {@code search.total-cache.ttl} after it was counted, so it is off by the job posts created and expired since.
+ * At most {@code search.total-cache.max-entries} totals are kept; when full, the stale ones are evicted, or all of
+ * them if none are.
+ */
+@Component
+public class JobPostTotalCache {
+
+    private final Map<JobPostGetRequest, CachedTotal> totals = new ConcurrentHashMap<>();
+
+    @Value("${search.total-cache.ttl}")
+    private Duration ttl;
+
+    @Value("${search.total-cache.max-entries}")
+    private int maxEntries;
+
+    /**
+     * @param jobPostGetRequest The criteria of the search.
+     * @return                  The total counted for the criteria within the ttl, or empty if there is none.
+     */
+    public OptionalLong get(JobPostGetRequest jobPostGetRequest) {
+        CachedTotal cachedTotal = totals.get(jobPostGetRequest);
+        if (cachedTotal == null || cachedTotal.countedAt().isBefore(Instant.now().minus(ttl))) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(cachedTotal.total());
+    }
+
+    public void put(JobPostGetRequest jobPostGetRequest, long total) {
+        if (totals.size() >= maxEntries) {
+            evictStaleTotals();
+        }
+        totals.put(jobPostGetRequest, new CachedTotal(total, Instant.now()));
+    }
+
+    private void evictStaleTotals() {
+        Instant countedBefore = Instant.now().minus(ttl);
+        totals.values().removeIf(cachedTotal -> cachedTotal.countedAt().isBefore(countedBefore));
+        if (totals.size() >= maxEntries) {
+            totals.clear();
+        }
+    }
+
+    private record CachedTotal(long total, Instant countedAt) {
+    }
+}
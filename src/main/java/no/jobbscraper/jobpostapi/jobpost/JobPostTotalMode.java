@@ -0,0 +1,36 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.exception.InvalidTotalModeException;
+
+import java.util.Locale;
+
+/**
+ * How the total number of job posts matching a search is found.
+ */
+public enum JobPostTotalMode {
+    /**
+     * Counted with the page.
+     */
+    EXACT,
+    /**
+     * Counted at most once per {@code search.total-cache.ttl} for the same criteria, see {@link JobPostTotalCache}.
+     */
+    ESTIMATED,
+    /**
+     * Not counted, only whether there is a next page.
+     */
+    NONE;
+
+    /**
+     * @param total                         The name of the mode, in any case.
+     * @return                              The mode.
+     * @throws InvalidTotalModeException    if there is no mode by that name.
+     */
+    public static JobPostTotalMode of(String total) {
+        try {
+            return valueOf(total.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTotalModeException(total);
+        }
+    }
+}
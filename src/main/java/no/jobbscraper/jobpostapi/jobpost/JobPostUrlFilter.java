@@ -0,0 +1,184 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory Bloom filter of the urls of all stored job posts. Ingest only looks up the urls the filter reports as
+ * possibly stored; the others are definitely new and skip the database.
+ * <p>
+ * The filter is built from a scan of {@code jobposts} right after startup and rebuilt every
+ * {@code ingest.url-filter.rebuild-interval}, which also drops deleted urls and resizes it to the table. Urls are
+ * {@link #add(String) added} as job posts are created, before their transaction commits, so a url can at worst be
+ * reported as possibly stored without being so. Until the first build completes, or when
+ * {@code ingest.url-filter.enabled} is false, every url is reported as possibly stored.
+ * <p>
+ * Urls stored without going through this instance, by another instance or by hand, are not known until the next
+ * rebuild. Ingesting one of them fails on the unique url constraint, after which {@link JobPostChunkedIngester}
+ * adds the urls of the failed chunk and retries them.
+ */
+@Component
+public class JobPostUrlFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostUrlFilter.class);
+
+    private static final int SCAN_PAGE_SIZE = 50_000;
+
+    private static final String COUNT_URLS = "SELECT count(*) FROM jobposts";
+
+    private static final String SCAN_URLS = """
+            SELECT jobpost_id, url
+            FROM jobposts
+            WHERE jobpost_id > ?
+            ORDER BY jobpost_id
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Timer rebuildTimer;
+    private final AtomicLong definitelyNew = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    private volatile UrlBloomFilter filter;
+    private volatile UrlBloomFilter building;
+
+    @Value("${ingest.url-filter.enabled}")
+    private boolean enabled;
+
+    @Value("${ingest.url-filter.expected-urls}")
+    private long expectedUrls;
+
+    @Value("${ingest.url-filter.false-positive-rate}")
+    private double falsePositiveRate;
+
+    public JobPostUrlFilter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        Gauge.builder("jobpost.url.filter.false.positive.rate", this, JobPostUrlFilter::observedFalsePositiveRate)
+                .description("Share of new urls the filter reported as possibly stored")
+                .register(meterRegistry);
+        Gauge.builder("jobpost.url.filter.expected.false.positive.rate", this,
+                        urlFilter -> urlFilter.filter == null ? 1 : urlFilter.filter.expectedFalsePositiveRate())
+                .description("False positive rate expected from the number of urls in the filter")
+                .register(meterRegistry);
+        Gauge.builder("jobpost.url.filter.size", this,
+                        urlFilter -> urlFilter.filter == null ? 0 : urlFilter.filter.sizeInBytes())
+                .description("Memory used by the filter's bits")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("jobpost.url.filter.rebuild")
+                .description("Time taken to rebuild the filter from the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param url   The url to check.
+     * @return      {@code false} if no job post with the url is stored, {@code true} if one might be.
+     */
+    public boolean mightContain(String url) {
+        UrlBloomFilter current = filter;
+        return current == null || current.mightContain(url);
+    }
+
+    /**
+     * Adds the url of a job post that is being stored.
+     *
+     * @param url   The url to add.
+     */
+    public void add(String url) {
+        UrlBloomFilter current = filter;
+        if (current != null) {
+            current.put(url);
+        }
+        UrlBloomFilter next = building;
+        if (next != null) {
+            next.put(url);
+        }
+        // A rebuild may have swapped in its filter after it was read above.
+        UrlBloomFilter swapped = filter;
+        if (swapped != current && swapped != next) {
+            swapped.put(url);
+        }
+    }
+
+    public void addAll(Collection<String> urls) {
+        urls.forEach(this::add);
+    }
+
+    /**
+     * Records the outcome of an ingest lookup for the false positive rate metric.
+     *
+     * @param checked       The number of urls checked against the filter.
+     * @param maybeStored   The number of those the filter reported as possibly stored, and were looked up.
+     * @param stored        The number of those that were found.
+     */
+    public void recordLookup(int checked, int maybeStored, int stored) {
+        if (filter == null) {
+            return;
+        }
+        definitelyNew.addAndGet(checked - maybeStored);
+        falsePositives.addAndGet(maybeStored - stored);
+    }
+
+    /**
+     * Builds a new filter from the stored urls and swaps it in. The filter is sized for
+     * {@code ingest.url-filter.expected-urls}, or twice the stored urls if that is more.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${ingest.url-filter.rebuild-interval}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Long storedUrls = jdbcTemplate.queryForObject(COUNT_URLS, Long.class);
+        UrlBloomFilter next = UrlBloomFilter.create(Math.max(expectedUrls, 2 * (storedUrls == null ? 0 : storedUrls)),
+                falsePositiveRate);
+        building = next;
+        try {
+            long scanned = scan(next);
+            filter = next;
+            long elapsedNanos = System.nanoTime() - start;
+            rebuildTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            LOGGER.info("Built url filter of {} urls in {} ms: {} KB, {} hash functions", scanned,
+                    elapsedNanos / 1_000_000, next.sizeInBytes() / 1024, next.hashFunctions());
+        } finally {
+            building = null;
+        }
+    }
+
+    private long scan(UrlBloomFilter next) {
+        AtomicLong lastId = new AtomicLong(Long.MIN_VALUE);
+        AtomicInteger page = new AtomicInteger();
+        long scanned = 0;
+        do {
+            page.set(0);
+            jdbcTemplate.query(SCAN_URLS, resultSet -> {
+                lastId.set(resultSet.getLong("jobpost_id"));
+                next.put(resultSet.getString("url"));
+                page.incrementAndGet();
+            }, lastId.get(), SCAN_PAGE_SIZE);
+            scanned += page.get();
+        } while (page.get() == SCAN_PAGE_SIZE);
+        return scanned;
+    }
+
+    private double observedFalsePositiveRate() {
+        long positives = falsePositives.get();
+        long negatives = definitelyNew.get() + positives;
+        return negatives == 0 ? 0 : (double) positives / negatives;
+    }
+}
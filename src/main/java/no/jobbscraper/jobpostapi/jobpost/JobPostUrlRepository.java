@@ -0,0 +1,65 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Set-based url lookups against the unique index on {@code jobposts.url} and the index on
+ * {@code jobposts.url_hash}. Each lookup is a single query, however many urls are given.
+ */
+@Repository
+public class JobPostUrlRepository {
+
+    private static final String FIND_NEW_URLS = """
+            SELECT u.url
+            FROM unnest(CAST(? AS text[])) WITH ORDINALITY AS u(url, ord)
+            WHERE NOT EXISTS (SELECT 1 FROM jobposts j WHERE j.url = u.url)
+            ORDER BY u.ord
+            """;
+
+    private static final String FIND_NEW_URL_HASHES = """
+            SELECT u.url_hash
+            FROM unnest(CAST(? AS text[])) WITH ORDINALITY AS u(url_hash, ord)
+            WHERE NOT EXISTS (SELECT 1 FROM jobposts j WHERE j.url_hash = u.url_hash)
+            ORDER BY u.ord
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobPostUrlRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param urls  The urls to check.
+     * @return      The given urls that no job post has, in the given order.
+     */
+    public List<String> findNewUrls(Collection<String> urls) {
+        return findNew(FIND_NEW_URLS, urls);
+    }
+
+    /**
+     * @param urlHashes The lowercase hex SHA-256 hashes of the urls to check.
+     * @return          The given hashes that no job post's url has, in the given order.
+     */
+    public List<String> findNewUrlHashes(Collection<String> urlHashes) {
+        return findNew(FIND_NEW_URL_HASHES, urlHashes);
+    }
+
+    private List<String> findNew(String sql, Collection<String> values) {
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setArray(1, connection.createArrayOf("text", values.toArray()));
+            return preparedStatement;
+        }, (resultSet, rowNum) -> resultSet.getString(1));
+    }
+}
@@ -0,0 +1,14 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import java.util.List;
+
+/**
+ * Published by the ingest paths when job posts are created, updated, expired or revived. Published inside the
+ * transaction that writes them, if there is one, so listeners should wait for it to commit, see
+ * {@link JobPostLuceneIndex#onJobPostsChanged(JobPostsChangedEvent)}.
+ *
+ * @param jobPostIds The ids of the changed job posts.
+ */
+public record JobPostsChangedEvent(List<Long> jobPostIds) {
+
+}
@@ -0,0 +1,23 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import jakarta.annotation.Nullable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Matches the query against the {@code tsv_document} of the job posts, through the full-text index, and ranks the
+ * matches with {@code ts_rank_cd}. The default {@code search.backend}.
+ */
+@Component
+@ConditionalOnProperty(name = "search.backend", havingValue = "postgres", matchIfMissing = true)
+public class PostgresJobPostTextSearch implements JobPostTextSearch {
+
+    @Override
+    public Match match(@Nullable String query) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+        return new Match(JobPostPredicates.isQueryInTitleOrDescription(query), JobPostPredicates.relevance(query),
+                false, JobPostPredicates.isQueryInTitle(query));
+    }
+}
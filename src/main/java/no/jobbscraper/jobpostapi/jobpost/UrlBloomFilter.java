@@ -0,0 +1,113 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Bloom filter of strings, safe for concurrent use. {@link #mightContain(CharSequence)} never returns
+ * {@code false} for a value that was {@link #put(CharSequence) put}, and returns {@code true} for a value that was
+ * not put with roughly the configured false positive rate, as long as no more than the expected number of values
+ * are put.
+ * <p>
+ * Values are hashed once with 64-bit FNV-1a, and the bit indexes are derived from two mixes of that hash by double
+ * hashing.
+ */
+final class UrlBloomFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashFunctions;
+    private final LongAdder insertions = new LongAdder();
+
+    private UrlBloomFilter(long bits, int hashFunctions) {
+        this.words = new AtomicLongArray(Math.toIntExact((bits + Long.SIZE - 1) / Long.SIZE));
+        this.bits = (long) words.length() * Long.SIZE;
+        this.hashFunctions = hashFunctions;
+    }
+
+    /**
+     * Creates a filter sized for the given number of values and false positive rate.
+     *
+     * @param expectedInsertions    The number of values expected to be put.
+     * @param falsePositiveRate     The wanted false positive rate at {@code expectedInsertions} values, between
+     *                              0 and 1.
+     * @return                      An empty filter.
+     */
+    static UrlBloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive: " + expectedInsertions);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int hashFunctions = (int) Math.max(1, Math.round((double) bits / expectedInsertions * Math.log(2)));
+        return new UrlBloomFilter(bits, hashFunctions);
+    }
+
+    void put(CharSequence value) {
+        long hash = fnv1a(value);
+        long hash1 = mix(hash);
+        long hash2 = mix(hash + GOLDEN_GAMMA);
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % bits;
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, bit) -> current | bit);
+            }
+        }
+        insertions.increment();
+    }
+
+    boolean mightContain(CharSequence value) {
+        long hash = fnv1a(value);
+        long hash1 = mix(hash);
+        long hash2 = mix(hash + GOLDEN_GAMMA);
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % bits;
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The false positive rate to expect for the number of values put so far. Repeated puts of the same value are
+     * counted more than once, so this errs on the high side.
+     */
+    double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashFunctions * (double) insertions.sum() / bits), hashFunctions);
+    }
+
+    long sizeInBytes() {
+        return bits / Byte.SIZE;
+    }
+
+    int hashFunctions() {
+        return hashFunctions;
+    }
+
+    private static long fnv1a(CharSequence value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // fmix64 of MurmurHash3, spreads every input bit over the whole word.
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
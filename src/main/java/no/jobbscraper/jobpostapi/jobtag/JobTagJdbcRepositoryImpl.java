@@ -0,0 +1,73 @@
+package no.jobbscraper.jobpostapi.jobtag;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+@Repository
+public class JobTagJdbcRepositoryImpl implements JobTagRepositoryCustom {
+
+    /*
+     * Tags are matched case-insensitively, like JobTagRepository#findByTag. Tags that already exist in
+     * another case are returned as they are, the rest are inserted. ON CONFLICT DO UPDATE makes the
+     * insert return the row when a concurrent ingest inserted the same tag first.
+     */
+    private static final String UPSERT_TAGS = """
+            WITH input AS (
+                SELECT DISTINCT ON (lower(tag)) tag
+                FROM unnest(CAST(? AS text[])) AS tag
+            ),
+            existing AS (
+                SELECT j.id, j.tag
+                FROM job_tags j
+                JOIN input i ON lower(j.tag) = lower(i.tag)
+            ),
+            inserted AS (
+                INSERT INTO job_tags (tag)
+                SELECT i.tag
+                FROM input i
+                WHERE NOT EXISTS (SELECT 1 FROM existing e WHERE lower(e.tag) = lower(i.tag))
+                ON CONFLICT (tag) DO UPDATE SET tag = EXCLUDED.tag
+                RETURNING id, tag
+            )
+            SELECT id, tag FROM existing
+            UNION ALL
+            SELECT id, tag FROM inserted
+            """;
+
+    private static final RowMapper<JobTag> JOB_TAG_ROW_MAPPER = (resultSet, rowNum) -> {
+        JobTag jobTag = new JobTag(resultSet.getString("tag"));
+        jobTag.setId(resultSet.getLong("id"));
+        return jobTag;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobTagJdbcRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the tags that do not exist yet and returns every given tag with its id, in a single round trip.
+     *
+     * @param tags  The tags to resolve. Duplicates differing only in case are resolved once.
+     * @return      The stored {@link JobTag}s matching the given tags.
+     */
+    @Override
+    public List<JobTag> upsertAll(Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_TAGS);
+            preparedStatement.setArray(1, connection.createArrayOf("text", tags.toArray()));
+            return preparedStatement;
+        }, JOB_TAG_ROW_MAPPER);
+    }
+}
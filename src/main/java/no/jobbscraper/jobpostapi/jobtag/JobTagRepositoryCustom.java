@@ -0,0 +1,9 @@
+package no.jobbscraper.jobpostapi.jobtag;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface JobTagRepositoryCustom {
+
+    List<JobTag> upsertAll(Collection<String> tags);
+}
@@ -32,7 +32,18 @@ public class ResponseUtil {
      * @return          The created ResponseErrorDto object.
      */
     public ResponseErrorDto createAPIErrorDTO(Exception exception) {
-        return new ResponseErrorDto(exception.getMessage(), HttpStatus.BAD_REQUEST, ZonedDateTime.now(ZoneId.of("Z")));
+        return createAPIErrorDTO(exception, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Creates a ResponseErrorDto object based on the provided exception and HTTP status.
+     *
+     * @param exception     The exception from which to create the ResponseErrorDto.
+     * @param httpStatus    The HTTP status the error is returned with.
+     * @return              The created ResponseErrorDto object.
+     */
+    public ResponseErrorDto createAPIErrorDTO(Exception exception, HttpStatus httpStatus) {
+        return new ResponseErrorDto(exception.getMessage(), httpStatus, ZonedDateTime.now(ZoneId.of("Z")));
     }
 
     /**
@@ -6,9 +6,14 @@ import org.hibernate.boot.model.FunctionContributor;
 import org.hibernate.type.BasicType;
 import org.hibernate.type.StandardBasicTypes;
 
+import java.time.LocalDate;
+
 
 public class PostgresFunctionContributor implements FunctionContributor {
 
+    private static final String WEBSEARCH_TO_TSQUERY =
+            "websearch_to_tsquery('" + QueryDslFullTextUtils.TEXT_SEARCH_CONFIG + "', ?2)";
+
     @Override
     public void contributeFunctions(FunctionContributions functionContributions) {
         BasicType<Boolean> resolveType = functionContributions
@@ -16,8 +21,110 @@ public class PostgresFunctionContributor implements FunctionContributor {
             .getBasicTypeRegistry()
             .resolve(StandardBasicTypes.BOOLEAN);
 
+        BasicType<LocalDate> dateType = functionContributions
+            .getTypeConfiguration()
+            .getBasicTypeRegistry()
+            .resolve(StandardBasicTypes.LOCAL_DATE);
+
+        // Takes the query in web search syntax, with quoted phrases, or and - for not, and never fails to parse it.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("ftsMatch", "?1 @@ " + WEBSEARCH_TO_TSQUERY, resolveType);
+
+        // Like ftsMatch, with every word of the query labelled with weight A, so that only the title matches it, see
+        // update_tsv_document(). Still served by the full-text index, which rechecks the weights.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("ftsTitleMatch", "?1 @@ cast(regexp_replace(cast(" + WEBSEARCH_TO_TSQUERY
+                    + " as text), '(''([^'']|'''')*'')', '\\1:A', 'g') as tsquery)", resolveType);
+
+        BasicType<String> stringType = functionContributions
+            .getTypeConfiguration()
+            .getBasicTypeRegistry()
+            .resolve(StandardBasicTypes.STRING);
+
+        // The tags and job definitions of a job post as JSON arrays, so a search can return them without joining
+        // both collections into one row per tag and definition.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("jobTagsJson", """
+                (select json_agg(json_build_object('id', t.id, 'tag', t.tag) order by t.id)
+                 from j_jobpost_tags l join job_tags t on t.id = l.jobtag_id
+                 where l.jobpost_id = ?1)""", stringType);
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("jobDefinitionsJson", """
+                (select json_agg(json_build_object('id', d.id, 'key', d.key, 'value', d.value) order by d.id)
+                 from j_jobpost_descriptions l join job_definitions d on d.id = l.jobdescription_id
+                 where l.jobpost_id = ?1)""", stringType);
+
+        // Whether two arrays share an element.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("overlaps", "?1 && ?2", resolveType);
+
+        // Whether an array shares an element with the rows of a subquery, which is rendered in parentheses.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("overlapsAny", "?1 && array?2", resolveType);
+
+        BasicType<Integer> integerType = functionContributions
+            .getTypeConfiguration()
+            .getBasicTypeRegistry()
+            .resolve(StandardBasicTypes.INTEGER);
+
+        // The lowest position in the second array of any element of the first, or null if none is in it. Most job
+        // posts are in a single municipality, and skip the subquery, which is most of the cost of sorting by it.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("firstPositionOf", """
+                case when cardinality(?1) = 1 then array_position(?2, ?1[1])
+                     else (select min(array_position(?2, e)) from unnest(?1) e) end""", integerType);
+
+        BasicType<Float> floatType = functionContributions
+            .getTypeConfiguration()
+            .getBasicTypeRegistry()
+            .resolve(StandardBasicTypes.FLOAT);
+
+        // How well a document matches the query of ftsMatch, by how close together its words are, with the title
+        // weighted above the description, see update_tsv_document(). Divided by the log of the document length, so
+        // that long descriptions do not outrank short ones by repeating the words.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("ftsRank", "ts_rank_cd(?1, " + WEBSEARCH_TO_TSQUERY + ", 1)", floatType);
+
+        // Whether a value is in an array, which binds any number of values as one parameter.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("isAnyOf", "?1 = any(?2)", resolveType);
+
+        // The element of the third array at the position of the value in the second, scores given along with ids.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("scoreOf", "(?3)[array_position(?2, ?1)]", floatType);
+
+        // Whether a value is in the first rows of a subquery, which is rendered in parentheses. JPQL has no limit on
+        // subqueries, and Querydsl leaves it out.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("inFirst", "?1 in (?2 limit ?3)", resolveType);
+
+        // Like inFirst, with the rows of the first subquery before those of the second.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("inFirstOfEither", "?1 in ((?2 limit ?4) union all (?3 limit ?4) limit ?4)", resolveType);
+
+        // Sorts missing dates last; must match the expression of idx_jobposts_closest_deadline.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("dateOrInfinity", "coalesce(?1, cast('infinity' as date))", dateType);
+
+        // Row value comparisons, which PostgreSQL can answer with a range scan over a composite index.
+        functionContributions
+            .getFunctionRegistry()
+            .registerPattern("rowAfter", "(?1, ?2) > (?3, ?4)", resolveType);
         functionContributions
             .getFunctionRegistry()
-            .registerPattern("ftsMatch","?1 @@ plainto_tsquery(?2)", resolveType);
+            .registerPattern("rowBefore", "(?1, ?2) < (?3, ?4)", resolveType);
     }
 }
@@ -2,11 +2,41 @@ package no.jobbscraper.jobpostapi.sql;
 
 import com.querydsl.core.types.dsl.BooleanTemplate;
 import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberTemplate;
 import com.querydsl.core.types.dsl.StringExpression;
 
 public class QueryDslFullTextUtils {
 
+    /**
+     * The text search configuration of the queries, which must be the one update_tsv_document() builds the documents
+     * with, see V18__add_norwegian_text_search_config.sql.
+     */
+    public static final String TEXT_SEARCH_CONFIG = "norwegian_unaccent";
+
+    /**
+     * @param field The tsvector to match.
+     * @param query The query in web search syntax: words, quoted phrases, {@code or} and {@code -} for not.
+     * @return      Whether the field matches the query.
+     */
     public static BooleanTemplate fullTextMatch(StringExpression field, String query) {
         return Expressions.booleanTemplate("ftsMatch({0}, {1})", field, query);
     }
+
+    /**
+     * @param field The tsvector to match, with the title weighted A, see update_tsv_document().
+     * @param query The query in web search syntax, like {@link #fullTextMatch}.
+     * @return      Whether the title in the field matches the query.
+     */
+    public static BooleanTemplate fullTextTitleMatch(StringExpression field, String query) {
+        return Expressions.booleanTemplate("ftsTitleMatch({0}, {1})", field, query);
+    }
+
+    /**
+     * @param field The tsvector to rank.
+     * @param query The query in web search syntax, like {@link #fullTextMatch}.
+     * @return      How well the field matches the query, higher for a better match.
+     */
+    public static NumberTemplate<Float> fullTextRank(StringExpression field, String query) {
+        return Expressions.numberTemplate(Float.class, "ftsRank({0}, {1})", field, query);
+    }
 }
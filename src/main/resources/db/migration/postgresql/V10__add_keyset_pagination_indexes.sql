@@ -0,0 +1,17 @@
+-- Keyset pagination of the job post search, see JobPostCursor. One index per order of JobPostPredicates, each
+-- ending in jobpost_id as the tie breaker, so a page is a range scan that starts at the cursor.
+
+-- orderByClosestDeadline, the expression must match dateOrInfinity of PostgresFunctionContributor.
+CREATE INDEX IF NOT EXISTS idx_jobposts_closest_deadline
+    ON jobposts ((coalesce(deadline, cast('infinity' AS date))), jobpost_id)
+    WHERE expired_at IS NULL;
+
+-- orderBySpecificDeadline "nærmest" forwards and "lengst unna" backwards.
+CREATE INDEX IF NOT EXISTS idx_jobposts_deadline
+    ON jobposts (deadline, jobpost_id)
+    WHERE expired_at IS NULL;
+
+-- orderBySpecificDeadline by creation date, scanned backwards.
+CREATE INDEX IF NOT EXISTS idx_jobposts_created_at
+    ON jobposts (created_at, jobpost_id)
+    WHERE expired_at IS NULL;
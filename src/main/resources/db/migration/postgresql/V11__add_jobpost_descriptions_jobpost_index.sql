@@ -0,0 +1,4 @@
+-- The search aggregates the job definitions of each job post on the page by jobpost_id, which the primary key of
+-- (jobdescription_id, jobpost_id) cannot serve. Covers both columns so the lookup is an index only scan.
+CREATE INDEX IF NOT EXISTS idx_j_jobpost_descriptions_jobpost_id
+    ON j_jobpost_descriptions (jobpost_id, jobdescription_id);
@@ -0,0 +1,7 @@
+-- JobPostPredicates.hasJobDefinition and hasPosition match values with lower(value) LIKE '%...%', which a btree
+-- can not serve. A trigram index can, for patterns of three characters or more. lower(key) = ... is already served
+-- by idx_job_definitions_lower_key_value.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_job_definitions_lower_value_trgm
+    ON job_definitions USING GIN (lower(value) gin_trgm_ops);
@@ -0,0 +1,34 @@
+-- The sorted ids of the job definitions of each job post, so that the position, sector and municipality filters of
+-- JobPostPredicates are one array overlap on jobposts instead of a semi-join through j_jobpost_descriptions. Kept in
+-- step with the links by JobPostIngester and JobPostBulkLoader.
+--
+-- Runs outside a transaction, see the .conf file: a constant default is only recorded in the catalog, the backfill
+-- commits every batch of ids so no row stays locked for long, and the index is built without blocking writes.
+ALTER TABLE jobposts ADD COLUMN IF NOT EXISTS job_definition_ids bigint[] NOT NULL DEFAULT '{}';
+
+DO $$
+DECLARE
+    batch_size CONSTANT bigint := 10000;
+    from_id bigint;
+    max_id bigint;
+BEGIN
+    SELECT min(jobpost_id), max(jobpost_id) INTO from_id, max_id FROM jobposts;
+
+    WHILE from_id <= max_id LOOP
+        UPDATE jobposts j
+        SET job_definition_ids = l.ids
+        FROM (SELECT jobpost_id, array_agg(jobdescription_id ORDER BY jobdescription_id) AS ids
+              FROM j_jobpost_descriptions
+              WHERE jobpost_id >= from_id AND jobpost_id < from_id + batch_size
+              GROUP BY jobpost_id) l
+        WHERE j.jobpost_id = l.jobpost_id AND j.job_definition_ids IS DISTINCT FROM l.ids;
+
+        COMMIT;
+        from_id := from_id + batch_size;
+    END LOOP;
+END
+$$;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_jobposts_job_definition_ids
+    ON jobposts USING GIN (job_definition_ids)
+    WHERE expired_at IS NULL;
@@ -0,0 +1,29 @@
+-- Geography of the job posts, see Gazetteer. The regions and municipalities are stored from the bundled gazetteer on
+-- startup, and JobPostIngester resolves the "Sted" job definitions of each job post to municipality ids as it is
+-- ingested. The job posts stored before are left NULL, and resolved in the background by
+-- JobPostMunicipalityResolver.
+--
+-- Runs outside a transaction, see the .conf file, so that the indexes are built without blocking writes.
+CREATE TABLE IF NOT EXISTS regions (
+    id integer PRIMARY KEY,
+    key varchar(255) NOT NULL UNIQUE,
+    name varchar(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS municipalities (
+    id integer PRIMARY KEY,
+    name varchar(255) NOT NULL,
+    region_id integer NOT NULL REFERENCES regions (id)
+);
+
+ALTER TABLE jobposts ADD COLUMN IF NOT EXISTS municipality_ids integer[];
+
+-- JobPostPredicates.isInMunicipality.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_jobposts_municipality_ids
+    ON jobposts USING GIN (municipality_ids)
+    WHERE expired_at IS NULL;
+
+-- The job posts JobPostMunicipalityResolver has yet to resolve.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_jobposts_unresolved_municipalities
+    ON jobposts (jobpost_id)
+    WHERE municipality_ids IS NULL;
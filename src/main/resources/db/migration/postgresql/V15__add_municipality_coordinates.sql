@@ -0,0 +1,5 @@
+-- The coordinates of the main town of each municipality, stored from the bundled gazetteer on startup. A radius
+-- search is worked out over the gazetteer in memory, see Gazetteer.municipalityIdsNear, and only reaches the job
+-- posts through idx_jobposts_municipality_ids.
+ALTER TABLE municipalities ADD COLUMN IF NOT EXISTS latitude double precision;
+ALTER TABLE municipalities ADD COLUMN IF NOT EXISTS longitude double precision;
@@ -0,0 +1,10 @@
+-- Full-text search only over the job posts that have not expired, like the other search indexes. Together with
+-- JobPostDeadlineSweeper, which expires the job posts whose deadline passed, the search indexes only hold the live
+-- job posts. The search always filters on expired_at IS NULL, so the full index is no longer used.
+--
+-- Runs outside a transaction, see the .conf file, so that the indexes are built without blocking writes.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_jobposts_tsv_document
+    ON jobposts USING GIN (tsv_document)
+    WHERE expired_at IS NULL;
+
+DROP INDEX CONCURRENTLY IF EXISTS tsv_document_idx;
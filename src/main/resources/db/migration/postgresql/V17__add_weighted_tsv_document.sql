@@ -0,0 +1,34 @@
+-- Weights the title above the description in tsv_document, so that ts_rank_cd ranks a job post whose title matches
+-- the query above one that only mentions it in its description, see ftsRank in PostgresFunctionContributor. The
+-- match itself does not depend on the weights. A missing title or description no longer empties the document.
+--
+-- Runs outside a transaction, see the .conf file, so the backfill commits every batch of ids and no row stays locked
+-- for long. The backfill only sets tsv_document, which the update trigger does not fire on.
+CREATE OR REPLACE FUNCTION update_tsv_document()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.tsv_document := setweight(to_tsvector('english', coalesce(NEW.title, '')), 'A')
+                     || setweight(to_tsvector('english', coalesce(NEW.description, '')), 'B');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    batch_size CONSTANT bigint := 10000;
+    from_id bigint;
+    max_id bigint;
+BEGIN
+    SELECT min(jobpost_id), max(jobpost_id) INTO from_id, max_id FROM jobposts;
+
+    WHILE from_id <= max_id LOOP
+        UPDATE jobposts
+        SET tsv_document = setweight(to_tsvector('english', coalesce(title, '')), 'A')
+                        || setweight(to_tsvector('english', coalesce(description, '')), 'B')
+        WHERE jobpost_id >= from_id AND jobpost_id < from_id + batch_size;
+
+        COMMIT;
+        from_id := from_id + batch_size;
+    END LOOP;
+END
+$$;
@@ -0,0 +1,11 @@
+-- The text search configuration of the full-text search, used alike by update_tsv_document() and by the queries of
+-- ftsMatch and ftsRank in PostgresFunctionContributor. Stems Norwegian instead of English, and folds æ, ø and å
+-- first, so that "tromso" finds Tromsø and "laerer" finds lærer whichever way the job post or the query spells it.
+--
+-- Kept apart from the trigger and its backfill in V19, which ScriptUtils can not run, so that tests can set it up.
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+CREATE TEXT SEARCH CONFIGURATION norwegian_unaccent (COPY = norwegian);
+
+ALTER TEXT SEARCH CONFIGURATION norwegian_unaccent
+    ALTER MAPPING FOR hword, hword_part, word WITH unaccent, norwegian_stem;
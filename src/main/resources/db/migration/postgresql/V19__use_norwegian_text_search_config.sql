@@ -0,0 +1,34 @@
+-- Builds tsv_document with the norwegian_unaccent configuration of V18, the one the queries use. Until now the
+-- documents were built with the english configuration, and those written before V3 with the default one, so the
+-- same word could be stemmed differently in the documents than in the queries and not be found.
+--
+-- Runs outside a transaction, see the .conf file, so the backfill commits every batch of ids and no row stays locked
+-- for long. The backfill only sets tsv_document, which the update trigger does not fire on.
+CREATE OR REPLACE FUNCTION update_tsv_document()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.tsv_document := setweight(to_tsvector('norwegian_unaccent', coalesce(NEW.title, '')), 'A')
+                     || setweight(to_tsvector('norwegian_unaccent', coalesce(NEW.description, '')), 'B');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    batch_size CONSTANT bigint := 10000;
+    from_id bigint;
+    max_id bigint;
+BEGIN
+    SELECT min(jobpost_id), max(jobpost_id) INTO from_id, max_id FROM jobposts;
+
+    WHILE from_id <= max_id LOOP
+        UPDATE jobposts
+        SET tsv_document = setweight(to_tsvector('norwegian_unaccent', coalesce(title, '')), 'A')
+                        || setweight(to_tsvector('norwegian_unaccent', coalesce(description, '')), 'B')
+        WHERE jobpost_id >= from_id AND jobpost_id < from_id + batch_size;
+
+        COMMIT;
+        from_id := from_id + batch_size;
+    END LOOP;
+END
+$$;
@@ -0,0 +1,12 @@
+-- Keep the oldest row for every url before the constraint is added
+CREATE TEMPORARY TABLE duplicate_jobposts ON COMMIT DROP AS
+SELECT jobpost_id
+FROM (SELECT jobpost_id, row_number() OVER (PARTITION BY url ORDER BY jobpost_id) AS rn
+      FROM jobposts) ranked
+WHERE ranked.rn > 1;
+
+DELETE FROM j_jobpost_tags WHERE jobpost_id IN (SELECT jobpost_id FROM duplicate_jobposts);
+DELETE FROM j_jobpost_descriptions WHERE jobpost_id IN (SELECT jobpost_id FROM duplicate_jobposts);
+DELETE FROM jobposts WHERE jobpost_id IN (SELECT jobpost_id FROM duplicate_jobposts);
+
+ALTER TABLE jobposts ADD CONSTRAINT uk_jobposts_url UNIQUE (url);
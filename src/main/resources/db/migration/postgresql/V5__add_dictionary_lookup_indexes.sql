@@ -0,0 +1,6 @@
+-- Tags and job definitions are resolved case-insensitively during ingest
+CREATE INDEX IF NOT EXISTS idx_job_tags_lower_tag
+    ON job_tags (lower(tag));
+
+CREATE INDEX IF NOT EXISTS idx_job_definitions_lower_key_value
+    ON job_definitions (lower(key), lower(value));
@@ -0,0 +1,28 @@
+-- Hibernate allocates job post ids in blocks of 50 from this sequence (pooled optimizer), which lets it
+-- batch the inserts. The increment must match the allocationSize on JobPost.
+CREATE SEQUENCE IF NOT EXISTS jobposts_seq INCREMENT BY 50;
+
+-- The pooled optimizer hands out the 50 ids up to and including the fetched value
+SELECT setval('jobposts_seq', (SELECT coalesce(max(jobpost_id), 0) + 50 FROM jobposts), false);
+
+-- Schemas created by Hibernate while JobPost used IDENTITY have an identity column, which rejects a column
+-- default. Dropping the identity also drops the sequence it owns.
+ALTER TABLE jobposts ALTER COLUMN jobpost_id DROP IDENTITY IF EXISTS;
+
+-- Inserts that omit the id draw from the same sequence so they can never collide with Hibernate's blocks
+ALTER TABLE jobposts ALTER COLUMN jobpost_id SET DEFAULT nextval('jobposts_seq');
+ALTER SEQUENCE jobposts_seq OWNED BY jobposts.jobpost_id;
+
+-- The bigserial sequence is unused now. Only drop it when it is a standalone sequence, never one that still
+-- belongs to an identity column.
+DO $$
+BEGIN
+    IF to_regclass('jobposts_jobpost_id_seq') IS NOT NULL
+        AND NOT EXISTS (SELECT 1
+                        FROM pg_depend
+                        WHERE objid = to_regclass('jobposts_jobpost_id_seq')
+                          AND deptype = 'i') THEN
+        DROP SEQUENCE jobposts_jobpost_id_seq;
+    END IF;
+END
+$$;
@@ -0,0 +1,16 @@
+-- SHA-256 of the scraped content, see JobPostContentHash. Existing posts get theirs on the next ingest.
+ALTER TABLE jobposts ADD COLUMN IF NOT EXISTS content_hash varchar(64);
+
+-- Only recompute tsv_document when the text it is built from changes, so that updating e.g. the deadline
+-- does not rewrite the document and its GIN entries.
+DROP TRIGGER IF EXISTS trg_update_tsv_document ON jobposts;
+
+CREATE TRIGGER trg_insert_tsv_document
+BEFORE INSERT ON jobposts
+FOR EACH ROW EXECUTE FUNCTION update_tsv_document();
+
+CREATE TRIGGER trg_update_tsv_document
+BEFORE UPDATE OF title, description ON jobposts
+FOR EACH ROW
+WHEN (OLD.title IS DISTINCT FROM NEW.title OR OLD.description IS DISTINCT FROM NEW.description)
+EXECUTE FUNCTION update_tsv_document();
@@ -0,0 +1,10 @@
+-- Lowercase hex SHA-256 of the url, so scrapers can ask which urls are new without sending them in full.
+-- Set by JobPost and JobPostBulkLoader on insert.
+ALTER TABLE jobposts ADD COLUMN IF NOT EXISTS url_hash varchar(64);
+
+UPDATE jobposts
+SET url_hash = encode(sha256(convert_to(url, 'UTF8')), 'hex')
+WHERE url_hash IS NULL AND url IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_jobposts_url_hash
+    ON jobposts (url_hash);
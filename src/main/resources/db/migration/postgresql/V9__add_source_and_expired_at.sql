@@ -0,0 +1,13 @@
+-- The lowercase host of the url, which job boards are synced by, and when a sync found the post gone from its board.
+-- Source is set by JobPost and JobPostBulkLoader on insert, with the same pattern as JobPostSource.
+ALTER TABLE jobposts ADD COLUMN IF NOT EXISTS source varchar(255);
+ALTER TABLE jobposts ADD COLUMN IF NOT EXISTS expired_at timestamp with time zone;
+
+UPDATE jobposts
+SET source = lower(substring(url from '^[a-zA-Z][a-zA-Z0-9+.-]*://(?:[^/?#@]*@)?([^/?#:]+)'))
+WHERE source IS NULL AND url IS NOT NULL;
+
+-- A sync only looks at the live posts of its source.
+CREATE INDEX IF NOT EXISTS idx_jobposts_source_live
+    ON jobposts (source)
+    WHERE expired_at IS NULL;
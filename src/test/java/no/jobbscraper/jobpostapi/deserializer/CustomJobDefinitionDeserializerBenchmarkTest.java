@@ -0,0 +1,168 @@
+package no.jobbscraper.jobpostapi.deserializer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+class CustomJobDefinitionDeserializerBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomJobDefinitionDeserializerBenchmarkTest.class);
+
+    private static final int PAYLOAD_BYTES = 5 * 1024 * 1024;
+
+    private static final int WARMUP_ITERATIONS = 5;
+
+    private static final int ITERATIONS = 10;
+
+    private static final List<String> STEDER = List.of("Oslo", "Bergen", "Trondheim", "Stavanger", "Tromsø",
+            "Kristiansand", "Drammen", "Fredrikstad", "Bodø", "Ålesund");
+
+    private static final List<String> SEKTORER = List.of("Privat", "Offentlig", "Ideell organisasjon");
+
+    private static final List<String> ANSETTELSESFORMER = List.of("Fast", "Vikariat", "Engasjement", "Sesong");
+
+    private static final List<String> BRANSJER = List.of("IT", "Helse og omsorg", "Bygg og anlegg", "Handel",
+            "Undervisning", "Transport og logistikk", "Industri", "Konsulent");
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private ObjectMapper objectMapper;
+
+    private byte[] payload;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        payload = generatePayload();
+    }
+
+    @Test
+    @DisplayName("It should allocate less than the tree based deserializer on a 5 MB payload")
+    void deserializeJobDefinitionsAllocation() throws IOException {
+        // Given
+        JsonDeserializer<Set<JobDefinition>> tree = new TreeJobDefinitionDeserializer();
+        JsonDeserializer<Set<JobDefinition>> streaming = new CustomJobDefinitionDeserializer();
+
+        // When
+        Measurement treeMeasurement = measure(tree);
+        Measurement streamingMeasurement = measure(streaming);
+
+        // Then
+        assertThat(streamingMeasurement.jobDefinitions()).isEqualTo(treeMeasurement.jobDefinitions());
+        assertThat(streamingMeasurement.allocatedBytes()).isLessThan(treeMeasurement.allocatedBytes());
+        LOGGER.info("Deserialized {} job definitions from {} KB: tree {} KB / {} ms, streaming {} KB / {} ms",
+                treeMeasurement.jobDefinitions(), payload.length / 1024,
+                treeMeasurement.allocatedBytes() / 1024, treeMeasurement.elapsedMs(),
+                streamingMeasurement.allocatedBytes() / 1024, streamingMeasurement.elapsedMs());
+    }
+
+    /**
+     * Runs the deserializer over every {@code job_definitions} object of the payload and reports the average bytes
+     * allocated and time taken per pass, after warming up. Only the definitions are handed to the deserializer, so
+     * the rest of the payload costs both implementations the same.
+     */
+    private Measurement measure(JsonDeserializer<Set<JobDefinition>> deserializer) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            deserializeAll(deserializer);
+        }
+
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long jobDefinitions = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            jobDefinitions = deserializeAll(deserializer);
+        }
+        return new Measurement(jobDefinitions,
+                (threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBytes) / ITERATIONS,
+                (System.nanoTime() - start) / 1_000_000 / ITERATIONS);
+    }
+
+    private long deserializeAll(JsonDeserializer<Set<JobDefinition>> deserializer) throws IOException {
+        long jobDefinitions = 0;
+        try (JsonParser jsonParser = objectMapper.createParser(payload)) {
+            DeserializationContext deserializationContext = objectMapper.getDeserializationContext();
+            for (JsonToken token = jsonParser.nextToken(); token != null; token = jsonParser.nextToken()) {
+                if (token == JsonToken.FIELD_NAME && "job_definitions".equals(jsonParser.currentName())) {
+                    jsonParser.nextToken();
+                    jobDefinitions += deserializer.deserialize(jsonParser, deserializationContext).size();
+                }
+            }
+        }
+        return jobDefinitions;
+    }
+
+    private static byte[] generatePayload() {
+        StringBuilder json = new StringBuilder("{\"job_posts\":[");
+        for (int i = 0; json.length() < PAYLOAD_BYTES; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("""
+                    {"url":"https://example.com/jobs/%d","company_name":"Company %d","title":"Job title %d",\
+                    "description":"Description of job %d with a few sentences about the role and the company.",\
+                    "deadline":"2030-01-31","job_tags":[{"tag":"Tag %d"},{"tag":"Tag %d"}],\
+                    "job_definitions":{"Sted":["%s","%s"],"Sektor":["%s"],"Ansettelsesform":["%s"],\
+                    "Bransje":["%s"],"Stillingstittel":["Stilling %d"],"Antall stillinger":["%d"]}}\
+                    """.formatted(i, i % 500, i, i, i % 1000, i % 77,
+                    STEDER.get(i % STEDER.size()), STEDER.get((i + 3) % STEDER.size()),
+                    SEKTORER.get(i % SEKTORER.size()), ANSETTELSESFORMER.get(i % ANSETTELSESFORMER.size()),
+                    BRANSJER.get(i % BRANSJER.size()), i % 2000, 1 + i % 3));
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record Measurement(long jobDefinitions, long allocatedBytes, long elapsedMs) {
+    }
+
+    /**
+     * The previous implementation, which reads the definitions into a {@link JsonNode} tree first.
+     */
+    private static final class TreeJobDefinitionDeserializer extends StdDeserializer<Set<JobDefinition>> {
+
+        private TreeJobDefinitionDeserializer() {
+            super(Set.class);
+        }
+
+        @Override
+        public Set<JobDefinition> deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
+            ObjectMapper mapper = (ObjectMapper) jsonParser.getCodec();
+            JsonNode root = mapper.readTree(jsonParser);
+
+            Set<JobDefinition> jobDefinitions = new HashSet<>();
+
+            root.fields().forEachRemaining(entry -> {
+                String key = entry.getKey();
+                JsonNode valueNode = entry.getValue();
+
+                if (valueNode.isArray()) {
+                    for (JsonNode node : valueNode) {
+                        jobDefinitions.add(new JobDefinition(key, node.textValue()));
+                    }
+                }
+            });
+            return jobDefinitions;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package no.jobbscraper.jobpostapi.deserializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
+import no.jobbscraper.jobpostapi.jobpost.JobPostCreateDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+class CustomJobDefinitionDeserializerTest {
+
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+    }
+
+    @Test
+    @DisplayName("It should create a job definition per value")
+    void itShouldDeserializeJobDefinitions() throws IOException {
+        // Given
+        String json = """
+                {"job_definitions": {"Sted": ["Oslo", "Bergen"], "Sektor": ["Privat"]}}
+                """;
+
+        // When
+        Set<JobDefinition> jobDefinitions = readJobDefinitions(json);
+
+        // Then
+        assertThat(jobDefinitions)
+                .extracting(JobDefinition::getKey, JobDefinition::getValue)
+                .containsExactlyInAnyOrder(
+                        tuple("Sted", "Oslo"),
+                        tuple("Sted", "Bergen"),
+                        tuple("Sektor", "Privat"));
+    }
+
+    @Test
+    @DisplayName("It should skip null, blank, non-string and non-array values")
+    void itShouldSkipNullAndBlankValues() throws IOException {
+        // Given
+        String json = """
+                {"job_definitions": {
+                    "Sted": [null, "", "  ", 42, {"nested": ["Oslo"]}, ["Bergen"], "Trondheim"],
+                    "Sektor": "Privat",
+                    "Bransje": {"Sted": ["Oslo"]},
+                    " ": ["Blank key"],
+                    "Stilling": null
+                }, "url": "https://example.com/job"}
+                """;
+
+        // When
+        JobPostCreateDto jobPostCreateDto = objectMapper.readValue(json, JobPostCreateDto.class);
+
+        // Then
+        assertThat(jobPostCreateDto.url()).isEqualTo("https://example.com/job");
+        assertThat(jobPostCreateDto.jobDefinitions())
+                .extracting(JobDefinition::getKey, JobDefinition::getValue)
+                .containsExactly(tuple("Sted", "Trondheim"));
+    }
+
+    @Test
+    @DisplayName("It should share key and value instances between job posts")
+    void itShouldInternKeysAndValues() throws IOException {
+        // Given
+        String json = """
+                {"job_definitions": {"Sted": ["Oslo"]}}
+                """;
+
+        // When
+        JobDefinition first = readJobDefinitions(json).iterator().next();
+        JobDefinition second = readJobDefinitions(json).iterator().next();
+
+        // Then
+        assertThat(second.getKey()).isSameAs(first.getKey());
+        assertThat(second.getValue()).isSameAs(first.getValue());
+    }
+
+    @Test
+    @DisplayName("It should return no job definitions when they are not an object")
+    void itShouldIgnoreJobDefinitionsThatAreNotAnObject() throws IOException {
+        // Given
+        String json = """
+                {"job_definitions": [{"Sted": ["Oslo"]}], "url": "https://example.com/job"}
+                """;
+
+        // When
+        JobPostCreateDto jobPostCreateDto = objectMapper.readValue(json, JobPostCreateDto.class);
+
+        // Then
+        assertThat(jobPostCreateDto.jobDefinitions()).isEmpty();
+        assertThat(jobPostCreateDto.url()).isEqualTo("https://example.com/job");
+    }
+
+    private Set<JobDefinition> readJobDefinitions(String json) throws IOException {
+        return objectMapper.readValue(json, JobPostCreateDto.class).jobDefinitions();
+    }
+}
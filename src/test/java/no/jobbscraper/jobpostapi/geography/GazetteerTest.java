@@ -0,0 +1,101 @@
+package no.jobbscraper.jobpostapi.geography;
+
+import no.jobbscraper.jobpostapi.exception.InvalidRadiusException;
+import no.jobbscraper.jobpostapi.exception.UnknownPlaceException;
+import no.jobbscraper.jobpostapi.exception.UnknownRegionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GazetteerTest {
+
+    private Gazetteer underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new Gazetteer(null, new ClassPathResource("geography/gazetteer.csv"));
+        ReflectionTestUtils.setField(underTest, "defaultRadiusKm", 30);
+        ReflectionTestUtils.setField(underTest, "maxRadiusKm", 500);
+    }
+
+    @Test
+    @DisplayName("It should resolve places to the municipalities they name, by whole words and ignoring case")
+    void itShouldResolvePlaces() {
+        // Given
+        Integer oslo = underTest.municipalityIdsOf("oslo")[0];
+        Integer[] vestfoldOgTelemark = underTest.municipalityIdsOf("vestfoldogtelemark");
+        Integer[] nordland = underTest.municipalityIdsOf("nordland");
+
+        // When
+        // Then
+        assertThat(underTest.resolve(List.of("0150 OSLO"))).containsExactly(oslo);
+        assertThat(underTest.resolve(List.of("Skien"))).hasSize(1).isSubsetOf(vestfoldOgTelemark);
+        assertThat(underTest.resolve(List.of("Mo i Rana", "Bodø"))).hasSize(2).isSubsetOf(nordland);
+        assertThat(underTest.resolve(List.of("Rana"))).isEqualTo(underTest.resolve(List.of("Mo i Rana")));
+        assertThat(underTest.resolve(List.of("Osloveien", "Stockholm"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("It should find the municipalities of regions, ignoring case and spaces")
+    void itShouldFindMunicipalitiesOfRegions() {
+        // When
+        Integer[] innlandet = underTest.municipalityIdsOf("innlandet");
+        Integer[] innlandetAndOslo = underTest.municipalityIdsOf("Innlandet, Oslo");
+
+        // Then
+        assertThat(innlandet).hasSize(11).isSorted();
+        assertThat(innlandetAndOslo).hasSize(12).contains(innlandet);
+        assertThat(underTest.municipalityIdsOf("Møre og Romsdal")).isNotEmpty();
+        assertThat(underTest.municipalityIdsOf(" ")).isNull();
+    }
+
+    @Test
+    @DisplayName("It should not find the municipalities of a region it does not know")
+    void itShouldNotFindMunicipalitiesOfUnknownRegion() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.municipalityIdsOf("oslo,atlantis"))
+                .isInstanceOf(UnknownRegionException.class)
+                .hasMessageStartingWith("Region atlantis is not one of ");
+    }
+
+    @Test
+    @DisplayName("It should find the municipalities within a radius of a place, nearest first")
+    void itShouldFindMunicipalitiesNearPlace() {
+        // Given
+        Integer drammen = underTest.resolve(List.of("Drammen"))[0];
+        Integer asker = underTest.resolve(List.of("Asker"))[0];
+        Integer oslo = underTest.resolve(List.of("Oslo"))[0];
+        Integer bergen = underTest.resolve(List.of("Bergen"))[0];
+
+        // When
+        Integer[] nearDrammen = underTest.municipalityIdsNear("Mjøndalen", null);
+        Integer[] withinFiftyKm = underTest.municipalityIdsNear("Drammen", 50);
+
+        // Then
+        assertThat(nearDrammen).startsWith(drammen).contains(asker).doesNotContain(oslo, bergen);
+        assertThat(withinFiftyKm).startsWith(nearDrammen).contains(oslo).doesNotContain(bergen);
+        assertThat(underTest.municipalityIdsNear("Drammen", 0)).containsExactly(drammen);
+        assertThat(underTest.municipalityIdsNear(" ", 30)).isNull();
+    }
+
+    @Test
+    @DisplayName("It should not find the municipalities near an unknown place or within a radius out of range")
+    void itShouldNotFindMunicipalitiesNearUnknownPlaceOrOutOfRange() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.municipalityIdsNear("Atlantis", 30))
+                .isInstanceOf(UnknownPlaceException.class);
+        assertThatThrownBy(() -> underTest.municipalityIdsNear("Drammen", 501))
+                .isInstanceOf(InvalidRadiusException.class);
+        assertThatThrownBy(() -> underTest.municipalityIdsNear("Drammen", -1))
+                .isInstanceOf(InvalidRadiusException.class);
+    }
+}
@@ -0,0 +1,351 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.datafaker.Faker;
+import no.jobbscraper.jobpostapi.PostgreSQLContainerInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DirtiesContext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "search.bitmap-index.enabled=true")
+@AutoConfigureTestDatabase(replace= AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(initializers = {PostgreSQLContainerInitializer.class})
+class JobPostBitmapIndexTest {
+
+    private static final String JOB_POST_PAH = "/api/v1/jobposts";
+
+    private static final List<String> SECTORS = List.of("Privat", "Offentlig", "Ideell");
+
+    private static final List<String> POSITIONS = List.of("Fast", "Vikariat", "Engasjement", "Sommerjobb");
+
+    private static final List<String> PLACES = List.of("Oslo", "Bergen", "Tromsø", "Stord");
+
+    @Value("${secret_key}")
+    private String secretKey;
+
+    @Autowired
+    private JobPostBitmapIndex jobPostBitmapIndex;
+
+    @Autowired
+    private JobPostDeadlineSweeper jobPostDeadlineSweeper;
+
+    @Autowired
+    private JobPostRepository jobPostRepository;
+
+    @Autowired
+    private JobPostRepositoryCustom jobPostRepositoryCustom;
+
+    @Autowired
+    private JobPostFacetCache jobPostFacetCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Faker faker;
+
+    @BeforeEach
+    void setUp() {
+        faker = new Faker();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(jobPostBitmapIndex, "enabled", true);
+    }
+
+    @Test
+    @DisplayName("It should find the same pages, totals and cursors as PostgreSQL for every deadline and filter")
+    void itShouldGetJobPostsLikePostgreSQL() {
+        // Given
+        bulkLoadVariedJobPosts("pages");
+
+        // When
+        jobPostBitmapIndex.rebuild();
+
+        // Then
+        assertSameJobPostsAsPostgreSQL();
+    }
+
+    @Test
+    @DisplayName("It should keep the job posts in order when it merges changed job posts instead of rebuilding")
+    void itShouldMergeChangedJobPostsLikeRebuild() {
+        // Given
+        jobPostBitmapIndex.rebuild();
+
+        // When
+        bulkLoadVariedJobPosts("merged");
+        List<String> urls = jdbcTemplate.queryForList(
+                "SELECT url FROM jobposts WHERE url LIKE '%/bitmap/merged/%' ORDER BY url", String.class);
+        bulkLoad(IntStream.range(0, urls.size())
+                .filter(i -> i % 4 == 0)
+                .mapToObj(i -> bulkLine(urls.get(i), i % 8 == 0 ? null : LocalDate.now().plusDays(i % 7),
+                        Map.of("Sektor", List.of(SECTORS.get(i % SECTORS.size())))))
+                .collect(Collectors.joining("\n")));
+        jdbcTemplate.update("UPDATE jobposts SET deadline = current_date - 1 WHERE url = ANY (?)",
+                (Object) new String[] {urls.get(1), urls.get(2), urls.get(3)});
+        jobPostDeadlineSweeper.sweep();
+
+        // Then
+        assertSameJobPostsAsPostgreSQL();
+    }
+
+    @Test
+    @DisplayName("It should count the same facets as PostgreSQL for every deadline and filter")
+    void itShouldGetJobPostFacetsLikePostgreSQL() {
+        // Given
+        bulkLoadVariedJobPosts("facets");
+        jobPostBitmapIndex.rebuild();
+        JobPostQueryDSLRepositoryImpl repository = AopTestUtils.getUltimateTargetObject(jobPostRepositoryCustom);
+
+        for (JobPostGetRequest jobPostGetRequest : searches()) {
+            // When
+            JobPostFacets jobPostFacets = jobPostBitmapIndex.facets(jobPostGetRequest, 1000);
+
+            ReflectionTestUtils.setField(jobPostBitmapIndex, "enabled", false);
+            ReflectionTestUtils.setField(repository, "maxFacetValues", 1000);
+            jobPostFacetCache.invalidate();
+            JobPostFacets expected = jobPostRepositoryCustom.findFacets(jobPostGetRequest);
+            ReflectionTestUtils.setField(jobPostBitmapIndex, "enabled", true);
+
+            // Then
+            assertThat(jobPostFacets).isEqualTo(expected);
+        }
+        assertThat(jobPostBitmapIndex.facets(request(null, null, null, null), 1000).sector())
+                .extracting(JobPostFacetCount::value)
+                .contains(SECTORS.toArray(String[]::new));
+    }
+
+    @Test
+    @DisplayName("It should apply the job posts changed by the ingest paths without a rebuild, and drop the expired ones")
+    void itShouldApplyChangedJobPosts() {
+        // Given
+        jobPostBitmapIndex.rebuild();
+        String url = faker.internet().url() + "/bitmap/changed";
+        String sector = "Sektor " + faker.internet().uuid();
+        JobPostGetRequest bySector = request(sector, null, null, null);
+        JobPostGetRequest bySectorInOslo = request(sector, null, "oslo", null);
+
+        // When
+        bulkLoad(bulkLine(url, LocalDate.now().plusDays(10),
+                Map.of("Sektor", List.of(sector), "Sted", List.of("Bergen"))));
+        JobPostBitmapIndex.Hits afterLoad = jobPostBitmapIndex.find(bySector, 0, 10);
+        JobPostBitmapIndex.Hits inOsloAfterLoad = jobPostBitmapIndex.find(bySectorInOslo, 0, 10);
+
+        bulkLoad(bulkLine(url, LocalDate.now().plusDays(10),
+                Map.of("Sektor", List.of(sector), "Sted", List.of("Oslo"))));
+        JobPostBitmapIndex.Hits inOsloAfterUpdate = jobPostBitmapIndex.find(bySectorInOslo, 0, 10);
+
+        Long jobPostId = jobPostRepository.findExistingJobPosts(List.of(url)).get(0).id();
+        jdbcTemplate.update("UPDATE jobposts SET deadline = current_date - 1 WHERE jobpost_id = ?", jobPostId);
+        jobPostDeadlineSweeper.sweep();
+        JobPostBitmapIndex.Hits afterSweep = jobPostBitmapIndex.find(bySector, 0, 10);
+
+        // Then
+        assertThat(afterLoad.jobPostIds()).containsExactly(jobPostId);
+        assertThat(afterLoad.total()).isOne();
+        assertThat(inOsloAfterLoad.jobPostIds()).isEmpty();
+        assertThat(inOsloAfterUpdate.jobPostIds()).containsExactly(jobPostId);
+        assertThat(afterSweep.jobPostIds()).isEmpty();
+        assertThat(afterSweep.total()).isZero();
+    }
+
+    @Test
+    @DisplayName("It should not keep facets counted while the index applies a change")
+    void itShouldNotCacheFacetsCountedBeforeChangeIsApplied() throws InterruptedException {
+        // Given
+        jobPostBitmapIndex.rebuild();
+        String url = faker.internet().url() + "/bitmap/facets";
+        String sector = "Sektor " + faker.internet().uuid();
+        String position = "Stilling " + faker.internet().uuid();
+        bulkLoad(bulkLine(url, LocalDate.now().plusDays(10),
+                Map.of("Sektor", List.of(sector), "Stilling", List.of(position))));
+        Long jobPostId = jobPostRepository.findExistingJobPosts(List.of(url)).get(0).id();
+        JobPostGetRequest bySector = request(sector, null, null, null);
+        ReentrantReadWriteLock lock = (ReentrantReadWriteLock) ReflectionTestUtils.getField(jobPostBitmapIndex, "lock");
+
+        // When
+        jdbcTemplate.update("UPDATE jobposts SET expired_at = now() WHERE jobpost_id = ?", jobPostId);
+        JobPostFacets whileApplying;
+        Thread applying;
+        lock.writeLock().lock();
+        try {
+            applying = Thread.ofVirtual().start(() ->
+                    applicationEventPublisher.publishEvent(new JobPostsChangedEvent(List.of(jobPostId))));
+            while (!lock.hasQueuedThread(applying)) {
+                Thread.onSpinWait();
+            }
+            whileApplying = jobPostRepositoryCustom.findFacets(bySector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        applying.join();
+        JobPostFacets afterApplying = jobPostRepositoryCustom.findFacets(bySector);
+
+        // Then
+        assertThat(whileApplying.position()).extracting(JobPostFacetCount::value).containsExactly(position);
+        assertThat(afterApplying.position()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("It should leave searches with a query or a place to search near to PostgreSQL")
+    void itShouldNotServeTextOrRadiusSearches() {
+        // Given
+        jobPostBitmapIndex.rebuild();
+
+        // When
+        // Then
+        assertThat(jobPostBitmapIndex.find(new JobPostGetRequest("sykepleier", null, null, null, null, null, null,
+                null), 0, 10)).isNull();
+        assertThat(jobPostBitmapIndex.find(new JobPostGetRequest(null, null, null, null, null, "oslo", 50,
+                null), 0, 10)).isNull();
+    }
+
+    private void assertSameJobPostsAsPostgreSQL() {
+        for (JobPostGetRequest jobPostGetRequest : searches()) {
+            Page<JobPostDto> firstPage = jobPostRepositoryCustom.findAll(jobPostGetRequest, PageRequest.of(0, 7));
+            List<Long> byPage = jobPostIdsByPage(jobPostGetRequest);
+            List<Long> byCursor = jobPostIdsByCursor(jobPostGetRequest);
+            JobPostSearchPage withoutTotal = jobPostRepositoryCustom.findAll(jobPostGetRequest,
+                    PageRequest.of(1, 7), JobPostTotalMode.NONE);
+
+            ReflectionTestUtils.setField(jobPostBitmapIndex, "enabled", false);
+            Page<JobPostDto> expectedFirstPage = jobPostRepositoryCustom.findAll(jobPostGetRequest,
+                    PageRequest.of(0, 7));
+            List<Long> expected = jobPostIdsByPage(jobPostGetRequest);
+            JobPostSearchPage expectedWithoutTotal = jobPostRepositoryCustom.findAll(jobPostGetRequest,
+                    PageRequest.of(1, 7), JobPostTotalMode.NONE);
+            ReflectionTestUtils.setField(jobPostBitmapIndex, "enabled", true);
+
+            assertThat(jobPostBitmapIndex.find(jobPostGetRequest, 0, 7)).isNotNull();
+            assertThat(firstPage.getContent()).extracting(JobPostDto::id)
+                    .isEqualTo(expectedFirstPage.getContent().stream().map(JobPostDto::id).toList());
+            assertThat(firstPage.getContent()).extracting(JobPostDto::url)
+                    .isEqualTo(expectedFirstPage.getContent().stream().map(JobPostDto::url).toList());
+            assertThat(firstPage.getTotalElements()).isEqualTo(expectedFirstPage.getTotalElements());
+            assertThat(byPage).isEqualTo(expected);
+            assertThat(byCursor).isEqualTo(expected);
+            assertThat(withoutTotal.content()).extracting(JobPostDto::id)
+                    .isEqualTo(expectedWithoutTotal.content().stream().map(JobPostDto::id).toList());
+            assertThat(withoutTotal.hasNext()).isEqualTo(expectedWithoutTotal.hasNext());
+        }
+    }
+
+    private void bulkLoadVariedJobPosts(String path) {
+        LocalDate today = LocalDate.now();
+        bulkLoad(IntStream.range(0, 60)
+                .mapToObj(i -> bulkLine(faker.internet().url() + "/bitmap/" + path + "/" + i,
+                        // Ties on every deadline, some of them passed, and some job posts without one.
+                        i % 6 == 0 ? null : today.plusDays(i % 5 - 1),
+                        Map.of("Sektor", List.of(SECTORS.get(i % SECTORS.size())),
+                                "Stilling", List.of(POSITIONS.get(i % POSITIONS.size())),
+                                "Sted", List.of(PLACES.get(i % PLACES.size())))))
+                .collect(Collectors.joining("\n")));
+    }
+
+    private List<JobPostGetRequest> searches() {
+        List<JobPostGetRequest> jobPostGetRequests = new ArrayList<>();
+        for (String deadline : Arrays.asList(null, "", "nærmest", "lengst unna", "ingen")) {
+            jobPostGetRequests.add(request(null, null, null, deadline));
+            jobPostGetRequests.add(request("privat", null, null, deadline));
+            jobPostGetRequests.add(request(null, "vikar", "vestland", deadline));
+            jobPostGetRequests.add(request("Offentlig", "fast", "oslo,troms og finmark", deadline));
+        }
+        return jobPostGetRequests;
+    }
+
+    private List<Long> jobPostIdsByPage(JobPostGetRequest jobPostGetRequest) {
+        List<Long> jobPostIds = new ArrayList<>();
+        Page<JobPostDto> page;
+        int pageNumber = 0;
+        do {
+            page = jobPostRepositoryCustom.findAll(jobPostGetRequest, PageRequest.of(pageNumber++, 50));
+            page.forEach(jobPostDto -> jobPostIds.add(jobPostDto.id()));
+        } while (page.hasNext());
+        return jobPostIds;
+    }
+
+    private List<Long> jobPostIdsByCursor(JobPostGetRequest jobPostGetRequest) {
+        List<Long> jobPostIds = new ArrayList<>();
+        JobPostCursor cursor = null;
+        do {
+            JobPostCursorPage page = jobPostRepositoryCustom.findAll(jobPostGetRequest, cursor, 50);
+            page.content().forEach(jobPostDto -> jobPostIds.add(jobPostDto.id()));
+            cursor = page.nextCursor() == null ? null : JobPostCursor.decode(page.nextCursor());
+        } while (cursor != null);
+        return jobPostIds;
+    }
+
+    private JobPostGetRequest request(String sector, String position, String municipality, String deadline) {
+        return new JobPostGetRequest(null, position, sector, municipality, deadline, null, null, null);
+    }
+
+    private void bulkLoad(String ndjson) {
+        webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "/bulk?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson + "\n")
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    private String bulkLine(String url, LocalDate deadline, Map<String, List<String>> jobDefinitions) {
+        Map<String, Object> jobPost = new LinkedHashMap<>();
+        jobPost.put("url", url);
+        jobPost.put("company_name", faker.company().name());
+        jobPost.put("title", faker.job().title());
+        jobPost.put("description", faker.lorem().sentence());
+        if (deadline != null) {
+            jobPost.put("deadline", deadline.toString());
+        }
+        jobPost.put("job_tags", List.of(Map.of("tag", faker.lorem().word())));
+        jobPost.put("job_definitions", jobDefinitions);
+        try {
+            return objectMapper.writeValueAsString(jobPost);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
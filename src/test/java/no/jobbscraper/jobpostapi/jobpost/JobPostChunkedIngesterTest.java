@@ -0,0 +1,94 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JobPostChunkedIngesterTest {
+
+    @Mock
+    private JobPostIngester jobPostIngester;
+
+    @Mock
+    private JobPostUrlFilter jobPostUrlFilter;
+
+    private JobPostChunkedIngester underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new JobPostChunkedIngester(jobPostIngester, jobPostUrlFilter);
+        ReflectionTestUtils.setField(underTest, "chunkSize", 3);
+    }
+
+    @Test
+    @DisplayName("It should ingest job posts in chunks of the configured size")
+    void itShouldIngestInChunks() {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(7).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+        List<Integer> chunkSizes = new ArrayList<>();
+
+        // When
+        when(jobPostIngester.ingest(anyList())).thenAnswer(invocation -> {
+            List<JobPostCreateDto> chunk = invocation.getArgument(0);
+            chunkSizes.add(chunk.size());
+            return chunk.stream()
+                    .map(jobPostCreateDto -> JobPostCreateResult.created(jobPostCreateDto.url(), 1L))
+                    .toList();
+        });
+
+        // Then
+        List<JobPostCreateResult> results = underTest.ingest(jobPostCreateDtos);
+
+        assertThat(chunkSizes).containsExactly(3, 3, 1);
+        assertThat(results).extracting(JobPostCreateResult::url)
+                .containsExactlyElementsOf(jobPostCreateDtos.stream().map(JobPostCreateDto::url).toList());
+    }
+
+    @Test
+    @DisplayName("It should retry the job posts of a failing chunk one at a time and report the failing one")
+    void itShouldIsolateFailingJobPost() {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(3).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+        JobPostCreateDto failing = jobPostCreateDtos.get(1);
+
+        // When
+        when(jobPostIngester.ingest(anyList())).thenAnswer(invocation -> {
+            List<JobPostCreateDto> chunk = invocation.getArgument(0);
+            if (chunk.contains(failing)) {
+                throw new DataIntegrityViolationException("could not execute batch",
+                        new IllegalStateException("value too long for type character varying(255)"));
+            }
+            return chunk.stream()
+                    .map(jobPostCreateDto -> JobPostCreateResult.created(jobPostCreateDto.url(), 1L))
+                    .toList();
+        });
+
+        // Then
+        List<JobPostCreateResult> results = underTest.ingest(jobPostCreateDtos);
+
+        assertThat(results).extracting(JobPostCreateResult::status).containsExactly(
+                JobPostCreateStatus.CREATED, JobPostCreateStatus.FAILED, JobPostCreateStatus.CREATED);
+        assertThat(results.get(1).reason()).isEqualTo("value too long for type character varying(255)");
+        verify(jobPostIngester, times(4)).ingest(anyList());
+        jobPostCreateDtos.forEach(jobPostCreateDto -> verify(jobPostUrlFilter).add(jobPostCreateDto.url()));
+    }
+}
@@ -0,0 +1,55 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.jobdefinition.JobDefinition;
+import no.jobbscraper.jobpostapi.jobtag.JobTag;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobPostContentHashTest {
+
+    @Test
+    @DisplayName("It should not depend on the order or case of tags and job definitions")
+    void itShouldIgnoreOrderAndCaseOfTagsAndJobDefinitions() {
+        // Given
+        JobPostCreateDto jobPostCreateDto = jobPostCreateDto("Title",
+                List.of(new JobTag("Java"), new JobTag("Spring")),
+                List.of(new JobDefinition("Sted", "Oslo"), new JobDefinition("Sektor", "Privat")));
+        JobPostCreateDto reordered = jobPostCreateDto("Title",
+                List.of(new JobTag("spring"), new JobTag("JAVA")),
+                List.of(new JobDefinition("sektor", "privat"), new JobDefinition("Sted", "Oslo")));
+
+        // When
+        // Then
+        assertThat(JobPostContentHash.of(reordered)).isEqualTo(JobPostContentHash.of(jobPostCreateDto));
+    }
+
+    @Test
+    @DisplayName("It should change when the content changes")
+    void itShouldChangeWithContent() {
+        // Given
+        JobPostCreateDto jobPostCreateDto = jobPostCreateDto("Title", List.of(new JobTag("Java")), List.of());
+        JobPostCreateDto retitled = jobPostCreateDto("Other title", List.of(new JobTag("Java")), List.of());
+        JobPostCreateDto retagged = jobPostCreateDto("Title", List.of(new JobTag("Kotlin")), List.of());
+
+        // When
+        String hash = JobPostContentHash.of(jobPostCreateDto);
+
+        // Then
+        assertThat(hash).hasSize(64);
+        assertThat(JobPostContentHash.of(retitled)).isNotEqualTo(hash);
+        assertThat(JobPostContentHash.of(retagged)).isNotEqualTo(hash);
+    }
+
+    private static JobPostCreateDto jobPostCreateDto(String title,
+                                                     List<JobTag> jobTags,
+                                                     List<JobDefinition> jobDefinitions) {
+        return new JobPostCreateDto("https://example.com/job", "Company", null, null, title, "Description",
+                LocalDate.of(2030, 1, 31), new LinkedHashSet<>(jobTags), new LinkedHashSet<>(jobDefinitions));
+    }
+}
@@ -0,0 +1,45 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.exception.InvalidCursorException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JobPostCursorTest {
+
+    @Test
+    @DisplayName("It should decode the cursor it encoded, with and without a sort key, rank and relevance")
+    void itShouldDecodeEncodedCursor() {
+        // Given
+        JobPostCursor withKey = new JobPostCursor(LocalDate.of(2030, 1, 31), 4711L);
+        JobPostCursor withoutKey = new JobPostCursor(null, -48L);
+        JobPostCursor withRank = new JobPostCursor(LocalDate.of(2030, 1, 31), 4711L, 3);
+        JobPostCursor withRankWithoutKey = new JobPostCursor(null, 4711L, 12);
+        JobPostCursor withRelevance = new JobPostCursor(LocalDate.of(2030, 1, 31), 4711L, 3, 0.43429452f);
+        JobPostCursor withTinyRelevance = new JobPostCursor(null, 4711L, null, 1.0E-7f);
+
+        // When
+        // Then
+        assertThat(JobPostCursor.decode(withKey.encode())).isEqualTo(withKey);
+        assertThat(JobPostCursor.decode(withoutKey.encode())).isEqualTo(withoutKey);
+        assertThat(JobPostCursor.decode(withRank.encode())).isEqualTo(withRank);
+        assertThat(JobPostCursor.decode(withRankWithoutKey.encode())).isEqualTo(withRankWithoutKey);
+        assertThat(JobPostCursor.decode(withRelevance.encode())).isEqualTo(withRelevance);
+        assertThat(JobPostCursor.decode(withTinyRelevance.encode())).isEqualTo(withTinyRelevance);
+    }
+
+    @Test
+    @DisplayName("It should not decode a cursor it did not encode")
+    void itShouldNotDecodeInvalidCursor() {
+        // When
+        // Then
+        assertThatThrownBy(() -> JobPostCursor.decode("not a cursor"))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> JobPostCursor.decode("MTIzOm5vdC1hLWRhdGU"))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+}
@@ -0,0 +1,186 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.PostgreSQLContainerInitializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@DirtiesContext
+@SpringBootTest
+@AutoConfigureTestDatabase(replace= AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(initializers = {PostgreSQLContainerInitializer.class})
+class JobPostDefinitionFilterBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostDefinitionFilterBenchmarkTest.class);
+
+    private static final int JOB_POSTS = 100_000;
+
+    private static final int DEFINITIONS_PER_JOB_POST = 5;
+
+    private static final int WARMUP_ITERATIONS = 3;
+
+    private static final int ITERATIONS = 10;
+
+    // The test schema is generated by Hibernate, without the indexes of the migrations.
+    private static final List<String> INDEX_MIGRATIONS = List.of(
+            "db/migration/postgresql/V5__add_dictionary_lookup_indexes.sql",
+            "db/migration/postgresql/V10__add_keyset_pagination_indexes.sql",
+            "db/migration/postgresql/V11__add_jobpost_descriptions_jobpost_index.sql");
+
+    private static final String TRIGRAM_INDEX_MIGRATION =
+            "db/migration/postgresql/V12__add_job_definition_value_trigram_index.sql";
+
+    private static final String TRIGRAM_INDEX = "idx_job_definitions_lower_value_trgm";
+
+    // Mostly positions, each one unique, like the job boards publish them.
+    private static final String INSERT_JOB_DEFINITIONS = """
+            INSERT INTO job_definitions (id, key, value)
+            SELECT g,
+                   CASE g % 10 WHEN 0 THEN 'Sted' WHEN 1 THEN 'Bransje' ELSE 'Stilling' END,
+                   (ARRAY['Senior', 'Junior', 'Ledende', 'Fagansvarlig', 'Prosjekt'])[1 + g % 5] || ' ' ||
+                   (ARRAY['utvikler', 'rådgiver', 'konsulent', 'sykepleier', 'lærer', 'ingeniør', 'leder',
+                          'selger', 'tekniker', 'arkitekt', 'saksbehandler', 'renholder', 'kokk', 'elektriker',
+                          'økonom', 'jurist', 'designer', 'analytiker', 'sjåfør', 'vekter'])[1 + (g / 5) % 20] ||
+                   ' ' || g
+            FROM generate_series(1, ?) g
+            """;
+
+    private static final String INSERT_JOB_POSTS = """
+            INSERT INTO jobposts (jobpost_id, created_at, url, company_name, title, description, deadline)
+            SELECT g, current_date, 'https://example.com/definitions/' || g, 'Company ' || g % 500,
+                   'Job title ' || g, 'Description of job ' || g, current_date + (g % 365)::int
+            FROM generate_series(1, ?) g
+            """;
+
+    private static final String INSERT_JOB_DEFINITION_LINKS = """
+            INSERT INTO j_jobpost_descriptions (jobpost_id, jobdescription_id)
+            SELECT 1 + (g - 1) / ?, g FROM generate_series(1, ?) g
+            """;
+
+    // What V13__add_job_definition_ids.sql backfills, which ScriptUtils can not run for its DO block.
+    private static final String UPDATE_JOB_DEFINITION_IDS = """
+            UPDATE jobposts j
+            SET job_definition_ids = l.ids
+            FROM (SELECT jobpost_id, array_agg(jobdescription_id ORDER BY jobdescription_id) AS ids
+                  FROM j_jobpost_descriptions
+                  WHERE jobpost_id BETWEEN ? AND ?
+                  GROUP BY jobpost_id) l
+            WHERE j.jobpost_id = l.jobpost_id
+            """;
+
+    private static final String INDEX_JOB_DEFINITION_IDS = """
+            CREATE INDEX IF NOT EXISTS idx_jobposts_job_definition_ids
+                ON jobposts USING GIN (job_definition_ids)
+                WHERE expired_at IS NULL
+            """;
+
+    // The subquery JobPostPredicates.hasJobDefinition collects the ids of the matching job definitions with.
+    private static final String EXPLAIN_DEFINITION_MATCH = """
+            EXPLAIN (ANALYZE, COSTS OFF, TIMING OFF, SUMMARY ON)
+            SELECT jd.id FROM job_definitions jd
+            WHERE lower(jd.key) = 'stilling' AND lower(jd.value) LIKE ? ESCAPE '!'
+            """;
+
+    @Autowired
+    private JobPostRepositoryCustom jobPostRepositoryCustom;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("It should report plans and latency of position filters before and after the trigram index")
+    void definitionFilterPlans() {
+        // Given
+        int definitions = JOB_POSTS * DEFINITIONS_PER_JOB_POST;
+        jdbcTemplate.update(INSERT_JOB_DEFINITIONS, definitions);
+        jdbcTemplate.update(INSERT_JOB_POSTS, JOB_POSTS);
+        jdbcTemplate.update(INSERT_JOB_DEFINITION_LINKS, DEFINITIONS_PER_JOB_POST, definitions);
+        jdbcTemplate.update(UPDATE_JOB_DEFINITION_IDS, 1, JOB_POSTS);
+        INDEX_MIGRATIONS.forEach(this::migrate);
+        jdbcTemplate.execute(INDEX_JOB_DEFINITION_IDS);
+        jdbcTemplate.execute("ANALYZE");
+        List<String> positions = List.of("sykepleier", "arkitekt 4242");
+
+        // When
+        Map<String, Measurement> before = measure(positions);
+        migrate(TRIGRAM_INDEX_MIGRATION);
+        jdbcTemplate.execute("ANALYZE");
+        Map<String, Measurement> after = measure(positions);
+
+        // Then
+        for (String position : positions) {
+            LOGGER.info("Position {} before the trigram index, {} ms per search:\n{}",
+                    position, before.get(position).averageMs(), before.get(position).plan());
+            LOGGER.info("Position {} after the trigram index, {} ms per search:\n{}",
+                    position, after.get(position).averageMs(), after.get(position).plan());
+
+            assertThat(after.get(position).jobPostIds()).isEqualTo(before.get(position).jobPostIds());
+            assertThat(before.get(position).plan()).doesNotContain(TRIGRAM_INDEX);
+            assertThat(after.get(position).plan()).contains(TRIGRAM_INDEX);
+        }
+    }
+
+    private void migrate(String migration) {
+        new ResourceDatabasePopulator(new ClassPathResource(migration)).execute(dataSource);
+    }
+
+    private Map<String, Measurement> measure(List<String> positions) {
+        Map<String, Measurement> measurements = new LinkedHashMap<>();
+        for (String position : positions) {
+            JobPostGetRequest jobPostGetRequest = new JobPostGetRequest(null, position, null, null, null, null, null, null);
+            PageRequest pageRequest = PageRequest.of(0, 20);
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                search(jobPostGetRequest, pageRequest);
+            }
+            long start = System.nanoTime();
+            Page<JobPostDto> page = null;
+            for (int i = 0; i < ITERATIONS; i++) {
+                page = search(jobPostGetRequest, pageRequest);
+            }
+            double averageMs = (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+
+            String plan = String.join("\n", jdbcTemplate.queryForList(EXPLAIN_DEFINITION_MATCH, String.class,
+                    "%" + position + "%"));
+            List<Long> jobPostIds = page.getContent().stream()
+                    .map(JobPostDto::id)
+                    .toList();
+            measurements.put(position, new Measurement(plan, averageMs, jobPostIds));
+        }
+        return measurements;
+    }
+
+    private Page<JobPostDto> search(JobPostGetRequest jobPostGetRequest, PageRequest pageRequest) {
+        return transactionTemplate.execute(status -> jobPostRepositoryCustom.findAll(jobPostGetRequest, pageRequest));
+    }
+
+    private record Measurement(String plan, double averageMs, List<Long> jobPostIds) {
+    }
+}
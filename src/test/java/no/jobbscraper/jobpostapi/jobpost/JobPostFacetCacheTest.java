@@ -0,0 +1,68 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobPostFacetCacheTest {
+
+    private static final JobPostFacets FACETS = new JobPostFacets(List.of(), List.of(), List.of(), List.of());
+
+    private JobPostFacetCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new JobPostFacetCache();
+        ReflectionTestUtils.setField(underTest, "maxEntries", 10);
+    }
+
+    @Test
+    @DisplayName("It should return the facets of filters that find the same job posts")
+    void itShouldGetFacetsOfSameFilters() {
+        // Given
+        underTest.put(new JobPostGetRequest("java", null, "", "Oslo,Vestland", null, " ", 50, "nyeste"),
+                underTest.generation(), FACETS);
+
+        // When
+        JobPostGetRequest sameFilters = new JobPostGetRequest("java", " ", null, "vestland, oslo", "", null, null, null);
+
+        // Then
+        assertThat(underTest.get(sameFilters)).contains(FACETS);
+    }
+
+    @Test
+    @DisplayName("It should not return the facets of filters the predicates read differently")
+    void itShouldNotGetFacetsOfOtherFilters() {
+        // Given
+        underTest.put(new JobPostGetRequest(null, null, "oslo", null, "nærmest", null, null, null),
+                underTest.generation(), FACETS);
+
+        // When
+        JobPostGetRequest paddedSector = new JobPostGetRequest(null, null, "oslo ", null, "nærmest", null, null, null);
+        JobPostGetRequest paddedDeadline = new JobPostGetRequest(null, null, "oslo", null, " nærmest", null, null, null);
+
+        // Then
+        assertThat(underTest.get(paddedSector)).isEmpty();
+        assertThat(underTest.get(paddedDeadline)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("It should not put facets counted before job posts changed")
+    void itShouldNotPutStaleFacets() {
+        // Given
+        JobPostGetRequest jobPostGetRequest = new JobPostGetRequest("java", null, null, null, null, null, null, null);
+        long generation = underTest.generation();
+
+        // When
+        underTest.onJobPostsChanged(new JobPostsChangedEvent(List.of(1L)));
+        underTest.put(jobPostGetRequest, generation, FACETS);
+
+        // Then
+        assertThat(underTest.get(jobPostGetRequest)).isEmpty();
+    }
+}
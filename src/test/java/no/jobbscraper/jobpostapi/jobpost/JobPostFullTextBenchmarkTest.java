@@ -0,0 +1,190 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.PostgreSQLContainerInitializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@DirtiesContext
+@SpringBootTest
+@AutoConfigureTestDatabase(replace= AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(initializers = {PostgreSQLContainerInitializer.class})
+class JobPostFullTextBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostFullTextBenchmarkTest.class);
+
+    private static final int JOB_POSTS = 100_000;
+
+    private static final int PROFESSIONS = 5;
+
+    private static final int PLACES = 4;
+
+    private static final int ITERATIONS = 10;
+
+    // The text search configuration of the full-text search. It outlives the test schema in the shared container.
+    private static final String TEXT_SEARCH_CONFIG_MIGRATION =
+            "db/migration/postgresql/V18__add_norwegian_text_search_config.sql";
+
+    private static final String TEXT_SEARCH_CONFIG_EXISTS =
+            "SELECT exists(SELECT 1 FROM pg_ts_config WHERE cfgname = 'norwegian_unaccent')";
+
+    // The test schema is generated by Hibernate, without the indexes of the migrations.
+    private static final List<String> SEARCH_INDEX_MIGRATIONS = List.of(
+            "db/migration/postgresql/V10__add_keyset_pagination_indexes.sql",
+            "db/migration/postgresql/V16__add_live_tsv_document_index.sql");
+
+    private static final String TSV_DOCUMENT_INDEX = "idx_jobposts_tsv_document";
+
+    // Norwegian job posts, with the profession in the singular in the title and in the plural in the description,
+    // and a place with æ, ø or å in most of them.
+    private static final String INSERT_JOB_POSTS = """
+            INSERT INTO jobposts (jobpost_id, created_at, url, company_name, title, description, deadline)
+            SELECT g, current_date, 'https://example.com/fulltext/' || g, 'Company ' || g % 500,
+                   (ARRAY['Sykepleier', 'Lærer', 'Sjåfør', 'Utvikler', 'Lege'])[1 + g % 5] || ' i ' ||
+                   (ARRAY['Tromsø', 'Bodø', 'Ålesund', 'Oslo'])[1 + (g / 5) % 4] || ' ' || g,
+                   'Vi søker ' ||
+                   (ARRAY['sykepleiere', 'lærere', 'sjåfører', 'utviklere', 'leger'])[1 + g % 5] ||
+                   ' til et godt arbeidsmiljø. Stillingen er fast.',
+                   current_date + (g % 365)::int
+            FROM generate_series(1, ?) g
+            """;
+
+    // What the update_tsv_document trigger of the migrations set before V19, and what it sets since.
+    private static final String UPDATE_ENGLISH_TSV_DOCUMENTS = """
+            UPDATE jobposts
+            SET tsv_document = setweight(to_tsvector('english', coalesce(title, '')), 'A')
+                            || setweight(to_tsvector('english', coalesce(description, '')), 'B')
+            """;
+
+    private static final String UPDATE_NORWEGIAN_TSV_DOCUMENTS = """
+            UPDATE jobposts
+            SET tsv_document = setweight(to_tsvector('norwegian_unaccent', coalesce(title, '')), 'A')
+                            || setweight(to_tsvector('norwegian_unaccent', coalesce(description, '')), 'B')
+            """;
+
+    // ftsMatch before V19, which parsed the query with the english default configuration of the database.
+    private static final String ENGLISH_MATCH = "tsv_document @@ plainto_tsquery('english', ?)";
+
+    private static final String NORWEGIAN_MATCH = "tsv_document @@ websearch_to_tsquery('norwegian_unaccent', ?)";
+
+    @Autowired
+    private JobPostRepositoryCustom jobPostRepositoryCustom;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("It should report the share of relevant job posts found by the full-text index, english and norwegian")
+    void fullTextHitRates() {
+        // Given
+        if (!jdbcTemplate.queryForObject(TEXT_SEARCH_CONFIG_EXISTS, Boolean.class)) {
+            migrate(TEXT_SEARCH_CONFIG_MIGRATION);
+        }
+        jdbcTemplate.update(INSERT_JOB_POSTS, JOB_POSTS);
+        SEARCH_INDEX_MIGRATIONS.forEach(this::migrate);
+
+        // The job posts each query is meant to find, by the profession and place they were generated with.
+        Map<String, IntPredicate> queries = new LinkedHashMap<>();
+        queries.put("sykepleieren", g -> g % PROFESSIONS == 0);
+        queries.put("laerere", g -> g % PROFESSIONS == 1);
+        queries.put("sjafor", g -> g % PROFESSIONS == 2);
+        queries.put("tromso", g -> (g / PROFESSIONS) % PLACES == 0);
+        queries.put("\"utvikler i Bodø\"", g -> g % PROFESSIONS == 3 && (g / PROFESSIONS) % PLACES == 1);
+        queries.put("lege or lærer", g -> g % PROFESSIONS == 4 || g % PROFESSIONS == 1);
+
+        // When
+        jdbcTemplate.update(UPDATE_ENGLISH_TSV_DOCUMENTS);
+        jdbcTemplate.execute("VACUUM ANALYZE jobposts");
+        Map<String, Measurement> english = measure(queries, ENGLISH_MATCH);
+        jdbcTemplate.update(UPDATE_NORWEGIAN_TSV_DOCUMENTS);
+        jdbcTemplate.execute("VACUUM ANALYZE jobposts");
+        Map<String, Measurement> norwegian = measure(queries, NORWEGIAN_MATCH);
+
+        // Then
+        long relevantTotal = 0;
+        long englishHits = 0;
+        long norwegianHits = 0;
+        for (Map.Entry<String, IntPredicate> query : queries.entrySet()) {
+            long relevant = IntStream.rangeClosed(1, JOB_POSTS).filter(query.getValue()).count();
+            Measurement before = english.get(query.getKey());
+            Measurement after = norwegian.get(query.getKey());
+            LOGGER.info("Query {} finds {} of {} relevant job posts with english in {} ms, {} with norwegian_unaccent "
+                            + "in {} ms, through the index: {}",
+                    query.getKey(), before.hits(), relevant, before.averageMs(), after.hits(), after.averageMs(),
+                    after.plan().contains(TSV_DOCUMENT_INDEX));
+
+            relevantTotal += relevant;
+            englishHits += before.hits();
+            norwegianHits += after.hits();
+            assertThat(after.hits()).isEqualTo(relevant);
+            assertThat(searchTotal(query.getKey())).isEqualTo(relevant);
+        }
+        LOGGER.info("Hit rate of the full-text index with english {}%, with norwegian_unaccent {}%",
+                100 * englishHits / relevantTotal, 100 * norwegianHits / relevantTotal);
+        assertThat(norwegianHits).isGreaterThan(englishHits);
+        assertThat(norwegian.get("\"utvikler i Bodø\"").plan()).contains(TSV_DOCUMENT_INDEX);
+    }
+
+    private void migrate(String migration) {
+        new ResourceDatabasePopulator(new ClassPathResource(migration)).execute(dataSource);
+    }
+
+    private Map<String, Measurement> measure(Map<String, IntPredicate> queries, String match) {
+        String count = "SELECT count(*) FROM jobposts WHERE expired_at IS NULL AND " + match;
+        Map<String, Measurement> measurements = new LinkedHashMap<>();
+        for (String query : queries.keySet()) {
+            jdbcTemplate.queryForObject(count, Long.class, query);
+            long start = System.nanoTime();
+            long hits = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                hits = jdbcTemplate.queryForObject(count, Long.class, query);
+            }
+            double averageMs = (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + count, String.class, query));
+            measurements.put(query, new Measurement(plan, averageMs, hits));
+        }
+        return measurements;
+    }
+
+    // The total of the search the API runs, through ftsMatch.
+    private long searchTotal(String query) {
+        JobPostGetRequest jobPostGetRequest =
+                new JobPostGetRequest(query, null, null, null, null, null, null, null);
+        Page<JobPostDto> page = transactionTemplate.execute(status ->
+                jobPostRepositoryCustom.findAll(jobPostGetRequest, PageRequest.of(0, 20)));
+        return page.getTotalElements();
+    }
+
+    private record Measurement(String plan, double averageMs, long hits) {
+    }
+}
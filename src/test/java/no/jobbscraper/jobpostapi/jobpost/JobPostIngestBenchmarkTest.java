@@ -0,0 +1,137 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.PostgreSQLContainerInitializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@DirtiesContext
+@SpringBootTest
+@AutoConfigureTestDatabase(replace= AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(initializers = {PostgreSQLContainerInitializer.class})
+class JobPostIngestBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostIngestBenchmarkTest.class);
+
+    private static final int JOB_POSTS = 10_000;
+
+    private static final int BULK_JOB_POSTS = 100_000;
+
+    @Value("${secret_key}")
+    private String secretKey;
+
+    @Autowired
+    private JobPostService jobPostService;
+
+    @Test
+    @DisplayName("It should report job post ingest throughput for a 10k post payload")
+    void createJobPostsThroughput() {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(JOB_POSTS).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+
+        // When
+        long start = System.nanoTime();
+        var results = jobPostService.createJobPosts(new JobPostCreateRequest(jobPostCreateDtos), secretKey);
+        long elapsedNanos = System.nanoTime() - start;
+
+        // Then
+        assertThat(results).hasSize(JOB_POSTS);
+        LOGGER.info("Created {} job posts in {} ms ({} posts/sec)", JOB_POSTS, elapsedNanos / 1_000_000,
+                JOB_POSTS * 1_000_000_000L / elapsedNanos);
+    }
+
+    @Test
+    @DisplayName("It should report bulk load throughput and peak heap for a 100k post NDJSON stream")
+    void bulkLoadJobPostsThroughput() {
+        // Given
+        InputStream ndjson = new GeneratedNdjsonInputStream(BULK_JOB_POSTS);
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(memoryPool -> memoryPool.getType() == MemoryType.HEAP)
+                .toList();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        // When
+        long start = System.nanoTime();
+        JobPostBulkLoadResult result = jobPostService.bulkLoadJobPosts(ndjson, secretKey);
+        long elapsedNanos = System.nanoTime() - start;
+
+        // Then
+        assertThat(result.created()).isEqualTo(BULK_JOB_POSTS);
+        long peakHeap = heapPools.stream().mapToLong(memoryPool -> memoryPool.getPeakUsage().getUsed()).sum();
+        LOGGER.info("Bulk loaded {} job posts in {} ms ({} posts/sec), peak heap {} MB", BULK_JOB_POSTS,
+                elapsedNanos / 1_000_000, BULK_JOB_POSTS * 1_000_000_000L / elapsedNanos, peakHeap / (1024 * 1024));
+    }
+
+    /**
+     * Produces NDJSON job posts on the fly, so the payload itself never has to be held in memory.
+     */
+    private static final class GeneratedNdjsonInputStream extends InputStream {
+
+        private final String run = UUID.randomUUID().toString();
+        private final int lines;
+        private int line;
+        private byte[] buffer = new byte[0];
+        private int position;
+
+        private GeneratedNdjsonInputStream(int lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int read() {
+            if (position == buffer.length && !nextLine()) {
+                return -1;
+            }
+            return buffer[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (position == buffer.length && !nextLine()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.length - position);
+            System.arraycopy(buffer, position, bytes, offset, read);
+            position += read;
+            return read;
+        }
+
+        private boolean nextLine() {
+            if (line == lines) {
+                return false;
+            }
+            line++;
+            buffer = ("""
+                    {"url":"https://example.com/bulk/%s/%d","company_name":"Company %d","title":"Job title %d",\
+                    "description":"Description of job %d with some more words to search for","deadline":"2030-01-31",\
+                    "job_tags":[{"tag":"Tag %d"},{"tag":"Tag %d"}],\
+                    "job_definitions":{"Sektor":["Sektor %d"],"Sted":["Sted %d","Sted %d"]}}
+                    """.formatted(run, line, line % 500, line, line, line % 1000, line % 77, line % 2, line % 350,
+                    line % 13)).getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.jobbscraper.jobpostapi.exception.IngestBatchTooLargeException;
+import no.jobbscraper.jobpostapi.exception.IngestQueueFullException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JobPostIngestQueueTest {
+
+    @Mock
+    private JobPostIngester jobPostIngester;
+
+    @Mock
+    private JobPostUrlFilter jobPostUrlFilter;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private JobPostIngestQueue underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        JobPostChunkedIngester jobPostChunkedIngester = new JobPostChunkedIngester(jobPostIngester, jobPostUrlFilter);
+        ReflectionTestUtils.setField(jobPostChunkedIngester, "chunkSize", 2);
+        underTest = new JobPostIngestQueue(jobPostChunkedIngester, meterRegistry);
+        ReflectionTestUtils.setField(underTest, "workers", 1);
+        ReflectionTestUtils.setField(underTest, "capacity", 5);
+        ReflectionTestUtils.setField(underTest, "retryAfter", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(underTest, "retention", Duration.ofHours(1));
+        underTest.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        underTest.stop();
+    }
+
+    @Test
+    @DisplayName("It should ingest a queued batch in chunks and report its progress")
+    void itShouldIngestQueuedBatchInChunks() throws InterruptedException {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(5).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+
+        // When
+        when(jobPostIngester.ingest(anyList())).thenAnswer(invocation -> {
+            List<JobPostCreateDto> chunk = invocation.getArgument(0);
+            return chunk.stream()
+                    .map(jobPostCreateDto -> JobPostCreateResult.created(jobPostCreateDto.url(), 1L))
+                    .toList();
+        });
+
+        JobPostIngestBatchStatus queued = underTest.enqueue(jobPostCreateDtos);
+        underTest.stop();
+
+        // Then
+        JobPostIngestBatchStatus finished = underTest.getStatus(queued.batchId()).orElseThrow();
+
+        assertThat(queued.total()).isEqualTo(5);
+        assertThat(finished.state()).isEqualTo(JobPostIngestBatchState.COMPLETED);
+        assertThat(finished.processed()).isEqualTo(5);
+        assertThat(finished.created()).isEqualTo(5);
+        assertThat(meterRegistry.get("jobpost.ingest.queue.pending").gauge().value()).isZero();
+        verify(jobPostIngester, times(3)).ingest(anyList());
+    }
+
+    @Test
+    @DisplayName("It should report the job posts that failed in a batch")
+    void itShouldReportFailedJobPosts() throws InterruptedException {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(4).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+        JobPostCreateDto failing = jobPostCreateDtos.get(1);
+
+        // When
+        when(jobPostIngester.ingest(anyList())).thenAnswer(invocation -> {
+            List<JobPostCreateDto> chunk = invocation.getArgument(0);
+            if (chunk.contains(failing)) {
+                throw new IllegalStateException("value too long");
+            }
+            return chunk.stream()
+                    .map(jobPostCreateDto -> JobPostCreateResult.skippedDuplicate(jobPostCreateDto.url()))
+                    .toList();
+        });
+
+        JobPostIngestBatchStatus queued = underTest.enqueue(jobPostCreateDtos);
+        underTest.stop();
+
+        // Then
+        JobPostIngestBatchStatus finished = underTest.getStatus(queued.batchId()).orElseThrow();
+
+        assertThat(finished.processed()).isEqualTo(4);
+        assertThat(finished.skippedDuplicate()).isEqualTo(3);
+        assertThat(finished.failed()).isEqualTo(1);
+        assertThat(finished.failures())
+                .containsExactly(JobPostCreateResult.failed(failing.url(), "value too long"));
+    }
+
+    @Test
+    @DisplayName("It should mark an aborted batch as failed")
+    void itShouldMarkAbortedBatchAsFailed() throws InterruptedException {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(4).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+
+        // When
+        when(jobPostIngester.ingest(anyList())).thenThrow(new IllegalStateException("value too long"));
+        doThrow(new IllegalStateException("connection refused")).when(jobPostUrlFilter).add(anyString());
+
+        JobPostIngestBatchStatus queued = underTest.enqueue(jobPostCreateDtos);
+        underTest.stop();
+
+        // Then
+        JobPostIngestBatchStatus finished = underTest.getStatus(queued.batchId()).orElseThrow();
+
+        assertThat(finished.state()).isEqualTo(JobPostIngestBatchState.FAILED);
+        assertThat(finished.error()).isEqualTo("connection refused");
+        assertThat(finished.processed()).isZero();
+        assertThat(finished.finishedAt()).isNotNull();
+        assertThat(meterRegistry.get("jobpost.ingest.queue.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("It should reject a batch when the queue is full")
+    void itShouldRejectBatchWhenQueueIsFull() {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(3).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+
+        // When
+        when(jobPostIngester.ingest(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+
+        underTest.enqueue(jobPostCreateDtos);
+
+        // Then
+        assertThatThrownBy(() -> underTest.enqueue(jobPostCreateDtos))
+                .isInstanceOf(IngestQueueFullException.class)
+                .hasMessage("Ingest queue is full (3 of 5 job posts pending), retry later")
+                .extracting("retryAfter").isEqualTo(Duration.ofSeconds(30));
+
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("It should reject a batch larger than the queue capacity")
+    void itShouldRejectBatchLargerThanCapacity() {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(6).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.enqueue(jobPostCreateDtos))
+                .isInstanceOf(IngestBatchTooLargeException.class);
+    }
+}
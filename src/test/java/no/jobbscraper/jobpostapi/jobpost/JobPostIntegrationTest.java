@@ -1,5 +1,8 @@
 package no.jobbscraper.jobpostapi.jobpost;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import net.datafaker.Faker;
 import no.jobbscraper.jobpostapi.PostgreSQLContainerInitializer;
 import no.jobbscraper.jobpostapi.response.ResponseType;
@@ -15,19 +18,46 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
+import javax.sql.DataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_CLASS;
 
 @Import(QuickPerfSqlConfig.class)
@@ -41,6 +71,21 @@ class JobPostIntegrationTest  {
 
     private static final String JOB_POST_PAH = "/api/v1/jobposts";
 
+    // The text search configuration of the full-text search. It outlives the test schema in the shared container.
+    private static final String TEXT_SEARCH_CONFIG_MIGRATION =
+            "db/migration/postgresql/V18__add_norwegian_text_search_config.sql";
+
+    // What the update_tsv_document trigger of the migrations sets, which the test schema does not have.
+    private static final String UPDATE_TSV_DOCUMENTS = """
+            UPDATE jobposts
+            SET tsv_document = setweight(to_tsvector('norwegian_unaccent', coalesce(title, '')), 'A')
+                            || setweight(to_tsvector('norwegian_unaccent', coalesce(description, '')), 'B')
+            WHERE tsv_document IS NULL
+            """;
+
+    private static final String TEXT_SEARCH_CONFIG_EXISTS =
+            "SELECT exists(SELECT 1 FROM pg_ts_config WHERE cfgname = 'norwegian_unaccent')";
+
     @Value("${secret_key}")
     private String secretKey;
 
@@ -50,14 +95,29 @@ class JobPostIntegrationTest  {
     @Autowired
     private JobPostRepositoryCustom jobPostRepositoryCustom;
 
+    @Autowired
+    private JobPostDeadlineSweeper jobPostDeadlineSweeper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private Faker faker;
 
+    @Autowired
+    private DataSource dataSource;
+
     @BeforeEach
     void setUp() {
         faker = new Faker();
+        if (!jdbcTemplate.queryForObject(TEXT_SEARCH_CONFIG_EXISTS, Boolean.class)) {
+            new ResourceDatabasePopulator(new ClassPathResource(TEXT_SEARCH_CONFIG_MIGRATION)).execute(dataSource);
+        }
     }
 
     @AfterEach
@@ -67,7 +127,7 @@ class JobPostIntegrationTest  {
 
     @Test
     @DisplayName("It should get a list of jobposts that are ordered by deadline in desc order")
-    @ExpectSelect(3)
+    @ExpectSelect(1)
     void itShouldGetAllJobPosts() {
         // Given
         int page = 0;
@@ -112,6 +172,106 @@ class JobPostIntegrationTest  {
                 .isEqualTo(HttpStatusCode.valueOf(204));
     }
 
+    @Test
+    @DisplayName("It should get a page of jobposts without counting them")
+    @ExpectSelect(1)
+    void itShouldGetJobPostsWithoutTotal() {
+        // Given
+        int size = faker.random().nextInt(2, 6);
+
+        // When
+        // Then
+        webTestClient.method(HttpMethod.GET)
+                .uri(JOB_POST_PAH + "?page=0&size={size}&total=none", size)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.response").isEqualTo(ResponseType.SUCCESS.name())
+                .jsonPath("$.result.number_of_elements").isEqualTo(size)
+                .jsonPath("$.result.has_next").isEqualTo(true)
+                .jsonPath("$.result.total_elements").isEmpty()
+                .jsonPath("$.result.total_mode").isEqualTo(JobPostTotalMode.NONE.name());
+    }
+
+    @Test
+    @DisplayName("It should estimate the total from the last count, and know it exactly on the last page")
+    void itShouldGetJobPostsWithEstimatedTotal() {
+        // Given
+        EntityExchangeResult<String> exactPage = getJobPosts(null, Map.of("page", 0, "size", 2, "total", "exact"));
+        Integer totalElements = JsonPath.read(exactPage.getResponseBody(), "$.result.total_elements");
+
+        // When
+        EntityExchangeResult<String> estimatedPage =
+                getJobPosts(null, Map.of("page", 0, "size", 2, "total", "Estimated"));
+        EntityExchangeResult<String> lastPage =
+                getJobPosts(null, Map.of("page", 0, "size", totalElements + 1, "total", "estimated"));
+
+        // Then
+        assertThat(JsonPath.<Integer>read(estimatedPage.getResponseBody(), "$.result.total_elements"))
+                .isEqualTo(totalElements);
+        assertThat(JsonPath.<String>read(estimatedPage.getResponseBody(), "$.result.total_mode"))
+                .isEqualTo(JobPostTotalMode.ESTIMATED.name());
+        assertThat(JsonPath.<Integer>read(lastPage.getResponseBody(), "$.result.total_elements"))
+                .isEqualTo(totalElements);
+        assertThat(JsonPath.<String>read(lastPage.getResponseBody(), "$.result.total_mode"))
+                .isEqualTo(JobPostTotalMode.EXACT.name());
+        assertThat(JsonPath.<Boolean>read(lastPage.getResponseBody(), "$.result.has_next")).isFalse();
+    }
+
+    @Test
+    @DisplayName("It should reject a total mode that does not exist")
+    void itShouldNotGetJobPostsWithInvalidTotal() {
+        // Given
+        String total = "roughly";
+
+        // When
+        // Then
+        webTestClient.method(HttpMethod.GET)
+                .uri(JOB_POST_PAH + "?total={total}", total)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatusCode.valueOf(400))
+                .expectBody()
+                .jsonPath("$.response").isEqualTo(ResponseType.FAILED.name());
+    }
+
+    @Test
+    @DisplayName("It should page through the same job posts by cursor as by page number, in every order")
+    void itShouldGetJobPostsByCursor() {
+        // Given
+        createJobPosts(JobPostUtil.getJobPosts(7).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList());
+        int size = 3;
+
+        // When
+        // Then
+        for (String deadline : Arrays.asList(null, "nærmest", "lengst unna", "uten")) {
+            assertThat(jobPostIdsByCursor(deadline, size)).isEqualTo(jobPostIdsByPage(deadline));
+        }
+    }
+
+    @Test
+    @DisplayName("It should reject a cursor it did not hand out")
+    void itShouldNotGetJobPostsByInvalidCursor() {
+        // Given
+        String cursor = "not a cursor";
+
+        // When
+        // Then
+        webTestClient.method(HttpMethod.GET)
+                .uri(JOB_POST_PAH + "?cursor={cursor}", cursor)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatusCode.valueOf(400))
+                .expectBody()
+                .jsonPath("$.response").isEqualTo(ResponseType.FAILED.name());
+    }
+
     @Test
     @DisplayName("It should return a jobpost if id exists")
     @ExpectSelect
@@ -187,4 +347,755 @@ class JobPostIntegrationTest  {
                 .jsonPath("$.result").isArray()
                 .jsonPath("$.result").isNotEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("It should update job posts whose content changed and leave the others alone")
+    void itShouldUpdateChangedJobPosts() {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = new ArrayList<>(JobPostUtil.getJobPosts(2).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList());
+        createJobPosts(jobPostCreateDtos);
+
+        JobPostCreateDto stored = jobPostCreateDtos.get(1);
+        JobPostCreateDto changed = new JobPostCreateDto(stored.url(), stored.companyName(), stored.companyImageUrl(),
+                stored.imageUrl(), stored.title() + " (updated)", stored.description(), stored.deadline(),
+                stored.jobTags(), stored.jobDefinitions());
+        jobPostCreateDtos.set(1, changed);
+
+        // When
+        // Then
+        createJobPosts(jobPostCreateDtos)
+                .jsonPath("$.result[0].status").isEqualTo(JobPostCreateStatus.UNCHANGED.name())
+                .jsonPath("$.result[1].status").isEqualTo(JobPostCreateStatus.UPDATED.name());
+
+        assertThat(storedTitle(changed.url())).isEqualTo(changed.title());
+    }
+
+    @Test
+    @DisplayName("It should filter job posts on the job definitions they were last ingested or bulk loaded with")
+    void itShouldFilterJobPostsByUpdatedJobDefinitions() {
+        // Given
+        String url = faker.internet().url() + "/definitions";
+        String sector = "Sektor " + UUID.randomUUID();
+        String updatedSector = "Sektor " + UUID.randomUUID();
+        webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"job_posts\": [" + bulkLine(url, faker.book().title(), Map.of("Sektor", List.of(sector))) + "]}")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.result[0].status").isEqualTo(JobPostCreateStatus.CREATED.name());
+
+        // When
+        bulkLoad(bulkLine(url, faker.book().title(), Map.of("Sektor", List.of(updatedSector))) + "\n")
+                .jsonPath("$.result.updated").isEqualTo(1);
+
+        // Then
+        assertThat(getJobPosts(null, Map.of("sector", sector)).getStatus()).isEqualTo(HttpStatus.NO_CONTENT);
+        EntityExchangeResult<String> page = getJobPosts(null, Map.of("sector", updatedSector.toUpperCase()));
+        assertThat(JsonPath.<List<Object>>read(page.getResponseBody(), "$.result.content[*].url"))
+                .containsExactly(url);
+    }
+
+    @Test
+    @DisplayName("It should find job posts in a region by the places they were ingested or bulk loaded with")
+    void itShouldGetJobPostsInRegion() {
+        // Given
+        String ingestedUrl = faker.internet().url() + "/region/ingested";
+        String bulkLoadedUrl = faker.internet().url() + "/region/bulk";
+        String otherRegionUrl = faker.internet().url() + "/region/other";
+        webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"job_posts\": [" + bulkLine(ingestedUrl, faker.book().title(),
+                        Map.of("Sted", List.of("9900 Kirkenes"))) + "]}")
+                .exchange()
+                .expectStatus()
+                .isOk();
+        bulkLoad(bulkLine(bulkLoadedUrl, faker.book().title(), Map.of("Sted", List.of("Alta"))) + "\n"
+                + bulkLine(otherRegionUrl, faker.book().title(), Map.of("Sted", List.of("Oslo"))) + "\n");
+
+        // When
+        EntityExchangeResult<String> page = getJobPosts(null, Map.of("municipality", "Troms og Finmark"));
+
+        // Then
+        assertThat(JsonPath.<List<Object>>read(page.getResponseBody(), "$.result.content[*].url"))
+                .containsExactlyInAnyOrder(ingestedUrl, bulkLoadedUrl);
+    }
+
+    @Test
+    @DisplayName("It should reject a region that does not exist")
+    void itShouldNotGetJobPostsInUnknownRegion() {
+        // When
+        // Then
+        webTestClient.method(HttpMethod.GET)
+                .uri(JOB_POST_PAH + "?municipality=atlantis")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.response").isEqualTo(ResponseType.FAILED.name())
+                .jsonPath("$.errors[0].message").value(message ->
+                        assertThat((String) message).startsWith("Region atlantis is not one of "));
+    }
+
+    @Test
+    @DisplayName("It should count each facet with the filters of the others, and count again after job posts change")
+    void itShouldGetJobPostFacets() {
+        // Given
+        String position = "Fasett " + faker.number().digits(12);
+        bulkLoad(bulkLine(faker.internet().url() + "/facets/public", faker.book().title(),
+                Map.of("Sektor", List.of("Offentlig"), "Stilling", List.of(position), "Sted", List.of("Oslo"))) + "\n"
+                + bulkLine(faker.internet().url() + "/facets/bergen", faker.book().title(),
+                Map.of("Sektor", List.of("Privat"), "Stilling", List.of(position), "Sted", List.of("Bergen"))) + "\n"
+                + bulkLine(faker.internet().url() + "/facets/oslo", faker.book().title(),
+                Map.of("Sektor", List.of("Privat"), "Stilling", List.of(position), "Sted", List.of("Oslo"))) + "\n");
+        Map<String, Object> filters = Map.of("position", position, "sector", "privat", "municipality", "Oslo");
+
+        // When
+        String facets = getJobPostFacets(filters);
+        String cachedFacets = getJobPostFacets(filters);
+        bulkLoad(bulkLine(faker.internet().url() + "/facets/changed", faker.book().title(),
+                Map.of("Sektor", List.of("Privat"), "Stilling", List.of(position), "Sted", List.of("Oslo"))));
+        String changedFacets = getJobPostFacets(filters);
+
+        // Then
+        assertThat(JsonPath.<List<Object>>read(facets, "$.result.sector"))
+                .containsExactly(Map.of("value", "Offentlig", "count", 1), Map.of("value", "Privat", "count", 1));
+        assertThat(JsonPath.<List<Object>>read(facets, "$.result.position"))
+                .contains(Map.of("value", position, "count", 1));
+        assertThat(JsonPath.<List<Object>>read(facets, "$.result.municipality"))
+                .containsExactly(Map.of("value", "oslo", "count", 1), Map.of("value", "vestland", "count", 1));
+        assertThat(JsonPath.<List<Object>>read(facets, "$.result.tags"))
+                .contains(Map.of("value", "Bulk", "count", 1));
+        assertThat(cachedFacets).isEqualTo(facets);
+        assertThat(JsonPath.<List<Object>>read(changedFacets, "$.result.sector"))
+                .containsExactly(Map.of("value", "Privat", "count", 2), Map.of("value", "Offentlig", "count", 1));
+    }
+
+    @Test
+    @DisplayName("It should get the job posts within a radius of a place, nearest first, by page and by cursor")
+    void itShouldGetJobPostsNearPlace() {
+        // Given
+        String drammenUrl = faker.internet().url() + "/near/drammen";
+        String svelvikUrl = faker.internet().url() + "/near/svelvik";
+        String askerUrl = faker.internet().url() + "/near/asker";
+        String bergenUrl = faker.internet().url() + "/near/bergen";
+        bulkLoad(bulkLine(askerUrl, faker.book().title(), Map.of("Sted", List.of("1384 Asker"))) + "\n"
+                + bulkLine(drammenUrl, faker.book().title(), Map.of("Sted", List.of("Drammen"))) + "\n"
+                + bulkLine(svelvikUrl, faker.book().title(), Map.of("Sted", List.of("Svelvik"))) + "\n"
+                + bulkLine(bergenUrl, faker.book().title(), Map.of("Sted", List.of("Bergen"))) + "\n");
+        Map<String, Object> near = Map.of("near", "Mjøndalen", "radiusKm", 30);
+
+        // When
+        EntityExchangeResult<String> page = getJobPosts(null, near);
+        List<Object> jobPostIdsByCursor = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            Map<String, Object> params = new HashMap<>(near);
+            params.putAll(Map.of("cursor", cursor, "size", 1));
+            EntityExchangeResult<String> cursorPage = getJobPosts(null, params);
+            jobPostIdsByCursor.addAll(JsonPath.read(cursorPage.getResponseBody(), "$.result.content[*].id"));
+            cursor = JsonPath.read(cursorPage.getResponseBody(), "$.result.next_cursor");
+        }
+
+        // Then
+        List<Object> urls = JsonPath.read(page.getResponseBody(), "$.result.content[*].url");
+        assertThat(urls).hasSize(3);
+        assertThat(urls.subList(0, 2)).containsExactlyInAnyOrder(drammenUrl, svelvikUrl);
+        assertThat(urls.get(2)).isEqualTo(askerUrl);
+        assertThat(jobPostIdsByCursor)
+                .isEqualTo(JsonPath.read(page.getResponseBody(), "$.result.content[*].id"));
+    }
+
+    @Test
+    @DisplayName("It should reject a place that does not exist and a radius out of range")
+    void itShouldNotGetJobPostsNearUnknownPlaceOrOutOfRange() {
+        // When
+        // Then
+        webTestClient.method(HttpMethod.GET)
+                .uri(JOB_POST_PAH + "?near=atlantis")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Place atlantis is not in the gazetteer");
+        webTestClient.method(HttpMethod.GET)
+                .uri(JOB_POST_PAH + "?near=Drammen&radiusKm=-1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Radius -1 km is not between 0 and 500 km");
+    }
+
+    @Test
+    @DisplayName("It should rank the job posts matching the query, title matches first, and count every match")
+    void itShouldGetJobPostsByRelevance() {
+        // Given
+        String descriptionMatchUrl = faker.internet().url() + "/relevance/description";
+        String titleMatchUrl = faker.internet().url() + "/relevance/title";
+        bulkLoad(bulkLine(descriptionMatchUrl, faker.book().title(), "We are looking for a zylophonist",
+                Map.of("Sektor", List.of("Privat"))) + "\n"
+                + bulkLine(titleMatchUrl, "Zylophonist", faker.lorem().sentence(),
+                Map.of("Sektor", List.of("Privat"))) + "\n");
+        jdbcTemplate.update(UPDATE_TSV_DOCUMENTS);
+        Map<String, Object> relevance = Map.of("query", "zylophonist", "sort", "relevance");
+        JobPostQueryDSLRepositoryImpl repository = AopTestUtils.getUltimateTargetObject(jobPostRepositoryCustom);
+        int maxCandidates = (int) ReflectionTestUtils.getField(repository, "maxCandidates");
+
+        // When
+        EntityExchangeResult<String> page = getJobPosts(null, relevance);
+        EntityExchangeResult<String> byDeadline = getJobPosts(null, Map.of("query", "zylophonist"));
+        List<Object> jobPostIdsByCursor = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            Map<String, Object> params = new HashMap<>(relevance);
+            params.putAll(Map.of("cursor", cursor, "size", 1));
+            EntityExchangeResult<String> cursorPage = getJobPosts(null, params);
+            jobPostIdsByCursor.addAll(JsonPath.read(cursorPage.getResponseBody(), "$.result.content[*].id"));
+            cursor = JsonPath.read(cursorPage.getResponseBody(), "$.result.next_cursor");
+        }
+        ReflectionTestUtils.setField(repository, "maxCandidates", 1);
+        EntityExchangeResult<String> cappedPage;
+        EntityExchangeResult<String> cappedEstimatedPage;
+        try {
+            Map<String, Object> params = new HashMap<>(relevance);
+            params.put("total", "exact");
+            cappedPage = getJobPosts(null, params);
+            params.put("total", "estimated");
+            cappedEstimatedPage = getJobPosts(null, params);
+        } finally {
+            ReflectionTestUtils.setField(repository, "maxCandidates", maxCandidates);
+        }
+
+        // Then
+        assertThat(JsonPath.<List<Object>>read(page.getResponseBody(), "$.result.content[*].url"))
+                .containsExactly(titleMatchUrl, descriptionMatchUrl);
+        assertThat(JsonPath.<List<Object>>read(byDeadline.getResponseBody(), "$.result.content[*].url"))
+                .containsExactly(descriptionMatchUrl, titleMatchUrl);
+        assertThat(jobPostIdsByCursor)
+                .isEqualTo(JsonPath.read(page.getResponseBody(), "$.result.content[*].id"));
+        assertThat(JsonPath.<List<Object>>read(cappedPage.getResponseBody(), "$.result.content[*].url"))
+                .containsExactly(titleMatchUrl);
+        assertThat(JsonPath.<Integer>read(cappedPage.getResponseBody(), "$.result.total_elements")).isEqualTo(2);
+        assertThat(JsonPath.<Boolean>read(cappedPage.getResponseBody(), "$.result.has_next")).isFalse();
+        assertThat(JsonPath.<Integer>read(cappedEstimatedPage.getResponseBody(), "$.result.total_elements"))
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("It should find Norwegian words in any inflection and spelling, and take phrases and or")
+    void itShouldGetJobPostsByNorwegianQuery() {
+        // Given
+        String driverUrl = faker.internet().url() + "/query/driver";
+        String nurseUrl = faker.internet().url() + "/query/nurse";
+        bulkLoad(bulkLine(driverUrl, "Sjåfør i Tromsø", "Stillingen passer for sjåfører med førerkort",
+                Map.of("Sektor", List.of("Privat"))) + "\n"
+                + bulkLine(nurseUrl, "Sykepleier til legevakten", "Vi søker sykepleiere i Tromsø",
+                Map.of("Sektor", List.of("Offentlig"))) + "\n");
+        jdbcTemplate.update(UPDATE_TSV_DOCUMENTS);
+
+        // When
+        // Then
+        assertThat(jobPostUrlsMatching("sjafor tromso")).containsExactly(driverUrl);
+        assertThat(jobPostUrlsMatching("sykepleieren")).containsExactly(nurseUrl);
+        assertThat(jobPostUrlsMatching("stillinger sjåførene")).containsExactly(driverUrl);
+        assertThat(jobPostUrlsMatching("\"sjåfør i tromsø\"")).containsExactly(driverUrl);
+        assertThat(jobPostUrlsMatching("\"tromsø sjåfør\"")).isEmpty();
+        assertThat(jobPostUrlsMatching("sjåfør or sykepleier")).containsExactlyInAnyOrder(driverUrl, nurseUrl);
+        assertThat(jobPostUrlsMatching("tromsø -sjåfør")).containsExactly(nurseUrl);
+    }
+
+    @Test
+    @DisplayName("It should reject a sort that does not exist")
+    void itShouldNotGetJobPostsWithInvalidSort() {
+        // When
+        // Then
+        webTestClient.method(HttpMethod.GET)
+                .uri(JOB_POST_PAH + "?sort=popularity")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].message").isEqualTo("Sort popularity is not one of deadline or relevance");
+    }
+
+    @Test
+    @DisplayName("It should create the other job posts when one job post fails")
+    void itShouldCreateJobPostsAroundFailingJobPost() {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = new ArrayList<>(JobPostUtil.getJobPosts(3).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList());
+        JobPostCreateDto valid = jobPostCreateDtos.get(1);
+        jobPostCreateDtos.set(1, new JobPostCreateDto(valid.url() + "/" + "a".repeat(300), valid.companyName(),
+                valid.companyImageUrl(), valid.imageUrl(), valid.title(), valid.description(), valid.deadline(),
+                valid.jobTags(), valid.jobDefinitions()));
+
+        JobPostCreateRequest jobPostCreateRequest = new JobPostCreateRequest(jobPostCreateDtos);
+
+        // When
+        // Then
+        webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(jobPostCreateRequest), JobPostCreateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.result[0].status").isEqualTo(JobPostCreateStatus.CREATED.name())
+                .jsonPath("$.result[1].status").isEqualTo(JobPostCreateStatus.FAILED.name())
+                .jsonPath("$.result[1].reason").value(reason -> assertThat((String) reason).contains("too long"))
+                .jsonPath("$.result[2].status").isEqualTo(JobPostCreateStatus.CREATED.name());
+    }
+
+    @Test
+    @DisplayName("It should queue job posts and report the progress of the batch")
+    void itShouldEnqueueJobPosts() throws InterruptedException {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(5).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+
+        JobPostCreateRequest jobPostCreateRequest = new JobPostCreateRequest(jobPostCreateDtos);
+
+        // When
+        EntityExchangeResult<byte[]> accepted = webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "/async?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(jobPostCreateRequest), JobPostCreateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isAccepted()
+                .expectHeader()
+                .exists(HttpHeaders.LOCATION)
+                .expectBody()
+                .jsonPath("$.response").isEqualTo(ResponseType.SUCCESS.name())
+                .jsonPath("$.result.total").isEqualTo(5)
+                .returnResult();
+
+        // Then
+        URI location = accepted.getResponseHeaders().getLocation();
+        String state = null;
+        for (int attempt = 0; attempt < 50 && !JobPostIngestBatchState.COMPLETED.name().equals(state); attempt++) {
+            Thread.sleep(100);
+            state = JsonPath.read(webTestClient.method(HttpMethod.GET)
+                    .uri(location.getPath() + "?secretkey={secretkey}", secretKey)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(String.class)
+                    .returnResult()
+                    .getResponseBody(), "$.result.state");
+        }
+
+        assertThat(state).isEqualTo(JobPostIngestBatchState.COMPLETED.name());
+        assertThat(jobPostRepository.findExistingUrls(jobPostCreateDtos.stream().map(JobPostCreateDto::url).toList()))
+                .hasSize(5);
+    }
+
+    @Test
+    @DisplayName("It should bulk load job posts from a gzip compressed NDJSON stream")
+    void itShouldBulkLoadJobPosts() throws IOException {
+        // Given
+        List<String> urls = List.of(faker.internet().url() + "/bulk/1", faker.internet().url() + "/bulk/2",
+                faker.internet().url() + "/bulk/3");
+
+        StringBuilder ndjson = new StringBuilder();
+        for (String url : urls) {
+            ndjson.append(bulkLine(url, faker.book().title())).append('\n');
+        }
+        ndjson.append(bulkLine(urls.get(0), faker.book().title())).append('\n');
+        ndjson.append(bulkLine(faker.internet().url() + "/bulk/invalid", null)).append('\n');
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(body)) {
+            gzipOutputStream.write(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        // When
+        // Then
+        webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "/bulk?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .bodyValue(body.toByteArray())
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.response").isEqualTo(ResponseType.SUCCESS.name())
+                .jsonPath("$.result.received").isEqualTo(5)
+                .jsonPath("$.result.created").isEqualTo(3)
+                .jsonPath("$.result.skipped_duplicate").isEqualTo(1)
+                .jsonPath("$.result.invalid").isEqualTo(1);
+
+        assertThat(jobPostRepository.findExistingUrls(urls)).containsExactlyInAnyOrderElementsOf(urls);
+    }
+
+    @Test
+    @DisplayName("It should update bulk loaded job posts whose content changed")
+    void itShouldUpdateBulkLoadedJobPosts() {
+        // Given
+        String unchangedUrl = faker.internet().url() + "/bulk/unchanged";
+        String changedUrl = faker.internet().url() + "/bulk/changed";
+        String unchangedLine = bulkLine(unchangedUrl, faker.book().title());
+        bulkLoad(unchangedLine + "\n" + bulkLine(changedUrl, faker.book().title()) + "\n");
+
+        String title = faker.book().title() + " (updated)";
+
+        // When
+        // Then
+        bulkLoad(unchangedLine + "\n" + bulkLine(changedUrl, title) + "\n")
+                .jsonPath("$.result.created").isEqualTo(0)
+                .jsonPath("$.result.updated").isEqualTo(1)
+                .jsonPath("$.result.unchanged").isEqualTo(1);
+
+        assertThat(storedTitle(changedUrl)).isEqualTo(title);
+    }
+
+    @Test
+    @DisplayName("It should return the urls and url hashes that are not stored yet")
+    void itShouldFindNewUrls() {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(2).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+        createJobPosts(jobPostCreateDtos);
+
+        String stored = jobPostCreateDtos.get(0).url();
+        String newUrl = faker.internet().url() + "/new";
+        String storedHash = JobPostContentHash.sha256Hex(jobPostCreateDtos.get(1).url());
+        String newHash = JobPostContentHash.sha256Hex(faker.internet().url() + "/new");
+
+        JobPostNewUrlsRequest newUrlsRequest = new JobPostNewUrlsRequest(
+                List.of(stored, newUrl, newUrl), List.of(newHash, storedHash.toUpperCase()));
+
+        // When
+        // Then
+        webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "/new-urls?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(newUrlsRequest), JobPostNewUrlsRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.response").isEqualTo(ResponseType.SUCCESS.name())
+                .jsonPath("$.result.urls.length()").isEqualTo(1)
+                .jsonPath("$.result.urls[0]").isEqualTo(newUrl)
+                .jsonPath("$.result.url_hashes.length()").isEqualTo(1)
+                .jsonPath("$.result.url_hashes[0]").isEqualTo(newHash);
+    }
+
+    @Test
+    @DisplayName("It should reject url hashes that are not SHA-256 hex")
+    void itShouldNotFindNewUrlsForMalformedHashes() {
+        // Given
+        JobPostNewUrlsRequest newUrlsRequest = new JobPostNewUrlsRequest(null, List.of("not-a-hash"));
+
+        // When
+        // Then
+        webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "/new-urls?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(newUrlsRequest), JobPostNewUrlsRequest.class)
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.response").isEqualTo(ResponseType.FAILED.name());
+    }
+
+    @Test
+    @DisplayName("It should expire the job posts of a source that are gone from its job board, and revive them")
+    void itShouldSyncSource() {
+        // Given
+        String source = "jobs-" + UUID.randomUUID() + ".example.com";
+        List<String> urls = IntStream.rangeClosed(1, 3)
+                .mapToObj(i -> "https://" + source + "/job/" + i)
+                .toList();
+        JobPost jobPost = JobPostUtil.getJobPost();
+        jobPost.setUrl(urls.get(0));
+        createJobPosts(List.of(JobPostUtil.getJobPostCreateDtoFrom(jobPost)));
+        bulkLoad(bulkLine(urls.get(1), faker.book().title()) + "\n" + bulkLine(urls.get(2), faker.book().title()));
+
+        // When
+        // Then
+        syncSource(source, String.join("\n", urls.get(0), urls.get(2), "https://" + source + "/job/unknown"))
+                .jsonPath("$.result.source").isEqualTo(source)
+                .jsonPath("$.result.received").isEqualTo(3)
+                .jsonPath("$.result.expired").isEqualTo(1)
+                .jsonPath("$.result.revived").isEqualTo(0);
+        assertThat(storedJobPost(urls.get(0)).getSource()).isEqualTo(source);
+        assertThat(storedJobPost(urls.get(0)).getExpiredAt()).isNull();
+        assertThat(storedJobPost(urls.get(1)).getExpiredAt()).isNotNull();
+
+        syncSource(source, String.join("\n", urls))
+                .jsonPath("$.result.expired").isEqualTo(0)
+                .jsonPath("$.result.revived").isEqualTo(1);
+        assertThat(storedJobPost(urls.get(1)).getExpiredAt()).isNull();
+    }
+
+    @Test
+    @DisplayName("It should expire the job posts whose deadline passed, and revive them with a new deadline")
+    void itShouldSweepPassedDeadlines() {
+        // Given
+        JobPost jobPost = JobPostUtil.getJobPost();
+        jobPost.setUrl(faker.internet().url() + "/sweep/ingested");
+        String bulkLoadedUrl = faker.internet().url() + "/sweep/bulk";
+        createJobPosts(List.of(JobPostUtil.getJobPostCreateDtoFrom(jobPost)));
+        bulkLoad(bulkLine(bulkLoadedUrl, faker.book().title()));
+        for (String url : List.of(jobPost.getUrl(), bulkLoadedUrl)) {
+            JobPost storedJobPost = storedJobPost(url);
+            storedJobPost.setDeadline(LocalDate.now().minusDays(1));
+            jobPostRepository.save(storedJobPost);
+        }
+
+        // When
+        long expired = jobPostDeadlineSweeper.sweep();
+
+        // Then
+        assertThat(expired).isGreaterThanOrEqualTo(2);
+        assertThat(storedJobPost(jobPost.getUrl()).getExpiredAt()).isNotNull();
+        assertThat(storedJobPost(bulkLoadedUrl).getExpiredAt()).isNotNull();
+
+        jobPost.setDeadline(LocalDate.now().plusDays(30));
+        createJobPosts(List.of(JobPostUtil.getJobPostCreateDtoFrom(jobPost)));
+        bulkLoad(bulkLine(bulkLoadedUrl, faker.book().title()));
+        assertThat(storedJobPost(jobPost.getUrl()).getExpiredAt()).isNull();
+        assertThat(storedJobPost(bulkLoadedUrl).getExpiredAt()).isNull();
+    }
+
+    @Test
+    @DisplayName("It should not sweep while another instance holds the sweep lock")
+    void itShouldNotSweepWhileLocked() throws SQLException {
+        // Given
+        JobPost jobPost = JobPostUtil.getJobPost();
+        jobPost.setUrl(faker.internet().url() + "/sweep/locked");
+        createJobPosts(List.of(JobPostUtil.getJobPostCreateDtoFrom(jobPost)));
+        JobPost storedJobPost = storedJobPost(jobPost.getUrl());
+        storedJobPost.setDeadline(LocalDate.now().minusDays(1));
+        jobPostRepository.save(storedJobPost);
+
+        // When
+        long expired;
+        try (Connection otherInstance = dataSource.getConnection();
+             PreparedStatement lock = otherInstance.prepareStatement("SELECT pg_advisory_lock(?)")) {
+            lock.setLong(1, JobPostDeadlineSweeper.SWEEP_LOCK);
+            lock.execute();
+            try {
+                expired = jobPostDeadlineSweeper.sweep();
+            } finally {
+                try (PreparedStatement unlock = otherInstance.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                    unlock.setLong(1, JobPostDeadlineSweeper.SWEEP_LOCK);
+                    unlock.execute();
+                }
+            }
+        }
+
+        // Then
+        assertThat(expired).isZero();
+        assertThat(storedJobPost(jobPost.getUrl()).getExpiredAt()).isNull();
+        assertThat(jobPostDeadlineSweeper.sweep()).isGreaterThanOrEqualTo(1);
+        assertThat(storedJobPost(jobPost.getUrl()).getExpiredAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("It should reject a source sync without urls")
+    void itShouldNotSyncSourceWithoutUrls() {
+        // Given
+        String source = "jobs-" + UUID.randomUUID() + ".example.com";
+        String url = "https://" + source + "/job/1";
+        bulkLoad(bulkLine(url, faker.book().title()));
+
+        // When
+        // Then
+        webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "/sources/{source}/sync?secretkey={secretkey}", source, secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue("\n \n")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatusCode.valueOf(400))
+                .expectBody()
+                .jsonPath("$.response").isEqualTo(ResponseType.FAILED.name());
+
+        assertThat(storedJobPost(url).getExpiredAt()).isNull();
+    }
+
+    @Test
+    @DisplayName("It should reject a bulk load containing malformed JSON")
+    void itShouldNotBulkLoadMalformedJobPosts() {
+        // Given
+        String url = faker.internet().url() + "/bulk/malformed";
+        String ndjson = bulkLine(url, faker.book().title()) + "\n{\"url\": \n";
+
+        // When
+        // Then
+        webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "/bulk?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatusCode.valueOf(400))
+                .expectBody()
+                .jsonPath("$.response").isEqualTo(ResponseType.FAILED.name())
+                .jsonPath("$.errors[0].message").value(message -> assertThat((String) message).startsWith("Line 2 "));
+
+        assertThat(jobPostRepository.findExistingUrls(List.of(url))).isEmpty();
+    }
+
+    private WebTestClient.BodyContentSpec createJobPosts(List<JobPostCreateDto> jobPostCreateDtos) {
+        return webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new JobPostCreateRequest(jobPostCreateDtos)), JobPostCreateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody();
+    }
+
+    private WebTestClient.BodyContentSpec bulkLoad(String ndjson) {
+        return webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "/bulk?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody();
+    }
+
+    private List<Object> jobPostIdsByCursor(String deadline, int size) {
+        List<Object> jobPostIds = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            EntityExchangeResult<String> page = getJobPosts(deadline, Map.of("cursor", cursor, "size", size));
+            if (page.getStatus() == HttpStatus.NO_CONTENT) {
+                break;
+            }
+            jobPostIds.addAll(JsonPath.read(page.getResponseBody(), "$.result.content[*].id"));
+            cursor = JsonPath.read(page.getResponseBody(), "$.result.next_cursor");
+        }
+        return jobPostIds;
+    }
+
+    private List<Object> jobPostIdsByPage(String deadline) {
+        EntityExchangeResult<String> page = getJobPosts(deadline, Map.of("page", 0, "size", 2000));
+        if (page.getStatus() == HttpStatus.NO_CONTENT) {
+            return List.of();
+        }
+        return JsonPath.read(page.getResponseBody(), "$.result.content[*].id");
+    }
+
+    private List<Object> jobPostUrlsMatching(String query) {
+        EntityExchangeResult<String> page = getJobPosts(null, Map.of("query", query));
+        if (page.getStatus() == HttpStatus.NO_CONTENT) {
+            return List.of();
+        }
+        return JsonPath.read(page.getResponseBody(), "$.result.content[*].url");
+    }
+
+    private EntityExchangeResult<String> getJobPosts(String deadline, Map<String, Object> params) {
+        return webTestClient.method(HttpMethod.GET)
+                .uri(uriBuilder -> {
+                    uriBuilder.path(JOB_POST_PAH);
+                    params.forEach(uriBuilder::queryParam);
+                    if (deadline != null) {
+                        uriBuilder.queryParam("deadline", deadline);
+                    }
+                    return uriBuilder.build();
+                })
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(String.class)
+                .returnResult();
+    }
+
+    private String getJobPostFacets(Map<String, Object> params) {
+        return webTestClient.method(HttpMethod.GET)
+                .uri(uriBuilder -> {
+                    uriBuilder.path(JOB_POST_PAH + "/facets");
+                    params.forEach(uriBuilder::queryParam);
+                    return uriBuilder.build();
+                })
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private WebTestClient.BodyContentSpec syncSource(String source, String urls) {
+        return webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "/sources/{source}/sync?secretkey={secretkey}", source, secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue(urls)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody();
+    }
+
+    private String storedTitle(String url) {
+        return storedJobPost(url).getTitle();
+    }
+
+    private JobPost storedJobPost(String url) {
+        Long id = jobPostRepository.findExistingJobPosts(List.of(url)).get(0).id();
+        return jobPostRepository.findById(id).orElseThrow();
+    }
+
+    private String bulkLine(String url, String title) {
+        return bulkLine(url, title, Map.of("Sektor", List.of("Privat"), "Sted", List.of("Oslo", "Bergen")));
+    }
+
+    private String bulkLine(String url, String title, Map<String, List<String>> jobDefinitions) {
+        return bulkLine(url, title, faker.lorem().sentence(), jobDefinitions);
+    }
+
+    private String bulkLine(String url, String title, String description, Map<String, List<String>> jobDefinitions) {
+        Map<String, Object> jobPost = new LinkedHashMap<>();
+        jobPost.put("url", url);
+        jobPost.put("company_name", faker.company().name());
+        jobPost.put("title", title);
+        jobPost.put("description", description);
+        jobPost.put("deadline", "2030-01-31");
+        jobPost.put("job_tags", List.of(Map.of("tag", "Bulk"), Map.of("tag", faker.lorem().word())));
+        jobPost.put("job_definitions", jobDefinitions);
+        try {
+            return objectMapper.writeValueAsString(jobPost);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
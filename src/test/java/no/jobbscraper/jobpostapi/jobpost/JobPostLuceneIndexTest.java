@@ -0,0 +1,264 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import net.datafaker.Faker;
+import no.jobbscraper.jobpostapi.PostgreSQLContainerInitializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DirtiesContext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "search.backend=lucene")
+@AutoConfigureTestDatabase(replace= AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(initializers = {PostgreSQLContainerInitializer.class})
+class JobPostLuceneIndexTest {
+
+    private static final String JOB_POST_PAH = "/api/v1/jobposts";
+
+    // Stores a job post behind the back of the ingest paths, like another instance would.
+    private static final String INSERT_JOB_POST = """
+            INSERT INTO jobposts (jobpost_id, created_at, url, company_name, title, description, deadline)
+            VALUES (?, current_date, ?, 'Company', ?, 'Description', current_date + 30)
+            """;
+
+    @Value("${secret_key}")
+    private String secretKey;
+
+    @Autowired
+    private JobPostLuceneIndex jobPostLuceneIndex;
+
+    @Autowired
+    private JobPostDeadlineSweeper jobPostDeadlineSweeper;
+
+    @Autowired
+    private JobPostRepository jobPostRepository;
+
+    @Autowired
+    private JobPostRepositoryCustom jobPostRepositoryCustom;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Faker faker;
+
+    @BeforeEach
+    void setUp() {
+        faker = new Faker();
+    }
+
+    @Test
+    @DisplayName("It should find Norwegian words, prefixes and typos in every indexed field")
+    void itShouldGetJobPostsByLuceneQuery() throws IOException {
+        // Given
+        String driverUrl = faker.internet().url() + "/lucene/driver";
+        String nurseUrl = faker.internet().url() + "/lucene/nurse";
+        bulkLoad(bulkLine(driverUrl, "Sjåfør i Tromsø", "Stillingen passer for sjåfører med førerkort",
+                "Transportfirma", "Lastebil", Map.of("Sektor", List.of("Privat"))) + "\n"
+                + bulkLine(nurseUrl, "Sykepleier til legevakten", "Vi søker sykepleiere i Tromsø",
+                "Helseforetak", "Turnus", Map.of("Sektor", List.of("Offentlig"))) + "\n");
+        jobPostLuceneIndex.refresh();
+
+        // When
+        // Then
+        assertThat(jobPostUrlsMatching("sjafor tromso")).containsExactly(driverUrl);
+        assertThat(jobPostUrlsMatching("sykepleieren")).containsExactly(nurseUrl);
+        assertThat(jobPostUrlsMatching("\"sjåfør i tromsø\"")).containsExactly(driverUrl);
+        assertThat(jobPostUrlsMatching("\"tromsø sjåfør\"")).isEmpty();
+        assertThat(jobPostUrlsMatching("sjåfør or sykepleier")).containsExactlyInAnyOrder(driverUrl, nurseUrl);
+        assertThat(jobPostUrlsMatching("tromsø -sjåfør")).containsExactly(nurseUrl);
+        assertThat(jobPostUrlsMatching("syke*")).containsExactly(nurseUrl);
+        assertThat(jobPostUrlsMatching("sykepleir~1")).containsExactly(nurseUrl);
+        assertThat(jobPostUrlsMatching("transportfirma")).containsExactly(driverUrl);
+        assertThat(jobPostUrlsMatching("turnus")).containsExactly(nurseUrl);
+        assertThat(jobPostUrlsMatching("offentlig")).containsExactly(nurseUrl);
+    }
+
+    @Test
+    @DisplayName("It should rank the job posts matching the query by BM25, title matches first, by page and by cursor")
+    void itShouldGetJobPostsByRelevance() throws IOException {
+        // Given
+        String descriptionMatchUrl = faker.internet().url() + "/lucene/relevance/description";
+        String titleMatchUrl = faker.internet().url() + "/lucene/relevance/title";
+        bulkLoad(bulkLine(descriptionMatchUrl, faker.book().title(), "Vi søker en xylofonist til orkesteret",
+                faker.company().name(), faker.lorem().word(), Map.of("Sektor", List.of("Privat"))) + "\n"
+                + bulkLine(titleMatchUrl, "Xylofonist", faker.lorem().sentence(),
+                faker.company().name(), faker.lorem().word(), Map.of("Sektor", List.of("Privat"))) + "\n");
+        jobPostLuceneIndex.refresh();
+        Map<String, Object> relevance = Map.of("query", "xylofonist", "sort", "relevance");
+
+        // When
+        EntityExchangeResult<String> page = getJobPosts(relevance);
+        List<Object> jobPostIdsByCursor = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            Map<String, Object> params = new HashMap<>(relevance);
+            params.putAll(Map.of("cursor", cursor, "size", 1));
+            EntityExchangeResult<String> cursorPage = getJobPosts(params);
+            jobPostIdsByCursor.addAll(JsonPath.read(cursorPage.getResponseBody(), "$.result.content[*].id"));
+            cursor = JsonPath.read(cursorPage.getResponseBody(), "$.result.next_cursor");
+        }
+
+        // Then
+        assertThat(JsonPath.<List<Object>>read(page.getResponseBody(), "$.result.content[*].url"))
+                .containsExactly(titleMatchUrl, descriptionMatchUrl);
+        assertThat(jobPostIdsByCursor)
+                .isEqualTo(JsonPath.read(page.getResponseBody(), "$.result.content[*].id"));
+    }
+
+    @Test
+    @DisplayName("It should reindex job posts changed by the ingest paths, and drop the expired ones")
+    void itShouldReindexChangedJobPosts() throws IOException {
+        // Given
+        String url = faker.internet().url() + "/lucene/changed";
+        bulkLoad(bulkLine(url, "Bibliotekar", faker.lorem().sentence(), faker.company().name(),
+                faker.lorem().word(), Map.of("Sektor", List.of("Offentlig"))));
+        jobPostLuceneIndex.refresh();
+        assertThat(jobPostUrlsMatching("bibliotekar")).containsExactly(url);
+
+        // When
+        bulkLoad(bulkLine(url, "Arkivar", faker.lorem().sentence(), faker.company().name(),
+                faker.lorem().word(), Map.of("Sektor", List.of("Offentlig"))));
+        jobPostLuceneIndex.refresh();
+        List<Object> afterUpdate = jobPostUrlsMatching("arkivar");
+        List<Object> oldTitleAfterUpdate = jobPostUrlsMatching("bibliotekar");
+
+        Long jobPostId = jobPostRepository.findExistingJobPosts(List.of(url)).get(0).id();
+        jdbcTemplate.update("UPDATE jobposts SET deadline = current_date - 1 WHERE jobpost_id = ?", jobPostId);
+        jobPostDeadlineSweeper.sweep();
+        // Live again behind the back of the ingest paths, so only the index can leave it out.
+        jdbcTemplate.update("UPDATE jobposts SET deadline = current_date + 1, expired_at = NULL WHERE jobpost_id = ?",
+                jobPostId);
+        jobPostLuceneIndex.refresh();
+
+        // Then
+        assertThat(afterUpdate).containsExactly(url);
+        assertThat(oldTitleAfterUpdate).isEmpty();
+        assertThat(jobPostUrlsMatching("arkivar")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("It should drop the facets counted before a refresh made changed job posts searchable")
+    void itShouldNotCacheFacetsCountedBeforeRefresh() throws IOException {
+        // Given
+        String sector = "Sektor " + faker.internet().uuid();
+        JobPostGetRequest byQuery = new JobPostGetRequest("notarius", null, null, null, null, null, null, null);
+
+        // When
+        // A rebuild holds back the scheduled refreshes, so the job post is not searchable until the refresh below.
+        ReflectionTestUtils.setField(jobPostLuceneIndex, "rebuilding", true);
+        JobPostFacets beforeRefresh;
+        try {
+            bulkLoad(bulkLine(faker.internet().url() + "/lucene/facets", "Notarius", faker.lorem().sentence(),
+                    faker.company().name(), faker.lorem().word(), Map.of("Sektor", List.of(sector))));
+            beforeRefresh = jobPostRepositoryCustom.findFacets(byQuery);
+        } finally {
+            ReflectionTestUtils.setField(jobPostLuceneIndex, "rebuilding", false);
+        }
+        jobPostLuceneIndex.refresh();
+        JobPostFacets afterRefresh = jobPostRepositoryCustom.findFacets(byQuery);
+
+        // Then
+        assertThat(beforeRefresh.sector()).isEmpty();
+        assertThat(afterRefresh.sector()).extracting(JobPostFacetCount::value).containsExactly(sector);
+    }
+
+    @Test
+    @DisplayName("It should index the job posts stored behind its back when it is rebuilt from the database")
+    void itShouldRebuildFromDatabase() throws IOException {
+        // Given
+        String url = faker.internet().url() + "/lucene/rebuilt";
+        jdbcTemplate.update(INSERT_JOB_POST, 900_000_001L, url, "Kirurg");
+        jobPostLuceneIndex.refresh();
+        List<Object> beforeRebuild = jobPostUrlsMatching("kirurg");
+
+        // When
+        long indexed = jobPostLuceneIndex.rebuild();
+
+        // Then
+        assertThat(beforeRebuild).isEmpty();
+        assertThat(indexed).isPositive();
+        assertThat(jobPostUrlsMatching("kirurg")).containsExactly(url);
+    }
+
+    private void bulkLoad(String ndjson) {
+        webTestClient.method(HttpMethod.POST)
+                .uri(JOB_POST_PAH + "/bulk?secretkey={secretkey}", secretKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    private List<Object> jobPostUrlsMatching(String query) {
+        EntityExchangeResult<String> page = getJobPosts(Map.of("query", query));
+        if (page.getStatus() == HttpStatus.NO_CONTENT) {
+            return List.of();
+        }
+        return JsonPath.read(page.getResponseBody(), "$.result.content[*].url");
+    }
+
+    private EntityExchangeResult<String> getJobPosts(Map<String, Object> params) {
+        return webTestClient.method(HttpMethod.GET)
+                .uri(uriBuilder -> {
+                    uriBuilder.path(JOB_POST_PAH);
+                    params.forEach(uriBuilder::queryParam);
+                    return uriBuilder.build();
+                })
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(String.class)
+                .returnResult();
+    }
+
+    private String bulkLine(String url, String title, String description, String companyName, String jobTag,
+                            Map<String, List<String>> jobDefinitions) {
+        Map<String, Object> jobPost = new LinkedHashMap<>();
+        jobPost.put("url", url);
+        jobPost.put("company_name", companyName);
+        jobPost.put("title", title);
+        jobPost.put("description", description);
+        jobPost.put("deadline", "2030-01-31");
+        jobPost.put("job_tags", List.of(Map.of("tag", jobTag)));
+        jobPost.put("job_definitions", jobDefinitions);
+        try {
+            return objectMapper.writeValueAsString(jobPost);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import no.jobbscraper.jobpostapi.PostgreSQLContainerInitializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@DirtiesContext
+@SpringBootTest
+@AutoConfigureTestDatabase(replace= AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(initializers = {PostgreSQLContainerInitializer.class})
+class JobPostSearchBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobPostSearchBenchmarkTest.class);
+
+    private static final int WARMUP_ITERATIONS = 5;
+
+    private static final int ITERATIONS = 20;
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final String INSERT_JOB_TAGS = """
+            INSERT INTO job_tags (id, tag)
+            SELECT g, 'Tag ' || g FROM generate_series(1, 200) g
+            """;
+
+    private static final String INSERT_JOB_DEFINITIONS = """
+            INSERT INTO job_definitions (id, key, value)
+            SELECT g, CASE WHEN g % 2 = 0 THEN 'Sektor' ELSE 'Sted' END, 'Verdi ' || g
+            FROM generate_series(1, 100) g
+            """;
+
+    private static final String INSERT_JOB_POSTS = """
+            INSERT INTO jobposts (jobpost_id, created_at, url, company_name, title, description, deadline)
+            SELECT g, current_date - (g % 365)::int, 'https://example.com/search/' || g, 'Company ' || g % 500,
+                   'Job title ' || g, 'Description of job ' || g,
+                   CASE WHEN g % 4 = 0 THEN NULL ELSE current_date + (g % 365)::int END
+            FROM generate_series(?, ?) g
+            """;
+
+    private static final String INSERT_JOB_TAG_LINKS = """
+            INSERT INTO j_jobpost_tags (jobpost_id, jobtag_id)
+            SELECT g, 1 + (g + k * 67) % 200 FROM generate_series(?, ?) g, generate_series(0, 2) k
+            """;
+
+    private static final String INSERT_JOB_DEFINITION_LINKS = """
+            INSERT INTO j_jobpost_descriptions (jobpost_id, jobdescription_id)
+            SELECT g, 1 + (g + k * 31) % 100 FROM generate_series(?, ?) g, generate_series(0, 2) k
+            """;
+
+    // What V13__add_job_definition_ids.sql backfills, which ScriptUtils can not run for its DO block.
+    private static final String UPDATE_JOB_DEFINITION_IDS = """
+            UPDATE jobposts j
+            SET job_definition_ids = l.ids
+            FROM (SELECT jobpost_id, array_agg(jobdescription_id ORDER BY jobdescription_id) AS ids
+                  FROM j_jobpost_descriptions
+                  WHERE jobpost_id BETWEEN ? AND ?
+                  GROUP BY jobpost_id) l
+            WHERE j.jobpost_id = l.jobpost_id
+            """;
+
+    private static final String INDEX_JOB_DEFINITION_IDS = """
+            CREATE INDEX IF NOT EXISTS idx_jobposts_job_definition_ids
+                ON jobposts USING GIN (job_definition_ids)
+                WHERE expired_at IS NULL
+            """;
+
+    // The test schema is generated by Hibernate, without the indexes the search relies on in production.
+    private static final List<String> SEARCH_INDEX_MIGRATIONS = List.of(
+            "db/migration/postgresql/V10__add_keyset_pagination_indexes.sql",
+            "db/migration/postgresql/V11__add_jobpost_descriptions_jobpost_index.sql");
+
+    @Autowired
+    private JobPostRepositoryCustom jobPostRepositoryCustom;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("It should report search latency of the single statement and the three query path at 100k and 1M job posts")
+    void searchLatency() {
+        // Given
+        jdbcTemplate.update(INSERT_JOB_TAGS);
+        jdbcTemplate.update(INSERT_JOB_DEFINITIONS);
+        SEARCH_INDEX_MIGRATIONS.forEach(migration ->
+                new ResourceDatabasePopulator(new ClassPathResource(migration)).execute(dataSource));
+        jdbcTemplate.execute(INDEX_JOB_DEFINITION_IDS);
+        List<JobPostGetRequest> jobPostGetRequests = List.of(
+                new JobPostGetRequest(null, null, null, null, null, null, null, null),
+                new JobPostGetRequest(null, null, "Verdi 42", null, null, null, null, null));
+
+        for (int jobPosts : new int[]{100_000, 1_000_000}) {
+            seed(jobPosts);
+
+            for (JobPostGetRequest jobPostGetRequest : jobPostGetRequests) {
+                for (Pageable pageable : List.of(PageRequest.of(0, PAGE_SIZE), PageRequest.of(50, PAGE_SIZE))) {
+                    // When
+                    Measurement singleStatement = measure(() -> transactionTemplate.execute(status ->
+                            jobPostRepositoryCustom.findAll(jobPostGetRequest, pageable)));
+                    Measurement threeQueries = measure(() -> transactionTemplate.execute(status ->
+                            findAllWithThreeQueries(jobPostGetRequest, pageable)));
+
+                    // Then
+                    assertThat(ids(singleStatement.page())).isEqualTo(ids(threeQueries.page()));
+                    assertThat(singleStatement.page().getTotalElements())
+                            .isEqualTo(threeQueries.page().getTotalElements());
+                    LOGGER.info("{} job posts, sector {}, page {}: single statement {} ms, three queries {} ms",
+                            jobPosts, jobPostGetRequest.sector(), pageable.getPageNumber(),
+                            singleStatement.averageMs(), threeQueries.averageMs());
+                }
+            }
+        }
+    }
+
+    /**
+     * Tops the job posts up to the given number, each with three tags and three job definitions.
+     */
+    private void seed(int jobPosts) {
+        Long seeded = jdbcTemplate.queryForObject("SELECT count(*) FROM jobposts", Long.class);
+        long from = (seeded == null ? 0 : seeded) + 1;
+        jdbcTemplate.update(INSERT_JOB_POSTS, from, jobPosts);
+        jdbcTemplate.update(INSERT_JOB_TAG_LINKS, from, jobPosts);
+        jdbcTemplate.update(INSERT_JOB_DEFINITION_LINKS, from, jobPosts);
+        jdbcTemplate.update(UPDATE_JOB_DEFINITION_IDS, from, jobPosts);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    private Measurement measure(Supplier<Page<JobPostDto>> search) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            search.get();
+        }
+
+        long start = System.nanoTime();
+        Page<JobPostDto> page = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            page = search.get();
+        }
+        return new Measurement(page, (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS);
+    }
+
+    private static List<Long> ids(Page<JobPostDto> page) {
+        return page.getContent().stream()
+                .map(JobPostDto::id)
+                .toList();
+    }
+
+    /**
+     * The previous implementation: the ids of the page, then the job posts with both collections fetch joined,
+     * then the total.
+     */
+    private Page<JobPostDto> findAllWithThreeQueries(JobPostGetRequest jobPostGetRequest, Pageable pageable) {
+        var jobPostTable = QJobPost.jobPost;
+        var queryFactory = new JPAQueryFactory(entityManager);
+        OrderSpecifier<LocalDate> order = JobPostPredicates.orderByClosestDeadline();
+
+        List<Long> jobPostIds = queryFactory
+                .select(jobPostTable.id)
+                .from(jobPostTable)
+                .where(filterPredicate(jobPostGetRequest))
+                .orderBy(order, JobPostPredicates.orderByIdAlong(order))
+                .limit(pageable.getPageSize())
+                .offset(pageable.getOffset())
+                .fetch();
+
+        List<JobPost> jobPosts = queryFactory
+                .selectFrom(jobPostTable)
+                .leftJoin(jobPostTable.jobTags).fetchJoin()
+                .leftJoin(jobPostTable.jobDefinitions).fetchJoin()
+                .where(jobPostTable.id.in(jobPostIds))
+                .orderBy(order, JobPostPredicates.orderByIdAlong(order))
+                .fetch();
+
+        var jobPostDtos = jobPosts.stream()
+                .map(new JobPostDtoMapper())
+                .toList();
+
+        return PageableExecutionUtils.getPage(jobPostDtos, pageable, () -> queryFactory
+                .select(jobPostTable.count())
+                .from(jobPostTable)
+                .where(filterPredicate(jobPostGetRequest))
+                .fetchOne());
+    }
+
+    private Predicate filterPredicate(JobPostGetRequest jobPostGetRequest) {
+        return JobPostPredicates.hasUrl()
+                .and(JobPostPredicates.isNotExpired())
+                .and(JobPostPredicates.hasDeadlineNotPassed())
+                .and(JobPostPredicates.hasJobDefinition("Sektor", jobPostGetRequest.sector()));
+    }
+
+    private record Measurement(Page<JobPostDto> page, double averageMs) {
+    }
+}
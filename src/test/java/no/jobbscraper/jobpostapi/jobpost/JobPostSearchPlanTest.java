@@ -0,0 +1,210 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import no.jobbscraper.jobpostapi.PostgreSQLContainerInitializer;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DirtiesContext
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "no.jobbscraper.jobpostapi.jobpost.JobPostSearchPlanTest$CapturingStatementInspector")
+@AutoConfigureTestDatabase(replace= AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(initializers = {PostgreSQLContainerInitializer.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class JobPostSearchPlanTest {
+
+    private static final int JOB_POSTS = 20_000;
+
+    private static final int MAX_CANDIDATES = 1000;
+
+    // The text search configuration of the full-text search. It outlives the test schema in the shared container.
+    private static final String TEXT_SEARCH_CONFIG_MIGRATION =
+            "db/migration/postgresql/V18__add_norwegian_text_search_config.sql";
+
+    private static final String TEXT_SEARCH_CONFIG_EXISTS =
+            "SELECT exists(SELECT 1 FROM pg_ts_config WHERE cfgname = 'norwegian_unaccent')";
+
+    // The test schema is generated by Hibernate, without the indexes of the migrations.
+    private static final List<String> SEARCH_INDEX_MIGRATIONS = List.of(
+            "db/migration/postgresql/V10__add_keyset_pagination_indexes.sql",
+            "db/migration/postgresql/V16__add_live_tsv_document_index.sql");
+
+    // Half of the job posts have a deadline that has passed, like the job posts that pile up in production. Every
+    // job post matches "job", with the tsv_document the update_tsv_document trigger of the migrations would set.
+    private static final String INSERT_JOB_POSTS = """
+            INSERT INTO jobposts (jobpost_id, created_at, url, company_name, title, description, deadline,
+                                  tsv_document)
+            SELECT g, current_date - 400, 'https://example.com/plan/' || g, 'Company ' || g % 500,
+                   'Job title ' || g, 'Description of job ' || g,
+                   CASE WHEN g % 10 = 0 THEN NULL
+                        WHEN g % 2 = 0 THEN current_date - (g % 365)::int - 1
+                        ELSE current_date + (g % 365)::int END,
+                   setweight(to_tsvector('norwegian_unaccent', 'Job title ' || g), 'A')
+                       || setweight(to_tsvector('norwegian_unaccent', 'Description of job ' || g), 'B')
+            FROM generate_series(1, ?) g
+            """;
+
+    private static final JobPostGetRequest DEFAULT_SEARCH =
+            new JobPostGetRequest(null, null, null, null, null, null, null, null);
+
+    // A search by relevance for a query every job post matches in its title, see JobPostPredicates.isAmongFirst.
+    private static final String EXPLAIN_RELEVANCE_SEARCH = """
+            EXPLAIN (ANALYZE, COSTS OFF, TIMING OFF, SUMMARY OFF)
+            SELECT j.jobpost_id FROM jobposts j
+            WHERE j.jobpost_id IN (((SELECT c.jobpost_id FROM jobposts c
+                                     WHERE c.url IS NOT NULL AND c.expired_at IS NULL
+                                       AND coalesce(c.deadline, cast('infinity' AS date)) >= ?
+                                       AND c.tsv_document @@ websearch_to_tsquery('norwegian_unaccent', 'job')
+                                       AND c.tsv_document @@ cast('job:A' AS tsquery)
+                                     ORDER BY coalesce(c.deadline, cast('infinity' AS date)), c.jobpost_id)
+                                    LIMIT ?)
+                                   UNION ALL
+                                   ((SELECT c.jobpost_id FROM jobposts c
+                                     WHERE c.url IS NOT NULL AND c.expired_at IS NULL
+                                       AND coalesce(c.deadline, cast('infinity' AS date)) >= ?
+                                       AND c.tsv_document @@ websearch_to_tsquery('norwegian_unaccent', 'job')
+                                       AND NOT c.tsv_document @@ cast('job:A' AS tsquery)
+                                     ORDER BY coalesce(c.deadline, cast('infinity' AS date)), c.jobpost_id)
+                                    LIMIT ?)
+                                   LIMIT ?)
+            ORDER BY ts_rank_cd(j.tsv_document, websearch_to_tsquery('norwegian_unaccent', 'job'), 1) DESC,
+                     coalesce(j.deadline, cast('infinity' AS date)), j.jobpost_id
+            LIMIT 20
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JobPostRepositoryCustom jobPostRepositoryCustom;
+
+    @BeforeAll
+    void setUp() {
+        if (!jdbcTemplate.queryForObject(TEXT_SEARCH_CONFIG_EXISTS, Boolean.class)) {
+            new ResourceDatabasePopulator(new ClassPathResource(TEXT_SEARCH_CONFIG_MIGRATION)).execute(dataSource);
+        }
+        jdbcTemplate.update(INSERT_JOB_POSTS, JOB_POSTS);
+        SEARCH_INDEX_MIGRATIONS.forEach(migration ->
+                new ResourceDatabasePopulator(new ClassPathResource(migration)).execute(dataSource));
+        jdbcTemplate.execute("ANALYZE jobposts");
+    }
+
+    @Test
+    @DisplayName("It should find the first page of the default search by an index range scan starting at today")
+    void itShouldFindDefaultSearchPageByIndexRangeScan() {
+        // Given
+        CapturingStatementInspector.STATEMENTS.clear();
+        jobPostRepositoryCustom.findAll(DEFAULT_SEARCH, PageRequest.of(0, 20), JobPostTotalMode.NONE);
+        String search = CapturingStatementInspector.STATEMENTS.stream()
+                .filter(statement -> statement.contains("jobposts"))
+                .findFirst()
+                .orElseThrow();
+
+        // When
+        String plan = explainGenericPlan(search);
+
+        // Then
+        assertThat(plan)
+                .contains("Index Scan using idx_jobposts_closest_deadline")
+                .contains("Index Cond: (COALESCE(deadline, 'infinity'::date) >= ");
+        // The subplans aggregate the tags and definitions of each job post on the page, in order.
+        assertThat(plan.lines().takeWhile(line -> !line.strip().startsWith("SubPlan")))
+                .noneMatch(line -> line.contains("Sort"));
+    }
+
+    @Test
+    @DisplayName("It should rank only the first candidates of a search by relevance, not every matching job post")
+    void itShouldRankOnlyCandidatesOfRelevanceSearch() {
+        // When
+        Date today = Date.valueOf(LocalDate.now());
+        String plan = String.join("\n", jdbcTemplate.queryForList(EXPLAIN_RELEVANCE_SEARCH, String.class,
+                today, MAX_CANDIDATES, today, MAX_CANDIDATES, MAX_CANDIDATES));
+
+        // Then
+        String ranked = plan.substring(plan.indexOf("Sort Key: (ts_rank_cd"));
+        String sortInput = ranked.lines()
+                .filter(line -> line.strip().startsWith("->"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(sortInput).contains("(actual rows=" + MAX_CANDIDATES + " loops=1)");
+        assertThat(ranked).contains("Limit (actual rows=" + MAX_CANDIDATES + " loops=1)");
+    }
+
+    /**
+     * Explains a statement as generated, planned for any value of its parameters like a prepared statement that is
+     * reused.
+     */
+    private String explainGenericPlan(String statement) {
+        StringBuilder numbered = new StringBuilder();
+        List<String> parameters = new ArrayList<>();
+        for (char c : statement.toCharArray()) {
+            if (c == '?') {
+                parameters.add("NULL");
+                numbered.append('$').append(parameters.size());
+            } else {
+                numbered.append(c);
+            }
+        }
+
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement explain = connection.createStatement()) {
+                explain.execute("PREPARE search AS " + numbered);
+                explain.execute("SET plan_cache_mode = force_generic_plan");
+                try (ResultSet plan = explain.executeQuery(
+                        "EXPLAIN (COSTS OFF) EXECUTE search(" + String.join(", ", parameters) + ")")) {
+                    StringJoiner lines = new StringJoiner("\n");
+                    while (plan.next()) {
+                        lines.add(plan.getString(1));
+                    }
+                    return lines.toString();
+                }
+            } finally {
+                try (Statement cleanUp = connection.createStatement()) {
+                    cleanUp.execute("RESET plan_cache_mode");
+                    cleanUp.execute("DEALLOCATE ALL");
+                }
+            }
+        });
+    }
+
+    /**
+     * Captures the SQL of every statement Hibernate prepares, registered as its statement inspector.
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -1,27 +1,36 @@
 package no.jobbscraper.jobpostapi.jobpost;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import net.datafaker.Faker;
 import no.jobbscraper.jobpostapi.exception.BadSecretKeyException;
+import no.jobbscraper.jobpostapi.exception.IngestBatchNotFoundException;
+import no.jobbscraper.jobpostapi.exception.InvalidTotalModeException;
 import no.jobbscraper.jobpostapi.exception.JobPostNotFoundException;
-import no.jobbscraper.jobpostapi.jobdefinition.JobDefinitionRepository;
-import no.jobbscraper.jobpostapi.jobtag.JobTagRepository;
+import no.jobbscraper.jobpostapi.geography.Gazetteer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.quickperf.junit5.QuickPerfTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -34,22 +43,46 @@ class JobPostServiceTest {
 
     private Faker faker;
 
-    @InjectMocks
     private JobPostService underTest;
     @Mock
     private JobPostRepository jobPostRepository;
     @Mock
     private JobPostRepositoryCustom jobPostRepositoryCustom;
     @Mock
-    private JobTagRepository jobTagRepository;
+    private JobPostDictionaryResolver jobPostDictionaryResolver;
     @Mock
-    private JobDefinitionRepository jobDefinitionRepository;
+    private JobPostLinkWriter jobPostLinkWriter;
+    @Mock
+    private JobPostIngestQueue jobPostIngestQueue;
+    @Mock
+    private JobPostBulkLoader jobPostBulkLoader;
+    @Mock
+    private JobPostSourceSyncer jobPostSourceSyncer;
+    @Mock
+    private JobPostUrlRepository jobPostUrlRepository;
     @Mock
     private JobPostDtoMapper jobPostDTOMapper;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    private JobPostUrlFilter jobPostUrlFilter;
 
     @BeforeEach
     void setUp() {
         faker = new Faker();
+        jobPostUrlFilter = new JobPostUrlFilter(jdbcTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jobPostUrlFilter, "enabled", true);
+        ReflectionTestUtils.setField(jobPostUrlFilter, "expectedUrls", 1000L);
+        ReflectionTestUtils.setField(jobPostUrlFilter, "falsePositiveRate", 0.01);
+        JobPostChunkedIngester jobPostChunkedIngester = new JobPostChunkedIngester(
+                new JobPostIngester(jobPostRepository, jobPostDictionaryResolver, jobPostLinkWriter, jobPostUrlFilter,
+                        new Gazetteer(jdbcTemplate, new ClassPathResource("geography/gazetteer.csv")),
+                        applicationEventPublisher),
+                jobPostUrlFilter);
+        ReflectionTestUtils.setField(jobPostChunkedIngester, "chunkSize", 50);
+        underTest = new JobPostService(jobPostRepository, jobPostRepositoryCustom, jobPostChunkedIngester,
+                jobPostIngestQueue, jobPostBulkLoader, jobPostSourceSyncer, jobPostUrlRepository, jobPostDTOMapper);
         ReflectionTestUtils.setField(underTest, "secretKey", "mySuperSecretKey");
     }
 
@@ -58,7 +91,7 @@ class JobPostServiceTest {
     void itShouldGetAllJobPosts() {
         // Given
         JobPostGetRequest jobPostGetRequest =
-                new JobPostGetRequest(null, null, null, null, null);
+                new JobPostGetRequest(null, null, null, null, null, null, null, null);
         int page = 0;
         int size = 12;
         PageRequest pageRequest = PageRequest.of(page, size);
@@ -78,6 +111,23 @@ class JobPostServiceTest {
         assertThat(response.isEmpty()).isFalse();
     }
 
+    @Test
+    @DisplayName("It should not get job posts with a total mode that does not exist")
+    void itShouldNotGetJobPostsWithInvalidTotalMode() {
+        // Given
+        JobPostGetRequest jobPostGetRequest =
+                new JobPostGetRequest(null, null, null, null, null, null, null, null);
+        PageRequest pageRequest = PageRequest.of(0, 12);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getJobPosts(jobPostGetRequest, pageRequest, "roughly"))
+                .isInstanceOf(InvalidTotalModeException.class)
+                .hasMessage("Total roughly is not one of exact, estimated or none");
+
+        verifyNoInteractions(jobPostRepositoryCustom);
+    }
+
     @Test
     @DisplayName("It should get a JobPostDto from jobPostId")
     void itShouldGetJobPostFromId() {
@@ -133,18 +183,143 @@ class JobPostServiceTest {
 
         String secretKey = "mySuperSecretKey";
 
-        JobPost jobPostWithId = JobPostUtil.getJobPost();
-        jobPostWithId.setId(faker.random().nextLong(1, 100));
+        // When
+        when(jobPostRepository.findExistingJobPosts(anyCollection())).thenReturn(Collections.emptyList());
+
+        when(jobPostDictionaryResolver.resolve(anyCollection())).thenReturn(dictionaryFor(jobPostCreateDtos));
+
+        when(jobPostRepository.saveAll(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        // Then
+        List<JobPostCreateResult> response = underTest.createJobPosts(jobPostCreateRequest, secretKey);
+
+        verify(jobPostRepository, times(1)).findExistingJobPosts(anyCollection());
+        verify(jobPostRepository, times(1)).saveAll(anyList());
+        verify(jobPostLinkWriter, times(1)).insertLinks(anyCollection(), anyCollection());
+        assertThat(response.stream().allMatch(result -> result.status() == JobPostCreateStatus.CREATED)).isTrue();
+    }
+
+    @Test
+    @DisplayName("It should leave unchanged job posts alone and skip repeated urls")
+    void itShouldSkipUnchangedAndRepeatedJobPosts() {
+        // Given
+        JobPostCreateDto unchanged = JobPostUtil.getJobPostCreateDtoFrom(JobPostUtil.getJobPost());
+        JobPostCreateDto created = JobPostUtil.getJobPostCreateDtoFrom(JobPostUtil.getJobPost());
+
+        JobPostCreateRequest jobPostCreateRequest =
+                new JobPostCreateRequest(List.of(unchanged, created, created));
+
+        String secretKey = "mySuperSecretKey";
 
         // When
-        when(jobPostRepository.existsByUrl(any(String.class))).thenReturn(false);
+        when(jobPostRepository.findExistingJobPosts(anyCollection())).thenReturn(List.of(
+                new ExistingJobPost(7L, unchanged.url(), JobPostContentHash.of(unchanged))));
+
+        when(jobPostDictionaryResolver.resolve(anyCollection())).thenReturn(dictionaryFor(List.of(created)));
 
-        when(jobPostRepository.save(any(JobPost.class))).thenReturn(jobPostWithId);
+        when(jobPostRepository.saveAll(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
 
         // Then
-        underTest.createJobPosts(jobPostCreateRequest, secretKey);
+        List<JobPostCreateResult> response = underTest.createJobPosts(jobPostCreateRequest, secretKey);
+
+        assertThat(response.get(0)).isEqualTo(JobPostCreateResult.unchanged(unchanged.url(), 7L));
+        assertThat(response.get(1).status()).isEqualTo(JobPostCreateStatus.CREATED);
+        assertThat(response.get(1).id()).isNotNull();
+        assertThat(response.get(2).status()).isEqualTo(JobPostCreateStatus.SKIPPED_DUPLICATE);
+        verify(jobPostRepository, times(1)).saveAll(anyList());
+        verify(jobPostRepository, never()).findAllById(anyCollection());
+    }
 
-        verify(jobPostRepository, times(jobPostCreateDtos.size())).save(any(JobPost.class));
+    @Test
+    @DisplayName("It should update job posts whose content changed")
+    void itShouldUpdateChangedJobPosts() {
+        // Given
+        JobPost stored = JobPostUtil.getJobPost();
+        stored.setId(7L);
+        JobPostCreateDto changed = JobPostUtil.getJobPostCreateDtoFrom(stored);
+        stored.setTitle("Old title");
+
+        JobPostCreateRequest jobPostCreateRequest = new JobPostCreateRequest(List.of(changed));
+
+        String secretKey = "mySuperSecretKey";
+        JobPostLink staleJobTagLink = new JobPostLink(7L, 999L);
+
+        // When
+        when(jobPostRepository.findExistingJobPosts(anyCollection())).thenReturn(List.of(
+                new ExistingJobPost(7L, changed.url(), "stale")));
+
+        when(jobPostDictionaryResolver.resolve(anyCollection())).thenReturn(dictionaryFor(List.of(changed)));
+
+        when(jobPostRepository.findAllById(anyCollection())).thenReturn(List.of(stored));
+
+        when(jobPostLinkWriter.findJobTagLinks(anyCollection())).thenReturn(List.of(staleJobTagLink));
+
+        when(jobPostLinkWriter.findJobDefinitionLinks(anyCollection())).thenReturn(List.of());
+
+        // Then
+        List<JobPostCreateResult> response = underTest.createJobPosts(jobPostCreateRequest, secretKey);
+
+        assertThat(response.get(0)).isEqualTo(JobPostCreateResult.updated(changed.url(), 7L));
+        assertThat(stored.getTitle()).isEqualTo(changed.title());
+        assertThat(stored.getContentHash()).isEqualTo(JobPostContentHash.of(changed));
+        verify(jobPostLinkWriter, times(1)).deleteLinks(List.of(staleJobTagLink), List.of());
+    }
+
+    @Test
+    @DisplayName("It should not look up urls that the url filter rules out")
+    void itShouldSkipLookupOfUrlsRuledOutByUrlFilter() {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(faker.random().nextInt(15, 30)).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+
+        JobPostCreateRequest jobPostCreateRequest = new JobPostCreateRequest(jobPostCreateDtos);
+
+        String secretKey = "mySuperSecretKey";
+
+        // When
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        jobPostUrlFilter.rebuild();
+
+        when(jobPostDictionaryResolver.resolve(anyCollection())).thenReturn(dictionaryFor(jobPostCreateDtos));
+
+        when(jobPostRepository.saveAll(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        // Then
+        List<JobPostCreateResult> response = underTest.createJobPosts(jobPostCreateRequest, secretKey);
+
+        verify(jobPostRepository, never()).findExistingJobPosts(anyCollection());
+        assertThat(response.stream().allMatch(result -> result.status() == JobPostCreateStatus.CREATED)).isTrue();
+        assertThat(jobPostCreateDtos.stream().allMatch(jobPostCreateDto ->
+                jobPostUrlFilter.mightContain(jobPostCreateDto.url()))).isTrue();
+    }
+
+    @Test
+    @DisplayName("It should look up every url, including those the url filter rules out")
+    void itShouldFindNewUrls() {
+        // Given
+        String stored = "https://example.com/stored";
+        String maybeStored = "https://example.com/maybe-stored";
+        String storedElsewhere = "https://example.com/stored-elsewhere";
+
+        JobPostNewUrlsRequest newUrlsRequest =
+                new JobPostNewUrlsRequest(List.of(storedElsewhere, stored, maybeStored, stored), null);
+
+        String secretKey = "mySuperSecretKey";
+
+        // When
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        jobPostUrlFilter.rebuild();
+        jobPostUrlFilter.addAll(List.of(stored, maybeStored));
+
+        when(jobPostUrlRepository.findNewUrls(Set.of(storedElsewhere, stored, maybeStored)))
+                .thenReturn(List.of(maybeStored));
+
+        // Then
+        JobPostNewUrlsResult result = underTest.findNewUrls(newUrlsRequest, secretKey);
+
+        assertThat(result.urls()).isEqualTo(List.of(maybeStored));
+        assertThat(result.urlHashes()).isNull();
     }
 
     @Test
@@ -156,7 +331,7 @@ class JobPostServiceTest {
         String secretKey = "mySuperSecretKey";
 
         // When
-        List<Long> response = underTest.createJobPosts(jobPostCreateRequest, secretKey);
+        List<JobPostCreateResult> response = underTest.createJobPosts(jobPostCreateRequest, secretKey);
 
         // Then
         assertThat(response.size()).isEqualTo(0);
@@ -189,4 +364,113 @@ class JobPostServiceTest {
                 .isInstanceOf(BadSecretKeyException.class)
                 .hasMessage("Invalid access");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("It not should bulk load any job posts if secret key is invalid")
+    void itShouldNotBulkLoadJobPostsIfSecretKeyInvalid() {
+        // Given
+        InputStream inputStream = new ByteArrayInputStream(new byte[0]);
+        String givenSecretKey = UUID.randomUUID().toString();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.bulkLoadJobPosts(inputStream, givenSecretKey))
+                .isInstanceOf(BadSecretKeyException.class)
+                .hasMessage("Invalid access");
+
+        verifyNoInteractions(jobPostBulkLoader);
+    }
+
+    @Test
+    @DisplayName("It not should sync any source if secret key is invalid")
+    void itShouldNotSyncSourceIfSecretKeyInvalid() {
+        // Given
+        InputStream inputStream = new ByteArrayInputStream(new byte[0]);
+        String givenSecretKey = UUID.randomUUID().toString();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.syncSource("www.finn.no", inputStream, givenSecretKey))
+                .isInstanceOf(BadSecretKeyException.class)
+                .hasMessage("Invalid access");
+
+        verifyNoInteractions(jobPostSourceSyncer);
+    }
+
+    @Test
+    @DisplayName("It not should queue any job posts if secret key is invalid")
+    void itShouldNotEnqueueJobPostsIfSecretKeyInvalid() {
+        // Given
+        JobPostCreateRequest jobPostCreateRequest = new JobPostCreateRequest(Collections.emptyList());
+        String givenSecretKey = UUID.randomUUID().toString();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.enqueueJobPosts(jobPostCreateRequest, givenSecretKey))
+                .isInstanceOf(BadSecretKeyException.class)
+                .hasMessage("Invalid access");
+
+        verifyNoInteractions(jobPostIngestQueue);
+    }
+
+    @Test
+    @DisplayName("It should not get an ingest batch that is unknown")
+    void itShouldNotGetUnknownIngestBatch() {
+        // Given
+        UUID batchId = UUID.randomUUID();
+
+        // When
+        when(jobPostIngestQueue.getStatus(batchId)).thenReturn(Optional.empty());
+
+        // Then
+        assertThatThrownBy(() -> underTest.getIngestBatch(batchId, "mySuperSecretKey"))
+                .isInstanceOf(IngestBatchNotFoundException.class)
+                .hasMessage("Ingest batch with id " + batchId + " was not found");
+    }
+
+    @Test
+    @DisplayName("It should resolve tags and job definitions once for all new job posts")
+    void itShouldResolveDictionaryOnceForAllJobPosts() {
+        // Given
+        List<JobPostCreateDto> jobPostCreateDtos = JobPostUtil.getJobPosts(faker.random().nextInt(15, 30)).stream()
+                .map(JobPostUtil::getJobPostCreateDtoFrom)
+                .toList();
+
+        JobPostCreateRequest jobPostCreateRequest = new JobPostCreateRequest(jobPostCreateDtos);
+
+        String secretKey = "mySuperSecretKey";
+
+        // When
+        when(jobPostRepository.findExistingJobPosts(anyCollection())).thenReturn(Collections.emptyList());
+
+        when(jobPostDictionaryResolver.resolve(anyCollection())).thenReturn(dictionaryFor(jobPostCreateDtos));
+
+        when(jobPostRepository.saveAll(anyList())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+
+        // Then
+        underTest.createJobPosts(jobPostCreateRequest, secretKey);
+
+        verify(jobPostDictionaryResolver, times(1)).resolve(jobPostCreateDtos);
+    }
+
+    private static JobPostDictionary dictionaryFor(List<JobPostCreateDto> jobPostCreateDtos) {
+        Map<String, Long> jobTagIds = new HashMap<>();
+        Map<String, Long> jobDefinitionIds = new HashMap<>();
+
+        for (JobPostCreateDto jobPostCreateDto : jobPostCreateDtos) {
+            jobPostCreateDto.jobTags().forEach(jobTag ->
+                    jobTagIds.put(JobPostDictionary.tagKey(jobTag.getTag()), jobTagIds.size() + 1L));
+            jobPostCreateDto.jobDefinitions().forEach(jobDefinition ->
+                    jobDefinitionIds.put(JobPostDictionary.definitionKey(jobDefinition.getKey(), jobDefinition.getValue()),
+                            jobDefinitionIds.size() + 1L));
+        }
+        return new JobPostDictionary(jobTagIds, jobDefinitionIds);
+    }
+
+    private static List<JobPost> assignIds(List<JobPost> jobPosts) {
+        for (int i = 0; i < jobPosts.size(); i++) {
+            jobPosts.get(i).setId(i + 1L);
+        }
+        return jobPosts;
+    }
+}
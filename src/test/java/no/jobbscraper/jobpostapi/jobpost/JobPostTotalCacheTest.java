@@ -0,0 +1,71 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobPostTotalCacheTest {
+
+    private JobPostTotalCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new JobPostTotalCache();
+        ReflectionTestUtils.setField(underTest, "ttl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(underTest, "maxEntries", 2);
+    }
+
+    @Test
+    @DisplayName("It should return the total of the same criteria within the ttl")
+    void itShouldGetCachedTotal() {
+        // Given
+        underTest.put(new JobPostGetRequest("java", null, "Offentlig", null, null, null, null, null), 42);
+
+        // When
+        OptionalLong total = underTest.get(new JobPostGetRequest("java", null, "Offentlig", null, null, null, null, null));
+
+        // Then
+        assertThat(total).hasValue(42);
+        assertThat(underTest.get(new JobPostGetRequest("java", null, "Privat", null, null, null, null, null))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("It should not return a total after the ttl")
+    void itShouldNotGetStaleTotal() throws InterruptedException {
+        // Given
+        ReflectionTestUtils.setField(underTest, "ttl", Duration.ofMillis(1));
+        JobPostGetRequest jobPostGetRequest = new JobPostGetRequest("java", null, null, null, null, null, null, null);
+        underTest.put(jobPostGetRequest, 42);
+
+        // When
+        Thread.sleep(10);
+
+        // Then
+        assertThat(underTest.get(jobPostGetRequest)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("It should evict every total when full of totals within the ttl")
+    void itShouldEvictTotalsWhenFull() {
+        // Given
+        JobPostGetRequest first = new JobPostGetRequest("java", null, null, null, null, null, null, null);
+        JobPostGetRequest second = new JobPostGetRequest("kotlin", null, null, null, null, null, null, null);
+        JobPostGetRequest third = new JobPostGetRequest("scala", null, null, null, null, null, null, null);
+        underTest.put(first, 42);
+        underTest.put(second, 7);
+
+        // When
+        underTest.put(third, 3);
+
+        // Then
+        assertThat(underTest.get(first)).isEmpty();
+        assertThat(underTest.get(second)).isEmpty();
+        assertThat(underTest.get(third)).hasValue(3);
+    }
+}
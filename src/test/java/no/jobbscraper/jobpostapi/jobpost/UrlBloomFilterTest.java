@@ -0,0 +1,58 @@
+package no.jobbscraper.jobpostapi.jobpost;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UrlBloomFilterTest {
+
+    private static final int URLS = 100_000;
+
+    @Test
+    @DisplayName("It should contain every url that was put")
+    void itShouldContainEveryPutUrl() {
+        // Given
+        UrlBloomFilter underTest = UrlBloomFilter.create(URLS, 0.01);
+
+        // When
+        IntStream.range(0, URLS).forEach(i -> underTest.put(url(i)));
+
+        // Then
+        assertThat(IntStream.range(0, URLS).allMatch(i -> underTest.mightContain(url(i)))).isTrue();
+    }
+
+    @Test
+    @DisplayName("It should keep the false positive rate near the configured rate when filled to capacity")
+    void itShouldKeepFalsePositiveRate() {
+        // Given
+        UrlBloomFilter underTest = UrlBloomFilter.create(URLS, 0.01);
+        IntStream.range(0, URLS).forEach(i -> underTest.put(url(i)));
+
+        // When
+        long falsePositives = IntStream.range(URLS, 2 * URLS)
+                .filter(i -> underTest.mightContain(url(i)))
+                .count();
+
+        // Then
+        assertThat((double) falsePositives / URLS).isLessThan(0.015);
+        assertThat(underTest.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+        assertThat(underTest.sizeInBytes()).isLessThan(URLS * 2L);
+    }
+
+    @Test
+    @DisplayName("It should not create a filter with an impossible false positive rate")
+    void itShouldRejectInvalidFalsePositiveRate() {
+        // When
+        // Then
+        assertThatThrownBy(() -> UrlBloomFilter.create(URLS, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String url(int i) {
+        return "https://www.finn.no/job/fulltime/ad.html?finnkode=" + (300_000_000 + i);
+    }
+}
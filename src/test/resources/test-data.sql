@@ -71,4 +71,13 @@ VALUES
 (855, 8),  -- JobPost 8 definitions: Category - Mobile Development
 (955, 9),  -- JobPost 9 definitions: Category - UI/UX Design
 (1550, 10)  -- JobPost 10 definitions: Category - Project Management
-ON CONFLICT (jobpost_id, jobdescription_id) DO NOTHING;
\ No newline at end of file
+ON CONFLICT (jobpost_id, jobdescription_id) DO NOTHING;
+-- Kept by JobPostIngester in the application, see V13__add_job_definition_ids.sql.
+UPDATE jobposts j
+SET job_definition_ids = coalesce((SELECT array_agg(l.jobdescription_id ORDER BY l.jobdescription_id)
+                                   FROM j_jobpost_descriptions l
+                                   WHERE l.jobpost_id = j.jobpost_id), '{}');
+
+-- Past the ids above, like V6__add_jobposts_sequence.sql positions the sequence past the stored job posts, so that
+-- the ids created by the tests never collide with them.
+SELECT setval('jobposts_seq', (SELECT coalesce(max(jobpost_id), 0) + 50 FROM jobposts), false);